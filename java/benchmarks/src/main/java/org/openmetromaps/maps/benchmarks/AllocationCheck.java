@@ -0,0 +1,182 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.metrics.ThreadAllocationProbe;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.awt.LabelSpriteCache;
+import org.openmetromaps.maps.painting.core.Painter;
+
+/**
+ * Checks that painting frames with a renderer whose caches have been filled
+ * does not allocate any memory. Each configuration is painted at a few
+ * positions during a warmup phase and then again at the same positions while
+ * counting the bytes allocated by the current thread. Each configuration is
+ * checked without a selection, with some stations selected and hovered, and
+ * with an {@link AwtPainter} that draws labels from sprites. Exits with a
+ * non-zero status if any configuration allocates.
+ *
+ * Java2D itself allocates a path iterator for each shape it draws, so the
+ * bytes of the AWT configuration are reported but do not fail the check. Use
+ * a profiler to attribute them.
+ */
+public class AllocationCheck
+{
+
+	private static final int WARMUP_ROUNDS = 200;
+	private static final int ROUNDS = 50;
+
+	// offsets of the viewport in pixels, so that panning is covered as well
+	private static final int[] PAN = new int[] { 0, 0, 50, 0, 50, 50, 0, 50 };
+
+	private static final double[] ZOOMS = new double[] { 0.5, 1, 2, 4 };
+
+	// every n-th station is selected for the selection configuration
+	private static final int SELECTION_STEP = 10;
+
+	private enum Configuration {
+		PLAIN,
+		SELECTION,
+		AWT
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		ThreadAllocationProbe probe = new ThreadAllocationProbe();
+		if (!probe.isSupported()) {
+			System.out.println("Allocation counters not supported by this JVM");
+			System.exit(2);
+		}
+
+		String[] models = args;
+		if (models.length == 0) {
+			models = new String[] { BenchmarkModels.BERLIN, "synthetic-10000" };
+		}
+
+		boolean failed = false;
+		for (String name : models) {
+			MapModel model = BenchmarkModels.load(name);
+			for (StationMode stationMode : StationMode.values()) {
+				for (SegmentMode segmentMode : SegmentMode.values()) {
+					for (double zoom : ZOOMS) {
+						for (Configuration configuration : Configuration
+								.values()) {
+							BenchmarkSetup setup = new BenchmarkSetup(model,
+									stationMode, segmentMode, zoom);
+							long bytes = measure(probe, setup, configuration);
+							System.out.println(String.format(
+									"%s %s %s %.1f %s: %d bytes", name,
+									stationMode, segmentMode, zoom,
+									configuration, bytes));
+							if (configuration != Configuration.AWT) {
+								failed |= bytes > 0;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		System.exit(failed ? 1 : 0);
+	}
+
+	/**
+	 * @return the number of bytes allocated while painting.
+	 */
+	private static long measure(ThreadAllocationProbe probe,
+			BenchmarkSetup setup, Configuration configuration)
+	{
+		Painter painter = new NullPainter();
+		Graphics2D g = null;
+		if (configuration == Configuration.SELECTION) {
+			select(setup);
+		} else if (configuration == Configuration.AWT) {
+			BufferedImage image = new BufferedImage(BenchmarkSetup.WIDTH,
+					BenchmarkSetup.HEIGHT, BufferedImage.TYPE_INT_RGB);
+			g = image.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			painter = new AwtPainter(g, new LabelSpriteCache());
+		}
+
+		try {
+			return measure(probe, setup, painter);
+		} finally {
+			if (g != null) {
+				g.dispose();
+			}
+		}
+	}
+
+	private static void select(BenchmarkSetup setup)
+	{
+		List<Node> nodes = setup.model.getViews().get(0).getLineNetwork()
+				.getNodes();
+		MapViewStatus status = setup.status;
+		for (int i = 0; i < nodes.size(); i += SELECTION_STEP) {
+			status.selectNode(nodes.get(i));
+		}
+		status.setHoveredNode(nodes.get(nodes.size() / 2));
+	}
+
+	private static long measure(ThreadAllocationProbe probe,
+			BenchmarkSetup setup, Painter painter)
+	{
+		double x = setup.view.getPositionX();
+		double y = setup.view.getPositionY();
+		double zoom = setup.view.getZoom();
+
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			paintRound(setup, painter, x, y, zoom);
+		}
+
+		// querying the probe may allocate itself
+		long a = probe.getAllocatedBytes();
+		long b = probe.getAllocatedBytes();
+		long overhead = b - a;
+
+		long start = probe.getAllocatedBytes();
+		for (int i = 0; i < ROUNDS; i++) {
+			paintRound(setup, painter, x, y, zoom);
+		}
+		long end = probe.getAllocatedBytes();
+
+		return Math.max(0, end - start - overhead);
+	}
+
+	private static void paintRound(BenchmarkSetup setup, Painter painter,
+			double x, double y, double zoom)
+	{
+		for (int k = 0; k < PAN.length; k += 2) {
+			setup.view.setPositionX(x + PAN[k] / zoom);
+			setup.view.setPositionY(y + PAN[k + 1] / zoom);
+			setup.renderer.paint(painter);
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+
+/**
+ * Measures painting a full frame with Java2D into an offscreen image, i.e.
+ * including the cost of the AWT backend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class AwtRenderBenchmark
+{
+
+	@Param({ "berlin", "synthetic-10000" })
+	public String model;
+
+	@Param({ "DOT", "CONVEX" })
+	public StationMode stationMode;
+
+	@Param({ "STRAIGHT", "CURVE" })
+	public SegmentMode segmentMode;
+
+	@Param({ "1", "2" })
+	public double zoom;
+
+	@Param({ "true", "false" })
+	public boolean antialiasing;
+
+	private BenchmarkSetup setup;
+	private BufferedImage image;
+	private Graphics2D g;
+	private AwtPainter painter;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		setup = new BenchmarkSetup(BenchmarkModels.load(model), stationMode,
+				segmentMode, zoom);
+		image = new BufferedImage(BenchmarkSetup.WIDTH,
+				BenchmarkSetup.HEIGHT, BufferedImage.TYPE_INT_RGB);
+		g = image.createGraphics();
+		if (antialiasing) {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+		}
+		painter = new AwtPainter(g);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		g.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage paint()
+	{
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, BenchmarkSetup.WIDTH, BenchmarkSetup.HEIGHT);
+		setup.renderer.paint(painter);
+		return image;
+	}
+
+}
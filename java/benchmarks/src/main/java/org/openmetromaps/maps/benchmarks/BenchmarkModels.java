@@ -0,0 +1,77 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.benchmarks;
+
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.ModelUtil;
+import org.openmetromaps.maps.TestData;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkConfig;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkGenerator;
+import org.openmetromaps.maps.xml.XmlModel;
+import org.openmetromaps.maps.xml.XmlModelConverter;
+
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * The models the benchmarks run on. Models are selected by name: "berlin" for
+ * the Berlin test data, "synthetic-N" for a synthetic network with about N
+ * stations.
+ */
+public class BenchmarkModels
+{
+
+	public static final String BERLIN = "berlin";
+	public static final String SYNTHETIC = "synthetic-";
+
+	public static MapModel load(String name) throws ParsingException
+	{
+		MapModel model;
+		if (name.equals(BERLIN)) {
+			model = berlin();
+		} else if (name.startsWith(SYNTHETIC)) {
+			int size = Integer.parseInt(name.substring(SYNTHETIC.length()));
+			model = synthetic(size);
+		} else {
+			throw new IllegalArgumentException("Unknown model: " + name);
+		}
+		ModelUtil.ensureView(model);
+		return model;
+	}
+
+	public static MapModel berlin() throws ParsingException
+	{
+		XmlModel xmlModel = TestData.berlinXml();
+		XmlModelConverter modelConverter = new XmlModelConverter();
+		return modelConverter.convert(xmlModel);
+	}
+
+	/**
+	 * Create a synthetic network with the specified number of stations and
+	 * about one line per hundred stations.
+	 */
+	public static MapModel synthetic(int numStations)
+	{
+		SyntheticNetworkConfig config = new SyntheticNetworkConfig();
+		config.setNumStations(numStations);
+		config.setNumLines(Math.max(4, numStations / 100));
+		config.setNumCircularLines(Math.max(1, numStations / 5000));
+		config.setNumCorridors(Math.max(1, numStations / 2000));
+		return new SyntheticNetworkGenerator(config).generate();
+	}
+
+}
@@ -0,0 +1,64 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.benchmarks;
+
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.image.ImageView;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+
+import de.topobyte.viewports.geometry.Coordinate;
+
+/**
+ * Sets up a renderer for a fixed size view that is centered on the start
+ * position of a model.
+ */
+class BenchmarkSetup
+{
+
+	static final int WIDTH = 1920;
+	static final int HEIGHT = 1080;
+
+	final MapModel model;
+	final ImageView view;
+	final MapViewStatus status;
+	final PlanRenderer renderer;
+
+	BenchmarkSetup(MapModel model, StationMode stationMode,
+			SegmentMode segmentMode, double zoom)
+	{
+		this.model = model;
+
+		MapView mapView = model.getViews().get(0);
+		view = new ImageView(mapView.getConfig().getScene(), WIDTH, HEIGHT);
+		view.setZoom(zoom);
+		Coordinate start = mapView.getConfig().getStartPosition();
+		view.setPositionX(WIDTH / zoom / 2 - start.getX());
+		view.setPositionY(HEIGHT / zoom / 2 - start.getY());
+
+		status = new MapViewStatus();
+		renderer = new PlanRenderer(mapView.getLineNetwork(), status,
+				stationMode, segmentMode, view, view, 1,
+				new GenericPaintFactory());
+	}
+
+}
@@ -0,0 +1,234 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.benchmarks;
+
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Circle;
+import org.openmetromaps.maps.painting.core.geom.LineSegment;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.lightgeom.curves.spline.CubicSpline;
+import de.topobyte.lightgeom.curves.spline.QuadraticSpline;
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+
+/**
+ * A painter that only counts the primitives it receives and sums up their
+ * coordinates, so that the work of the renderer can not be optimized away.
+ */
+public class CountingPainter implements Painter
+{
+
+	private static final int CHAR_WIDTH = 7;
+
+	private long paths = 0;
+	private long vertices = 0;
+	private long circles = 0;
+	private long curves = 0;
+	private long lines = 0;
+	private long strings = 0;
+	private long paintChanges = 0;
+	private double checksum = 0;
+
+	public void reset()
+	{
+		paths = 0;
+		vertices = 0;
+		circles = 0;
+		curves = 0;
+		lines = 0;
+		strings = 0;
+		paintChanges = 0;
+		checksum = 0;
+	}
+
+	public long getPrimitives()
+	{
+		return paths + circles + curves + lines + strings;
+	}
+
+	public long getVertices()
+	{
+		return vertices;
+	}
+
+	public long getPaintChanges()
+	{
+		return paintChanges;
+	}
+
+	public double getChecksum()
+	{
+		return checksum;
+	}
+
+	@Override
+	public void draw(Path path)
+	{
+		paths++;
+	}
+
+	@Override
+	public Path createPath()
+	{
+		return new CountingPath();
+	}
+
+	@Override
+	public void draw(Circle circle)
+	{
+		circles++;
+	}
+
+	@Override
+	public void drawCircle(double x, double y, double radius)
+	{
+		circles++;
+		checksum += x + y + radius;
+	}
+
+	@Override
+	public void draw(QuadraticSpline spline)
+	{
+		curves++;
+	}
+
+	@Override
+	public void draw(CubicSpline spline)
+	{
+		curves++;
+	}
+
+	@Override
+	public void draw(LineSegment l)
+	{
+		lines++;
+	}
+
+	@Override
+	public void drawLine(double x1, double y1, double x2, double y2)
+	{
+		lines++;
+		checksum += x1 + y1 + x2 + y2;
+	}
+
+	@Override
+	public void drawPolyline(double[] coords, int n)
+	{
+		paths++;
+		vertices += n;
+		for (int i = 0; i < n * 2; i++) {
+			checksum += coords[i];
+		}
+	}
+
+	@Override
+	public void drawCircles(double[] centers, int n, double radius)
+	{
+		circles += n;
+		for (int i = 0; i < n * 2; i++) {
+			checksum += centers[i];
+		}
+		checksum += n * radius;
+	}
+
+	@Override
+	public void drawString(String string, float x, float y)
+	{
+		strings++;
+		checksum += x + y;
+	}
+
+	@Override
+	public void outlineString(String string, float x, float y)
+	{
+		strings++;
+		checksum += x + y;
+	}
+
+	@Override
+	public int getStringWidth(String string)
+	{
+		return string.length() * CHAR_WIDTH;
+	}
+
+	@Override
+	public void setPaintInfo(IPaintInfo paint)
+	{
+		paintChanges++;
+	}
+
+	private class CountingPath implements Path
+	{
+
+		@Override
+		public void reset()
+		{
+			// nothing to reset
+		}
+
+		@Override
+		public void moveTo(double x, double y)
+		{
+			vertices++;
+			checksum += x + y;
+		}
+
+		@Override
+		public void lineTo(double x, double y)
+		{
+			vertices++;
+			checksum += x + y;
+		}
+
+		@Override
+		public void cubicTo(double c1x, double c1y, double c2x, double c2y,
+				double x, double y)
+		{
+			vertices++;
+			checksum += x + y;
+		}
+
+		@Override
+		public void moveTo(Point p)
+		{
+			moveTo(p.x, p.y);
+		}
+
+		@Override
+		public void lineTo(Point p)
+		{
+			lineTo(p.x, p.y);
+		}
+
+		@Override
+		public void moveTo(Vector2 p)
+		{
+			moveTo(p.getX(), p.getY());
+		}
+
+		@Override
+		public void lineTo(Vector2 p)
+		{
+			lineTo(p.getX(), p.getY());
+		}
+
+	}
+
+}
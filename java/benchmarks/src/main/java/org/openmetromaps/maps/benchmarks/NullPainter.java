@@ -0,0 +1,180 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.benchmarks;
+
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Circle;
+import org.openmetromaps.maps.painting.core.geom.LineSegment;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.lightgeom.curves.spline.CubicSpline;
+import de.topobyte.lightgeom.curves.spline.QuadraticSpline;
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+
+/**
+ * A painter that discards everything, for measuring the cost of the renderer
+ * without any backend.
+ */
+public class NullPainter implements Painter
+{
+
+	private static final int CHAR_WIDTH = 7;
+
+	private Path path = new NullPath();
+
+	@Override
+	public void draw(Path path)
+	{
+		// ignore
+	}
+
+	@Override
+	public Path createPath()
+	{
+		return path;
+	}
+
+	@Override
+	public void draw(Circle circle)
+	{
+		// ignore
+	}
+
+	@Override
+	public void drawCircle(double x, double y, double radius)
+	{
+		// ignore
+	}
+
+	@Override
+	public void draw(QuadraticSpline spline)
+	{
+		// ignore
+	}
+
+	@Override
+	public void draw(CubicSpline spline)
+	{
+		// ignore
+	}
+
+	@Override
+	public void draw(LineSegment l)
+	{
+		// ignore
+	}
+
+	@Override
+	public void drawLine(double x1, double y1, double x2, double y2)
+	{
+		// ignore
+	}
+
+	@Override
+	public void drawPolyline(double[] coords, int n)
+	{
+		// ignore
+	}
+
+	@Override
+	public void drawCircles(double[] centers, int n, double radius)
+	{
+		// ignore
+	}
+
+	@Override
+	public void drawString(String string, float x, float y)
+	{
+		// ignore
+	}
+
+	@Override
+	public void outlineString(String string, float x, float y)
+	{
+		// ignore
+	}
+
+	@Override
+	public int getStringWidth(String string)
+	{
+		return string.length() * CHAR_WIDTH;
+	}
+
+	@Override
+	public void setPaintInfo(IPaintInfo paint)
+	{
+		// ignore
+	}
+
+	private static class NullPath implements Path
+	{
+
+		@Override
+		public void reset()
+		{
+			// ignore
+		}
+
+		@Override
+		public void moveTo(double x, double y)
+		{
+			// ignore
+		}
+
+		@Override
+		public void lineTo(double x, double y)
+		{
+			// ignore
+		}
+
+		@Override
+		public void cubicTo(double c1x, double c1y, double c2x, double c2y,
+				double x, double y)
+		{
+			// ignore
+		}
+
+		@Override
+		public void moveTo(Point p)
+		{
+			// ignore
+		}
+
+		@Override
+		public void lineTo(Point p)
+		{
+			// ignore
+		}
+
+		@Override
+		public void moveTo(Vector2 p)
+		{
+			// ignore
+		}
+
+		@Override
+		public void lineTo(Vector2 p)
+		{
+			// ignore
+		}
+
+	}
+
+}
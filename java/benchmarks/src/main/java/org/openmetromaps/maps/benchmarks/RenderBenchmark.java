@@ -0,0 +1,91 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+
+/**
+ * Measures {@link org.openmetromaps.maps.PlanRenderer#paint} without any
+ * drawing backend, i.e. the cost of culling, geometry and label placement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark
+{
+
+	@Param({ "berlin", "synthetic-1000", "synthetic-10000",
+			"synthetic-100000" })
+	public String model;
+
+	@Param({ "DOT", "SIMPLE", "CONVEX" })
+	public StationMode stationMode;
+
+	@Param({ "STRAIGHT", "CURVE" })
+	public SegmentMode segmentMode;
+
+	@Param({ "0.5", "1", "2", "4" })
+	public double zoom;
+
+	private BenchmarkSetup setup;
+	private NullPainter nullPainter;
+	private CountingPainter countingPainter;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		setup = new BenchmarkSetup(BenchmarkModels.load(model), stationMode,
+				segmentMode, zoom);
+		nullPainter = new NullPainter();
+		countingPainter = new CountingPainter();
+	}
+
+	@Benchmark
+	public void paintNull()
+	{
+		setup.renderer.paint(nullPainter);
+	}
+
+	@Benchmark
+	public void paintCounting(Blackhole blackhole)
+	{
+		countingPainter.reset();
+		setup.renderer.paint(countingPainter);
+		blackhole.consume(countingPainter.getPrimitives());
+		blackhole.consume(countingPainter.getChecksum());
+	}
+
+}
@@ -19,6 +19,7 @@ package org.openmetromaps.cli;
 
 import org.openmetromaps.cli.export.RunExportBatik;
 import org.openmetromaps.cli.export.RunExportPng;
+import org.openmetromaps.cli.export.RunExportTiles;
 import org.openmetromaps.cli.gtfs.RunGtfsImport;
 import org.openmetromaps.cli.maps.RunMapEditor;
 import org.openmetromaps.cli.maps.RunMapMorpher;
@@ -31,6 +32,7 @@ import org.openmetromaps.cli.osm.RunOsmImportFile;
 import org.openmetromaps.cli.osm.RunModelInspector;
 import org.openmetromaps.cli.osm.RunOsmDownloadOverpass;
 import org.openmetromaps.cli.osm.RunOsmImportOverpass;
+import org.openmetromaps.cli.util.RunGenerateSynthetic;
 import org.openmetromaps.cli.util.RunListChangeStations;
 import org.openmetromaps.cli.util.RunListLinesWithChangeStations;
 import org.openmetromaps.cli.util.RunModelInfo;
@@ -116,6 +118,9 @@ public class OpenMetroMapsCli
 					RunListLinesWithChangeStations.class);
 			options.addCommand("purge-stations",
 					RunPurgeStations.OPTIONS_FACTORY, RunPurgeStations.class);
+			options.addCommand("generate-synthetic",
+					RunGenerateSynthetic.OPTIONS_FACTORY,
+					RunGenerateSynthetic.class);
 			return options;
 		}
 
@@ -131,6 +136,8 @@ public class OpenMetroMapsCli
 					RunExportPng.class);
 			options.addCommand("svg", RunExportBatik.OPTIONS_FACTORY,
 					RunExportBatik.class);
+			options.addCommand("tiles", RunExportTiles.OPTIONS_FACTORY,
+					RunExportTiles.class);
 			return options;
 		}
 
@@ -39,6 +39,7 @@ import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptions;
 import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFactory;
 import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentHelper;
 import de.topobyte.utilities.apache.commons.cli.parsing.DoubleOption;
+import de.topobyte.utilities.apache.commons.cli.parsing.IntegerOption;
 import de.topobyte.viewports.geometry.Rectangle;
 
 public class RunExportPng
@@ -47,6 +48,7 @@ public class RunExportPng
 	private static final String OPTION_INPUT = "input";
 	private static final String OPTION_OUTPUT = "output";
 	private static final String OPTION_ZOOM = "zoom";
+	private static final String OPTION_THREADS = "threads";
 
 	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
 
@@ -58,6 +60,7 @@ public class RunExportPng
 			OptionHelper.addL(options, OPTION_INPUT, true, true, "file", "an OpenMetroMaps model file");
 			OptionHelper.addL(options, OPTION_OUTPUT, true, true, "file", "an output image file");
 			OptionHelper.addL(options, OPTION_ZOOM, true, false, "double", "zoom level to use");
+			OptionHelper.addL(options, OPTION_THREADS, true, false, "int", "number of threads to render with (default: number of processors)");
 			// @formatter:on
 			return new CommonsCliExeOptions(options, "[options]");
 		}
@@ -80,9 +83,17 @@ public class RunExportPng
 			zoom = argZoom.getValue();
 		}
 
+		IntegerOption argThreads = ArgumentHelper.getInteger(line,
+				OPTION_THREADS);
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (argThreads.hasValue()) {
+			threads = argThreads.getValue();
+		}
+
 		System.out.println("Input: " + pathInput);
 		System.out.println("Output: " + pathOutput);
 		System.out.println("Zoom: " + zoom);
+		System.out.println("Threads: " + threads);
 
 		InputStream input = Files.newInputStream(pathInput);
 
@@ -91,11 +102,11 @@ public class RunExportPng
 		XmlModelConverter modelConverter = new XmlModelConverter();
 		MapModel model = modelConverter.convert(xmlModel);
 
-		execute(model, pathOutput, zoom);
+		execute(model, pathOutput, zoom, threads);
 	}
 
-	private static void execute(MapModel model, Path pathOutput, double zoom)
-			throws IOException
+	private static void execute(MapModel model, Path pathOutput, double zoom,
+			int threads) throws IOException
 	{
 		MapView view = model.getViews().get(0);
 		Rectangle scene = view.getConfig().getScene();
@@ -110,7 +121,7 @@ public class RunExportPng
 		int imageHeight = (int) Math.ceil(height * zoom);
 
 		ImageUtil.createPng(model, pathOutput, imageWidth, imageHeight, x, y,
-				zoom);
+				zoom, threads);
 	}
 
 }
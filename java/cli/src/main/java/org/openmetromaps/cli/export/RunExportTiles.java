@@ -0,0 +1,128 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.cli.export;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.tiles.TilePyramidExporter;
+import org.openmetromaps.maps.xml.DesktopXmlModelReader;
+import org.openmetromaps.maps.xml.XmlModel;
+import org.openmetromaps.maps.xml.XmlModelConverter;
+
+import de.topobyte.utilities.apache.commons.cli.OptionHelper;
+import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
+import de.topobyte.utilities.apache.commons.cli.commands.options.CommonsCliExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFactory;
+import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentHelper;
+import de.topobyte.utilities.apache.commons.cli.parsing.IntegerOption;
+
+public class RunExportTiles
+{
+
+	private static final String OPTION_INPUT = "input";
+	private static final String OPTION_OUTPUT = "output";
+	private static final String OPTION_MIN_ZOOM = "min-zoom";
+	private static final String OPTION_MAX_ZOOM = "max-zoom";
+	private static final String OPTION_THREADS = "threads";
+
+	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
+
+		@Override
+		public ExeOptions createOptions()
+		{
+			Options options = new Options();
+			// @formatter:off
+			OptionHelper.addL(options, OPTION_INPUT, true, true, "file", "an OpenMetroMaps model file");
+			OptionHelper.addL(options, OPTION_OUTPUT, true, true, "directory", "a directory to store the z/x/y.png tiles in");
+			OptionHelper.addL(options, OPTION_MIN_ZOOM, true, false, "int", "lowest zoom level to export (default: 0)");
+			OptionHelper.addL(options, OPTION_MAX_ZOOM, true, false, "int", "highest zoom level to export (default: 4)");
+			OptionHelper.addL(options, OPTION_THREADS, true, false, "int", "number of threads to render with (default: number of processors)");
+			// @formatter:on
+			return new CommonsCliExeOptions(options, "[options]");
+		}
+
+	};
+
+	public static void main(String name, CommonsCliArguments arguments)
+			throws Exception
+	{
+		CommandLine line = arguments.getLine();
+
+		String argInput = line.getOptionValue(OPTION_INPUT);
+		String argOutput = line.getOptionValue(OPTION_OUTPUT);
+		Path pathInput = Paths.get(argInput);
+		Path pathOutput = Paths.get(argOutput);
+
+		int minZoom = 0;
+		int maxZoom = 4;
+		IntegerOption argMinZoom = ArgumentHelper.getInteger(line,
+				OPTION_MIN_ZOOM);
+		if (argMinZoom.hasValue()) {
+			minZoom = argMinZoom.getValue();
+		}
+		IntegerOption argMaxZoom = ArgumentHelper.getInteger(line,
+				OPTION_MAX_ZOOM);
+		if (argMaxZoom.hasValue()) {
+			maxZoom = argMaxZoom.getValue();
+		}
+
+		if (minZoom < 0 || maxZoom < minZoom) {
+			System.out.println("Invalid zoom range: " + minZoom + " - "
+					+ maxZoom);
+			System.exit(1);
+		}
+
+		IntegerOption argThreads = ArgumentHelper.getInteger(line,
+				OPTION_THREADS);
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (argThreads.hasValue()) {
+			threads = argThreads.getValue();
+		}
+
+		System.out.println("Input: " + pathInput);
+		System.out.println("Output: " + pathOutput);
+		System.out.println("Zoom levels: " + minZoom + " - " + maxZoom);
+		System.out.println("Threads: " + threads);
+
+		InputStream input = Files.newInputStream(pathInput);
+
+		XmlModel xmlModel = DesktopXmlModelReader.read(input);
+
+		XmlModelConverter modelConverter = new XmlModelConverter();
+		MapModel model = modelConverter.convert(xmlModel);
+
+		MapView view = model.getViews().get(0);
+		TilePyramidExporter exporter = new TilePyramidExporter(
+				view.getLineNetwork(), view.getConfig().getScene(),
+				pathOutput);
+		exporter.export(minZoom, maxZoom, threads);
+
+		System.out.println("Rendered tiles: " + exporter.getNumRendered());
+		System.out.println("Empty tiles: " + exporter.getNumEmpty());
+		System.out.println("Existing tiles: " + exporter.getNumExisting());
+	}
+
+}
@@ -0,0 +1,146 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.cli.util;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkConfig;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkGenerator;
+import org.openmetromaps.maps.xml.XmlModelWriter;
+
+import de.topobyte.utilities.apache.commons.cli.OptionHelper;
+import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
+import de.topobyte.utilities.apache.commons.cli.commands.options.CommonsCliExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFactory;
+import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentHelper;
+import de.topobyte.utilities.apache.commons.cli.parsing.DoubleOption;
+import de.topobyte.utilities.apache.commons.cli.parsing.IntegerOption;
+
+public class RunGenerateSynthetic
+{
+
+	private static final String OPTION_OUTPUT = "output";
+	private static final String OPTION_SEED = "seed";
+	private static final String OPTION_STATIONS = "stations";
+	private static final String OPTION_LINES = "lines";
+	private static final String OPTION_CIRCULAR = "circular";
+	private static final String OPTION_INTERCHANGES = "interchanges";
+	private static final String OPTION_CORRIDORS = "corridors";
+	private static final String OPTION_CORRIDOR_LINES = "corridor-lines";
+	private static final String OPTION_CORRIDOR_LENGTH = "corridor-length";
+	private static final String OPTION_VIEWS = "views";
+
+	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
+
+		@Override
+		public ExeOptions createOptions()
+		{
+			Options options = new Options();
+			// @formatter:off
+			OptionHelper.addL(options, OPTION_OUTPUT, true, true, "file", "the OpenMetroMaps model file to create");
+			OptionHelper.addL(options, OPTION_SEED, true, false, "int", "seed for the random number generator (default: 1)");
+			OptionHelper.addL(options, OPTION_STATIONS, true, false, "int", "number of stations (default: 1000)");
+			OptionHelper.addL(options, OPTION_LINES, true, false, "int", "number of lines (default: 10)");
+			OptionHelper.addL(options, OPTION_CIRCULAR, true, false, "int", "number of circular lines (default: 1)");
+			OptionHelper.addL(options, OPTION_INTERCHANGES, true, false, "double", "probability of a stop to be an interchange (default: 0.1)");
+			OptionHelper.addL(options, OPTION_CORRIDORS, true, false, "int", "number of corridors shared by multiple lines (default: 2)");
+			OptionHelper.addL(options, OPTION_CORRIDOR_LINES, true, false, "int", "number of lines per corridor (default: 3)");
+			OptionHelper.addL(options, OPTION_CORRIDOR_LENGTH, true, false, "int", "number of stations per corridor (default: 8)");
+			OptionHelper.addL(options, OPTION_VIEWS, true, false, "int", "number of views (default: 1)");
+			// @formatter:on
+			return new CommonsCliExeOptions(options, "[options]");
+		}
+
+	};
+
+	public static void main(String name, CommonsCliArguments arguments)
+			throws Exception
+	{
+		CommandLine line = arguments.getLine();
+
+		String argOutput = line.getOptionValue(OPTION_OUTPUT);
+		Path pathOutput = Paths.get(argOutput);
+
+		SyntheticNetworkConfig config = new SyntheticNetworkConfig();
+
+		IntegerOption argSeed = ArgumentHelper.getInteger(line, OPTION_SEED);
+		if (argSeed.hasValue()) {
+			config.setSeed(argSeed.getValue());
+		}
+		IntegerOption argStations = ArgumentHelper.getInteger(line,
+				OPTION_STATIONS);
+		if (argStations.hasValue()) {
+			config.setNumStations(argStations.getValue());
+		}
+		IntegerOption argLines = ArgumentHelper.getInteger(line, OPTION_LINES);
+		if (argLines.hasValue()) {
+			config.setNumLines(argLines.getValue());
+		}
+		IntegerOption argCircular = ArgumentHelper.getInteger(line,
+				OPTION_CIRCULAR);
+		if (argCircular.hasValue()) {
+			config.setNumCircularLines(argCircular.getValue());
+		}
+		DoubleOption argInterchanges = ArgumentHelper.getDouble(line,
+				OPTION_INTERCHANGES);
+		if (argInterchanges.hasValue()) {
+			config.setInterchangeDensity(argInterchanges.getValue());
+		}
+		IntegerOption argCorridors = ArgumentHelper.getInteger(line,
+				OPTION_CORRIDORS);
+		if (argCorridors.hasValue()) {
+			config.setNumCorridors(argCorridors.getValue());
+		}
+		IntegerOption argCorridorLines = ArgumentHelper.getInteger(line,
+				OPTION_CORRIDOR_LINES);
+		if (argCorridorLines.hasValue()) {
+			config.setLinesPerCorridor(argCorridorLines.getValue());
+		}
+		IntegerOption argCorridorLength = ArgumentHelper.getInteger(line,
+				OPTION_CORRIDOR_LENGTH);
+		if (argCorridorLength.hasValue()) {
+			config.setCorridorLength(argCorridorLength.getValue());
+		}
+		IntegerOption argViews = ArgumentHelper.getInteger(line, OPTION_VIEWS);
+		if (argViews.hasValue()) {
+			config.setNumViews(argViews.getValue());
+		}
+
+		System.out.println("Output: " + pathOutput);
+
+		SyntheticNetworkGenerator generator = new SyntheticNetworkGenerator(
+				config);
+		MapModel model = generator.generate();
+
+		System.out.println(String.format(
+				"Generated %d lines and %d stations",
+				model.getData().lines.size(), model.getData().stations.size()));
+
+		OutputStream output = Files.newOutputStream(pathOutput);
+		new XmlModelWriter().write(output, model.getData(), model.getViews());
+		output.close();
+	}
+
+}
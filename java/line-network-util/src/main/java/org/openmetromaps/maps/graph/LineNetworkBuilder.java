@@ -65,6 +65,8 @@ public class LineNetworkBuilder
 		computeRanks();
 
 		sortNodesByRank();
+
+		assignIndices();
 	}
 
 	private void addStations(ModelData data)
@@ -251,6 +253,13 @@ public class LineNetworkBuilder
 		});
 	}
 
+	private void assignIndices()
+	{
+		for (int i = 0; i < graph.nodes.size(); i++) {
+			graph.nodes.get(i).index = i;
+		}
+	}
+
 	private int rank(List<Edge> edges)
 	{
 		int rank = 0;
@@ -111,6 +111,13 @@ public class LineNetworkUtil
 		for (Edge edge : lineNetwork.edges) {
 			LineNetworkUtil.calculateNeighborLocations(edge);
 		}
+		lineNetwork.fireNetworkChanged();
+	}
+
+	public static void updateEdges(LineNetwork lineNetwork, Node node)
+	{
+		updateEdges(node);
+		lineNetwork.fireNodeChanged(node);
 	}
 
 	public static void updateEdges(Node node)
@@ -127,8 +134,11 @@ public class LineNetworkUtil
 		}
 		for (Node n : neighbors) {
 			for (Edge edge : n.edges) {
-				logger.info(Formatting.format("Updating edge: %s - %s",
-						edge.n1.station.getName(), edge.n2.station.getName()));
+				if (logger.isDebugEnabled()) {
+					logger.debug(Formatting.format("Updating edge: %s - %s",
+							edge.n1.station.getName(),
+							edge.n2.station.getName()));
+				}
 				LineNetworkUtil.calculateNeighborLocations(edge);
 			}
 		}
@@ -125,4 +125,29 @@ public class AndroidPainter implements Painter
 		c.drawLine((float) x1, (float) y1, (float) x2, (float) y2, p);
 	}
 
+	@Override
+	public void drawPolyline(double[] coords, int n)
+	{
+		if (n < 2) {
+			return;
+		}
+		cpath.reset();
+		cpath.moveTo((float) coords[0], (float) coords[1]);
+		for (int i = 1; i < n; i++) {
+			cpath.lineTo((float) coords[i * 2], (float) coords[i * 2 + 1]);
+		}
+		c.drawPath(cpath, p);
+	}
+
+	@Override
+	public void drawCircles(double[] centers, int n, double radius)
+	{
+		cpath.reset();
+		for (int i = 0; i < n; i++) {
+			cpath.addCircle((float) centers[i * 2], (float) centers[i * 2 + 1],
+					(float) radius, android.graphics.Path.Direction.CW);
+		}
+		c.drawPath(cpath, p);
+	}
+
 }
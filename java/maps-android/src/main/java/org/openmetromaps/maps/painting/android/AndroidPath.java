@@ -37,6 +37,14 @@ public class AndroidPath extends android.graphics.Path implements Path
 		lineTo((float) x, (float) y);
 	}
 
+	@Override
+	public void cubicTo(double c1x, double c1y, double c2x, double c2y,
+			double x, double y)
+	{
+		cubicTo((float) c1x, (float) c1y, (float) c2x, (float) c2y, (float) x,
+				(float) y);
+	}
+
 	@Override
 	public void moveTo(Point p)
 	{
@@ -20,32 +20,107 @@ package org.openmetromaps.maps;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import org.openmetromaps.maps.PlanRenderer.SegmentMode;
 import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.background.BackgroundRenderer;
+import org.openmetromaps.maps.background.Frame;
+import org.openmetromaps.maps.background.FrameRequest;
 import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.metrics.AllocationProbe;
+import org.openmetromaps.maps.metrics.Histogram;
+import org.openmetromaps.maps.metrics.RenderMetrics;
+import org.openmetromaps.maps.metrics.RenderMetrics.Counter;
+import org.openmetromaps.maps.metrics.RenderMetrics.Phase;
+import org.openmetromaps.maps.metrics.ThreadAllocationProbe;
 import org.openmetromaps.maps.model.ModelData;
 import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.awt.LabelSpriteCache;
 import org.openmetromaps.maps.painting.core.GenericPaintFactory;
 import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.tiles.TileCache;
 
+import de.topobyte.formatting.Formatting;
 import de.topobyte.viewports.geometry.Coordinate;
+import de.topobyte.viewports.geometry.Envelope;
+import de.topobyte.viewports.scrolling.ViewportListener;
+import de.topobyte.viewports.scrolling.ViewportUtil;
 
 public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 {
 
 	private static final long serialVersionUID = 1L;
 
+	public static final long DEFAULT_FRAME_BUDGET = 10 * 1000 * 1000;
+	public static final int DEFAULT_DRAFT_DELAY = 250;
+
+	private static final Color METRICS_BACKGROUND = new Color(0, 0, 0, 160);
+
 	private ModelData data;
 	private MapView view;
 	private LineNetwork lineNetwork;
 	private MapViewStatus mapViewStatus;
 	private PlanRenderer renderer;
 
+	private boolean useTileCache = true;
+	private TileCache tileCache = null;
+
+	private LabelSpriteCache labelSprites = new LabelSpriteCache();
+
 	private StationMode stationMode;
 	private SegmentMode segmentMode;
 
+	private RenderMetrics metrics = new RenderMetrics();
+	private AllocationProbe allocationProbe = new ThreadAllocationProbe();
+	private boolean showMetricsOverlay = false;
+	private Rectangle metricsOverlay = new Rectangle(5, 5, 120, 0);
+	private String[] metricsLines = new String[3];
+
+	/*
+	 * The network layer (background, segments and stations) of the last
+	 * frame. Labels are drawn on top of it in each frame.
+	 */
+	private boolean useBackBuffer = true;
+	private BufferedImage backBuffer = null;
+	private boolean backBufferValid = false;
+	private double bufferZoom;
+	// view location of the scene's origin when the buffer was last updated
+	private double bufferOriginX;
+	private double bufferOriginY;
+	// set when the network changes without a call to repaintScene()
+	private boolean networkModified = false;
+	// region of the view to render again, from calls to repaintScene()
+	private Rectangle bufferDamage = null;
+	private NetworkObserver networkObserver = new NetworkObserver();
+	// set when the buffer has been updated outside of paintComponent()
+	private boolean backBufferUpdated = false;
+	// set when only the overlay needs to be painted again
+	private boolean overlayModified = false;
+
+	private boolean progressive = false;
+	private long frameBudget = DEFAULT_FRAME_BUDGET;
+	private RenderContext progressiveContext = new RenderContext();
+	private ProgressiveRender progressiveRender = null;
+
+	private boolean renderInBackground = false;
+	private BackgroundRenderer backgroundRenderer = null;
+	// incremented whenever the network changes
+	private int dataVersion = 0;
+
+	private boolean draftWhileMoving = false;
+	// set while frames are painted as drafts, until the timer fires
+	private boolean drafting = false;
+	private Timer draftTimer = new Timer(DEFAULT_DRAFT_DELAY,
+			e -> endDraft());
+
 	public ScrollableAdvancedPanel(ModelData data, MapView view,
 			MapViewStatus mapViewStatus, StationMode stationMode,
 			SegmentMode segmentMode, int minZoom, int maxZoom)
@@ -65,6 +140,9 @@ public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 
 		initRenderer();
 
+		draftTimer.setRepeats(false);
+		addViewportListener(new InteractionObserver());
+
 		ViewActions.setupMovementActions(getInputMap(), getActionMap(), this);
 
 		setFocusable(true);
@@ -72,8 +150,87 @@ public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 
 	private void initRenderer()
 	{
+		if (renderer != null) {
+			renderer.dispose();
+		}
 		renderer = new PlanRenderer(lineNetwork, mapViewStatus, stationMode,
 				segmentMode, this, this, 1, new GenericPaintFactory());
+		renderer.setMetrics(metrics);
+		renderer.setDraft(drafting);
+		lineNetwork.addListener(networkObserver);
+		mapViewStatus.addListener(networkObserver);
+		invalidateBackBuffer();
+		initTileCache();
+		initBackgroundRenderer();
+	}
+
+	private void initTileCache()
+	{
+		if (tileCache != null) {
+			tileCache.dispose();
+			tileCache = null;
+		}
+		// frames rendered in the background do not use tiles
+		if (useTileCache && !renderInBackground) {
+			tileCache = new TileCache(this, this, lineNetwork, mapViewStatus,
+					renderer, scene, TileCache.DEFAULT_NUM_WORKERS,
+					TileCache.DEFAULT_MEMORY_BUDGET);
+		}
+	}
+
+	private void initBackgroundRenderer()
+	{
+		if (backgroundRenderer != null) {
+			backgroundRenderer.dispose();
+			backgroundRenderer = null;
+		}
+		if (renderInBackground) {
+			backgroundRenderer = new BackgroundRenderer(this, lineNetwork,
+					mapViewStatus, scene, metrics);
+		}
+	}
+
+	public boolean isRenderInBackground()
+	{
+		return renderInBackground;
+	}
+
+	/**
+	 * Render frames on a background thread instead of the event dispatch
+	 * thread. Until a frame for the current state is available, the latest
+	 * frame is shown, moved and scaled to the current viewport. The tile
+	 * cache, the back buffer and progressive rendering are not used in this
+	 * mode, and changes of the network always render complete frames instead
+	 * of only the damaged region. This pays off for expensive frames that
+	 * would block input.
+	 */
+	public void setRenderInBackground(boolean renderInBackground)
+	{
+		if (this.renderInBackground == renderInBackground) {
+			return;
+		}
+		this.renderInBackground = renderInBackground;
+		initTileCache();
+		initBackgroundRenderer();
+		invalidateBackBuffer();
+		repaint();
+	}
+
+	public boolean isUseTileCache()
+	{
+		return useTileCache;
+	}
+
+	public void setUseTileCache(boolean useTileCache)
+	{
+		this.useTileCache = useTileCache;
+		initTileCache();
+		invalidateBackBuffer();
+	}
+
+	public TileCache getTileCache()
+	{
+		return tileCache;
 	}
 
 	public ModelData getData()
@@ -89,10 +246,13 @@ public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 	public void setData(ModelData data, LineNetwork lineNetwork,
 			MapViewStatus mapViewStatus)
 	{
+		this.lineNetwork.removeListener(networkObserver);
+		this.mapViewStatus.removeListener(networkObserver);
 		this.data = data;
 		this.lineNetwork = lineNetwork;
 		this.mapViewStatus = mapViewStatus;
 		initRenderer();
+		interacted();
 	}
 
 	public void setViewConfig(ViewConfig viewConfig, double zoomlevel)
@@ -102,6 +262,10 @@ public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 		setPositionX(-start.getX() + getWidth() / 2);
 		setPositionY(-start.getY() + getHeight() / 2);
 		scene = viewConfig.getScene();
+		// both keep the scene they have been created with
+		initTileCache();
+		initBackgroundRenderer();
+		invalidateBackBuffer();
 	}
 
 	public PlanRenderer getPlanRenderer()
@@ -109,21 +273,566 @@ public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 		return renderer;
 	}
 
+	public boolean isUseBackBuffer()
+	{
+		return useBackBuffer;
+	}
+
+	/**
+	 * Keep the network layer of the previous frame in an offscreen image. When
+	 * the view has only been moved, the image is shifted and only the newly
+	 * exposed strips are rendered.
+	 */
+	public void setUseBackBuffer(boolean useBackBuffer)
+	{
+		this.useBackBuffer = useBackBuffer;
+		if (!useBackBuffer) {
+			backBuffer = null;
+		}
+		invalidateBackBuffer();
+	}
+
+	public boolean isProgressive()
+	{
+		return progressive;
+	}
+
+	/**
+	 * Render the back buffer progressively when it needs to be rendered
+	 * completely: segments, stations and label placement are spread across
+	 * several slices of the frame budget each, and the partial result is
+	 * shown after each slice. Labels appear once all passes are done. Changes
+	 * of the viewport or of the data abandon the render and start a new one.
+	 * Only in effect when the back buffer is used and the tile cache is not.
+	 */
+	public void setProgressive(boolean progressive)
+	{
+		this.progressive = progressive;
+		invalidateBackBuffer();
+	}
+
+	public long getFrameBudget()
+	{
+		return frameBudget;
+	}
+
+	/**
+	 * Set the time in nanoseconds spent rendering per slice in progressive
+	 * mode.
+	 */
+	public void setFrameBudget(long frameBudget)
+	{
+		this.frameBudget = frameBudget;
+	}
+
+	public boolean isDraftWhileMoving()
+	{
+		return draftWhileMoving;
+	}
+
+	/**
+	 * Paint drafts while the view is moved or zoomed, nodes are dragged or
+	 * the data is replaced, and paint in full quality once nothing has changed
+	 * for the draft delay. Drafts are painted without antialiasing and with
+	 * the simplifications of {@link PlanRenderer#setDraft(boolean)}. Since
+	 * tiles are always rendered in full quality, drafts are painted directly
+	 * instead of with the tile cache.
+	 */
+	public void setDraftWhileMoving(boolean draftWhileMoving)
+	{
+		this.draftWhileMoving = draftWhileMoving;
+		if (!draftWhileMoving) {
+			endDraft();
+		}
+	}
+
+	public int getDraftDelay()
+	{
+		return draftTimer.getInitialDelay();
+	}
+
+	/**
+	 * Set the time in milliseconds without changes after which a frame in
+	 * full quality is painted.
+	 */
+	public void setDraftDelay(int draftDelay)
+	{
+		draftTimer.setInitialDelay(draftDelay);
+	}
+
+	private void interacted()
+	{
+		if (!draftWhileMoving) {
+			return;
+		}
+		/*
+		 * The back buffer is kept, shifting it reuses the full quality
+		 * content while only the exposed strips are drafted.
+		 */
+		if (!drafting) {
+			drafting = true;
+			renderer.setDraft(true);
+		}
+		draftTimer.restart();
+	}
+
+	private void endDraft()
+	{
+		draftTimer.stop();
+		if (!drafting) {
+			return;
+		}
+		drafting = false;
+		renderer.setDraft(false);
+		invalidateBackBuffer();
+		repaint();
+	}
+
+	/**
+	 * Render the network layer completely with the next frame. Needs to be
+	 * called when rendering options change that affect the network layer.
+	 */
+	public void invalidateBackBuffer()
+	{
+		backBufferValid = false;
+	}
+
+	/**
+	 * Get the metrics of this panel. They are kept when the data is replaced
+	 * and also receive the timings of the background tile renderers.
+	 */
+	public RenderMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	public boolean isShowMetricsOverlay()
+	{
+		return showMetricsOverlay;
+	}
+
+	public void setShowMetricsOverlay(boolean showMetricsOverlay)
+	{
+		this.showMetricsOverlay = showMetricsOverlay;
+	}
+
+	/**
+	 * Repaint the panel for a change that only affects the overlay, such as
+	 * the selection or debugging output, without rendering the network layer
+	 * again.
+	 */
+	public void repaintOverlay()
+	{
+		overlayModified = true;
+		repaint();
+	}
+
+	/**
+	 * Repaint only the part of the panel in which the map may have changed.
+	 * The labels that have been affected by changes of the network since the
+	 * last call are repainted as well.
+	 *
+	 * @param damage
+	 *            the region of the scene in which segments and stations may
+	 *            have changed, see {@link DamageUtil}.
+	 */
+	public void repaintScene(Envelope damage)
+	{
+		if (backgroundRenderer != null) {
+			repaint();
+			return;
+		}
+
+		Envelope region = new Envelope(damage);
+		if (!renderer.getLabelCache().takeDamage(region)) {
+			repaint();
+			return;
+		}
+		if (region.isNull()) {
+			return;
+		}
+
+		// label text extends above its placement box by up to the font size
+		double margin = renderer.getOverDrawPixels()
+				+ renderer.getLabelFontSize();
+		int x1 = (int) Math.floor(
+				ViewportUtil.getViewX(this, region.getMinX()) - margin);
+		int y1 = (int) Math.floor(
+				ViewportUtil.getViewY(this, region.getMinY()) - margin);
+		int x2 = (int) Math.ceil(
+				ViewportUtil.getViewX(this, region.getMaxX()) + margin);
+		int y2 = (int) Math.ceil(
+				ViewportUtil.getViewY(this, region.getMaxY()) + margin);
+		Rectangle rectangle = new Rectangle(x1, y1, x2 - x1, y2 - y1);
+		if (bufferDamage == null) {
+			bufferDamage = rectangle;
+		} else {
+			bufferDamage.add(rectangle);
+		}
+		repaint(rectangle);
+
+		if (showMetricsOverlay) {
+			repaint(metricsOverlay);
+		}
+	}
+
 	@Override
 	protected void paintComponent(Graphics graphics)
 	{
+		long start = System.nanoTime();
+		long allocatedStart = allocationProbe.getAllocatedBytes();
+
 		super.paintComponent(graphics);
 
 		Graphics2D g = (Graphics2D) graphics;
+		setRenderingHints(g);
+
+		Painter painter = new AwtPainter(g, labelSprites);
+
+		if (backgroundRenderer != null) {
+			paintFrame(g);
+			renderer.paintOverlay(painter);
+		} else if (useBackBuffer && getWidth() > 0 && getHeight() > 0) {
+			updateBackBuffer(g.getClipBounds());
+			g.drawImage(backBuffer, 0, 0, null);
+			if (!isRenderPending()) {
+				renderer.paintLabels(painter);
+			}
+			renderer.paintOverlay(painter);
+		} else {
+			paintDirectly(g, painter);
+		}
+		overlayModified = false;
+
+		long allocatedEnd = allocationProbe.getAllocatedBytes();
+		if (allocatedStart >= 0 && allocatedEnd >= 0) {
+			metrics.count(Counter.BYTES_ALLOCATED,
+					allocatedEnd - allocatedStart);
+		}
+		metrics.frame(start, System.nanoTime());
+
+		if (showMetricsOverlay) {
+			paintMetricsOverlay(g);
+		}
+	}
+
+	private void setRenderingHints(Graphics2D g)
+	{
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-				RenderingHints.VALUE_ANTIALIAS_ON);
+				drafting ? RenderingHints.VALUE_ANTIALIAS_OFF
+						: RenderingHints.VALUE_ANTIALIAS_ON);
+	}
+
+	private void paintFrame(Graphics2D g)
+	{
+		g.setColor(Color.WHITE);
+		fillRect(g, scene.getX1(), scene.getY1(), scene.getX2(), scene.getY2());
+
+		backgroundRenderer.request(
+				new FrameRequest(this, scene, renderer, dataVersion));
+
+		Frame frame = backgroundRenderer.getFrame();
+		if (frame == null) {
+			return;
+		}
 
-		Painter painter = new AwtPainter(g);
+		// place the frame's top left corner where it is in the current view
+		FrameRequest request = frame.getRequest();
+		BufferedImage image = frame.getImage();
+		double scale = getZoom() / request.getZoom();
+		double x = ViewportUtil.getViewX(this, -request.getPositionX());
+		double y = ViewportUtil.getViewY(this, -request.getPositionY());
+		int x1 = (int) Math.round(x);
+		int y1 = (int) Math.round(y);
+		int x2 = (int) Math.round(x + image.getWidth() * scale);
+		int y2 = (int) Math.round(y + image.getHeight() * scale);
+		if (scale != 1) {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+					RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		}
+		g.drawImage(image, x1, y1, x2, y2, 0, 0, image.getWidth(),
+				image.getHeight(), null);
+	}
 
+	private void paintDirectly(Graphics2D g, Painter painter)
+	{
 		g.setColor(Color.WHITE);
 		fillRect(g, scene.getX1(), scene.getY1(), scene.getX2(), scene.getY2());
 
-		renderer.paint(painter);
+		/*
+		 * When only a part of the panel is repainted, Swing keeps the rest of
+		 * the previous frame in its back buffer and clips our drawing, so it
+		 * suffices to draw what intersects the clip.
+		 */
+		Rectangle clip = g.getClipBounds();
+		boolean partial = clip != null && (clip.x > 0 || clip.y > 0
+				|| clip.x + clip.width < getWidth()
+				|| clip.y + clip.height < getHeight());
+
+		TileCache tiles = getActiveTileCache();
+		if (tiles == null) {
+			if (partial) {
+				renderer.paint(painter, getRegion(clip));
+			} else {
+				renderer.paint(painter);
+			}
+		} else {
+			tiles.paint(g);
+			renderer.paintLabels(painter);
+			renderer.paintOverlay(painter);
+		}
+	}
+
+	/**
+	 * Bring the back buffer up to date with the current viewport and network.
+	 */
+	private void updateBackBuffer(Rectangle clip)
+	{
+		int width = getWidth();
+		int height = getHeight();
+		if (backBuffer == null || backBuffer.getWidth() != width
+				|| backBuffer.getHeight() != height) {
+			backBuffer = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_RGB);
+			backBufferValid = false;
+		}
+
+		double originX = ViewportUtil.getViewX(this, 0);
+		double originY = ViewportUtil.getViewY(this, 0);
+		double shiftX = originX - bufferOriginX;
+		double shiftY = originY - bufferOriginY;
+		long dx = Math.round(shiftX);
+		long dy = Math.round(shiftY);
+		boolean moved = dx != 0 || dy != 0;
+		boolean full = clip == null || (clip.x <= 0 && clip.y <= 0
+				&& clip.x + clip.width >= width
+				&& clip.y + clip.height >= height);
+
+		/*
+		 * Render everything unless the view has only been moved or the
+		 * changes are limited to the damaged region. A repaint of the whole
+		 * panel without any movement is requested when something else has
+		 * changed, unless only the overlay has changed.
+		 */
+		boolean unchanged = backBufferValid && getZoom() == bufferZoom
+				&& !moved && !networkModified && bufferDamage == null;
+		boolean renderAll = !backBufferValid || getZoom() != bufferZoom
+				|| (networkModified && bufferDamage == null)
+				|| (full && unchanged && !backBufferUpdated
+						&& !overlayModified);
+		// shifting only works for whole pixels within the panel
+		if (Math.abs(shiftX - dx) > 1e-3 || Math.abs(shiftY - dy) > 1e-3
+				|| Math.abs(dx) >= width || Math.abs(dy) >= height) {
+			renderAll = true;
+		}
+		backBufferUpdated = false;
+
+		// a partial progressive render can neither be shifted nor patched
+		if (isRenderPending()) {
+			if (unchanged && !progressiveRender.isCancelled()) {
+				return;
+			}
+			progressiveRender.cancel();
+			progressiveRender = null;
+			renderAll = true;
+		}
+
+		Graphics2D g = backBuffer.createGraphics();
+		setRenderingHints(g);
+		if (renderAll && progressive && getActiveTileCache() == null) {
+			Rectangle all = new Rectangle(0, 0, width, height);
+			clearBackBuffer(g, all);
+			progressiveRender = new ProgressiveRender(renderer,
+					progressiveContext, getRegion(all));
+			Painter painter = new AwtPainter(g, labelSprites);
+			if (!progressiveRender.run(painter, frameBudget)) {
+				SwingUtilities.invokeLater(this::continueProgressiveRender);
+			}
+		} else if (renderAll) {
+			renderBackBuffer(g, new Rectangle(0, 0, width, height));
+		} else {
+			if (moved) {
+				int ix = (int) dx;
+				int iy = (int) dy;
+				g.copyArea(0, 0, width, height, ix, iy);
+				if (ix > 0) {
+					renderBackBuffer(g, new Rectangle(0, 0, ix, height));
+				} else if (ix < 0) {
+					renderBackBuffer(g,
+							new Rectangle(width + ix, 0, -ix, height));
+				}
+				if (iy > 0) {
+					renderBackBuffer(g, new Rectangle(0, 0, width, iy));
+				} else if (iy < 0) {
+					renderBackBuffer(g,
+							new Rectangle(0, height + iy, width, -iy));
+				}
+			}
+			if (bufferDamage != null) {
+				renderBackBuffer(g, bufferDamage);
+			}
+		}
+		g.dispose();
+
+		backBufferValid = true;
+		bufferZoom = getZoom();
+		bufferOriginX = originX;
+		bufferOriginY = originY;
+		networkModified = false;
+		bufferDamage = null;
+	}
+
+	private void clearBackBuffer(Graphics2D g, Rectangle rectangle)
+	{
+		g.setClip(rectangle);
+		g.setColor(getBackground());
+		g.fill(rectangle);
+		g.setColor(Color.WHITE);
+		fillRect(g, scene.getX1(), scene.getY1(), scene.getX2(), scene.getY2());
+	}
+
+	private void renderBackBuffer(Graphics2D g, Rectangle rectangle)
+	{
+		clearBackBuffer(g, rectangle);
+
+		TileCache tiles = getActiveTileCache();
+		if (tiles == null) {
+			renderer.paintNetwork(new AwtPainter(g, labelSprites),
+					getRegion(rectangle));
+		} else {
+			tiles.paint(g);
+		}
+	}
+
+	/**
+	 * Get the tile cache to paint the network with, or null if the network is
+	 * to be painted directly, which is the case while painting drafts.
+	 */
+	private TileCache getActiveTileCache()
+	{
+		return drafting ? null : tileCache;
+	}
+
+	private boolean isRenderPending()
+	{
+		return progressiveRender != null && !progressiveRender.isDone();
+	}
+
+	private void continueProgressiveRender()
+	{
+		ProgressiveRender render = progressiveRender;
+		if (render == null || render.isDone() || backBuffer == null) {
+			return;
+		}
+		if (render.isCancelled()) {
+			// the next frame starts a new render
+			repaint();
+			return;
+		}
+
+		Graphics2D g = backBuffer.createGraphics();
+		setRenderingHints(g);
+		boolean done = render.run(new AwtPainter(g, labelSprites), frameBudget);
+		g.dispose();
+
+		if (!done) {
+			SwingUtilities.invokeLater(this::continueProgressiveRender);
+		}
+		backBufferUpdated = true;
+		repaint();
+	}
+
+	private Envelope getRegion(Rectangle rectangle)
+	{
+		double x1 = ViewportUtil.getRealX(this, rectangle.x);
+		double y1 = ViewportUtil.getRealY(this, rectangle.y);
+		double x2 = ViewportUtil.getRealX(this,
+				rectangle.x + rectangle.width);
+		double y2 = ViewportUtil.getRealY(this,
+				rectangle.y + rectangle.height);
+		return new Envelope(x1, x2, y1, y2);
+	}
+
+	private void paintMetricsOverlay(Graphics2D g)
+	{
+		Histogram frames = metrics.getHistogram(Phase.FRAME);
+		String[] lines = metricsLines;
+		lines[0] = Formatting.format("%.1f fps", metrics.getFps());
+		lines[1] = Formatting.format("frame: %.2f ms",
+				metrics.getLastFrameNanos() / 1e6);
+		lines[2] = Formatting.format("p95: %.2f ms",
+				frames.getPercentile(0.95) / 1e6);
+
+		int lineHeight = g.getFontMetrics().getHeight();
+		metricsOverlay.height = lines.length * lineHeight + 6;
+		g.setColor(METRICS_BACKGROUND);
+		g.fill(metricsOverlay);
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < lines.length; i++) {
+			g.drawString(lines[i], 10, 5 + (i + 1) * lineHeight);
+		}
+	}
+
+	private class NetworkObserver
+			implements LineNetworkListener, MapViewStatusListener
+	{
+
+		@Override
+		public void nodeChanged(Node node)
+		{
+			interacted();
+			networkModified = true;
+			dataVersion++;
+			if (backgroundRenderer != null) {
+				backgroundRenderer.nodeChanged(node);
+			}
+		}
+
+		@Override
+		public void networkChanged()
+		{
+			invalidateBackBuffer();
+			dataVersion++;
+			if (backgroundRenderer != null) {
+				backgroundRenderer.networkChanged();
+			}
+		}
+
+		@Override
+		public void selectionChanged(Node node)
+		{
+			repaintOverlay();
+		}
+
+		@Override
+		public void hoverChanged(Node previous, Node node)
+		{
+			repaintOverlay();
+		}
+
+	}
+
+	private class InteractionObserver implements ViewportListener
+	{
+
+		@Override
+		public void viewportChanged()
+		{
+			interacted();
+		}
+
+		@Override
+		public void zoomChanged()
+		{
+			interacted();
+		}
+
+		@Override
+		public void complexChange()
+		{
+			interacted();
+		}
+
 	}
 
 }
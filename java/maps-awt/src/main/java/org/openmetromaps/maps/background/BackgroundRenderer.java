@@ -0,0 +1,270 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.background;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.background.NetworkCopy.NodeChange;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.metrics.RenderMetrics;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.awt.LabelSpriteCache;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.tiles.TileOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.topobyte.viewports.geometry.Rectangle;
+import de.topobyte.viewports.scrolling.ViewportUtil;
+
+/**
+ * Renders complete frames on a background thread with a private
+ * {@link PlanRenderer}. Requests are coalesced: while a frame is being
+ * rendered, only the latest of the requests arriving meanwhile is kept and
+ * rendered next. The component is repainted once a frame is available.
+ *
+ * The renderer paints a private copy of the network, see {@link NetworkCopy},
+ * so that the network can be modified while a frame is being rendered.
+ * Changes of the network are not observed directly but have to be forwarded
+ * by the owner on the thread that modifies the network. The new state of
+ * changed nodes is copied right away and applied to the private copy and the
+ * caches of the private renderer on the render thread before the next frame.
+ */
+public class BackgroundRenderer
+{
+
+	final static Logger logger = LoggerFactory
+			.getLogger(BackgroundRenderer.class);
+
+	private JComponent component;
+	private Color background;
+
+	private LineNetwork lineNetwork;
+	private MapViewStatus mapViewStatus;
+	private RenderMetrics metrics;
+
+	// the copy changes are recorded for, only used by the owner's thread
+	private NetworkCopy copy;
+
+	private FrameView view;
+	// the network and renderer used by the render thread, the renderer is
+	// created for the options of the first request, and again when the scale
+	// or the network changes
+	private LineNetwork renderNetwork = null;
+	private PlanRenderer planRenderer = null;
+	private LabelSpriteCache labelSprites = new LabelSpriteCache();
+
+	private ExecutorService executor;
+
+	// guarded by this
+	private FrameRequest pending = null;
+	private FrameRequest requested = null;
+	private boolean scheduled = false;
+	private List<NodeChange> changes = new ArrayList<>();
+	private NetworkCopy replacement;
+
+	private volatile Frame frame = null;
+
+	public BackgroundRenderer(JComponent component, LineNetwork lineNetwork,
+			MapViewStatus mapViewStatus, Rectangle scene,
+			RenderMetrics metrics)
+	{
+		this.component = component;
+		background = component.getBackground();
+
+		this.lineNetwork = lineNetwork;
+		this.mapViewStatus = mapViewStatus;
+		this.metrics = metrics;
+
+		view = new FrameView(scene);
+
+		copy = new NetworkCopy(lineNetwork);
+		replacement = copy;
+
+		executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "map-renderer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void dispose()
+	{
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Get the most recently rendered frame, or null if no frame has been
+	 * finished yet.
+	 */
+	public Frame getFrame()
+	{
+		return frame;
+	}
+
+	/**
+	 * Request a frame to be rendered. Requests equal to the previous one are
+	 * ignored.
+	 */
+	public synchronized void request(FrameRequest request)
+	{
+		if (request.equals(requested)) {
+			return;
+		}
+		requested = request;
+		pending = request;
+		if (!scheduled) {
+			scheduled = true;
+			executor.execute(this::work);
+		}
+	}
+
+	/**
+	 * Record the change of a node, to be called on the thread that modifies
+	 * the network.
+	 */
+	public void nodeChanged(Node node)
+	{
+		NodeChange change = copy.record(node);
+		synchronized (this) {
+			changes.add(change);
+		}
+	}
+
+	/**
+	 * Record a change of the whole network, to be called on the thread that
+	 * modifies the network.
+	 */
+	public void networkChanged()
+	{
+		copy = new NetworkCopy(lineNetwork);
+		synchronized (this) {
+			changes.clear();
+			replacement = copy;
+		}
+	}
+
+	private void work()
+	{
+		while (true) {
+			FrameRequest request;
+			List<NodeChange> nodeChanges;
+			NetworkCopy network;
+			synchronized (this) {
+				request = pending;
+				pending = null;
+				if (request == null) {
+					scheduled = false;
+					return;
+				}
+				nodeChanges = changes;
+				changes = new ArrayList<>();
+				network = replacement;
+				replacement = null;
+			}
+
+			try {
+				applyChanges(network, nodeChanges);
+				frame = new Frame(render(request), request);
+				SwingUtilities.invokeLater(() -> component.repaint());
+			} catch (RuntimeException e) {
+				logger.warn("Error while rendering frame", e);
+			}
+		}
+	}
+
+	private void applyChanges(NetworkCopy network, List<NodeChange> nodes)
+	{
+		if (network != null) {
+			renderNetwork = network.getNetwork();
+			// the caches of the renderer refer to the previous copy
+			if (planRenderer != null) {
+				planRenderer.dispose();
+				planRenderer = null;
+			}
+		}
+		for (NodeChange change : nodes) {
+			Node node = change.apply();
+			if (planRenderer == null) {
+				continue;
+			}
+			for (LineNetworkListener listener : planRenderer
+					.getNetworkListeners()) {
+				listener.nodeChanged(node);
+			}
+		}
+	}
+
+	private BufferedImage render(FrameRequest request)
+	{
+		TileOptions options = request.getOptions();
+		if (planRenderer == null
+				|| planRenderer.getScale() != options.getScale()) {
+			if (planRenderer != null) {
+				planRenderer.dispose();
+			}
+			planRenderer = options.createRenderer(renderNetwork,
+					mapViewStatus, view, metrics);
+		}
+		request.apply(planRenderer);
+		view.set(request);
+
+		int width = Math.max(1, request.getWidth());
+		int height = Math.max(1, request.getHeight());
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+
+		g.setColor(background);
+		g.fillRect(0, 0, width, height);
+		Rectangle scene = request.getScene();
+		double x1 = ViewportUtil.getViewX(view, scene.getX1());
+		double y1 = ViewportUtil.getViewY(view, scene.getY1());
+		double x2 = ViewportUtil.getViewX(view, scene.getX2());
+		double y2 = ViewportUtil.getViewY(view, scene.getY2());
+		g.setColor(Color.WHITE);
+		g.fill(new Rectangle2D.Double(x1, y1, x2 - x1, y2 - y1));
+
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				request.isDraft() ? RenderingHints.VALUE_ANTIALIAS_OFF
+						: RenderingHints.VALUE_ANTIALIAS_ON);
+		// the overlay is painted by the panel on top of the frame
+		Painter painter = new AwtPainter(g, labelSprites);
+		planRenderer.paintNetwork(painter);
+		planRenderer.paintLabels(painter);
+
+		g.dispose();
+		return image;
+	}
+
+}
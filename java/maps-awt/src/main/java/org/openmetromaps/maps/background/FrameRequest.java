@@ -0,0 +1,140 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.background;
+
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.tiles.TileOptions;
+
+import de.topobyte.viewports.geometry.Rectangle;
+import de.topobyte.viewports.scrolling.Viewport;
+
+/**
+ * An immutable snapshot of everything that determines the content of a frame:
+ * the viewport, the scene, the rendering options and the version of the data.
+ */
+public class FrameRequest
+{
+
+	private final int width;
+	private final int height;
+	private final double zoom;
+	private final double positionX;
+	private final double positionY;
+	private final double sceneX1, sceneY1, sceneX2, sceneY2;
+	private final TileOptions options;
+	private final boolean labels;
+	private final boolean draft;
+	private final int dataVersion;
+
+	public FrameRequest(Viewport viewport, Rectangle scene,
+			PlanRenderer renderer, int dataVersion)
+	{
+		width = (int) viewport.getViewportWidth();
+		height = (int) viewport.getViewportHeight();
+		zoom = viewport.getZoom();
+		positionX = viewport.getPositionX();
+		positionY = viewport.getPositionY();
+		sceneX1 = scene.getX1();
+		sceneY1 = scene.getY1();
+		sceneX2 = scene.getX2();
+		sceneY2 = scene.getY2();
+		options = TileOptions.of(renderer);
+		labels = renderer.isRenderLabels();
+		draft = renderer.isDraft();
+		this.dataVersion = dataVersion;
+	}
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	public double getZoom()
+	{
+		return zoom;
+	}
+
+	public double getPositionX()
+	{
+		return positionX;
+	}
+
+	public double getPositionY()
+	{
+		return positionY;
+	}
+
+	public Rectangle getScene()
+	{
+		return new Rectangle(sceneX1, sceneY1, sceneX2, sceneY2);
+	}
+
+	public boolean isDraft()
+	{
+		return draft;
+	}
+
+	public TileOptions getOptions()
+	{
+		return options;
+	}
+
+	public int getDataVersion()
+	{
+		return dataVersion;
+	}
+
+	void apply(PlanRenderer renderer)
+	{
+		options.apply(renderer);
+		renderer.setRenderLabels(labels);
+		renderer.setDraft(draft);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof FrameRequest)) {
+			return false;
+		}
+		FrameRequest other = (FrameRequest) obj;
+		return other.width == width && other.height == height
+				&& other.zoom == zoom && other.positionX == positionX
+				&& other.positionY == positionY && other.sceneX1 == sceneX1
+				&& other.sceneY1 == sceneY1 && other.sceneX2 == sceneX2
+				&& other.sceneY2 == sceneY2 && other.options.equals(options)
+				&& other.labels == labels && other.draft == draft
+				&& other.dataVersion == dataVersion;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = width;
+		hash = hash * 31 + height;
+		hash = hash * 31 + options.hashCode();
+		hash = hash * 31 + dataVersion;
+		return hash;
+	}
+
+}
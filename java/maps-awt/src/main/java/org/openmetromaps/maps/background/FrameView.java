@@ -0,0 +1,50 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.background;
+
+import org.openmetromaps.maps.image.ImageView;
+
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * A viewport that is moved to the state of a {@link FrameRequest} before
+ * rendering it.
+ */
+class FrameView extends ImageView
+{
+
+	FrameView(Rectangle scene)
+	{
+		super(scene, 1, 1);
+	}
+
+	void set(FrameRequest request)
+	{
+		boolean zoomChanged = request.getZoom() != zoom;
+		width = request.getWidth();
+		height = request.getHeight();
+		internalSetZoom(request.getZoom());
+		internalSetPositionX(request.getPositionX());
+		internalSetPositionY(request.getPositionY());
+		if (zoomChanged) {
+			fireViewportListenersZoomChanged();
+		}
+		fireViewportListenersViewportChanged();
+	}
+
+}
@@ -0,0 +1,177 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.background;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.NeighborInfo;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.model.Station;
+
+import de.topobyte.lightgeom.lina.Point;
+
+/**
+ * A private copy of a line network for rendering on another thread. The copy
+ * is created on the thread that modifies the original network. Changes of
+ * nodes are recorded on that thread as well, by copying the new locations
+ * into a {@link NodeChange}, which is then applied to the copy on the render
+ * thread. This way the render thread never reads the original network.
+ */
+class NetworkCopy
+{
+
+	private LineNetwork network = new LineNetwork();
+
+	// from the original network to the copy
+	private Map<Node, Node> nodes = new HashMap<>();
+	private Map<Edge, Edge> edges = new HashMap<>();
+
+	NetworkCopy(LineNetwork original)
+	{
+		Map<Station, Node> stationToNode = new HashMap<>();
+		for (Node node : original.nodes) {
+			Node copy = new Node(node.station);
+			copy.location = copy(node.location);
+			copy.setIsLastStopOfALine(node.isLastStopOfALine);
+			copy.setRank(node.rank);
+			copy.index = node.index;
+			network.nodes.add(copy);
+			nodes.put(node, copy);
+			stationToNode.put(node.station, copy);
+		}
+		network.setStationToNode(stationToNode);
+
+		Map<NetworkLine, NetworkLine> lines = new HashMap<>();
+		for (NetworkLine line : original.lines) {
+			NetworkLine copy = lines.get(line);
+			if (copy == null) {
+				copy = new NetworkLine(line.line);
+				lines.put(line, copy);
+			}
+			network.lines.add(copy);
+		}
+
+		for (Edge edge : original.edges) {
+			Edge copy = new Edge(nodes.get(edge.n1), nodes.get(edge.n2));
+			copy.setPrev(copy(edge.prev));
+			copy.setNext(copy(edge.next));
+			for (NetworkLine line : edge.lines) {
+				NetworkLine lineCopy = lines.get(line);
+				copy.addLine(lineCopy);
+				NeighborInfo neighbors = line.getNeighbors(edge);
+				if (neighbors != null) {
+					lineCopy.setNeighbors(copy, nodes.get(neighbors.prev),
+							nodes.get(neighbors.next));
+				}
+			}
+			network.edges.add(copy);
+			edges.put(edge, copy);
+		}
+
+		for (Node node : original.nodes) {
+			List<Edge> nodeEdges = nodes.get(node).edges;
+			for (Edge edge : node.edges) {
+				nodeEdges.add(edges.get(edge));
+			}
+		}
+	}
+
+	private static Point copy(Point point)
+	{
+		return point == null ? null : new Point(point.x, point.y);
+	}
+
+	LineNetwork getNetwork()
+	{
+		return network;
+	}
+
+	/**
+	 * Record the current state of a node of the original network that has
+	 * changed. Besides the location of the node, this includes the neighbor
+	 * locations of all edges at the node and at its neighbors, which depend on
+	 * the node's location.
+	 */
+	NodeChange record(Node node)
+	{
+		List<Edge> affected = new ArrayList<>();
+		for (Edge edge : node.edges) {
+			Node neighbor = edge.n1 != node ? edge.n1 : edge.n2;
+			affected.addAll(neighbor.edges);
+		}
+
+		int n = affected.size();
+		Edge[] copies = new Edge[n];
+		Point[] prevs = new Point[n];
+		Point[] nexts = new Point[n];
+		for (int i = 0; i < n; i++) {
+			Edge edge = affected.get(i);
+			copies[i] = edges.get(edge);
+			prevs[i] = copy(edge.prev);
+			nexts[i] = copy(edge.next);
+		}
+		return new NodeChange(nodes.get(node), copy(node.location), copies,
+				prevs, nexts);
+	}
+
+	/**
+	 * The state of a node and the edges around it at the time of recording.
+	 */
+	static class NodeChange
+	{
+
+		private final Node node;
+		private final Point location;
+		private final Edge[] edges;
+		private final Point[] prevs;
+		private final Point[] nexts;
+
+		NodeChange(Node node, Point location, Edge[] edges, Point[] prevs,
+				Point[] nexts)
+		{
+			this.node = node;
+			this.location = location;
+			this.edges = edges;
+			this.prevs = prevs;
+			this.nexts = nexts;
+		}
+
+		/**
+		 * Apply the recorded state to the copy.
+		 *
+		 * @return the changed node of the copy.
+		 */
+		Node apply()
+		{
+			node.location = location;
+			for (int i = 0; i < edges.length; i++) {
+				edges[i].setPrev(prevs[i]);
+				edges[i].setNext(nexts[i]);
+			}
+			return node;
+		}
+
+	}
+
+}
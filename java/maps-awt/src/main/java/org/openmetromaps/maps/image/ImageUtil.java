@@ -23,6 +23,12 @@ import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.imageio.ImageIO;
 
@@ -32,44 +38,116 @@ import org.openmetromaps.maps.MapViewStatus;
 import org.openmetromaps.maps.PlanRenderer;
 import org.openmetromaps.maps.PlanRenderer.SegmentMode;
 import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.RenderContext;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.painting.awt.AwtPainter;
 import org.openmetromaps.maps.painting.core.GenericPaintFactory;
 
+import de.topobyte.viewports.geometry.Envelope;
 import de.topobyte.viewports.geometry.Rectangle;
+import de.topobyte.viewports.scrolling.ViewportUtil;
 
 public class ImageUtil
 {
 
+	private static final int STRIP_HEIGHT = 256;
+
 	public static void createPng(MapModel model, Path path, int width,
 			int height, double x, double y, double zoom) throws IOException
 	{
 		createImage(model, path, "png", width, height, x, y, zoom);
 	}
 
+	public static void createPng(MapModel model, Path path, int width,
+			int height, double x, double y, double zoom, int threads)
+			throws IOException
+	{
+		createImage(model, path, "png", width, height, x, y, zoom, threads);
+	}
+
 	public static void createImage(MapModel model, Path path, String format,
 			int width, int height, double x, double y, double zoom)
 			throws IOException
 	{
-		MapView view = model.getViews().get(0);
-		LineNetwork lineNetwork = view.getLineNetwork();
-		MapViewStatus mapViewStatus = new MapViewStatus();
+		createImage(model, path, format, width, height, x, y, zoom, 1);
+	}
 
-		StationMode stationMode = StationMode.CONVEX;
-		SegmentMode segmentMode = SegmentMode.CURVE;
+	/**
+	 * Render the map into an image file, see
+	 * {@link #render(MapModel, int, int, double, double, double, int)}.
+	 */
+	public static void createImage(MapModel model, Path path, String format,
+			int width, int height, double x, double y, double zoom,
+			int threads) throws IOException
+	{
+		BufferedImage image = render(model, width, height, x, y, zoom,
+				threads);
+		ImageIO.write(image, format, path.toFile());
+	}
 
+	/**
+	 * Render the map into an image. With more than one thread, the image is
+	 * split into horizontal strips that are rendered concurrently. Each strip
+	 * is painted with the same view transformation and a clip, so the result
+	 * is identical to rendering with a single thread. Labels are placed once
+	 * for the whole image before, each strip only draws the labels that
+	 * intersect with it.
+	 */
+	public static BufferedImage render(MapModel model, int width, int height,
+			double x, double y, double zoom, int threads) throws IOException
+	{
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+
+		if (threads <= 1) {
+			renderSequential(model, image, x, y, zoom);
+		} else {
+			renderParallel(model, image, x, y, zoom, threads);
+		}
+
+		return image;
+	}
+
+	private static ImageView createImageView(MapModel model, int width,
+			int height, double x, double y, double zoom)
+	{
+		MapView view = model.getViews().get(0);
 		Rectangle scene = view.getConfig().getScene();
 		ImageView imageView = new ImageView(scene, width, height);
 		imageView.setZoom(zoom);
 		imageView.setPositionX(x);
 		imageView.setPositionY(y);
+		return imageView;
+	}
+
+	private static PlanRenderer createRenderer(MapModel model,
+			ImageView imageView)
+	{
+		MapView view = model.getViews().get(0);
+		LineNetwork lineNetwork = view.getLineNetwork();
+		MapViewStatus mapViewStatus = new MapViewStatus();
 
-		PlanRenderer planRenderer = new PlanRenderer(lineNetwork, mapViewStatus,
+		StationMode stationMode = StationMode.CONVEX;
+		SegmentMode segmentMode = SegmentMode.CURVE;
+
+		PlanRenderer renderer = new PlanRenderer(lineNetwork, mapViewStatus,
 				stationMode, segmentMode, imageView, imageView, 1,
 				new GenericPaintFactory());
+		// exports should show the full network at any zoom
+		renderer.setUseLod(false);
+		return renderer;
+	}
+
+	private static void renderSequential(MapModel model, BufferedImage image,
+			double x, double y, double zoom)
+	{
+		int width = image.getWidth();
+		int height = image.getHeight();
+
+		ImageView imageView = createImageView(model, width, height, x, y,
+				zoom);
+		PlanRenderer planRenderer = createRenderer(model, imageView);
 
-		BufferedImage image = new BufferedImage(width, height,
-				BufferedImage.TYPE_INT_RGB);
 		Graphics2D g = image.createGraphics();
 
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
@@ -81,9 +159,87 @@ public class ImageUtil
 		AwtPainter painter = new AwtPainter(g);
 
 		planRenderer.paint(painter);
-		planRenderer.setRenderLabels(true);
 
-		ImageIO.write(image, format, path.toFile());
+		g.dispose();
+		planRenderer.dispose();
+	}
+
+	private static void renderParallel(MapModel model, BufferedImage image,
+			double x, double y, double zoom, int threads) throws IOException
+	{
+		int width = image.getWidth();
+		int height = image.getHeight();
+
+		/*
+		 * All strips share the view, the renderer and the placement of
+		 * labels, each strip uses its own context for temporary rendering
+		 * state.
+		 */
+		ImageView imageView = createImageView(model, width, height, x, y,
+				zoom);
+		PlanRenderer planRenderer = createRenderer(model, imageView);
+
+		RenderContext labels = new RenderContext();
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		planRenderer.placeLabels(labels, new AwtPainter(g));
+		g.dispose();
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int y1 = 0; y1 < height; y1 += STRIP_HEIGHT) {
+			int y2 = Math.min(height, y1 + STRIP_HEIGHT);
+			int stripY1 = y1;
+			tasks.add(() -> {
+				renderStrip(imageView, planRenderer, labels,
+						new RenderContext(), image, stripY1, y2);
+				return null;
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (Future<Void> future : pool.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Error while rendering", e.getCause());
+		} finally {
+			pool.shutdown();
+			planRenderer.dispose();
+		}
+	}
+
+	private static void renderStrip(ImageView imageView,
+			PlanRenderer planRenderer, RenderContext labels,
+			RenderContext context, BufferedImage image, int y1, int y2)
+	{
+		int width = image.getWidth();
+
+		Graphics2D g = image.createGraphics();
+		g.clipRect(0, y1, width, y2 - y1);
+
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+
+		g.setColor(Color.WHITE);
+		g.fillRect(0, y1, width, y2 - y1);
+
+		Envelope region = new Envelope(
+				ViewportUtil.getRealX(imageView, 0),
+				ViewportUtil.getRealX(imageView, width),
+				ViewportUtil.getRealY(imageView, y1),
+				ViewportUtil.getRealY(imageView, y2));
+
+		AwtPainter painter = new AwtPainter(g);
+		planRenderer.paintNetwork(context, painter, region);
+		planRenderer.paintPlacedLabels(labels, context, painter, region);
+		planRenderer.paintOverlay(context, painter);
+
+		g.dispose();
 	}
 
 }
@@ -192,15 +192,15 @@ public class ImageView implements ViewportWithSignals, LocationToPoint
 
 	protected void fireViewportListenersViewportChanged()
 	{
-		for (ViewportListener listener : viewportListeners) {
-			listener.viewportChanged();
+		for (int i = 0; i < viewportListeners.size(); i++) {
+			viewportListeners.get(i).viewportChanged();
 		}
 	}
 
 	protected void fireViewportListenersZoomChanged()
 	{
-		for (ViewportListener listener : viewportListeners) {
-			listener.zoomChanged();
+		for (int i = 0; i < viewportListeners.size(); i++) {
+			viewportListeners.get(i).zoomChanged();
 		}
 	}
 
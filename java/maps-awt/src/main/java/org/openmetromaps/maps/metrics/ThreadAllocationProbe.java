@@ -0,0 +1,58 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * An {@link AllocationProbe} backed by the allocation counters of the HotSpot
+ * {@code ThreadMXBean}, if the running JVM provides them.
+ */
+public class ThreadAllocationProbe implements AllocationProbe
+{
+
+	private com.sun.management.ThreadMXBean bean = null;
+
+	public ThreadAllocationProbe()
+	{
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (sunBean.isThreadAllocatedMemorySupported()) {
+				sunBean.setThreadAllocatedMemoryEnabled(true);
+				bean = sunBean;
+			}
+		}
+	}
+
+	public boolean isSupported()
+	{
+		return bean != null;
+	}
+
+	@Override
+	public long getAllocatedBytes()
+	{
+		if (bean == null) {
+			return -1;
+		}
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
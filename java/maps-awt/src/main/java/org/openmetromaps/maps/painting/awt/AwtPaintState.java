@@ -0,0 +1,47 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.awt;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+
+import org.openmetromaps.maps.painting.core.GenericPaintInfo;
+
+/**
+ * The Java2D objects derived from a {@link GenericPaintInfo}. Instances are
+ * immutable and stored with the paint info, so that they are only created
+ * again after the paint info has been modified.
+ */
+class AwtPaintState
+{
+
+	final BasicStroke stroke;
+	final Color color;
+	final Font font;
+
+	AwtPaintState(GenericPaintInfo paint)
+	{
+		int join = AwtPaintInfo.getJoin(paint.getJoin());
+		int cap = AwtPaintInfo.getCap(paint.getCap());
+		stroke = new BasicStroke(paint.getWidth(), cap, join);
+		color = new Color(paint.getColor().getValue(), true);
+		font = new Font(Font.SANS_SERIF, Font.BOLD, paint.getFontSize());
+	}
+
+}
@@ -17,8 +17,6 @@
 
 package org.openmetromaps.maps.painting.awt;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
@@ -29,9 +27,9 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.CubicCurve2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.QuadCurve2D;
 
-import org.openmetromaps.maps.painting.core.ColorCode;
 import org.openmetromaps.maps.painting.core.GenericPaintInfo;
 import org.openmetromaps.maps.painting.core.IPaintInfo;
 import org.openmetromaps.maps.painting.core.PaintType;
@@ -48,11 +46,35 @@ public class AwtPainter implements Painter
 {
 
 	private Graphics2D g;
+	private LabelSpriteCache sprites;
+	// reused for each sprite lookup
+	private LabelSpriteCache.Key spriteKey = new LabelSpriteCache.Key();
 	private GenericPaintInfo paintInfo;
+	// the state applied last, nothing else is expected to modify the stroke,
+	// color or font of the graphics while this painter is in use
+	private AwtPaintState currentState;
+
+	// reused for batched primitives
+	private Path2D.Double batch = new Path2D.Double();
+	// reused for single primitives
+	private Arc2D.Double arc = new Arc2D.Double(Arc2D.CHORD);
+	private Line2D.Double line = new Line2D.Double();
 
 	public AwtPainter(Graphics2D g)
+	{
+		this(g, null);
+	}
+
+	/**
+	 * @param sprites
+	 *            a cache to draw strings from, may be null to always render
+	 *            strings directly. Sprites are only used if the graphics is
+	 *            not scaled or rotated when the painter is created.
+	 */
+	public AwtPainter(Graphics2D g, LabelSpriteCache sprites)
 	{
 		this.g = g;
+		this.sprites = canUseSprites(g) ? sprites : null;
 	}
 
 	@Override
@@ -84,17 +106,14 @@ public class AwtPainter implements Painter
 	@Override
 	public void draw(Circle circle)
 	{
-		Arc2D arc = new Arc2D.Double(circle.getX() - circle.getRadius(),
-				circle.getY() - circle.getRadius(), circle.getRadius() * 2,
-				circle.getRadius() * 2, 0, 360, Arc2D.CHORD);
-		drawShape(arc);
+		drawCircle(circle.getX(), circle.getY(), circle.getRadius());
 	}
 
 	@Override
 	public void drawCircle(double x, double y, double radius)
 	{
-		Arc2D arc = new Arc2D.Double(x - radius, y - radius, radius * 2,
-				radius * 2, 0, 360, Arc2D.CHORD);
+		arc.setArc(x - radius, y - radius, radius * 2, radius * 2, 0, 360,
+				Arc2D.CHORD);
 		drawShape(arc);
 	}
 
@@ -115,23 +134,53 @@ public class AwtPainter implements Painter
 	@Override
 	public void draw(LineSegment ls)
 	{
-		Line2D line = new Line2D.Double(ls.getX1(), ls.getY1(), ls.getX2(),
-				ls.getY2());
+		line.setLine(ls.getX1(), ls.getY1(), ls.getX2(), ls.getY2());
 		drawShape(line);
 	}
 
 	@Override
 	public void drawString(String string, float x, float y)
 	{
+		if (sprites != null) {
+			drawSprite(sprites.getText(spriteKey, string, currentState.font,
+					currentState.color), x, y);
+			return;
+		}
 		g.drawString(string, x, y);
 	}
 
 	@Override
 	public void outlineString(String string, float x, float y)
 	{
+		if (sprites != null) {
+			drawSprite(sprites.getOutline(spriteKey, string,
+					currentState.font, currentState.color, currentState.stroke),
+					x, y);
+			return;
+		}
 		outlineShapes(string, x, y);
 	}
 
+	/**
+	 * Sprites are rendered at a scale of one, they would look blurry on
+	 * graphics that scale or rotate.
+	 */
+	private static boolean canUseSprites(Graphics2D g)
+	{
+		int type = g.getTransform().getType();
+		return (type & ~AffineTransform.TYPE_TRANSLATION) == 0;
+	}
+
+	/**
+	 * Draw a sprite with its origin at the pixel closest to (x, y), see
+	 * {@link LabelSpriteCache}.
+	 */
+	private void drawSprite(LabelSpriteCache.Sprite sprite, float x, float y)
+	{
+		g.drawImage(sprite.image, Math.round(x) + sprite.dx,
+				Math.round(y) + sprite.dy, null);
+	}
+
 	private void outlineSimple(String string, float x, float y)
 	{
 		g.drawString(string, x - 1, y - 1);
@@ -169,18 +218,26 @@ public class AwtPainter implements Painter
 	@Override
 	public void setPaintInfo(IPaintInfo paintInfo)
 	{
-		this.paintInfo = (GenericPaintInfo) paintInfo;
 		GenericPaintInfo paint = (GenericPaintInfo) paintInfo;
-		ColorCode color = paint.getColor();
-		int join = AwtPaintInfo.getJoin(paint.getJoin());
-		int cap = AwtPaintInfo.getCap(paint.getCap());
-		g.setStroke(new BasicStroke(paint.getWidth(), cap, join));
-		g.setColor(new Color(color.getValue(), true));
+		this.paintInfo = paint;
+
+		Object object = paint.getBackendObject();
+		AwtPaintState state;
+		if (object instanceof AwtPaintState) {
+			state = (AwtPaintState) object;
+		} else {
+			state = new AwtPaintState(paint);
+			paint.setBackendObject(state);
+		}
+
+		if (state == currentState) {
+			return;
+		}
+		currentState = state;
 
-		String family = Font.SANS_SERIF;
-		int style = Font.BOLD;
-		Font font = new Font(family, style, paint.getFontSize());
-		g.setFont(font);
+		g.setStroke(state.stroke);
+		g.setColor(state.color);
+		g.setFont(state.font);
 	}
 
 	@Override
@@ -190,4 +247,40 @@ public class AwtPainter implements Painter
 		drawShape(line);
 	}
 
+	@Override
+	public void drawPolyline(double[] coords, int n)
+	{
+		if (n < 2) {
+			return;
+		}
+		batch.reset();
+		batch.moveTo(coords[0], coords[1]);
+		for (int i = 1; i < n; i++) {
+			batch.lineTo(coords[i * 2], coords[i * 2 + 1]);
+		}
+		drawShape(batch);
+	}
+
+	// distance of the control points for approximating a quarter circle
+	private static final double KAPPA = 0.5522847498;
+
+	@Override
+	public void drawCircles(double[] centers, int n, double radius)
+	{
+		double r = radius;
+		double k = radius * KAPPA;
+		batch.reset();
+		for (int i = 0; i < n; i++) {
+			double x = centers[i * 2];
+			double y = centers[i * 2 + 1];
+			batch.moveTo(x + r, y);
+			batch.curveTo(x + r, y + k, x + k, y + r, x, y + r);
+			batch.curveTo(x - k, y + r, x - r, y + k, x - r, y);
+			batch.curveTo(x - r, y - k, x - k, y - r, x, y - r);
+			batch.curveTo(x + k, y - r, x + r, y - k, x + r, y);
+			batch.closePath();
+		}
+		drawShape(batch);
+	}
+
 }
@@ -27,6 +27,13 @@ public class AwtPath extends java.awt.geom.Path2D.Double implements Path
 
 	private static final long serialVersionUID = 1L;
 
+	@Override
+	public void cubicTo(double c1x, double c1y, double c2x, double c2y,
+			double x, double y)
+	{
+		curveTo(c1x, c1y, c2x, c2y, x, y);
+	}
+
 	@Override
 	public void moveTo(Point p)
 	{
@@ -0,0 +1,249 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.awt;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of pre-rendered strings, so that labels can be drawn by copying
+ * images instead of rasterizing glyphs again for each frame. Sprites are
+ * created for filled text as well as for outlined text and are evicted in
+ * least-recently-used order once their total size exceeds the memory budget.
+ * Outlined sprites are keyed on the complete stroke, including its caps and
+ * joins.
+ *
+ * Sprites are drawn at whole pixel positions, so a label may be shifted by up
+ * to half a pixel compared to rasterizing its glyphs directly. This is
+ * accepted in exchange for copying the image without any interpolation.
+ *
+ * A cache may be shared by painters on different threads.
+ */
+public class LabelSpriteCache
+{
+
+	public static final long DEFAULT_BUDGET = 8 << 20;
+
+	private static final FontRenderContext FRC = new FontRenderContext(null,
+			true, false);
+
+	static class Sprite
+	{
+
+		final BufferedImage image;
+		// position of the image relative to the origin of the text
+		final int dx;
+		final int dy;
+
+		Sprite(BufferedImage image, int dx, int dy)
+		{
+			this.image = image;
+			this.dx = dx;
+			this.dy = dy;
+		}
+
+		long getBytes()
+		{
+			return image.getWidth() * (long) image.getHeight() * 4;
+		}
+
+	}
+
+	/**
+	 * Painters look sprites up with a key of their own that they modify for
+	 * each string, the cache only stores copies of such keys.
+	 */
+	static class Key
+	{
+
+		String text;
+		Font font;
+		int argb;
+		// null for filled text
+		BasicStroke stroke;
+
+		Key()
+		{
+			// fields are set for each lookup
+		}
+
+		Key(Key key)
+		{
+			set(key.text, key.font, key.argb, key.stroke);
+		}
+
+		void set(String text, Font font, int argb, BasicStroke stroke)
+		{
+			this.text = text;
+			this.font = font;
+			this.argb = argb;
+			this.stroke = stroke;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = text.hashCode();
+			result = 31 * result + font.hashCode();
+			result = 31 * result + argb;
+			result = 31 * result + (stroke == null ? 0 : stroke.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			if (stroke == null ? other.stroke != null
+					: !stroke.equals(other.stroke)) {
+				return false;
+			}
+			return argb == other.argb && text.equals(other.text)
+					&& font.equals(other.font);
+		}
+
+	}
+
+	private final long budget;
+	private long bytes = 0;
+
+	private final Map<Key, Sprite> sprites = new LinkedHashMap<>(256, 0.75f,
+			true);
+
+	public LabelSpriteCache()
+	{
+		this(DEFAULT_BUDGET);
+	}
+
+	/**
+	 * @param budget
+	 *            the maximum number of bytes to spend on images.
+	 */
+	public LabelSpriteCache(long budget)
+	{
+		this.budget = budget;
+	}
+
+	public synchronized long getBytes()
+	{
+		return bytes;
+	}
+
+	public synchronized int size()
+	{
+		return sprites.size();
+	}
+
+	public synchronized void clear()
+	{
+		sprites.clear();
+		bytes = 0;
+	}
+
+	Sprite getText(Key lookup, String text, Font font, Color color)
+	{
+		lookup.set(text, font, color.getRGB(), null);
+		return get(lookup);
+	}
+
+	Sprite getOutline(Key lookup, String text, Font font, Color color,
+			BasicStroke stroke)
+	{
+		lookup.set(text, font, color.getRGB(), stroke);
+		return get(lookup);
+	}
+
+	private Sprite get(Key lookup)
+	{
+		synchronized (this) {
+			Sprite sprite = sprites.get(lookup);
+			if (sprite != null) {
+				return sprite;
+			}
+		}
+
+		// render outside of the lock, a concurrent duplicate is harmless
+		Key key = new Key(lookup);
+		Sprite sprite = render(key);
+
+		synchronized (this) {
+			Sprite previous = sprites.put(key, sprite);
+			if (previous != null) {
+				bytes -= previous.getBytes();
+			}
+			bytes += sprite.getBytes();
+			Iterator<Sprite> iterator = sprites.values().iterator();
+			while (bytes > budget && iterator.hasNext()) {
+				Sprite eldest = iterator.next();
+				if (eldest == sprite) {
+					break;
+				}
+				bytes -= eldest.getBytes();
+				iterator.remove();
+			}
+		}
+		return sprite;
+	}
+
+	private static Sprite render(Key key)
+	{
+		BasicStroke stroke = key.stroke;
+		TextLayout layout = new TextLayout(key.text, key.font, FRC);
+		Shape shape = layout.getOutline(null);
+		if (stroke != null) {
+			shape = stroke.createStrokedShape(shape);
+		}
+		// one pixel of margin for antialiasing
+		Rectangle bounds = shape.getBounds();
+		bounds.grow(1, 1);
+
+		BufferedImage image = new BufferedImage(Math.max(1, bounds.width),
+				Math.max(1, bounds.height), BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+				RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.translate(-bounds.x, -bounds.y);
+		g.setColor(new Color(key.argb, true));
+		if (stroke == null) {
+			g.setFont(key.font);
+			g.drawString(key.text, 0, 0);
+		} else {
+			g.fill(shape);
+		}
+		g.dispose();
+
+		return new Sprite(image, bounds.x, bounds.y);
+	}
+
+}
@@ -0,0 +1,511 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.tiles;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+import org.openmetromaps.maps.DamageUtil;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.ZoomBuckets;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
+import de.topobyte.viewports.geometry.Rectangle;
+import de.topobyte.viewports.scrolling.ViewportListener;
+import de.topobyte.viewports.scrolling.ViewportUtil;
+import de.topobyte.viewports.scrolling.ViewportWithSignals;
+
+/**
+ * A cache of rendered tiles of the network layer (segments and stations) of
+ * a {@link PlanRenderer}. Tiles are aligned to a grid in view coordinates of
+ * the discrete zoom levels defined by {@link ZoomBuckets}. Tiles visible in the viewport
+ * are rendered synchronously when missing, tiles around the viewport are
+ * rendered in advance by background workers. The cache is bounded by a memory
+ * budget and evicts the least recently used tiles first.
+ */
+public class TileCache
+		implements ViewportListener, LineNetworkListener
+{
+
+	final static Logger logger = LoggerFactory.getLogger(TileCache.class);
+
+	public static final int TILE_SIZE = 256;
+	public static final long DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+	public static final int DEFAULT_NUM_WORKERS = Math.max(1,
+			Runtime.getRuntime().availableProcessors() - 1);
+
+	private static final int PREFETCH_RING = 1;
+
+	private JComponent component;
+	private ViewportWithSignals viewport;
+	private LineNetwork lineNetwork;
+	private MapViewStatus mapViewStatus;
+	private PlanRenderer planRenderer;
+
+	private long memoryBudget;
+	private long memoryUsed = 0;
+	private LinkedHashMap<TileKey, BufferedImage> tiles = new LinkedHashMap<>(
+			16, 0.75f, true);
+	private Set<TileKey> pending = new HashSet<>();
+	// incremented on each invalidation, tiles rendered before are discarded
+	private int modCount = 0;
+
+	private Map<Node, Point> knownLocations = new HashMap<>();
+
+	private TileRenderer syncRenderer;
+	private List<TileRenderer> workerRenderers = new ArrayList<>();
+	private BlockingQueue<TileRenderer> idleRenderers;
+	private ExecutorService executor;
+
+	private volatile TileRange visible = null;
+	private volatile TileRange wanted = null;
+
+	/**
+	 * @param component
+	 *            the component to repaint when tiles within the visible area
+	 *            have been rendered in the background.
+	 * @param planRenderer
+	 *            the renderer of the component, used to pick up the current
+	 *            rendering options.
+	 */
+	public TileCache(JComponent component, ViewportWithSignals viewport,
+			LineNetwork lineNetwork, MapViewStatus mapViewStatus,
+			PlanRenderer planRenderer, Rectangle scene, int numWorkers,
+			long memoryBudget)
+	{
+		this.component = component;
+		this.viewport = viewport;
+		this.lineNetwork = lineNetwork;
+		this.mapViewStatus = mapViewStatus;
+		this.planRenderer = planRenderer;
+		this.memoryBudget = memoryBudget;
+
+		// the renderers are created here, on the event dispatch thread
+		TileOptions options = TileOptions.of(planRenderer);
+		syncRenderer = new TileRenderer(lineNetwork, mapViewStatus, scene,
+				TILE_SIZE, options, planRenderer.getMetrics());
+		idleRenderers = new ArrayBlockingQueue<>(numWorkers);
+		for (int i = 0; i < numWorkers; i++) {
+			TileRenderer renderer = new TileRenderer(lineNetwork,
+					mapViewStatus, scene, TILE_SIZE, options,
+					planRenderer.getMetrics());
+			workerRenderers.add(renderer);
+			idleRenderers.add(renderer);
+		}
+
+		executor = Executors.newFixedThreadPool(numWorkers, r -> {
+			Thread thread = new Thread(r, "tile-renderer");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		updateKnownLocations();
+
+		viewport.addViewportListener(this);
+		lineNetwork.addListener(this);
+	}
+
+	public void dispose()
+	{
+		viewport.removeViewportListener(this);
+		lineNetwork.removeListener(this);
+		executor.shutdownNow();
+		synchronized (this) {
+			tiles.clear();
+			pending.clear();
+			memoryUsed = 0;
+		}
+	}
+
+	public synchronized long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	public synchronized void setMemoryBudget(long memoryBudget)
+	{
+		this.memoryBudget = memoryBudget;
+		evict();
+	}
+
+	public synchronized void clear()
+	{
+		modCount++;
+		tiles.clear();
+		memoryUsed = 0;
+	}
+
+	/**
+	 * Paint the tiles covering the viewport, or only those intersecting the
+	 * clip of the graphics if it has one. Missing tiles are rendered
+	 * immediately.
+	 */
+	public void paint(Graphics2D g)
+	{
+		if (!hasArea()) {
+			return;
+		}
+
+		TileOptions options = TileOptions.of(planRenderer);
+		int bucket = ZoomBuckets.bucket(viewport.getZoom());
+		double bucketZoom = ZoomBuckets.zoom(bucket);
+
+		TileRange range = range(options, bucket, 0);
+		visible = range;
+		wanted = range(options, bucket, PREFETCH_RING);
+
+		if (bucketZoom != viewport.getZoom()) {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+					RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		}
+
+		int tx1 = range.tx1, ty1 = range.ty1;
+		int tx2 = range.tx2, ty2 = range.ty2;
+		java.awt.Rectangle clip = g.getClipBounds();
+		if (clip != null) {
+			TileRange clipRange = range(options, bucket, clip.x, clip.y,
+					clip.x + clip.width, clip.y + clip.height, 0);
+			tx1 = Math.max(tx1, clipRange.tx1);
+			ty1 = Math.max(ty1, clipRange.ty1);
+			tx2 = Math.min(tx2, clipRange.tx2);
+			ty2 = Math.min(ty2, clipRange.ty2);
+		}
+
+		for (int ty = ty1; ty <= ty2; ty++) {
+			for (int tx = tx1; tx <= tx2; tx++) {
+				TileKey key = new TileKey(options, bucket, tx, ty);
+				BufferedImage image = get(key);
+				if (image == null) {
+					int mod = getModCount();
+					image = syncRenderer.render(key);
+					store(key, image, mod);
+				}
+
+				int x1 = viewX(tx * TILE_SIZE / bucketZoom);
+				int y1 = viewY(ty * TILE_SIZE / bucketZoom);
+				int x2 = viewX((tx + 1) * TILE_SIZE / bucketZoom);
+				int y2 = viewY((ty + 1) * TILE_SIZE / bucketZoom);
+				g.drawImage(image, x1, y1, x2, y2, 0, 0, TILE_SIZE,
+						TILE_SIZE, null);
+			}
+		}
+
+		prefetch(wanted);
+	}
+
+	private boolean hasArea()
+	{
+		return viewport.getZoom() > 0 && viewport.getViewportWidth() > 0
+				&& viewport.getViewportHeight() > 0;
+	}
+
+	private int viewX(double x)
+	{
+		return (int) Math.round(ViewportUtil.getViewX(viewport, x));
+	}
+
+	private int viewY(double y)
+	{
+		return (int) Math.round(ViewportUtil.getViewY(viewport, y));
+	}
+
+	private TileRange range(TileOptions options, int bucket, int ring)
+	{
+		return range(options, bucket, 0, 0, viewport.getViewportWidth(),
+				viewport.getViewportHeight(), ring);
+	}
+
+	/**
+	 * Get the range of tiles covering the specified rectangle in view
+	 * coordinates.
+	 */
+	private TileRange range(TileOptions options, int bucket, double vx1,
+			double vy1, double vx2, double vy2, int ring)
+	{
+		double bucketZoom = ZoomBuckets.zoom(bucket);
+		double x1 = ViewportUtil.getRealX(viewport, vx1);
+		double y1 = ViewportUtil.getRealY(viewport, vy1);
+		double x2 = ViewportUtil.getRealX(viewport, vx2);
+		double y2 = ViewportUtil.getRealY(viewport, vy2);
+
+		int tx1 = (int) Math.floor(x1 * bucketZoom / TILE_SIZE) - ring;
+		int ty1 = (int) Math.floor(y1 * bucketZoom / TILE_SIZE) - ring;
+		int tx2 = (int) Math.floor(x2 * bucketZoom / TILE_SIZE) + ring;
+		int ty2 = (int) Math.floor(y2 * bucketZoom / TILE_SIZE) + ring;
+		return new TileRange(options, bucket, tx1, ty1, tx2, ty2);
+	}
+
+	private synchronized int getModCount()
+	{
+		return modCount;
+	}
+
+	private synchronized BufferedImage get(TileKey key)
+	{
+		return tiles.get(key);
+	}
+
+	private synchronized boolean store(TileKey key, BufferedImage image,
+			int mod)
+	{
+		if (mod != modCount) {
+			return false;
+		}
+		BufferedImage previous = tiles.put(key, image);
+		if (previous != null) {
+			memoryUsed -= bytes(previous);
+		}
+		memoryUsed += bytes(image);
+		evict();
+		return true;
+	}
+
+	private void evict()
+	{
+		Iterator<BufferedImage> iterator = tiles.values().iterator();
+		while (memoryUsed > memoryBudget && iterator.hasNext()) {
+			BufferedImage image = iterator.next();
+			iterator.remove();
+			memoryUsed -= bytes(image);
+		}
+	}
+
+	private static long bytes(BufferedImage image)
+	{
+		return 4L * image.getWidth() * image.getHeight();
+	}
+
+	private void prefetch(TileRange range)
+	{
+		List<TileKey> missing = new ArrayList<>();
+		synchronized (this) {
+			for (int ty = range.ty1; ty <= range.ty2; ty++) {
+				for (int tx = range.tx1; tx <= range.tx2; tx++) {
+					TileKey key = new TileKey(range.options, range.bucket, tx,
+							ty);
+					if (tiles.containsKey(key) || pending.contains(key)) {
+						continue;
+					}
+					pending.add(key);
+					missing.add(key);
+				}
+			}
+		}
+		for (TileKey key : missing) {
+			executor.execute(() -> renderInBackground(key));
+		}
+	}
+
+	private void renderInBackground(TileKey key)
+	{
+		TileRange range = wanted;
+		if (range == null || !range.contains(key)) {
+			synchronized (this) {
+				pending.remove(key);
+			}
+			return;
+		}
+
+		TileRenderer renderer;
+		try {
+			renderer = idleRenderers.take();
+		} catch (InterruptedException e) {
+			return;
+		}
+
+		BufferedImage image;
+		try {
+			int mod = getModCount();
+			image = renderer.render(key);
+			boolean stored;
+			synchronized (this) {
+				pending.remove(key);
+				stored = store(key, image, mod);
+			}
+			TileRange visible = this.visible;
+			if (stored && visible != null && visible.contains(key)) {
+				SwingUtilities.invokeLater(() -> component.repaint());
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Error while rendering tile " + key, e);
+			synchronized (this) {
+				pending.remove(key);
+			}
+		} finally {
+			idleRenderers.add(renderer);
+		}
+	}
+
+	/**
+	 * Remove all tiles that intersect the specified envelope (in scene
+	 * coordinates) after enlarging it by the overdraw of segments and
+	 * stations.
+	 */
+	public void invalidate(Envelope envelope)
+	{
+		if (envelope.isNull()) {
+			return;
+		}
+
+		double margin = planRenderer.getOverDrawPixels() / viewport.getZoom();
+		double x1 = envelope.getMinX() - margin;
+		double y1 = envelope.getMinY() - margin;
+		double x2 = envelope.getMaxX() + margin;
+		double y2 = envelope.getMaxY() + margin;
+
+		synchronized (this) {
+			modCount++;
+			Iterator<Map.Entry<TileKey, BufferedImage>> iterator = tiles
+					.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<TileKey, BufferedImage> entry = iterator.next();
+				TileKey key = entry.getKey();
+				double size = TILE_SIZE / ZoomBuckets.zoom(key.getZoomBucket());
+				double tx1 = key.getX() * size;
+				double ty1 = key.getY() * size;
+				if (tx1 > x2 || tx1 + size < x1 || ty1 > y2
+						|| ty1 + size < y1) {
+					continue;
+				}
+				iterator.remove();
+				memoryUsed -= bytes(entry.getValue());
+			}
+		}
+	}
+
+	private void updateKnownLocations()
+	{
+		knownLocations.clear();
+		for (Node node : lineNetwork.nodes) {
+			knownLocations.put(node, node.location);
+		}
+	}
+
+	// ViewportListener
+
+	@Override
+	public void viewportChanged()
+	{
+		if (!hasArea()) {
+			return;
+		}
+
+		TileOptions options = TileOptions.of(planRenderer);
+		int bucket = ZoomBuckets.bucket(viewport.getZoom());
+		visible = range(options, bucket, 0);
+		wanted = range(options, bucket, PREFETCH_RING);
+		prefetch(wanted);
+	}
+
+	@Override
+	public void zoomChanged()
+	{
+		viewportChanged();
+	}
+
+	@Override
+	public void complexChange()
+	{
+		viewportChanged();
+	}
+
+	// LineNetworkListener
+
+	@Override
+	public void nodeChanged(Node node)
+	{
+		double bulge = planRenderer.getIndex().getBulge();
+
+		Envelope dirty = new Envelope();
+		Point old = knownLocations.get(node);
+		DamageUtil.nodeMoved(dirty, node, old, bulge);
+		knownLocations.put(node, node.location);
+
+		syncRenderer.nodeChanged(node);
+		for (TileRenderer renderer : workerRenderers) {
+			renderer.nodeChanged(node);
+		}
+
+		invalidate(dirty);
+	}
+
+	@Override
+	public void networkChanged()
+	{
+		updateKnownLocations();
+
+		syncRenderer.networkChanged();
+		for (TileRenderer renderer : workerRenderers) {
+			renderer.networkChanged();
+		}
+
+		clear();
+	}
+
+	private static class TileRange
+	{
+
+		final TileOptions options;
+		final int bucket;
+		final int tx1, ty1, tx2, ty2;
+
+		TileRange(TileOptions options, int bucket, int tx1, int ty1, int tx2,
+				int ty2)
+		{
+			this.options = options;
+			this.bucket = bucket;
+			this.tx1 = tx1;
+			this.ty1 = ty1;
+			this.tx2 = tx2;
+			this.ty2 = ty2;
+		}
+
+		boolean contains(TileKey key)
+		{
+			return key.getZoomBucket() == bucket
+					&& key.getOptions().equals(options) && key.getX() >= tx1
+					&& key.getX() <= tx2 && key.getY() >= ty1
+					&& key.getY() <= ty2;
+		}
+
+	}
+
+}
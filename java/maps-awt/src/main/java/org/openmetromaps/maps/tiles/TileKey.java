@@ -0,0 +1,83 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.tiles;
+
+public class TileKey
+{
+
+	private TileOptions options;
+	private int zoomBucket;
+	private int x;
+	private int y;
+
+	public TileKey(TileOptions options, int zoomBucket, int x, int y)
+	{
+		this.options = options;
+		this.zoomBucket = zoomBucket;
+		this.x = x;
+		this.y = y;
+	}
+
+	public TileOptions getOptions()
+	{
+		return options;
+	}
+
+	public int getZoomBucket()
+	{
+		return zoomBucket;
+	}
+
+	public int getX()
+	{
+		return x;
+	}
+
+	public int getY()
+	{
+		return y;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof TileKey)) {
+			return false;
+		}
+		TileKey other = (TileKey) obj;
+		return other.zoomBucket == zoomBucket && other.x == x && other.y == y
+				&& other.options.equals(options);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = options.hashCode();
+		hash = hash * 31 + zoomBucket;
+		hash = hash * 31 + x;
+		hash = hash * 31 + y;
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return zoomBucket + "/" + x + "/" + y;
+	}
+
+}
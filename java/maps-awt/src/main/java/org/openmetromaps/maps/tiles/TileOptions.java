@@ -0,0 +1,127 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.tiles;
+
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.image.ImageView;
+import org.openmetromaps.maps.metrics.RenderMetrics;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+
+/**
+ * The subset of {@link PlanRenderer} settings that affects the content of
+ * tiles.
+ */
+public class TileOptions
+{
+
+	private StationMode stationMode;
+	private SegmentMode segmentMode;
+	private boolean lod;
+	private boolean flattenCurves;
+	private boolean groupByPaint;
+	private float scale;
+
+	public TileOptions(StationMode stationMode, SegmentMode segmentMode,
+			boolean lod, boolean flattenCurves, boolean groupByPaint,
+			float scale)
+	{
+		this.stationMode = stationMode;
+		this.segmentMode = segmentMode;
+		this.lod = lod;
+		this.flattenCurves = flattenCurves;
+		this.groupByPaint = groupByPaint;
+		this.scale = scale;
+	}
+
+	public static TileOptions of(PlanRenderer renderer)
+	{
+		return new TileOptions(renderer.getStationMode(),
+				renderer.getSegmentMode(), renderer.isUseLod(),
+				renderer.isFlattenCurves(), renderer.isGroupByPaint(),
+				renderer.getScale());
+	}
+
+	public float getScale()
+	{
+		return scale;
+	}
+
+	/**
+	 * Create a renderer with these options that paints on a private view. Its
+	 * caches are not registered with the network, changes of the network have
+	 * to be forwarded to {@link PlanRenderer#getNetworkListeners()} by the
+	 * owner. Since creating a renderer reads the network, this needs to be
+	 * called on the thread that modifies the network.
+	 */
+	public PlanRenderer createRenderer(LineNetwork lineNetwork,
+			MapViewStatus mapViewStatus, ImageView view,
+			RenderMetrics metrics)
+	{
+		PlanRenderer renderer = new PlanRenderer(lineNetwork, mapViewStatus,
+				stationMode, segmentMode, view, view, scale,
+				new GenericPaintFactory(), false);
+		renderer.setMetrics(metrics);
+		apply(renderer);
+		return renderer;
+	}
+
+	/**
+	 * Apply these options to a renderer, which must have been created with
+	 * the same scale, see {@link #createRenderer}.
+	 */
+	public void apply(PlanRenderer renderer)
+	{
+		if (renderer.getStationMode() != stationMode) {
+			renderer.setStationMode(stationMode);
+		}
+		renderer.setSegmentMode(segmentMode);
+		renderer.setUseLod(lod);
+		renderer.setFlattenCurves(flattenCurves);
+		renderer.setGroupByPaint(groupByPaint);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof TileOptions)) {
+			return false;
+		}
+		TileOptions other = (TileOptions) obj;
+		return other.stationMode == stationMode
+				&& other.segmentMode == segmentMode && other.lod == lod
+				&& other.flattenCurves == flattenCurves
+				&& other.groupByPaint == groupByPaint && other.scale == scale;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = stationMode.ordinal();
+		hash = hash * 31 + segmentMode.ordinal();
+		hash = hash * 31 + (lod ? 1 : 0);
+		hash = hash * 31 + (flattenCurves ? 1 : 0);
+		hash = hash * 31 + (groupByPaint ? 1 : 0);
+		hash = hash * 31 + Float.floatToIntBits(scale);
+		return hash;
+	}
+
+}
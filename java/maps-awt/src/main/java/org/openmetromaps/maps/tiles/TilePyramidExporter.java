@@ -0,0 +1,375 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.tiles;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.openmetromaps.maps.IntArray;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.RenderContext;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.image.ImageView;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+
+import de.topobyte.viewports.geometry.Envelope;
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * Exports the network of a view, including station labels, as a pyramid of
+ * PNG tiles in the z/x/y layout used by slippy maps. At zoom level 0 the
+ * larger side of the scene fits into a single tile, each further level
+ * doubles the resolution.
+ *
+ * Tiles without any segment, station or label are not written. Since the
+ * index only knows the bounding boxes of segments, tiles are also dropped
+ * when they turn out blank after rendering. Tiles that already exist in the
+ * output directory are kept, so an interrupted export can be resumed by
+ * running it again.
+ *
+ * Tiles are rendered by a work-stealing pool that splits the range of tiles
+ * of each level recursively. All threads share one renderer and each thread
+ * uses its own {@link RenderContext}. Labels are placed once per level for
+ * the whole level, so that labels crossing the border of tiles are split
+ * consistently.
+ */
+public class TilePyramidExporter
+{
+
+	public static final int TILE_SIZE = TileCache.TILE_SIZE;
+
+	// ranges with at most this many tiles are not split any further
+	private static final int MAX_TILES_PER_TASK = 4;
+
+	private LineNetwork lineNetwork;
+	private Rectangle scene;
+	private Path directory;
+
+	private AtomicInteger numRendered = new AtomicInteger();
+	private AtomicInteger numEmpty = new AtomicInteger();
+	private AtomicInteger numExisting = new AtomicInteger();
+
+	private ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+
+		@Override
+		protected Worker initialValue()
+		{
+			return new Worker();
+		}
+
+	};
+
+	public TilePyramidExporter(LineNetwork lineNetwork, Rectangle scene,
+			Path directory)
+	{
+		this.lineNetwork = lineNetwork;
+		this.scene = scene;
+		this.directory = directory;
+	}
+
+	/**
+	 * Get the scale from scene coordinates to pixels at the specified level.
+	 */
+	public double getZoom(int level)
+	{
+		double size = Math.max(scene.getWidth(), scene.getHeight());
+		return TILE_SIZE / size * (1L << level);
+	}
+
+	public int getNumTilesX(int level)
+	{
+		return (int) Math.ceil(scene.getWidth() * getZoom(level) / TILE_SIZE);
+	}
+
+	public int getNumTilesY(int level)
+	{
+		return (int) Math
+				.ceil(scene.getHeight() * getZoom(level) / TILE_SIZE);
+	}
+
+	/**
+	 * Export all tiles of the levels from minLevel to maxLevel, inclusive.
+	 * The network must not be modified meanwhile.
+	 */
+	public void export(int minLevel, int maxLevel, int threads)
+			throws IOException
+	{
+		LevelView view = new LevelView(scene);
+		PlanRenderer planRenderer = new PlanRenderer(lineNetwork,
+				new MapViewStatus(), PlanRenderer.StationMode.CONVEX,
+				PlanRenderer.SegmentMode.CURVE, view, view, 1,
+				new GenericPaintFactory(), false);
+		// tiles should show the full network at any zoom
+		planRenderer.setUseLod(false);
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (int level = minLevel; level <= maxLevel; level++) {
+				double zoom = getZoom(level);
+				int nx = getNumTilesX(level);
+				int ny = getNumTilesY(level);
+				view.setLevel(zoom, nx, ny);
+				Level state = new Level(level, zoom, planRenderer);
+				pool.invoke(new RangeTask(state, 0, 0, nx, ny));
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			pool.shutdown();
+			planRenderer.dispose();
+		}
+	}
+
+	public int getNumRendered()
+	{
+		return numRendered.get();
+	}
+
+	public int getNumEmpty()
+	{
+		return numEmpty.get();
+	}
+
+	public int getNumExisting()
+	{
+		return numExisting.get();
+	}
+
+	public Path getTilePath(int level, int tx, int ty)
+	{
+		return directory.resolve(Integer.toString(level))
+				.resolve(Integer.toString(tx)).resolve(ty + ".png");
+	}
+
+	private void exportTile(Level level, int tx, int ty) throws IOException
+	{
+		Path path = getTilePath(level.level, tx, ty);
+		if (Files.exists(path)) {
+			numExisting.incrementAndGet();
+			return;
+		}
+
+		BufferedImage image = workers.get().render(level, tx, ty);
+		if (image == null) {
+			numEmpty.incrementAndGet();
+			return;
+		}
+
+		// write to a temporary file first, so that resuming never finds a
+		// partially written tile
+		Files.createDirectories(path.getParent());
+		Path tmp = path.resolveSibling(ty + ".png.tmp");
+		ImageIO.write(image, "png", tmp.toFile());
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		numRendered.incrementAndGet();
+	}
+
+	/**
+	 * A viewport covering all tiles of a level.
+	 */
+	private static class LevelView extends ImageView
+	{
+
+		LevelView(Rectangle scene)
+		{
+			super(scene, TILE_SIZE, TILE_SIZE);
+		}
+
+		void setLevel(double zoom, int numTilesX, int numTilesY)
+		{
+			width = numTilesX * TILE_SIZE;
+			height = numTilesY * TILE_SIZE;
+			internalSetZoom(zoom);
+			internalSetPositionX(0);
+			internalSetPositionY(0);
+			fireViewportListenersZoomChanged();
+			fireViewportListenersViewportChanged();
+		}
+
+	}
+
+	/**
+	 * The state shared by all threads while rendering the tiles of a level.
+	 */
+	private static class Level
+	{
+
+		final int level;
+		final PlanRenderer planRenderer;
+		final double zoom;
+		// the labels placed for the whole level
+		final RenderContext labels = new RenderContext();
+		// how far segments and stations, and labels, extend from the geometry
+		// in the index, in scene coordinates
+		final double overDraw;
+		final double reach;
+
+		Level(int level, double zoom, PlanRenderer planRenderer)
+		{
+			this.level = level;
+			this.zoom = zoom;
+			this.planRenderer = planRenderer;
+
+			BufferedImage scratch = new BufferedImage(1, 1,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = scratch.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			planRenderer.placeLabels(labels, new AwtPainter(g));
+			g.dispose();
+
+			overDraw = planRenderer.getOverDrawPixels() / zoom;
+			reach = Math.max(planRenderer.getOverDrawPixels(),
+					planRenderer.getLabelReach(labels)) / zoom;
+		}
+
+	}
+
+	private class RangeTask extends RecursiveAction
+	{
+
+		private static final long serialVersionUID = 1L;
+
+		private final Level level;
+		// tx2 and ty2 are exclusive
+		private final int tx1, ty1, tx2, ty2;
+
+		RangeTask(Level level, int tx1, int ty1, int tx2, int ty2)
+		{
+			this.level = level;
+			this.tx1 = tx1;
+			this.ty1 = ty1;
+			this.tx2 = tx2;
+			this.ty2 = ty2;
+		}
+
+		@Override
+		protected void compute()
+		{
+			int w = tx2 - tx1;
+			int h = ty2 - ty1;
+			if (w * (long) h <= MAX_TILES_PER_TASK) {
+				for (int tx = tx1; tx < tx2; tx++) {
+					for (int ty = ty1; ty < ty2; ty++) {
+						try {
+							exportTile(level, tx, ty);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+				}
+				return;
+			}
+			if (w >= h) {
+				int mx = tx1 + w / 2;
+				invokeAll(new RangeTask(level, tx1, ty1, mx, ty2),
+						new RangeTask(level, mx, ty1, tx2, ty2));
+			} else {
+				int my = ty1 + h / 2;
+				invokeAll(new RangeTask(level, tx1, ty1, tx2, my),
+						new RangeTask(level, tx1, my, tx2, ty2));
+			}
+		}
+
+	}
+
+	/**
+	 * The temporary state of a worker thread.
+	 */
+	private static class Worker
+	{
+
+		private RenderContext context = new RenderContext();
+		private Envelope query = new Envelope();
+		private IntArray ids = new IntArray();
+
+		/**
+		 * @return the rendered tile or null if the tile is empty.
+		 */
+		BufferedImage render(Level level, int tx, int ty)
+		{
+			PlanRenderer planRenderer = level.planRenderer;
+
+			double size = TILE_SIZE / level.zoom;
+			Envelope region = new Envelope(tx * size, (tx + 1) * size,
+					ty * size, (ty + 1) * size);
+			if (isEmpty(level, region)) {
+				return null;
+			}
+
+			BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			// the view covers the whole level
+			g.translate(-tx * TILE_SIZE, -ty * TILE_SIZE);
+
+			AwtPainter painter = new AwtPainter(g);
+			planRenderer.paintNetwork(context, painter, region);
+			planRenderer.paintPlacedLabels(level.labels, context, painter,
+					region);
+
+			g.dispose();
+			return isBlank(image) ? null : image;
+		}
+
+		private boolean isEmpty(Level level, Envelope region)
+		{
+			query.init(region);
+			query.expandBy(level.overDraw);
+			level.planRenderer.getIndex().queryEdges(query, ids);
+			if (!ids.isEmpty()) {
+				return false;
+			}
+			query.init(region);
+			query.expandBy(level.reach);
+			level.planRenderer.getIndex().queryNodes(query, ids);
+			return ids.isEmpty();
+		}
+
+		private boolean isBlank(BufferedImage image)
+		{
+			int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+					.getData();
+			for (int pixel : pixels) {
+				if ((pixel >>> 24) != 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
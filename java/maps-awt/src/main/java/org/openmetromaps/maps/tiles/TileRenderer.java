@@ -0,0 +1,128 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.tiles;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.ZoomBuckets;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.metrics.RenderMetrics;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * Renders single tiles with a private {@link PlanRenderer}. The renderer is
+ * created by the constructor, which needs to run on the thread that modifies
+ * the network, and then only used by one thread at a time. Changes of the
+ * network are not observed directly but recorded by the owner and applied
+ * to the renderer's caches before rendering the next tile, so that recording
+ * them never waits for a tile to be finished.
+ */
+class TileRenderer
+{
+
+	private TileView view;
+	private PlanRenderer planRenderer;
+
+	// changes not yet applied to the renderer
+	private Set<Node> changedNodes = ConcurrentHashMap.newKeySet();
+	private volatile boolean networkChanged = false;
+
+	TileRenderer(LineNetwork lineNetwork, MapViewStatus mapViewStatus,
+			Rectangle scene, int tileSize, TileOptions options,
+			RenderMetrics metrics)
+	{
+		view = new TileView(scene, tileSize);
+		planRenderer = options.createRenderer(lineNetwork, mapViewStatus,
+				view, metrics);
+	}
+
+	BufferedImage render(TileKey key)
+	{
+		TileOptions options = key.getOptions();
+		if (planRenderer.getScale() != options.getScale()) {
+			throw new IllegalArgumentException(
+					"The scale of tiles cannot be changed");
+		}
+		options.apply(planRenderer);
+		applyChanges();
+		view.setTile(ZoomBuckets.zoom(key.getZoomBucket()), key.getX(),
+				key.getY());
+
+		BufferedImage image = new BufferedImage(view.getWidth(),
+				view.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+
+		planRenderer.paintNetwork(new AwtPainter(g));
+
+		g.dispose();
+		return image;
+	}
+
+	private void applyChanges()
+	{
+		if (networkChanged) {
+			networkChanged = false;
+			changedNodes.clear();
+			for (LineNetworkListener listener : planRenderer
+					.getNetworkListeners()) {
+				listener.networkChanged();
+			}
+			return;
+		}
+		for (Node node : changedNodes) {
+			// a node changed again after removal is kept for the next tile
+			if (!changedNodes.remove(node)) {
+				continue;
+			}
+			for (LineNetworkListener listener : planRenderer
+					.getNetworkListeners()) {
+				listener.nodeChanged(node);
+			}
+		}
+	}
+
+	/**
+	 * Record that a node changed, may be called while a tile is rendered.
+	 */
+	void nodeChanged(Node node)
+	{
+		changedNodes.add(node);
+	}
+
+	/**
+	 * Record that the network changed, may be called while a tile is
+	 * rendered.
+	 */
+	void networkChanged()
+	{
+		networkChanged = true;
+	}
+
+}
@@ -0,0 +1,48 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.tiles;
+
+import org.openmetromaps.maps.image.ImageView;
+
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * A square viewport that can be placed on arbitrary tiles of a tile grid
+ * without being restricted to the bounds of the scene.
+ */
+public class TileView extends ImageView
+{
+
+	public TileView(Rectangle scene, int tileSize)
+	{
+		super(scene, tileSize, tileSize);
+	}
+
+	public void setTile(double zoom, int tx, int ty)
+	{
+		boolean zoomChanged = zoom != this.zoom;
+		internalSetZoom(zoom);
+		internalSetPositionX(-tx * width / zoom);
+		internalSetPositionY(-ty * height / zoom);
+		if (zoomChanged) {
+			fireViewportListenersZoomChanged();
+		}
+		fireViewportListenersViewportChanged();
+	}
+
+}
@@ -0,0 +1,144 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.background;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkUtil;
+import org.openmetromaps.maps.graph.NeighborInfo;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkConfig;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkGenerator;
+
+import de.topobyte.lightgeom.lina.Point;
+
+public class TestNetworkCopy
+{
+
+	private LineNetwork network;
+
+	@Before
+	public void setup()
+	{
+		SyntheticNetworkConfig config = new SyntheticNetworkConfig();
+		config.setNumStations(200);
+		config.setNumLines(6);
+		MapModel model = new SyntheticNetworkGenerator(config).generate();
+		network = model.getViews().get(0).getLineNetwork();
+	}
+
+	@Test
+	public void testCopy()
+	{
+		LineNetwork copy = new NetworkCopy(network).getNetwork();
+		assertEqual(network, copy);
+		for (int i = 0; i < network.nodes.size(); i++) {
+			Assert.assertNotSame(network.nodes.get(i).location,
+					copy.nodes.get(i).location);
+		}
+	}
+
+	@Test
+	public void testNodeChange()
+	{
+		NetworkCopy networkCopy = new NetworkCopy(network);
+		LineNetwork copy = networkCopy.getNetwork();
+
+		// move an interchange, which changes neighbor locations of edges
+		int id = 0;
+		for (int i = 0; i < network.nodes.size(); i++) {
+			if (network.nodes.get(i).edges.size() > network.nodes
+					.get(id).edges.size()) {
+				id = i;
+			}
+		}
+		Node node = network.nodes.get(id);
+		Assert.assertTrue(node.edges.size() > 2);
+		Point old = node.location;
+		node.location = new Point(old.x + 0.01, old.y - 0.01);
+		LineNetworkUtil.updateEdges(node);
+
+		NetworkCopy.NodeChange change = networkCopy.record(node);
+		// the copy is not modified before applying the change
+		Assert.assertEquals(old.x, copy.nodes.get(id).location.x, 0);
+		Assert.assertEquals(old.y, copy.nodes.get(id).location.y, 0);
+
+		Assert.assertSame(copy.nodes.get(id), change.apply());
+		assertEqual(network, copy);
+	}
+
+	private static void assertEqual(LineNetwork expected, LineNetwork actual)
+	{
+		Assert.assertEquals(expected.nodes.size(), actual.nodes.size());
+		Assert.assertEquals(expected.edges.size(), actual.edges.size());
+		Assert.assertEquals(expected.lines.size(), actual.lines.size());
+
+		for (int i = 0; i < expected.nodes.size(); i++) {
+			Node a = expected.nodes.get(i);
+			Node b = actual.nodes.get(i);
+			Assert.assertSame(a.station, b.station);
+			Assert.assertEquals(a.rank, b.rank);
+			assertEqual(a.location, b.location);
+			Assert.assertEquals(a.edges.size(), b.edges.size());
+			for (int k = 0; k < a.edges.size(); k++) {
+				Assert.assertEquals(expected.edges.indexOf(a.edges.get(k)),
+						actual.edges.indexOf(b.edges.get(k)));
+			}
+		}
+
+		for (int i = 0; i < expected.edges.size(); i++) {
+			Edge a = expected.edges.get(i);
+			Edge b = actual.edges.get(i);
+			Assert.assertSame(b.n1, actual.nodes
+					.get(expected.nodes.indexOf(a.n1)));
+			Assert.assertSame(b.n2, actual.nodes
+					.get(expected.nodes.indexOf(a.n2)));
+			assertEqual(a.prev, b.prev);
+			assertEqual(a.next, b.next);
+			Assert.assertEquals(a.lines.size(), b.lines.size());
+			for (int k = 0; k < a.lines.size(); k++) {
+				NetworkLine la = a.lines.get(k);
+				NetworkLine lb = b.lines.get(k);
+				Assert.assertNotSame(la, lb);
+				Assert.assertSame(la.line, lb.line);
+				NeighborInfo na = la.getNeighbors(a);
+				NeighborInfo nb = lb.getNeighbors(b);
+				Assert.assertEquals(expected.nodes.indexOf(na.prev),
+						actual.nodes.indexOf(nb.prev));
+				Assert.assertEquals(expected.nodes.indexOf(na.next),
+						actual.nodes.indexOf(nb.next));
+			}
+		}
+	}
+
+	private static void assertEqual(Point expected, Point actual)
+	{
+		if (expected == null) {
+			Assert.assertNull(actual);
+			return;
+		}
+		Assert.assertEquals(expected.x, actual.x, 0);
+		Assert.assertEquals(expected.y, actual.y, 0);
+	}
+
+}
@@ -0,0 +1,66 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.ModelUtil;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkConfig;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkGenerator;
+
+public class TestStripRendering
+{
+
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 1000;
+
+	@Test
+	public void testStripsEqualSinglePass() throws IOException
+	{
+		SyntheticNetworkConfig config = new SyntheticNetworkConfig();
+		config.setNumStations(2000);
+		config.setNumLines(20);
+		MapModel model = new SyntheticNetworkGenerator(config).generate();
+		ModelUtil.ensureView(model);
+
+		double[] zooms = { 0.5, 1, 2, 4 };
+		for (double zoom : zooms) {
+			BufferedImage single = ImageUtil.render(model, WIDTH, HEIGHT, 0,
+					0, zoom, 1);
+			BufferedImage strips = ImageUtil.render(model, WIDTH, HEIGHT, 0,
+					0, zoom, 4);
+			assertEqual("zoom " + zoom, single, strips);
+		}
+	}
+
+	private void assertEqual(String message, BufferedImage expected,
+			BufferedImage actual)
+	{
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				Assert.assertEquals(message + ", pixel " + x + "," + y,
+						expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,237 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.tiles;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.ModelUtil;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.image.ImageView;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkConfig;
+import org.openmetromaps.maps.synthetic.SyntheticNetworkGenerator;
+
+public class TestTilePyramidExporter
+{
+
+	private static final int MAX_LEVEL = 4;
+
+	private MapView view;
+	private Path directory;
+
+	@Before
+	public void setup() throws IOException
+	{
+		SyntheticNetworkConfig config = new SyntheticNetworkConfig();
+		config.setNumStations(12);
+		config.setNumLines(1);
+		MapModel model = new SyntheticNetworkGenerator(config).generate();
+		ModelUtil.ensureView(model);
+		view = model.getViews().get(0);
+
+		directory = Files.createTempDirectory("tiles");
+	}
+
+	@After
+	public void cleanup() throws IOException
+	{
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path path : files.sorted(Comparator.reverseOrder())
+					.collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	private TilePyramidExporter exporter()
+	{
+		return new TilePyramidExporter(view.getLineNetwork(),
+				view.getConfig().getScene(), directory);
+	}
+
+	@Test
+	public void testEmptyTiles() throws IOException
+	{
+		TilePyramidExporter exporter = exporter();
+		exporter.export(0, MAX_LEVEL, 4);
+
+		int total = 0;
+		for (int level = 0; level <= MAX_LEVEL; level++) {
+			total += exporter.getNumTilesX(level)
+					* exporter.getNumTilesY(level);
+		}
+		Assert.assertEquals(total,
+				exporter.getNumRendered() + exporter.getNumEmpty());
+		Assert.assertEquals(0, exporter.getNumExisting());
+		// the network is sparse, so some tiles must have been skipped
+		Assert.assertTrue(exporter.getNumEmpty() > 0);
+
+		// exactly the rendered tiles are written and each of them shows
+		// something
+		List<Path> tiles = listTiles();
+		Assert.assertEquals(exporter.getNumRendered(), tiles.size());
+		for (Path tile : tiles) {
+			Assert.assertFalse(tile.toString(),
+					isTransparent(ImageIO.read(tile.toFile())));
+		}
+	}
+
+	@Test
+	public void testResume() throws IOException
+	{
+		TilePyramidExporter first = exporter();
+		first.export(0, MAX_LEVEL, 1);
+		List<Path> tiles = listTiles();
+
+		// an identical run keeps all tiles
+		TilePyramidExporter second = exporter();
+		second.export(0, MAX_LEVEL, 1);
+		Assert.assertEquals(0, second.getNumRendered());
+		Assert.assertEquals(first.getNumRendered(), second.getNumExisting());
+		Assert.assertEquals(first.getNumEmpty(), second.getNumEmpty());
+
+		// simulate an interrupted run: a tile is missing and a partially
+		// written temporary file has been left behind
+		Path missing = tiles.get(tiles.size() / 2);
+		BufferedImage expected = ImageIO.read(missing.toFile());
+		Path tmp = missing.resolveSibling(missing.getFileName() + ".tmp");
+		Files.move(missing, tmp);
+
+		TilePyramidExporter third = exporter();
+		third.export(0, MAX_LEVEL, 1);
+		Assert.assertEquals(1, third.getNumRendered());
+		Assert.assertEquals(tiles.size() - 1, third.getNumExisting());
+		Assert.assertFalse(Files.exists(tmp));
+		Assert.assertEquals(tiles, listTiles());
+
+		BufferedImage actual = ImageIO.read(missing.toFile());
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				Assert.assertEquals(expected.getRGB(x, y),
+						actual.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testTilesEqualLevel() throws IOException
+	{
+		int level = 2;
+		TilePyramidExporter exporter = exporter();
+		exporter.export(level, level, 4);
+
+		int nx = exporter.getNumTilesX(level);
+		int ny = exporter.getNumTilesY(level);
+		BufferedImage expected = renderLevel(exporter.getZoom(level),
+				nx * TilePyramidExporter.TILE_SIZE,
+				ny * TilePyramidExporter.TILE_SIZE);
+
+		int size = TilePyramidExporter.TILE_SIZE;
+		for (int tx = 0; tx < nx; tx++) {
+			for (int ty = 0; ty < ny; ty++) {
+				Path path = exporter.getTilePath(level, tx, ty);
+				BufferedImage tile = Files.exists(path)
+						? ImageIO.read(path.toFile()) : null;
+				for (int y = 0; y < size; y++) {
+					for (int x = 0; x < size; x++) {
+						int rgb = tile == null ? 0 : tile.getRGB(x, y);
+						Assert.assertEquals(
+								"tile " + tx + "/" + ty + ", " + x + "," + y,
+								expected.getRGB(tx * size + x,
+										ty * size + y),
+								rgb);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Render a whole level of the pyramid into a single image.
+	 */
+	private BufferedImage renderLevel(double levelZoom, int width, int height)
+	{
+		ImageView levelView = new ImageView(view.getConfig().getScene(),
+				width, height) {
+
+			{
+				internalSetZoom(levelZoom);
+			}
+
+		};
+		PlanRenderer renderer = new PlanRenderer(view.getLineNetwork(),
+				new MapViewStatus(), PlanRenderer.StationMode.CONVEX,
+				PlanRenderer.SegmentMode.CURVE, levelView, levelView, 1,
+				new GenericPaintFactory());
+		renderer.setUseLod(false);
+
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		AwtPainter painter = new AwtPainter(g);
+		renderer.paintNetwork(painter);
+		renderer.paintLabels(painter);
+		g.dispose();
+		renderer.dispose();
+		return image;
+	}
+
+	private List<Path> listTiles() throws IOException
+	{
+		List<Path> tiles = new ArrayList<>();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.filter(Files::isRegularFile).sorted().forEach(tiles::add);
+		}
+		return tiles;
+	}
+
+	private static boolean isTransparent(BufferedImage image)
+	{
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				if ((image.getRGB(x, y) >>> 24) != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+}
@@ -17,15 +17,13 @@
 
 package org.openmetromaps.maps.batik;
 
-import java.awt.Color;
-import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
-import org.apache.batik.dom.GenericDOMImplementation;
-import org.apache.batik.svggen.SVGGraphics2D;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
 import org.openmetromaps.maps.MapViewStatus;
@@ -35,15 +33,22 @@ import org.openmetromaps.maps.PlanRenderer.StationMode;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.image.ImageView;
 import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.Colors;
 import org.openmetromaps.maps.painting.core.GenericPaintFactory;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.PaintType;
+import org.openmetromaps.maps.painting.svg.SvgPainter;
 
 import de.topobyte.viewports.geometry.Rectangle;
 
 public class BatikImageUtil
 {
 
+	/**
+	 * Export the specified region of the first view of the model as an SVG
+	 * document. The document is streamed to the file while rendering, text is
+	 * measured with the fonts available to AWT.
+	 */
 	public static void createImage(MapModel model, Path path, int width,
 			int height, double x, double y, double zoom) throws IOException
 	{
@@ -60,30 +65,37 @@ public class BatikImageUtil
 		imageView.setPositionX(x);
 		imageView.setPositionY(y);
 
+		GenericPaintFactory pf = new GenericPaintFactory();
 		PlanRenderer planRenderer = new PlanRenderer(lineNetwork, mapViewStatus,
-				stationMode, segmentMode, imageView, imageView, 1,
-				new GenericPaintFactory());
-
-		DOMImplementation domImpl = GenericDOMImplementation
-				.getDOMImplementation();
-
-		String svgNS = "http://www.w3.org/2000/svg";
-		Document document = domImpl.createDocument(svgNS, "svg", null);
-
-		SVGGraphics2D g = new SVGGraphics2D(document);
-		g.setSVGCanvasSize(new Dimension(width, height));
-
-		g.setColor(Color.WHITE);
-		g.fillRect(0, 0, width, height);
-
-		AwtPainter painter = new AwtPainter(g);
-
-		planRenderer.paint(painter);
-		planRenderer.setRenderLabels(true);
-
-		BufferedWriter bw = Files.newBufferedWriter(path);
-		g.stream(bw, true);
-		bw.close();
+				stationMode, segmentMode, imageView, imageView, 1, pf);
+		// exports should show the full network at any zoom
+		planRenderer.setUseLod(false);
+
+		BufferedImage image = new BufferedImage(1, 1,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D metrics = image.createGraphics();
+
+		try (BufferedWriter bw = Files.newBufferedWriter(path)) {
+			SvgPainter painter = new SvgPainter(bw, new AwtPainter(metrics));
+			painter.start(width, height);
+
+			IPaintInfo background = pf.create(Colors.WHITE);
+			background.setStyle(PaintType.FILL);
+			painter.setPaintInfo(background);
+			org.openmetromaps.maps.painting.core.geom.Path rect = painter
+					.createPath();
+			rect.moveTo(0, 0);
+			rect.lineTo(width, 0);
+			rect.lineTo(width, height);
+			rect.lineTo(0, height);
+			painter.draw(rect);
+
+			planRenderer.paint(painter);
+			painter.finish();
+		} finally {
+			metrics.dispose();
+			planRenderer.dispose();
+		}
 	}
 
 }
@@ -33,10 +33,7 @@ import org.openmetromaps.maps.painting.core.PaintType;
 import org.openmetromaps.maps.painting.core.Painter;
 import org.openmetromaps.maps.painting.core.geom.Path;
 
-import de.topobyte.lightgeom.convexhull.ConvexHull;
-import de.topobyte.lightgeom.convexhull.PointArray;
 import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.lightgeom.lina.Vector2;
 
 public abstract class AbstractStationDrawer implements StationDrawer
 {
@@ -69,8 +66,6 @@ public abstract class AbstractStationDrawer implements StationDrawer
 
 	protected IPaintInfo[] lineToPaintForStations;
 
-	protected SegmentEndPointPool spiPool = new SegmentEndPointPool();
-
 	public AbstractStationDrawer(PaintFactory pf, LineNetwork data,
 			Map<NetworkLine, ColorCode> colors, float scale,
 			LocationToPoint ltp, float spreadFactor)
@@ -116,6 +111,12 @@ public abstract class AbstractStationDrawer implements StationDrawer
 		}
 	}
 
+	@Override
+	public void prepare(IntArray nodes)
+	{
+		// nothing to prepare by default
+	}
+
 	@Override
 	public void zoomChanged(float factor, float lineWidth)
 	{
@@ -163,12 +164,12 @@ public abstract class AbstractStationDrawer implements StationDrawer
 	}
 
 	protected void drawLineal(Painter g, Path path, double px, double py,
-			SegmentEndPointPaintInfo spi, boolean selected,
+			double sx, double sy, double ex, double ey, boolean selected,
 			boolean renderCenter)
 	{
 		path.reset();
-		path.moveTo(px + spi.sx, py + spi.sy);
-		path.lineTo(px + spi.ex, py + spi.ey);
+		path.moveTo(px + sx, py + sy);
+		path.lineTo(px + ex, py + ey);
 
 		if (selected) {
 			g.setPaintInfo(paintSelectedStationsStrokeOutline);
@@ -191,44 +192,9 @@ public abstract class AbstractStationDrawer implements StationDrawer
 		g.drawCircle(px, py, 1);
 	}
 
-	protected void addIfNonNull(PointArray points, Point p)
-	{
-		if (p != null) {
-			points.add((float) p.x, (float) p.y);
-		}
-	}
-
-	protected Point rayIntersection(Point p, Vector2 as, Vector2 ad, Vector2 bs,
-			Vector2 bd)
-	{
-		double u = (as.y * bd.x + bd.y * bs.x - bs.y * bd.x - bd.y * as.x)
-				/ (ad.x * bd.y - ad.y * bd.x);
-		double v = (as.x + ad.x * u - bs.x) / bd.x;
-		if (u > 0 && v > 0) {
-			p.setX(as.x + ad.x * u);
-			p.setY(as.y + ad.y * u);
-			return p;
-		}
-		return null;
-	}
-
-	private ConvexHull convexHull = new ConvexHull();
-
-	protected void hull(Path path, PointArray coords)
-	{
-		PointArray hull = convexHull.computePolygon(coords, false);
-
-		path.reset();
-		int nPoints = hull.size / 2;
-		path.moveTo(hull.getX(0), hull.getY(0));
-		for (int i = 1; i < nPoints; i++) {
-			path.lineTo(hull.getX(i), hull.getY(i));
-		}
-	}
-
-	protected SegmentEndPointPaintInfo endpointInfo(Edge edge, Node node,
-			LocationToPoint ltp, float lineWidth, float spreadFactor,
-			int nLines)
+	protected SegmentEndPointPaintInfo endpointInfo(RenderContext context,
+			Edge edge, Node node, LocationToPoint ltp, float lineWidth,
+			float spreadFactor, int nLines)
 	{
 		Point locationA = edge.n1.location;
 		Point locationB = edge.n2.location;
@@ -240,15 +206,15 @@ public abstract class AbstractStationDrawer implements StationDrawer
 
 		boolean reverse = edge.n2 == node;
 
-		SegmentEndPointPaintInfo spi = spiPool.get();
+		SegmentEndPointPaintInfo spi = context.spiPool.get();
 		if (!reverse) {
 			Point lp = edge.prev;
-			spi = EdgeUtil.endpointInfo(spi, ax, ay, bx, by, lp, ltp, lineWidth,
-					spreadFactor, nLines);
+			spi = EdgeUtil.endpointInfo(context, spi, ax, ay, bx, by, lp, ltp,
+					lineWidth, spreadFactor, nLines);
 		} else {
 			Point ln = edge.next;
-			spi = EdgeUtil.endpointInfo(spi, bx, by, ax, ay, ln, ltp, lineWidth,
-					spreadFactor, nLines);
+			spi = EdgeUtil.endpointInfo(context, spi, bx, by, ax, ay, ln, ltp,
+					lineWidth, spreadFactor, nLines);
 		}
 		return spi;
 	}
@@ -0,0 +1,313 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.NeighborInfo;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.curves.spline.CubicSpline;
+import de.topobyte.lightgeom.curves.spline.CubicSplineB;
+import de.topobyte.lightgeom.curves.spline.SplineUtil;
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+
+/**
+ * Caches the geometry of curved segments in scene coordinates. For each edge
+ * and each of its lines, the control points of the offset spline are stored,
+ * as well as a polyline approximating the spline for one zoom bucket.
+ *
+ * Offsets between parallel lines grow linearly with the zoom level, hence
+ * they are constant in scene coordinates and the control points do not
+ * depend on the zoom level at all. Entries are computed lazily and
+ * invalidated for the edges affected by a changed node.
+ */
+public class CurveCache implements LineNetworkListener
+{
+
+	/**
+	 * Maximum deviation of a flattened curve from the exact curve, in pixels.
+	 */
+	private static final double FLATNESS = 0.2;
+	private static final int MAX_SEGMENTS = 64;
+
+	private LineNetwork lineNetwork;
+	private double f;
+	private float shift;
+
+	private Map<Edge, Integer> edgeIds = new HashMap<>();
+
+	// (p1x, p1y, c1x, c1y, c2x, c2y, p2x, p2y) for each line of an edge
+	private double[][] controls;
+	// coordinates of the polylines of all lines of an edge
+	private double[][] polylines;
+	// start of the polyline of each line within the polyline coordinates
+	private int[][] polylineStarts;
+	private int[] polylineBuckets;
+
+	private RenderContext context = new RenderContext();
+	private CubicSpline spline = new CubicSplineB(0, 0, 0, 0, 0, 0, 0, 0);
+	private Vector2 d02 = new Vector2(0, 0);
+	private Vector2 d31 = new Vector2(0, 0);
+	private DoubleArray buffer = new DoubleArray();
+
+	/**
+	 * @param f
+	 *            the factor used for computing the control points of the
+	 *            splines.
+	 * @param shift
+	 *            the distance between parallel lines in scene coordinates.
+	 */
+	public CurveCache(LineNetwork lineNetwork, double f, float shift)
+	{
+		this.lineNetwork = lineNetwork;
+		this.f = f;
+		this.shift = shift;
+		build();
+	}
+
+	private void build()
+	{
+		List<Edge> edges = lineNetwork.edges;
+		final int nEdges = edges.size();
+
+		edgeIds.clear();
+		for (int i = 0; i < nEdges; i++) {
+			edgeIds.put(edges.get(i), i);
+		}
+
+		controls = new double[nEdges][];
+		polylines = new double[nEdges][];
+		polylineStarts = new int[nEdges][];
+		polylineBuckets = new int[nEdges];
+	}
+
+	/**
+	 * Make sure that control points and polylines for the specified zoom
+	 * bucket are available for the specified edges. After this method
+	 * returned, the getters may be used for these edges from the calling
+	 * thread until the network changes.
+	 */
+	public synchronized void prepare(IntArray edges, int bucket)
+	{
+		double tolerance = FLATNESS / ZoomBuckets.zoom(bucket);
+
+		final int n = edges.size();
+		for (int i = 0; i < n; i++) {
+			int id = edges.get(i);
+			if (controls[id] == null) {
+				controls[id] = computeControls(lineNetwork.edges.get(id));
+				polylines[id] = null;
+			}
+			if (polylines[id] == null || polylineBuckets[id] != bucket) {
+				flatten(id, tolerance);
+				polylineBuckets[id] = bucket;
+			}
+		}
+	}
+
+	/**
+	 * Get the control points of the splines of the specified edge as a
+	 * sequence of (p1x, p1y, c1x, c1y, c2x, c2y, p2x, p2y) tuples, one for
+	 * each line of the edge.
+	 */
+	public double[] getControlPoints(int edge)
+	{
+		return controls[edge];
+	}
+
+	/**
+	 * Get the coordinates of the polylines of all lines of the specified
+	 * edge. The polyline of line i spans the coordinates from index
+	 * {@code starts[i]} to {@code starts[i + 1]} (exclusive) where
+	 * {@code starts} is the array returned by
+	 * {@link #getPolylineStarts(int)}.
+	 */
+	public double[] getPolylines(int edge)
+	{
+		return polylines[edge];
+	}
+
+	public int[] getPolylineStarts(int edge)
+	{
+		return polylineStarts[edge];
+	}
+
+	private double[] computeControls(Edge edge)
+	{
+		List<NetworkLine> lines = edge.lines;
+		final int nLines = lines.size();
+		double[] result = new double[nLines * 8];
+
+		Point locationA = edge.n1.location;
+		Point locationB = edge.n2.location;
+		double ax = locationA.x;
+		double ay = locationA.y;
+		double bx = locationB.x;
+		double by = locationB.y;
+
+		if (nLines == 1) {
+			NeighborInfo neighbors = lines.get(0).getNeighbors(edge);
+			Point lp = neighbors.prev == null ? null : neighbors.prev.location;
+			Point ln = neighbors.next == null ? null : neighbors.next.location;
+			spline(result, 0, ax, ay, bx, by, lp, ln, ax, ay, bx, by);
+			return result;
+		}
+
+		Point lp = edge.prev;
+		Point ln = edge.next;
+
+		SegmentEndPointPaintInfo spiA = context.spiA;
+		SegmentEndPointPaintInfo spiB = context.spiB;
+		EdgeUtil.segmentInfo(context, spiA, spiB, ax, ay, bx, by, lp, ln,
+				IDENTITY, shift, 1, nLines);
+
+		for (int i = 0; i < nLines; i++) {
+			double lax = ax + spiA.sx + spiA.ndy * i * spiA.shift;
+			double lay = ay + spiA.sy - spiA.ndx * i * spiA.shift;
+			double lbx = bx + spiB.sx + spiB.ndy * i * spiB.shift;
+			double lby = by + spiB.sy - spiB.ndx * i * spiB.shift;
+
+			spline(result, i * 8, lax, lay, lbx, lby, lp, ln, ax, ay, bx, by);
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the spline from (ax, ay) to (bx, by). The tangents are derived
+	 * from the directions from lp to (tbx, tby) and from ln to (tax, tay),
+	 * the end points of the edge without offsets.
+	 */
+	private void spline(double[] result, int offset, double ax, double ay,
+			double bx, double by, Point lp, Point ln, double tax, double tay,
+			double tbx, double tby)
+	{
+		Vector2 t02 = null, t31 = null;
+		if (lp != null) {
+			t02 = d02.set(tbx, tby).sub(lp.x, lp.y).normalize();
+		}
+		if (ln != null) {
+			t31 = d31.set(tax, tay).sub(ln.x, ln.y).normalize();
+		}
+
+		SplineUtil.spline(spline, ax, ay, bx, by, t02, t31, f, true);
+
+		result[offset] = spline.getP1X();
+		result[offset + 1] = spline.getP1Y();
+		result[offset + 2] = spline.getC1X();
+		result[offset + 3] = spline.getC1Y();
+		result[offset + 4] = spline.getC2X();
+		result[offset + 5] = spline.getC2Y();
+		result[offset + 6] = spline.getP2X();
+		result[offset + 7] = spline.getP2Y();
+	}
+
+	private void flatten(int id, double tolerance)
+	{
+		double[] c = controls[id];
+		int nLines = c.length / 8;
+		int[] starts = new int[nLines + 1];
+
+		buffer.clear();
+		for (int i = 0; i < nLines; i++) {
+			starts[i] = buffer.size();
+			int k = i * 8;
+			double p1x = c[k], p1y = c[k + 1];
+			double c1x = c[k + 2], c1y = c[k + 3];
+			double c2x = c[k + 4], c2y = c[k + 5];
+			double p2x = c[k + 6], p2y = c[k + 7];
+
+			// Wang's formula for the number of segments
+			double ddx1 = p1x - 2 * c1x + c2x;
+			double ddy1 = p1y - 2 * c1y + c2y;
+			double ddx2 = c1x - 2 * c2x + p2x;
+			double ddy2 = c1y - 2 * c2y + p2y;
+			double dd = Math.max(Math.sqrt(ddx1 * ddx1 + ddy1 * ddy1),
+					Math.sqrt(ddx2 * ddx2 + ddy2 * ddy2));
+			int n = (int) Math.ceil(Math.sqrt(0.75 * dd / tolerance));
+			n = Math.max(1, Math.min(MAX_SEGMENTS, n));
+
+			buffer.add(p1x, p1y);
+			for (int j = 1; j < n; j++) {
+				double t = j / (double) n;
+				double s = 1 - t;
+				double b0 = s * s * s;
+				double b1 = 3 * s * s * t;
+				double b2 = 3 * s * t * t;
+				double b3 = t * t * t;
+				buffer.add(b0 * p1x + b1 * c1x + b2 * c2x + b3 * p2x,
+						b0 * p1y + b1 * c1y + b2 * c2y + b3 * p2y);
+			}
+			buffer.add(p2x, p2y);
+		}
+		starts[nLines] = buffer.size();
+
+		double[] coords = new double[buffer.size()];
+		for (int i = 0; i < coords.length; i++) {
+			coords[i] = buffer.get(i);
+		}
+		polylines[id] = coords;
+		polylineStarts[id] = starts;
+	}
+
+	private boolean invalidate(Edge edge)
+	{
+		Integer id = edgeIds.get(edge);
+		if (id == null) {
+			return false;
+		}
+		controls[id] = null;
+		polylines[id] = null;
+		return true;
+	}
+
+	@Override
+	public synchronized void nodeChanged(Node node)
+	{
+		/*
+		 * Moving a node changes the edges connected to it as well as the
+		 * tangents of all edges connected to its neighbors, i.e. the edges
+		 * updated by LineNetworkUtil.updateEdges()
+		 */
+		for (Edge edge : node.edges) {
+			Node neighbor = edge.n1 != node ? edge.n1 : edge.n2;
+			for (Edge other : neighbor.edges) {
+				if (!invalidate(other)) {
+					build();
+					return;
+				}
+			}
+		}
+	}
+
+	@Override
+	public synchronized void networkChanged()
+	{
+		build();
+	}
+
+	private static final LocationToPoint IDENTITY = new IdentityLocationToPoint();
+
+}
@@ -0,0 +1,74 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
+
+public class DamageUtil
+{
+
+	/**
+	 * Expand the envelope to include the region of the scene in which
+	 * segments and stations may change when the node has been moved from the
+	 * specified old location to its current location. The geometry of the
+	 * edges at the node and at its neighbors depends on the location of the
+	 * node, as do the station symbols of the neighbors. The overdraw of
+	 * segments and stations is not included.
+	 *
+	 * @param old
+	 *            the previous location of the node, may be null if unknown.
+	 * @param bulge
+	 *            the maximum distance of curves from their edge relative to
+	 *            the length of the edge, see {@link NetworkIndex#getBulge()}.
+	 */
+	public static void nodeMoved(Envelope damage, Node node, Point old,
+			double bulge)
+	{
+		for (Edge edge : node.edges) {
+			Node neighbor = edge.n1 == node ? edge.n2 : edge.n1;
+			if (old != null) {
+				include(damage, old, neighbor.location, bulge);
+			}
+			for (Edge neighborEdge : neighbor.edges) {
+				include(damage, neighborEdge.n1.location,
+						neighborEdge.n2.location, bulge);
+			}
+		}
+		damage.expandToInclude(node.location.x, node.location.y);
+		if (old != null) {
+			damage.expandToInclude(old.x, old.y);
+		}
+	}
+
+	private static void include(Envelope envelope, Point a, Point b,
+			double bulge)
+	{
+		double dx = b.x - a.x;
+		double dy = b.y - a.y;
+		double extra = bulge * Math.sqrt(dx * dx + dy * dy);
+		envelope.expandToInclude(Math.min(a.x, b.x) - extra,
+				Math.min(a.y, b.y) - extra);
+		envelope.expandToInclude(Math.max(a.x, b.x) + extra,
+				Math.max(a.y, b.y) + extra);
+	}
+
+}
@@ -0,0 +1,85 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.Arrays;
+
+public class DoubleArray
+{
+
+	private double[] values;
+	private int size = 0;
+
+	public DoubleArray()
+	{
+		this(16);
+	}
+
+	public DoubleArray(int capacity)
+	{
+		values = new double[Math.max(1, capacity)];
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public double get(int i)
+	{
+		return values[i];
+	}
+
+	public void add(double value)
+	{
+		if (size == values.length) {
+			values = Arrays.copyOf(values, values.length * 2);
+		}
+		values[size++] = value;
+	}
+
+	public void add(double v1, double v2)
+	{
+		if (size + 2 > values.length) {
+			values = Arrays.copyOf(values, Math.max(size + 2,
+					values.length * 2));
+		}
+		values[size++] = v1;
+		values[size++] = v2;
+	}
+
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Get the array backing this list. The first {@link #size()} values are
+	 * valid, the array is replaced when the list grows.
+	 */
+	public double[] getValues()
+	{
+		return values;
+	}
+
+}
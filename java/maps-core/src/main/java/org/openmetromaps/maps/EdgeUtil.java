@@ -23,23 +23,17 @@ import de.topobyte.lightgeom.lina.Vector2;
 public class EdgeUtil
 {
 
-	private static Point lpp, lnp;
-	private static Vector2 v1, v2;
-
-	static {
-		lpp = new Point(0, 0);
-		lnp = new Point(0, 0);
-		v1 = new Vector2(0, 0);
-		v2 = new Vector2(0, 0);
-	}
-
-	public static void segmentInfo(SegmentEndPointPaintInfo spiA,
-			SegmentEndPointPaintInfo spiB, double ax, double ay, double bx,
-			double by, Point lp, Point ln, LocationToPoint ltp, float lineWidth,
-			float spreadFactor, int nLines)
+	public static void segmentInfo(RenderContext context,
+			SegmentEndPointPaintInfo spiA, SegmentEndPointPaintInfo spiB,
+			double ax, double ay, double bx, double by, Point lp, Point ln,
+			LocationToPoint ltp, float lineWidth, float spreadFactor,
+			int nLines)
 	{
+		Vector2 v1 = context.ev1;
+		Vector2 v2 = context.ev2;
+
 		if (lp != null) {
-			lpp = ltp.getPoint(lp, lpp);
+			Point lpp = ltp.getPoint(lp, context.lpp);
 			v1.set(lpp.x, lpp.y, bx, by);
 		} else {
 			v1.set(ax, ay, bx, by);
@@ -47,7 +41,7 @@ public class EdgeUtil
 		v1.normalize();
 
 		if (ln != null) {
-			lnp = ltp.getPoint(ln, lnp);
+			Point lnp = ltp.getPoint(ln, context.lnp);
 			v2.set(ax, ay, lnp.x, lnp.y);
 		} else {
 			v2.set(ax, ay, bx, by);
@@ -60,13 +54,15 @@ public class EdgeUtil
 				nLines);
 	}
 
-	public static SegmentEndPointPaintInfo endpointInfo(
+	public static SegmentEndPointPaintInfo endpointInfo(RenderContext context,
 			SegmentEndPointPaintInfo spi, double ax, double ay, double bx,
 			double by, Point lp, LocationToPoint ltp, float lineWidth,
 			float spreadFactor, int nLines)
 	{
+		Vector2 v1 = context.ev1;
+
 		if (lp != null) {
-			lpp = ltp.getPoint(lp, lpp);
+			Point lpp = ltp.getPoint(lp, context.lpp);
 			v1.set(lpp.x, lpp.y, bx, by);
 		} else {
 			v1.set(ax, ay, bx, by);
@@ -1,4 +1,4 @@
-// Copyright 2017 Sebastian Kuerten
+// Copyright 2018 Sebastian Kuerten
 //
 // This file is part of OpenMetroMaps.
 //
@@ -17,42 +17,38 @@
 
 package org.openmetromaps.maps;
 
-import java.util.HashMap;
-import java.util.Map;
+import de.topobyte.lightgeom.lina.Point;
 
-import org.slf4j.Logger;
-
-import de.topobyte.formatting.Formatting;
-
-public class TimeMeasuring
+/**
+ * A {@link LocationToPoint} that maps scene coordinates onto themselves.
+ */
+class IdentityLocationToPoint implements LocationToPoint
 {
 
-	private Logger logger;
-
-	public TimeMeasuring(Logger logger)
+	@Override
+	public Point getPoint(Point location)
 	{
-		this.logger = logger;
+		return new Point(location.x, location.y);
 	}
 
-	private Map<String, Long> starts = new HashMap<>();
-	private Map<String, Long> stops = new HashMap<>();
-
-	public void start(String key)
+	@Override
+	public Point getPoint(Point location, Point point)
 	{
-		starts.put(key, System.currentTimeMillis());
+		point.setX(location.x);
+		point.setY(location.y);
+		return point;
 	}
 
-	public void stop(String key)
+	@Override
+	public double getX(double x)
 	{
-		stops.put(key, System.currentTimeMillis());
+		return x;
 	}
 
-	public void log(String key, String message)
+	@Override
+	public double getY(double y)
 	{
-		long start = starts.get(key);
-		long stop = stops.get(key);
-		long interval = stop - start;
-		logger.info(Formatting.format(message, interval));
+		return y;
 	}
 
 }
@@ -0,0 +1,193 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.Arrays;
+
+public class IntArray
+{
+
+	private int[] values;
+	private int size = 0;
+
+	public IntArray()
+	{
+		this(16);
+	}
+
+	public IntArray(int capacity)
+	{
+		values = new int[Math.max(1, capacity)];
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public int get(int i)
+	{
+		return values[i];
+	}
+
+	public void add(int value)
+	{
+		if (size == values.length) {
+			values = Arrays.copyOf(values, values.length * 2);
+		}
+		values[size++] = value;
+	}
+
+	public boolean remove(int value)
+	{
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				values[i] = values[--size];
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Sort the values in ascending order. Unlike {@link Arrays#sort(int[])}
+	 * this never allocates, while the former does so for input that consists
+	 * of a few sorted runs, like the results of grid queries.
+	 */
+	public void sort()
+	{
+		sort(0, size - 1, null);
+	}
+
+	/**
+	 * Sort the values, which must be valid indices into the keys, in
+	 * ascending order of their keys. Values with equal keys are sorted in
+	 * ascending order.
+	 */
+	public void sort(int[] keys)
+	{
+		sort(0, size - 1, keys);
+	}
+
+	private void sort(int lo, int hi, int[] keys)
+	{
+		while (hi - lo > 16) {
+			/*
+			 * Partition into values less than, equal to and greater than the
+			 * pivot, so that many equal values do not make the sort quadratic.
+			 */
+			int pivot = pivot(lo, hi, keys);
+			int lt = lo;
+			int gt = hi;
+			int i = lo;
+			while (i <= gt) {
+				int value = values[i];
+				if (less(value, pivot, keys)) {
+					swap(lt++, i++);
+				} else if (less(pivot, value, keys)) {
+					swap(i, gt--);
+				} else {
+					i++;
+				}
+			}
+			// recurse into the smaller part to bound the depth of the stack
+			if (lt - lo < hi - gt) {
+				sort(lo, lt - 1, keys);
+				lo = gt + 1;
+			} else {
+				sort(gt + 1, hi, keys);
+				hi = lt - 1;
+			}
+		}
+		for (int i = lo + 1; i <= hi; i++) {
+			int value = values[i];
+			int j = i - 1;
+			while (j >= lo && less(value, values[j], keys)) {
+				values[j + 1] = values[j];
+				j--;
+			}
+			values[j + 1] = value;
+		}
+	}
+
+	/**
+	 * Get the median of the first, middle and last value.
+	 */
+	private int pivot(int lo, int hi, int[] keys)
+	{
+		int mid = (lo + hi) >>> 1;
+		if (less(values[mid], values[lo], keys)) {
+			swap(lo, mid);
+		}
+		if (less(values[hi], values[lo], keys)) {
+			swap(lo, hi);
+		}
+		if (less(values[hi], values[mid], keys)) {
+			swap(mid, hi);
+		}
+		return values[mid];
+	}
+
+	private static boolean less(int a, int b, int[] keys)
+	{
+		if (keys != null) {
+			int ka = keys[a];
+			int kb = keys[b];
+			if (ka != kb) {
+				return ka < kb;
+			}
+		}
+		return a < b;
+	}
+
+	private void swap(int i, int j)
+	{
+		int tmp = values[i];
+		values[i] = values[j];
+		values[j] = tmp;
+	}
+
+	/**
+	 * Remove consecutive duplicate values, i.e. all duplicates if the array
+	 * is sorted.
+	 */
+	public void unique()
+	{
+		if (size == 0) {
+			return;
+		}
+		int n = 1;
+		for (int i = 1; i < size; i++) {
+			if (values[i] != values[n - 1]) {
+				values[n++] = values[i];
+			}
+		}
+		size = n;
+	}
+
+}
@@ -0,0 +1,463 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.Painter;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
+
+/**
+ * Keeps the placement of station labels across frames. Labels are placed
+ * greedily in scene coordinates, once per zoom bucket. Each node is
+ * considered only once, the first time it becomes visible, so that panning
+ * only places the labels of newly exposed nodes and already placed labels
+ * stay where they are. Nodes that become visible at the same time are placed
+ * in the order of their rank, most important first.
+ *
+ * The boxes of all considered labels are kept in a uniform grid over the
+ * network, which is used both for testing whether a label is free of
+ * overlaps with accepted labels and for finding the labels affected by a
+ * moved node. When a node moves, only its own label and the labels whose
+ * boxes overlap with its label are removed from the grid and placed again.
+ * The region of the scene in which labels
+ * may have changed is accumulated and can be retrieved with
+ * {@link #takeDamage(Envelope)}.
+ */
+public class LabelCache implements LineNetworkListener
+{
+
+	private LineNetwork lineNetwork;
+
+	private Map<String, Integer> widths = new HashMap<>();
+	private int widthsFontSize = -1;
+
+	private boolean valid = false;
+	private int bucket;
+	private boolean onlyImportant;
+
+	private static final int MAX_CELLS_PER_DIMENSION = 1024;
+
+	private boolean[] considered;
+	private boolean[] accepted;
+	// (minX, minY, maxX, maxY) of the label of each considered node
+	private float[] boxes;
+	private Map<Node, Integer> nodeIds = new HashMap<>();
+	// the location of each considered node when its label was placed
+	private double[] anchors;
+	private Envelope damage = new Envelope();
+
+	// position of each node in the order of placement and its inverse
+	private int[] placementOrder;
+	private int[] nodesByOrder;
+	// positions in the order of placement of the nodes to place
+	private IntArray candidates = new IntArray();
+
+	// grid of the boxes of considered labels
+	private double minX;
+	private double minY;
+	private double cellWidth;
+	private double cellHeight;
+	private int nx;
+	private int ny;
+	private IntArray[] cells = new IntArray[0];
+	// labels to place again after a node moved
+	private IntArray affected = new IntArray();
+
+	private Comparator<Integer> byRank = new Comparator<Integer>() {
+
+		@Override
+		public int compare(Integer o1, Integer o2)
+		{
+			int r1 = lineNetwork.nodes.get(o1).rank;
+			int r2 = lineNetwork.nodes.get(o2).rank;
+			if (r1 != r2) {
+				return r2 > r1 ? 1 : -1;
+			}
+			return o1.compareTo(o2);
+		}
+
+	};
+
+	public LabelCache(LineNetwork lineNetwork)
+	{
+		this.lineNetwork = lineNetwork;
+	}
+
+	/**
+	 * Place the labels of the specified nodes that have not been considered
+	 * before and store the indices and string widths of all labels that
+	 * should be displayed within the envelope into the result arrays.
+	 *
+	 * @param nodes
+	 *            the candidate nodes, labels are only placed for nodes
+	 *            located within the envelope.
+	 * @param offset
+	 *            the vertical distance between a node and its label in scene
+	 *            coordinates.
+	 */
+	public synchronized void place(Painter g, IPaintInfo piText,
+			IntArray nodes, Envelope envelope, int bucket,
+			boolean onlyImportant, int fontSize, double offset,
+			IntArray resultNodes, IntArray resultWidths)
+	{
+		if (!valid || bucket != this.bucket
+				|| onlyImportant != this.onlyImportant) {
+			reset(bucket, onlyImportant);
+		}
+		if (fontSize != widthsFontSize) {
+			widths.clear();
+			widthsFontSize = fontSize;
+		}
+
+		g.setPaintInfo(piText);
+
+		candidates.clear();
+		final int nNodes = nodes.size();
+		for (int i = 0; i < nNodes; i++) {
+			int id = nodes.get(i);
+			if (!considered[id] && isCandidate(id, envelope)) {
+				candidates.add(placementOrder[id]);
+			}
+		}
+		candidates.sort();
+
+		/*
+		 * Use the lower bound of the bucket's zoom range so that labels do
+		 * not overlap for any zoom value within the bucket.
+		 */
+		double zoom = ZoomBuckets.lowerBound(bucket);
+		double h = fontSize / zoom;
+
+		final int nCandidates = candidates.size();
+		for (int i = 0; i < nCandidates; i++) {
+			int id = nodesByOrder[candidates.get(i)];
+			considered[id] = true;
+
+			Node node = lineNetwork.nodes.get(id);
+			Point location = node.location;
+			double w = width(g, node.station.getName()) / zoom;
+
+			double x = location.x;
+			double y = location.y - offset;
+			int k = id * 4;
+			boxes[k] = (float) (x - w / 2);
+			boxes[k + 1] = (float) (y - h / 2);
+			boxes[k + 2] = (float) (x + w / 2);
+			boxes[k + 3] = (float) (y + h / 2);
+			anchors[id * 2] = location.x;
+			anchors[id * 2 + 1] = location.y;
+			accepted[id] = isFree(id);
+			insert(id);
+		}
+
+		resultNodes.clear();
+		resultWidths.clear();
+		for (int i = 0; i < nNodes; i++) {
+			int id = nodes.get(i);
+			if (accepted[id] && isCandidate(id, envelope)) {
+				resultNodes.add(id);
+				resultWidths.add(
+						width(g, lineNetwork.nodes.get(id).station.getName()));
+			}
+		}
+	}
+
+	private boolean isCandidate(int id, Envelope envelope)
+	{
+		Node node = lineNetwork.nodes.get(id);
+		if (onlyImportant && node.rank < 2) {
+			return false;
+		}
+		return envelope.contains(node.location.x, node.location.y);
+	}
+
+	private int width(Painter g, String name)
+	{
+		Integer width = widths.get(name);
+		if (width == null) {
+			width = g.getStringWidth(name);
+			widths.put(name, width);
+		}
+		return width;
+	}
+
+	private void reset(int bucket, boolean onlyImportant)
+	{
+		this.bucket = bucket;
+		this.onlyImportant = onlyImportant;
+		int nNodes = lineNetwork.nodes.size();
+		considered = new boolean[nNodes];
+		accepted = new boolean[nNodes];
+		boxes = new float[nNodes * 4];
+		anchors = new double[nNodes * 2];
+		nodeIds.clear();
+		List<Integer> ids = new ArrayList<>(nNodes);
+		for (int i = 0; i < nNodes; i++) {
+			nodeIds.put(lineNetwork.nodes.get(i), i);
+			ids.add(i);
+		}
+		Collections.sort(ids, byRank);
+		placementOrder = new int[nNodes];
+		nodesByOrder = new int[nNodes];
+		for (int i = 0; i < nNodes; i++) {
+			int id = ids.get(i);
+			placementOrder[id] = i;
+			nodesByOrder[i] = id;
+		}
+		initGrid();
+		valid = true;
+	}
+
+	private void initGrid()
+	{
+		List<Node> nodes = lineNetwork.nodes;
+		final int nNodes = nodes.size();
+
+		Envelope bounds = new Envelope();
+		for (int i = 0; i < nNodes; i++) {
+			Point location = nodes.get(i).location;
+			bounds.expandToInclude(location.x, location.y);
+		}
+		if (bounds.isNull()) {
+			bounds.init(0, 1, 0, 1);
+		}
+
+		int n = (int) Math.ceil(Math.sqrt(nNodes / 2.0));
+		n = Math.max(1, Math.min(MAX_CELLS_PER_DIMENSION, n));
+
+		nx = n;
+		ny = n;
+		minX = bounds.getMinX();
+		minY = bounds.getMinY();
+		cellWidth = bounds.getWidth() / nx;
+		cellHeight = bounds.getHeight() / ny;
+		if (cellWidth <= 0) {
+			cellWidth = 1;
+		}
+		if (cellHeight <= 0) {
+			cellHeight = 1;
+		}
+
+		if (cells.length != nx * ny) {
+			cells = new IntArray[nx * ny];
+			for (int i = 0; i < cells.length; i++) {
+				cells[i] = new IntArray(4);
+			}
+		}
+		for (int i = 0; i < cells.length; i++) {
+			cells[i].clear();
+		}
+	}
+
+	private int cellX(double x)
+	{
+		int cx = (int) Math.floor((x - minX) / cellWidth);
+		return Math.max(0, Math.min(nx - 1, cx));
+	}
+
+	private int cellY(double y)
+	{
+		int cy = (int) Math.floor((y - minY) / cellHeight);
+		return Math.max(0, Math.min(ny - 1, cy));
+	}
+
+	private void insert(int id)
+	{
+		int k = id * 4;
+		int cx1 = cellX(boxes[k]);
+		int cy1 = cellY(boxes[k + 1]);
+		int cx2 = cellX(boxes[k + 2]);
+		int cy2 = cellY(boxes[k + 3]);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				cells[cy * nx + cx].add(id);
+			}
+		}
+	}
+
+	private void remove(int id)
+	{
+		int k = id * 4;
+		int cx1 = cellX(boxes[k]);
+		int cy1 = cellY(boxes[k + 1]);
+		int cx2 = cellX(boxes[k + 2]);
+		int cy2 = cellY(boxes[k + 3]);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				cells[cy * nx + cx].remove(id);
+			}
+		}
+	}
+
+	/**
+	 * Store the ids of the considered labels whose boxes intersect the
+	 * specified box into the result array. Labels spanning multiple cells may
+	 * be found more than once.
+	 */
+	private void query(float qx1, float qy1, float qx2, float qy2,
+			IntArray result)
+	{
+		result.clear();
+		int cx1 = cellX(qx1);
+		int cy1 = cellY(qy1);
+		int cx2 = cellX(qx2);
+		int cy2 = cellY(qy2);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				IntArray cell = cells[cy * nx + cx];
+				final int size = cell.size();
+				for (int i = 0; i < size; i++) {
+					int id = cell.get(i);
+					if (intersects(id, qx1, qy1, qx2, qy2)) {
+						result.add(id);
+					}
+				}
+			}
+		}
+	}
+
+	private boolean intersects(int id, float qx1, float qy1, float qx2,
+			float qy2)
+	{
+		int k = id * 4;
+		return !(boxes[k] > qx2 || boxes[k + 2] < qx1 || boxes[k + 1] > qy2
+				|| boxes[k + 3] < qy1);
+	}
+
+	/**
+	 * Check whether the box of the specified label does not intersect the
+	 * box of any accepted label.
+	 */
+	private boolean isFree(int id)
+	{
+		int k = id * 4;
+		float qx1 = boxes[k], qy1 = boxes[k + 1];
+		float qx2 = boxes[k + 2], qy2 = boxes[k + 3];
+		int cx1 = cellX(qx1);
+		int cy1 = cellY(qy1);
+		int cx2 = cellX(qx2);
+		int cy2 = cellY(qy2);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				IntArray cell = cells[cy * nx + cx];
+				final int size = cell.size();
+				for (int i = 0; i < size; i++) {
+					int other = cell.get(i);
+					if (accepted[other]
+							&& intersects(other, qx1, qy1, qx2, qy2)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	public synchronized void invalidate()
+	{
+		valid = false;
+	}
+
+	/**
+	 * Add the region of the scene in which labels may have been moved, added
+	 * or removed since the last call to the specified envelope and reset it.
+	 *
+	 * @return false if the placement has been invalidated as a whole, in
+	 *         which case labels may change anywhere.
+	 */
+	public synchronized boolean takeDamage(Envelope envelope)
+	{
+		if (!damage.isNull()) {
+			envelope.expandToInclude(damage);
+			damage.setToNull();
+		}
+		return valid;
+	}
+
+	@Override
+	public synchronized void nodeChanged(Node node)
+	{
+		if (!valid) {
+			return;
+		}
+		Integer id = nodeIds.get(node);
+		if (id == null) {
+			invalidate();
+			return;
+		}
+		if (!considered[id]) {
+			return;
+		}
+
+		/*
+		 * The label keeps its size and moves along with the node. Labels that
+		 * overlap with its old or new box may have been rejected because of
+		 * it or may now be blocked by it, so they get placed again together
+		 * with the node's label.
+		 */
+		int k = id * 4;
+		float x1 = boxes[k], y1 = boxes[k + 1];
+		float x2 = boxes[k + 2], y2 = boxes[k + 3];
+		float dx = (float) (node.location.x - anchors[id * 2]);
+		float dy = (float) (node.location.y - anchors[id * 2 + 1]);
+		remove(id);
+		considered[id] = false;
+		accepted[id] = false;
+		reconsider(x1, y1, x2, y2);
+		reconsider(x1 + dx, y1 + dy, x2 + dx, y2 + dy);
+	}
+
+	private void reconsider(float x1, float y1, float x2, float y2)
+	{
+		damage.expandToInclude(x1, y1);
+		damage.expandToInclude(x2, y2);
+		query(x1, y1, x2, y2, affected);
+		final int n = affected.size();
+		for (int i = 0; i < n; i++) {
+			int id = affected.get(i);
+			if (!considered[id]) {
+				continue;
+			}
+			int k = id * 4;
+			damage.expandToInclude(boxes[k], boxes[k + 1]);
+			damage.expandToInclude(boxes[k + 2], boxes[k + 3]);
+			remove(id);
+			considered[id] = false;
+			accepted[id] = false;
+		}
+	}
+
+	@Override
+	public void networkChanged()
+	{
+		invalidate();
+	}
+
+}
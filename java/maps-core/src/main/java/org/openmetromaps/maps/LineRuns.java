@@ -0,0 +1,235 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+
+/**
+ * Groups the edges that carry a single line into runs: maximal sequences of
+ * such edges of the same line that are connected end to end. Since segments
+ * of edges with a single line end exactly at the nodes, each run can be
+ * drawn as one continuous path.
+ *
+ * A run continues through a node if the node has exactly one other edge
+ * that carries only the same line, regardless of further edges at that node.
+ */
+public class LineRuns implements LineNetworkListener
+{
+
+	public static class Runs
+	{
+
+		private final int[] runOfEdge;
+		private final int[] starts;
+		private final int[] edges;
+		private final boolean[] reversed;
+
+		Runs(int[] runOfEdge, int[] starts, int[] edges, boolean[] reversed)
+		{
+			this.runOfEdge = runOfEdge;
+			this.starts = starts;
+			this.edges = edges;
+			this.reversed = reversed;
+		}
+
+		public int getNumRuns()
+		{
+			return starts.length - 1;
+		}
+
+		/**
+		 * Get the run the specified edge belongs to or -1 if the edge
+		 * carries more than one line.
+		 */
+		public int getRun(int edge)
+		{
+			return runOfEdge[edge];
+		}
+
+		/**
+		 * Get the position of the first edge of the run, the edges of a run
+		 * occupy the positions from {@code getStart(run)} up to
+		 * {@code getStart(run + 1)} (exclusive).
+		 */
+		public int getStart(int run)
+		{
+			return starts[run];
+		}
+
+		public int getEdge(int position)
+		{
+			return edges[position];
+		}
+
+		/**
+		 * Whether the edge at the specified position is traversed from its
+		 * second to its first node.
+		 */
+		public boolean isReversed(int position)
+		{
+			return reversed[position];
+		}
+
+	}
+
+	private LineNetwork lineNetwork;
+
+	private Runs runs = null;
+
+	public LineRuns(LineNetwork lineNetwork)
+	{
+		this.lineNetwork = lineNetwork;
+	}
+
+	public synchronized Runs getRuns()
+	{
+		if (runs == null) {
+			runs = build();
+		}
+		return runs;
+	}
+
+	private Runs build()
+	{
+		List<Edge> edges = lineNetwork.edges;
+		final int nEdges = edges.size();
+
+		Map<Edge, Integer> edgeIds = new HashMap<>();
+		for (int i = 0; i < nEdges; i++) {
+			edgeIds.put(edges.get(i), i);
+		}
+
+		int[] runOfEdge = new int[nEdges];
+		Arrays.fill(runOfEdge, -1);
+		// used to detect cycles while searching for the start of a run
+		int[] seen = new int[nEdges];
+
+		IntArray starts = new IntArray();
+		IntArray runEdges = new IntArray(nEdges);
+		boolean[] reversed = new boolean[nEdges];
+
+		for (int i = 0; i < nEdges; i++) {
+			Edge edge = edges.get(i);
+			if (edge.lines.size() != 1 || runOfEdge[i] != -1) {
+				continue;
+			}
+			NetworkLine line = edge.lines.get(0);
+
+			// walk backwards to the start of the run
+			Edge first = edge;
+			Node start = edge.n1;
+			seen[i] = i + 1;
+			while (true) {
+				Edge prev = continuation(start, first, line);
+				if (prev == null) {
+					break;
+				}
+				int id = edgeIds.get(prev);
+				if (seen[id] == i + 1) {
+					break;
+				}
+				seen[id] = i + 1;
+				first = prev;
+				start = other(prev, start);
+			}
+
+			// walk forward and collect the edges
+			int run = starts.size();
+			starts.add(runEdges.size());
+			Edge current = first;
+			Node from = start;
+			while (true) {
+				int id = edgeIds.get(current);
+				runOfEdge[id] = run;
+				reversed[runEdges.size()] = current.n1 != from;
+				runEdges.add(id);
+
+				Node to = other(current, from);
+				Edge next = continuation(to, current, line);
+				if (next == null || runOfEdge[edgeIds.get(next)] != -1) {
+					break;
+				}
+				current = next;
+				from = to;
+			}
+		}
+		starts.add(runEdges.size());
+
+		return new Runs(runOfEdge, toArray(starts), toArray(runEdges),
+				reversed);
+	}
+
+	/**
+	 * Find the edge continuing the run of the specified line through the
+	 * specified node.
+	 */
+	private static Edge continuation(Node node, Edge edge, NetworkLine line)
+	{
+		Edge result = null;
+		List<Edge> edges = node.edges;
+		for (int i = 0; i < edges.size(); i++) {
+			Edge other = edges.get(i);
+			if (other == edge || other.lines.size() != 1
+					|| other.lines.get(0) != line) {
+				continue;
+			}
+			if (result != null) {
+				// the line branches here
+				return null;
+			}
+			result = other;
+		}
+		return result;
+	}
+
+	private static Node other(Edge edge, Node node)
+	{
+		return edge.n1 == node ? edge.n2 : edge.n1;
+	}
+
+	private static int[] toArray(IntArray values)
+	{
+		int[] array = new int[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+
+	@Override
+	public void nodeChanged(Node node)
+	{
+		// runs only depend on the topology of the network
+	}
+
+	@Override
+	public synchronized void networkChanged()
+	{
+		runs = null;
+	}
+
+}
@@ -17,8 +17,11 @@
 
 package org.openmetromaps.maps;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.openmetromaps.maps.graph.Node;
@@ -26,26 +29,72 @@ import org.openmetromaps.maps.graph.Node;
 public class MapViewStatus
 {
 
+	// selection state of nodes with an index, see Node.index
+	private BitSet selectedIndices = new BitSet();
+	// all selected nodes, for the public getter only
 	private Set<Node> selectedNodes = new HashSet<>();
+	// all selected nodes in selection order, for iterating without iterators
+	private List<Node> selectedList = new ArrayList<>();
+	// reused by selectNoNodes()
+	private List<Node> unselected = new ArrayList<>();
+
+	private Node hoveredNode = null;
+
+	private List<MapViewStatusListener> listeners = new ArrayList<>();
 
 	public boolean isNodeSelected(Node node)
 	{
+		if (node.index >= 0) {
+			return selectedIndices.get(node.index);
+		}
 		return selectedNodes.contains(node);
 	}
 
+	/**
+	 * Get the smallest index of a selected node that is greater than or equal
+	 * to the specified index, or -1 if there is none. Selected nodes without
+	 * an index are not reported.
+	 */
+	public int nextSelectedIndex(int index)
+	{
+		return selectedIndices.nextSetBit(index);
+	}
+
 	public void selectNode(Node node)
 	{
-		selectedNodes.add(node);
+		if (selectedNodes.add(node)) {
+			selectedList.add(node);
+			if (node.index >= 0) {
+				selectedIndices.set(node.index);
+			}
+			fireSelectionChanged(node);
+		}
 	}
 
 	public void unselectNode(Node node)
 	{
-		selectedNodes.remove(node);
+		if (selectedNodes.remove(node)) {
+			selectedList.remove(node);
+			if (node.index >= 0) {
+				selectedIndices.clear(node.index);
+			}
+			fireSelectionChanged(node);
+		}
 	}
 
 	public void selectNoNodes()
 	{
+		if (selectedNodes.isEmpty()) {
+			return;
+		}
+		unselected.addAll(selectedList);
 		selectedNodes.clear();
+		selectedList.clear();
+		selectedIndices.clear();
+		for (int i = 0; i < unselected.size(); i++) {
+			fireSelectionChanged(unselected.get(i));
+		}
+		unselected.clear();
 	}
 
 	public int getNumSelectedNodes()
@@ -53,9 +102,55 @@ public class MapViewStatus
 		return selectedNodes.size();
 	}
 
+	/**
+	 * Get the selected node at the specified position, in the order of
+	 * selection, with 0 <= i < {@link #getNumSelectedNodes()}.
+	 */
+	public Node getSelectedNode(int i)
+	{
+		return selectedList.get(i);
+	}
+
 	public Set<Node> getSelectedNodes()
 	{
 		return Collections.unmodifiableSet(selectedNodes);
 	}
 
+	public Node getHoveredNode()
+	{
+		return hoveredNode;
+	}
+
+	/**
+	 * Set the node currently under the pointer, or null if there is none.
+	 */
+	public void setHoveredNode(Node node)
+	{
+		if (node == hoveredNode) {
+			return;
+		}
+		Node previous = hoveredNode;
+		hoveredNode = node;
+		for (MapViewStatusListener listener : listeners) {
+			listener.hoverChanged(previous, node);
+		}
+	}
+
+	public void addListener(MapViewStatusListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	public void removeListener(MapViewStatusListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	private void fireSelectionChanged(Node node)
+	{
+		for (MapViewStatusListener listener : listeners) {
+			listener.selectionChanged(node);
+		}
+	}
+
 }
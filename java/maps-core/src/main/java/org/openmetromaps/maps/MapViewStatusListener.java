@@ -0,0 +1,36 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import org.openmetromaps.maps.graph.Node;
+
+public interface MapViewStatusListener
+{
+
+	/**
+	 * Called after the specified node has been selected or unselected.
+	 */
+	public void selectionChanged(Node node);
+
+	/**
+	 * Called after the node under the pointer changed. Either of the nodes
+	 * may be null.
+	 */
+	public void hoverChanged(Node previous, Node node);
+
+}
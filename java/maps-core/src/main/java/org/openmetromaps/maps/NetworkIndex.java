@@ -0,0 +1,408 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
+
+/**
+ * A uniform grid over the edges and nodes of a {@link LineNetwork} in scene
+ * coordinates. Edges are indexed with their bounding box, enlarged by the
+ * maximum deviation of curved segments from the straight connection of their
+ * end points. Offsets of parallel lines depend on the zoom level and have to
+ * be accounted for by the caller by enlarging the query envelope.
+ *
+ * Queries do not modify the index and may be run concurrently, as long as the
+ * network does not change meanwhile.
+ */
+public class NetworkIndex implements LineNetworkListener
+{
+
+	private static final int MAX_CELLS_PER_DIMENSION = 1024;
+
+	private LineNetwork lineNetwork;
+	private double bulge;
+
+	private Map<Node, Integer> nodeIds = new HashMap<>();
+	private Map<Edge, Integer> edgeIds = new HashMap<>();
+
+	private int maxLinesPerEdge;
+
+	private double minX;
+	private double minY;
+	private double cellWidth;
+	private double cellHeight;
+	private int nx;
+	private int ny;
+
+	private IntArray[] edgeCells;
+	private IntArray[] nodeCells;
+
+	// bounding boxes of edges as (minX, minY, maxX, maxY) tuples
+	private double[] edgeBoxes;
+	// index of the cell each node is currently stored in
+	private int[] nodeToCell;
+
+	// the nodes by id, which is their position in the list of nodes
+	private Node[] nodes = new Node[0];
+	// scene coordinates of the nodes as (x, y) pairs
+	private double[] nodeCoords;
+	// ids of the end nodes of the edges as (n1, n2) pairs
+	private int[] edgeNodes;
+	private int version = 0;
+
+	/**
+	 * @param bulge
+	 *            the maximum distance of a curved edge from the bounding box
+	 *            of its end points, relative to the length of the edge.
+	 */
+	public NetworkIndex(LineNetwork lineNetwork, double bulge)
+	{
+		this.lineNetwork = lineNetwork;
+		this.bulge = bulge;
+		build();
+	}
+
+	public LineNetwork getLineNetwork()
+	{
+		return lineNetwork;
+	}
+
+	public double getBulge()
+	{
+		return bulge;
+	}
+
+	public int getMaxLinesPerEdge()
+	{
+		return maxLinesPerEdge;
+	}
+
+	/**
+	 * Get the scene coordinates of all nodes as (x, y) pairs, indexed by node
+	 * id. The array must not be modified.
+	 */
+	public double[] getNodeCoords()
+	{
+		return nodeCoords;
+	}
+
+	/**
+	 * Get the id of the first (k = 0) or second (k = 1) node of the specified
+	 * edge.
+	 */
+	public int getEdgeNode(int edge, int k)
+	{
+		return edgeNodes[edge * 2 + k];
+	}
+
+	public int getNumNodes()
+	{
+		return nodes.length;
+	}
+
+	public Node getNode(int id)
+	{
+		return nodes[id];
+	}
+
+	/**
+	 * Get the id of the specified node, or -1 if it is not part of the index.
+	 * For networks created by LineNetworkBuilder the id is equal to
+	 * {@link Node#index}.
+	 */
+	public int getNodeId(Node node)
+	{
+		int index = node.index;
+		if (index >= 0 && index < nodes.length && nodes[index] == node) {
+			return index;
+		}
+		Integer id = nodeIds.get(node);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Get a number that changes whenever the location of a node changes.
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
+
+	public void build()
+	{
+		List<Node> nodes = lineNetwork.nodes;
+		List<Edge> edges = lineNetwork.edges;
+		final int nNodes = nodes.size();
+		final int nEdges = edges.size();
+
+		nodeIds.clear();
+		edgeIds.clear();
+
+		Envelope bounds = new Envelope();
+		for (int i = 0; i < nNodes; i++) {
+			Point location = nodes.get(i).location;
+			bounds.expandToInclude(location.x, location.y);
+		}
+		if (bounds.isNull()) {
+			bounds.init(0, 1, 0, 1);
+		}
+
+		int n = (int) Math.ceil(Math.sqrt(Math.max(nNodes, nEdges) / 2.0));
+		n = Math.max(1, Math.min(MAX_CELLS_PER_DIMENSION, n));
+
+		nx = n;
+		ny = n;
+		minX = bounds.getMinX();
+		minY = bounds.getMinY();
+		cellWidth = bounds.getWidth() / nx;
+		cellHeight = bounds.getHeight() / ny;
+		if (cellWidth <= 0) {
+			cellWidth = 1;
+		}
+		if (cellHeight <= 0) {
+			cellHeight = 1;
+		}
+
+		edgeCells = new IntArray[nx * ny];
+		nodeCells = new IntArray[nx * ny];
+		for (int i = 0; i < edgeCells.length; i++) {
+			edgeCells[i] = new IntArray(4);
+			nodeCells[i] = new IntArray(4);
+		}
+
+		this.nodes = nodes.toArray(new Node[nNodes]);
+		nodeToCell = new int[nNodes];
+		nodeCoords = new double[nNodes * 2];
+		for (int i = 0; i < nNodes; i++) {
+			Node node = nodes.get(i);
+			nodeIds.put(node, i);
+			nodeCoords[i * 2] = node.location.x;
+			nodeCoords[i * 2 + 1] = node.location.y;
+			int cell = cell(node.location.x, node.location.y);
+			nodeToCell[i] = cell;
+			nodeCells[cell].add(i);
+		}
+
+		maxLinesPerEdge = 0;
+		edgeBoxes = new double[nEdges * 4];
+		edgeNodes = new int[nEdges * 2];
+		for (int i = 0; i < nEdges; i++) {
+			Edge edge = edges.get(i);
+			edgeIds.put(edge, i);
+			edgeNodes[i * 2] = nodeIds.get(edge.n1);
+			edgeNodes[i * 2 + 1] = nodeIds.get(edge.n2);
+			maxLinesPerEdge = Math.max(maxLinesPerEdge, edge.lines.size());
+			computeBox(i, edge);
+			insertEdge(i);
+		}
+
+		version++;
+	}
+
+	private int cellX(double x)
+	{
+		int cx = (int) Math.floor((x - minX) / cellWidth);
+		return Math.max(0, Math.min(nx - 1, cx));
+	}
+
+	private int cellY(double y)
+	{
+		int cy = (int) Math.floor((y - minY) / cellHeight);
+		return Math.max(0, Math.min(ny - 1, cy));
+	}
+
+	private int cell(double x, double y)
+	{
+		return cellY(y) * nx + cellX(x);
+	}
+
+	private void computeBox(int id, Edge edge)
+	{
+		Point a = edge.n1.location;
+		Point b = edge.n2.location;
+
+		double dx = b.x - a.x;
+		double dy = b.y - a.y;
+		double extra = bulge * Math.sqrt(dx * dx + dy * dy);
+
+		int k = id * 4;
+		edgeBoxes[k] = Math.min(a.x, b.x) - extra;
+		edgeBoxes[k + 1] = Math.min(a.y, b.y) - extra;
+		edgeBoxes[k + 2] = Math.max(a.x, b.x) + extra;
+		edgeBoxes[k + 3] = Math.max(a.y, b.y) + extra;
+	}
+
+	private void insertEdge(int id)
+	{
+		int k = id * 4;
+		int cx1 = cellX(edgeBoxes[k]);
+		int cy1 = cellY(edgeBoxes[k + 1]);
+		int cx2 = cellX(edgeBoxes[k + 2]);
+		int cy2 = cellY(edgeBoxes[k + 3]);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				edgeCells[cy * nx + cx].add(id);
+			}
+		}
+	}
+
+	private void removeEdge(int id)
+	{
+		int k = id * 4;
+		int cx1 = cellX(edgeBoxes[k]);
+		int cy1 = cellY(edgeBoxes[k + 1]);
+		int cx2 = cellX(edgeBoxes[k + 2]);
+		int cy2 = cellY(edgeBoxes[k + 3]);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				edgeCells[cy * nx + cx].remove(id);
+			}
+		}
+	}
+
+	/**
+	 * Store the indices of all edges whose bounding box intersects the
+	 * specified envelope into the result array, in ascending order.
+	 */
+	public void queryEdges(Envelope envelope, IntArray result)
+	{
+		result.clear();
+		if (envelope.isNull()) {
+			return;
+		}
+
+		double qx1 = envelope.getMinX();
+		double qy1 = envelope.getMinY();
+		double qx2 = envelope.getMaxX();
+		double qy2 = envelope.getMaxY();
+
+		int cx1 = cellX(qx1);
+		int cy1 = cellY(qy1);
+		int cx2 = cellX(qx2);
+		int cy2 = cellY(qy2);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				IntArray cell = edgeCells[cy * nx + cx];
+				final int size = cell.size();
+				for (int i = 0; i < size; i++) {
+					int id = cell.get(i);
+					int k = id * 4;
+					if (edgeBoxes[k] > qx2 || edgeBoxes[k + 2] < qx1
+							|| edgeBoxes[k + 1] > qy2
+							|| edgeBoxes[k + 3] < qy1) {
+						continue;
+					}
+					// report edges spanning multiple cells only in the first
+					// cell covered by both the edge and the query
+					if (cx != Math.max(cx1, cellX(edgeBoxes[k]))
+							|| cy != Math.max(cy1, cellY(edgeBoxes[k + 1]))) {
+						continue;
+					}
+					result.add(id);
+				}
+			}
+		}
+		result.sort();
+	}
+
+	/**
+	 * Store the indices of all nodes located within the specified envelope
+	 * into the result array, in ascending order.
+	 */
+	public void queryNodes(Envelope envelope, IntArray result)
+	{
+		result.clear();
+		if (envelope.isNull()) {
+			return;
+		}
+
+		List<Node> nodes = lineNetwork.nodes;
+
+		int cx1 = cellX(envelope.getMinX());
+		int cy1 = cellY(envelope.getMinY());
+		int cx2 = cellX(envelope.getMaxX());
+		int cy2 = cellY(envelope.getMaxY());
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				IntArray cell = nodeCells[cy * nx + cx];
+				final int size = cell.size();
+				for (int i = 0; i < size; i++) {
+					int id = cell.get(i);
+					Point location = nodes.get(id).location;
+					if (envelope.contains(location.x, location.y)) {
+						result.add(id);
+					}
+				}
+			}
+		}
+		result.sort();
+	}
+
+	@Override
+	public void nodeChanged(Node node)
+	{
+		Integer nodeId = nodeIds.get(node);
+		if (nodeId == null) {
+			build();
+			return;
+		}
+
+		int id = nodeId;
+		nodeCoords[id * 2] = node.location.x;
+		nodeCoords[id * 2 + 1] = node.location.y;
+		version++;
+
+		int cell = cell(node.location.x, node.location.y);
+		if (cell != nodeToCell[id]) {
+			nodeCells[nodeToCell[id]].remove(id);
+			nodeCells[cell].add(id);
+			nodeToCell[id] = cell;
+		}
+
+		List<Edge> edges = node.edges;
+		final int nEdges = edges.size();
+		for (int i = 0; i < nEdges; i++) {
+			Edge edge = edges.get(i);
+			Integer edgeId = edgeIds.get(edge);
+			if (edgeId == null) {
+				build();
+				return;
+			}
+			removeEdge(edgeId);
+			computeBox(edgeId, edge);
+			insertEdge(edgeId);
+		}
+	}
+
+	@Override
+	public void networkChanged()
+	{
+		build();
+	}
+
+}
@@ -0,0 +1,407 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
+
+/**
+ * A simplified representation of a {@link LineNetwork} for low zoom levels.
+ *
+ * Sequences of edges connected by nodes with exactly two edges carrying the
+ * same lines are merged into chains. For each of a number of levels, the
+ * geometry of each chain is simplified to a polyline that deviates from the
+ * original by less than a pixel at any zoom within the level. Level 0 covers
+ * zoom values from half the LOD zoom up to the LOD zoom, each further level
+ * covers the next lower octave.
+ *
+ * When a node moves, only the chains containing its edges are computed again,
+ * the next time the chains are requested.
+ */
+public class NetworkLod implements LineNetworkListener
+{
+
+	public static final int NUM_LEVELS = 4;
+
+	private static final double TOLERANCE_PIXELS = 0.5;
+
+	public static class Chain
+	{
+
+		private final List<NetworkLine> lines;
+		// the edges of the chain, each starting where the previous one ends
+		private final List<Edge> edges;
+		private final Envelope envelope;
+		private final double[][] coords = new double[NUM_LEVELS][];
+		private final double[][] normals = new double[NUM_LEVELS][];
+
+		Chain(List<NetworkLine> lines, List<Edge> edges, double lodZoom)
+		{
+			this.lines = lines;
+			this.edges = edges;
+
+			final int nEdges = edges.size();
+			double[] full = new double[(nEdges + 1) * 2];
+			Point start = edges.get(0).n1.location;
+			full[0] = start.x;
+			full[1] = start.y;
+			for (int i = 0; i < nEdges; i++) {
+				Point location = edges.get(i).n2.location;
+				full[i * 2 + 2] = location.x;
+				full[i * 2 + 3] = location.y;
+			}
+
+			envelope = new Envelope();
+			for (int i = 0; i < full.length; i += 2) {
+				envelope.expandToInclude(full[i], full[i + 1]);
+			}
+			for (int level = 0; level < NUM_LEVELS; level++) {
+				double zoom = lodZoom / (1 << level);
+				coords[level] = simplify(full, TOLERANCE_PIXELS / zoom);
+				normals[level] = normals(coords[level]);
+			}
+		}
+
+		public List<NetworkLine> getLines()
+		{
+			return lines;
+		}
+
+		public List<Edge> getEdges()
+		{
+			return edges;
+		}
+
+		public Envelope getEnvelope()
+		{
+			return envelope;
+		}
+
+		/**
+		 * Get the coordinates of the chain's polyline at the specified level
+		 * as (x, y) pairs.
+		 */
+		public double[] getCoords(int level)
+		{
+			return coords[level];
+		}
+
+		/**
+		 * Get the normalized normal vector for each point of the polyline at
+		 * the specified level, averaged from the adjacent segments.
+		 */
+		public double[] getNormals(int level)
+		{
+			return normals[level];
+		}
+
+	}
+
+	private LineNetwork lineNetwork;
+	private double lodZoom;
+
+	private List<Chain> chains = null;
+	// the position of the chain each edge belongs to within the chains
+	private Map<Edge, Integer> chainOfEdge = new HashMap<>();
+	// positions of chains whose nodes have moved
+	private IntArray changed = new IntArray();
+
+	/**
+	 * @param lodZoom
+	 *            the zoom level below which the simplified network should be
+	 *            used.
+	 */
+	public NetworkLod(LineNetwork lineNetwork, double lodZoom)
+	{
+		this.lineNetwork = lineNetwork;
+		this.lodZoom = lodZoom;
+	}
+
+	public double getLodZoom()
+	{
+		return lodZoom;
+	}
+
+	/**
+	 * Get the level to use for the specified zoom or -1 if the full network
+	 * should be used.
+	 */
+	public int getLevel(double zoom)
+	{
+		if (zoom >= lodZoom) {
+			return -1;
+		}
+		int level = (int) Math.floor(Math.log(lodZoom / zoom) / Math.log(2));
+		return Math.min(NUM_LEVELS - 1, level);
+	}
+
+	/**
+	 * Get the minimum rank of nodes to display at the specified level.
+	 */
+	public int getMinRank(int level)
+	{
+		return level == 0 ? 0 : level + 1;
+	}
+
+	/**
+	 * Get the chains of the network. The returned list is never modified,
+	 * changes of the network result in a new list.
+	 */
+	public synchronized List<Chain> getChains()
+	{
+		if (chains == null) {
+			changed.clear();
+			chains = build();
+		} else if (!changed.isEmpty()) {
+			chains = update(chains);
+		}
+		return chains;
+	}
+
+	private List<Chain> update(List<Chain> previous)
+	{
+		List<Chain> result = new ArrayList<>(previous);
+		changed.sort();
+		changed.unique();
+		for (int i = 0; i < changed.size(); i++) {
+			int id = changed.get(i);
+			Chain chain = previous.get(id);
+			result.set(id, new Chain(chain.lines, chain.edges, lodZoom));
+		}
+		changed.clear();
+		return result;
+	}
+
+	private List<Chain> build()
+	{
+		List<Chain> result = new ArrayList<>();
+		chainOfEdge.clear();
+
+		List<Edge> edges = lineNetwork.edges;
+		final int nEdges = edges.size();
+
+		Map<Edge, Integer> edgeIds = new HashMap<>();
+		for (int i = 0; i < nEdges; i++) {
+			edgeIds.put(edges.get(i), i);
+		}
+
+		boolean[] done = new boolean[nEdges];
+		// used to detect cycles while searching for the start of a chain
+		int[] seen = new int[nEdges];
+
+		for (int i = 0; i < nEdges; i++) {
+			if (done[i]) {
+				continue;
+			}
+
+			// walk backwards to the start of the chain
+			Edge first = edges.get(i);
+			seen[i] = i + 1;
+			while (true) {
+				Edge prev = continuation(first.n1, first, true);
+				if (prev == null) {
+					break;
+				}
+				int id = edgeIds.get(prev);
+				if (seen[id] == i + 1 || done[id]) {
+					break;
+				}
+				seen[id] = i + 1;
+				first = prev;
+			}
+
+			// walk forward and collect the edges
+			List<Edge> chainEdges = new ArrayList<>();
+			chainEdges.add(first);
+			done[edgeIds.get(first)] = true;
+			Edge current = first;
+			while (true) {
+				Edge next = continuation(current.n2, current, false);
+				if (next == null) {
+					break;
+				}
+				int id = edgeIds.get(next);
+				if (done[id]) {
+					break;
+				}
+				done[id] = true;
+				current = next;
+				chainEdges.add(current);
+			}
+
+			for (Edge edge : chainEdges) {
+				chainOfEdge.put(edge, result.size());
+			}
+			result.add(new Chain(first.lines, chainEdges, lodZoom));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Find the edge continuing the chain through the specified node. Chains
+	 * only continue through nodes with two edges that carry the same lines
+	 * in the same order and that are oriented the same way.
+	 */
+	private Edge continuation(Node node, Edge edge, boolean backwards)
+	{
+		if (node.edges.size() != 2) {
+			return null;
+		}
+		Edge other = node.edges.get(0) == edge ? node.edges.get(1)
+				: node.edges.get(0);
+		if (!other.lines.equals(edge.lines)) {
+			return null;
+		}
+		Node shared = backwards ? other.n2 : other.n1;
+		if (shared != node) {
+			return null;
+		}
+		return other;
+	}
+
+	@Override
+	public synchronized void nodeChanged(Node node)
+	{
+		if (chains == null) {
+			return;
+		}
+		// moving a node changes the geometry of chains, not their topology
+		List<Edge> edges = node.edges;
+		for (int i = 0; i < edges.size(); i++) {
+			Integer chain = chainOfEdge.get(edges.get(i));
+			if (chain == null) {
+				chains = null;
+				return;
+			}
+			changed.add(chain);
+		}
+	}
+
+	@Override
+	public synchronized void networkChanged()
+	{
+		chains = null;
+	}
+
+	/**
+	 * Simplify the polyline using the Douglas-Peucker algorithm.
+	 */
+	static double[] simplify(double[] coords, double tolerance)
+	{
+		int n = coords.length / 2;
+		if (n <= 2) {
+			return coords;
+		}
+		boolean[] keep = new boolean[n];
+		keep[0] = true;
+		keep[n - 1] = true;
+		simplify(coords, keep, 0, n - 1, tolerance * tolerance);
+
+		DoubleArray result = new DoubleArray(n * 2);
+		for (int i = 0; i < n; i++) {
+			if (keep[i]) {
+				result.add(coords[i * 2], coords[i * 2 + 1]);
+			}
+		}
+		double[] array = new double[result.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = result.get(i);
+		}
+		return array;
+	}
+
+	private static void simplify(double[] coords, boolean[] keep, int first,
+			int last, double tolerance2)
+	{
+		if (last - first < 2) {
+			return;
+		}
+		double ax = coords[first * 2], ay = coords[first * 2 + 1];
+		double bx = coords[last * 2], by = coords[last * 2 + 1];
+		double dx = bx - ax, dy = by - ay;
+		double len2 = dx * dx + dy * dy;
+
+		int index = -1;
+		double max = tolerance2;
+		for (int i = first + 1; i < last; i++) {
+			double px = coords[i * 2] - ax;
+			double py = coords[i * 2 + 1] - ay;
+			double d2;
+			if (len2 == 0) {
+				d2 = px * px + py * py;
+			} else {
+				double cross = px * dy - py * dx;
+				d2 = cross * cross / len2;
+			}
+			if (d2 > max) {
+				max = d2;
+				index = i;
+			}
+		}
+		if (index < 0) {
+			return;
+		}
+		keep[index] = true;
+		simplify(coords, keep, first, index, tolerance2);
+		simplify(coords, keep, index, last, tolerance2);
+	}
+
+	private static double[] normals(double[] coords)
+	{
+		int n = coords.length / 2;
+		double[] normals = new double[coords.length];
+		for (int i = 0; i < n - 1; i++) {
+			double dx = coords[i * 2 + 2] - coords[i * 2];
+			double dy = coords[i * 2 + 3] - coords[i * 2 + 1];
+			double d = Math.sqrt(dx * dx + dy * dy);
+			if (d == 0) {
+				continue;
+			}
+			// the normal (ndy, -ndx) as used by SegmentPaintInfo
+			double nx = dy / d;
+			double ny = -dx / d;
+			normals[i * 2] += nx;
+			normals[i * 2 + 1] += ny;
+			normals[i * 2 + 2] += nx;
+			normals[i * 2 + 3] += ny;
+		}
+		for (int i = 0; i < n; i++) {
+			double nx = normals[i * 2];
+			double ny = normals[i * 2 + 1];
+			double d = Math.sqrt(nx * nx + ny * ny);
+			if (d != 0) {
+				normals[i * 2] = nx / d;
+				normals[i * 2 + 1] = ny / d;
+			}
+		}
+		return normals;
+	}
+
+}
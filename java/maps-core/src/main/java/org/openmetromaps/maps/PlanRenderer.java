@@ -17,39 +17,31 @@
 
 package org.openmetromaps.maps;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.openmetromaps.maps.graph.Edge;
 import org.openmetromaps.maps.graph.LineNetwork;
-import org.openmetromaps.maps.graph.NeighborInfo;
+import org.openmetromaps.maps.graph.LineNetworkListener;
 import org.openmetromaps.maps.graph.NetworkLine;
 import org.openmetromaps.maps.graph.Node;
-import org.openmetromaps.maps.model.Station;
+import org.openmetromaps.maps.metrics.RenderMetrics;
+import org.openmetromaps.maps.metrics.RenderMetrics.Counter;
+import org.openmetromaps.maps.metrics.RenderMetrics.Phase;
 import org.openmetromaps.maps.painting.core.ColorCode;
 import org.openmetromaps.maps.painting.core.Colors;
 import org.openmetromaps.maps.painting.core.IPaintInfo;
 import org.openmetromaps.maps.painting.core.PaintFactory;
 import org.openmetromaps.maps.painting.core.PaintType;
 import org.openmetromaps.maps.painting.core.Painter;
-import org.openmetromaps.maps.painting.core.geom.LineSegment;
 import org.openmetromaps.maps.painting.core.geom.Path;
+import org.openmetromaps.maps.painting.displaylist.DisplayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.infomatiq.jsi.Rectangle;
-
-import de.topobyte.formatting.Formatting;
-import de.topobyte.jsi.intersectiontester.RTreeIntersectionTester;
-import de.topobyte.jsi.intersectiontester.RectangleIntersectionTester;
-import de.topobyte.lightgeom.curves.spline.CubicSpline;
-import de.topobyte.lightgeom.curves.spline.CubicSplineB;
-import de.topobyte.lightgeom.curves.spline.SplineUtil;
 import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.lightgeom.lina.Vector2;
 import de.topobyte.viewports.geometry.Envelope;
 import de.topobyte.viewports.scrolling.ViewportListener;
 import de.topobyte.viewports.scrolling.ViewportUtil;
@@ -71,11 +63,24 @@ public class PlanRenderer implements ViewportListener
 		CURVE
 	}
 
+	public static final double DEFAULT_LOD_ZOOM = 1.5;
+
+	private static final ColorCode COLOR_HOVER = new ColorCode(0x0066CC);
+
+	// texts of common ranks for debugging, to not build strings for each frame
+	private static final String[] RANK_TEXTS = new String[64];
+	static {
+		for (int i = 0; i < RANK_TEXTS.length; i++) {
+			RANK_TEXTS[i] = Integer.toString(i);
+		}
+	}
+
 	private boolean debugRanks = false;
 	private boolean debugTangents = false;
 
 	private boolean isRenderLabels = true;
 	private boolean renderStationCenters = false;
+	private boolean draft = false;
 
 	private StationMode stationMode;
 	private SegmentMode segmentMode;
@@ -91,7 +96,6 @@ public class PlanRenderer implements ViewportListener
 	private float spreadFactor = 1.8f;
 	private boolean onlyImportant = false;
 
-	private int overDrawPixels = 100;
 	private double f = 0.3;
 
 	private LineNetwork lineNetwork;
@@ -102,13 +106,62 @@ public class PlanRenderer implements ViewportListener
 	private LocationToPoint ltp;
 
 	private IPaintInfo[] lineToPaintForLines;
+	private IPaintInfo paintHover;
+	private IPaintInfo paintStationCenters;
+	private IPaintInfo paintLabelOutline;
+	private IPaintInfo paintLabelText;
 
 	private StationDrawer stationDrawer;
 
+	private NetworkIndex index;
+	private RenderContext defaultContext = new RenderContext();
+
+	private CurveCache curveCache;
+	private LineRuns lineRuns;
+	private StationTopology stationTopology;
+	private NetworkLod lod;
+	private boolean useLod = true;
+	private StationDrawer lodStationDrawer;
+
+	private List<LineNetworkListener> networkListeners = new ArrayList<>();
+	private boolean observeNetwork;
+	private LabelCache labelCache;
+	private RenderMetrics metrics = new RenderMetrics();
+	private boolean flattenCurves = true;
+	private boolean groupByPaint = false;
+
+	private boolean useDisplayList = false;
+	private DisplayList displayList = null;
+	private int displayListBucket;
+	private double displayListZoom;
+	private double displayListOriginX;
+	private double displayListOriginY;
+	private float displayListLineWidth;
+	private DisplayListInvalidator displayListInvalidator = new DisplayListInvalidator();
+
+	private int generation = 0;
+
 	public PlanRenderer(LineNetwork lineNetwork, MapViewStatus mapViewStatus,
 			StationMode stationMode, SegmentMode segmentMode,
 			ViewportWithSignals viewport, LocationToPoint ltp, float scale,
 			PaintFactory pf)
+	{
+		this(lineNetwork, mapViewStatus, stationMode, segmentMode, viewport,
+				ltp, scale, pf, true);
+	}
+
+	/**
+	 * @param observeNetwork
+	 *            whether to register the caches of the renderer with the
+	 *            network. If not, changes of the network have to be forwarded
+	 *            to {@link #getNetworkListeners()} by the owner. This allows
+	 *            to create renderers for use on other threads without
+	 *            modifying the network's listeners.
+	 */
+	public PlanRenderer(LineNetwork lineNetwork, MapViewStatus mapViewStatus,
+			StationMode stationMode, SegmentMode segmentMode,
+			ViewportWithSignals viewport, LocationToPoint ltp, float scale,
+			PaintFactory pf, boolean observeNetwork)
 	{
 		this.lineNetwork = lineNetwork;
 		this.mapViewStatus = mapViewStatus;
@@ -132,17 +185,138 @@ public class PlanRenderer implements ViewportListener
 			lineToPaintForLines[line.line.getId()] = paint;
 		}
 
+		paintHover = pf.create(COLOR_HOVER);
+		paintHover.setStyle(PaintType.STROKE);
+		paintStationCenters = pf.create(Colors.BLACK);
+		paintStationCenters.setStyle(PaintType.FILL);
+
+		int fontSize = getLabelFontSize();
+		paintLabelOutline = pf.create(Colors.WHITE, 2 * scale);
+		paintLabelOutline.setFontSize(fontSize);
+		paintLabelText = pf.create(Colors.BLACK, 1 * scale);
+		paintLabelText.setFontSize(fontSize);
+
+		stationTopology = new StationTopology(lineNetwork);
+
 		setupStationDrawer();
 
+		lodStationDrawer = new StationDrawerDot(pf, lineNetwork, colors, scale,
+				ltp, spreadFactor);
+
+		index = new NetworkIndex(lineNetwork, f);
+
+		// the line width is proportional to the zoom, see zoomChanged()
+		float sceneLineWidth = baseLineWidth * scale / 3;
+		curveCache = new CurveCache(lineNetwork, f,
+				sceneLineWidth * spreadFactor);
+
+		lineRuns = new LineRuns(lineNetwork);
+
+		labelCache = new LabelCache(lineNetwork);
+
+		lod = new NetworkLod(lineNetwork, DEFAULT_LOD_ZOOM);
+
+		networkListeners.add(index);
+		networkListeners.add(curveCache);
+		networkListeners.add(lineRuns);
+		networkListeners.add(stationTopology);
+		networkListeners.add(labelCache);
+		networkListeners.add(lod);
+		this.observeNetwork = observeNetwork;
+		if (observeNetwork) {
+			for (LineNetworkListener listener : networkListeners) {
+				lineNetwork.addListener(listener);
+			}
+		} else {
+			// registered with the network when needed otherwise
+			networkListeners.add(displayListInvalidator);
+		}
+
 		viewport.addViewportListener(this);
 		zoomChanged();
 	}
 
+	/**
+	 * Stop observing the viewport and the network, so that the renderer and
+	 * its caches can be garbage collected once it is no longer used.
+	 */
+	public void dispose()
+	{
+		viewport.removeViewportListener(this);
+		if (observeNetwork) {
+			for (LineNetworkListener listener : networkListeners) {
+				lineNetwork.removeListener(listener);
+			}
+		}
+		if (observeNetwork && useDisplayList) {
+			lineNetwork.removeListener(displayListInvalidator);
+		}
+	}
+
 	public LineNetwork getLineNetwork()
 	{
 		return lineNetwork;
 	}
 
+	public float getScale()
+	{
+		return scale;
+	}
+
+	public NetworkIndex getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * Get the caches and indexes of this renderer that need to be notified
+	 * about changes of the network. Unless disabled, they are registered with
+	 * the network upon construction.
+	 */
+	public List<LineNetworkListener> getNetworkListeners()
+	{
+		return networkListeners;
+	}
+
+	public NetworkLod getLod()
+	{
+		return lod;
+	}
+
+	public CurveCache getCurveCache()
+	{
+		return curveCache;
+	}
+
+	public LineRuns getLineRuns()
+	{
+		return lineRuns;
+	}
+
+	public StationTopology getStationTopology()
+	{
+		return stationTopology;
+	}
+
+	public LabelCache getLabelCache()
+	{
+		return labelCache;
+	}
+
+	public RenderMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Replace the metrics this renderer reports phase timings and counts to,
+	 * e.g. to share one instance between several renderers.
+	 */
+	public void setMetrics(RenderMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
 	public boolean isRenderLabels()
 	{
 		return isRenderLabels;
@@ -193,6 +367,7 @@ public class PlanRenderer implements ViewportListener
 		this.stationMode = stationMode;
 		setupStationDrawer();
 		zoomChanged();
+		invalidateDisplayList();
 	}
 
 	public SegmentMode getSegmentMode()
@@ -203,6 +378,120 @@ public class PlanRenderer implements ViewportListener
 	public void setSegmentMode(SegmentMode segmentMode)
 	{
 		this.segmentMode = segmentMode;
+		invalidateDisplayList();
+	}
+
+	public boolean isDraft()
+	{
+		return draft;
+	}
+
+	/**
+	 * If enabled, a cheap version of the map is painted, e.g. while the user
+	 * is moving the view: segments are drawn straight, stations as dots and
+	 * labels are left out. The configured modes are kept and used again once
+	 * draft mode is disabled.
+	 */
+	public void setDraft(boolean draft)
+	{
+		if (this.draft == draft) {
+			return;
+		}
+		this.draft = draft;
+		invalidateDisplayList();
+	}
+
+	public boolean isFlattenCurves()
+	{
+		return flattenCurves;
+	}
+
+	/**
+	 * If enabled, curved segments are painted as polylines that have been
+	 * flattened for the current zoom bucket in advance instead of passing
+	 * splines to the painter.
+	 */
+	public void setFlattenCurves(boolean flattenCurves)
+	{
+		this.flattenCurves = flattenCurves;
+		invalidateDisplayList();
+	}
+
+	public boolean isGroupByPaint()
+	{
+		return groupByPaint;
+	}
+
+	/**
+	 * If enabled, segments are drawn grouped by line so that the paint only
+	 * changes once per line instead of once per segment. Where segments of
+	 * different lines overlap, the stacking order then follows the line
+	 * order rather than the order of edges.
+	 */
+	public void setGroupByPaint(boolean groupByPaint)
+	{
+		this.groupByPaint = groupByPaint;
+		invalidateDisplayList();
+	}
+
+	public boolean isUseLod()
+	{
+		return useLod;
+	}
+
+	/**
+	 * If enabled, a simplified network is painted for zoom values below
+	 * {@link NetworkLod#getLodZoom()}.
+	 */
+	public void setUseLod(boolean useLod)
+	{
+		this.useLod = useLod;
+		invalidateDisplayList();
+	}
+
+	public boolean isUseDisplayList()
+	{
+		return useDisplayList;
+	}
+
+	/**
+	 * If enabled, segments and stations of the whole network are recorded
+	 * once per zoom bucket and then replayed with a translation and scale
+	 * for each frame, skipping those that are not visible. This trades memory
+	 * for speed when the viewport changes frequently.
+	 */
+	public void setUseDisplayList(boolean useDisplayList)
+	{
+		if (this.useDisplayList == useDisplayList) {
+			return;
+		}
+		this.useDisplayList = useDisplayList;
+		if (!useDisplayList) {
+			displayList = null;
+		}
+		if (!observeNetwork) {
+			return;
+		}
+		if (useDisplayList) {
+			lineNetwork.addListener(displayListInvalidator);
+		} else {
+			lineNetwork.removeListener(displayListInvalidator);
+		}
+	}
+
+	public void invalidateDisplayList()
+	{
+		displayList = null;
+		generation++;
+	}
+
+	/**
+	 * Get a number that changes whenever the viewport or an option that
+	 * affects the network layer changes.
+	 */
+	public int getGeneration()
+	{
+		return generation;
 	}
 
 	private void setupStationDrawer()
@@ -218,7 +507,7 @@ public class PlanRenderer implements ViewportListener
 			break;
 		case CONVEX:
 			stationDrawer = new StationDrawerConvex(pf, lineNetwork, colors,
-					scale, ltp, spreadFactor);
+					scale, ltp, spreadFactor, stationTopology);
 			break;
 		}
 	}
@@ -226,18 +515,20 @@ public class PlanRenderer implements ViewportListener
 	@Override
 	public void viewportChanged()
 	{
-
+		generation++;
 	}
 
 	@Override
 	public void complexChange()
 	{
-
+		generation++;
 	}
 
 	@Override
 	public void zoomChanged()
 	{
+		generation++;
+
 		double zoom = viewport.getZoom();
 		factor = (float) (zoom / 3);
 		lineWidth = baseLineWidth * factor * scale;
@@ -249,18 +540,38 @@ public class PlanRenderer implements ViewportListener
 			IPaintInfo paint = lineToPaintForLines[line.line.getId()];
 			paint.setWidth(lineWidth);
 		}
+		paintHover.setWidth(lineWidth);
 
 		onlyImportant = zoom < 2.2;
 
 		stationDrawer.zoomChanged(factor, lineWidth);
+		lodStationDrawer.zoomChanged(factor, lineWidth);
 	}
 
-	private static final String LOG_SEGMENTS = "segments";
-	private static final String LOG_STATIONS = "stations";
-	private static final String LOG_LABELS = "labels";
-	private long durationCurves = 0;
+	/**
+	 * Parallel lines of an edge and station symbols extend beyond the geometry
+	 * stored in the index by at most this many pixels.
+	 */
+	public double getOverDrawPixels()
+	{
+		float bundleWidth = lineWidth * spreadFactor
+				* index.getMaxLinesPerEdge();
+		return bundleWidth / 2 + 3 * lineWidth;
+	}
 
-	public void paint(Painter g)
+	/**
+	 * Labels are drawn with this font size, in pixels, above the station.
+	 */
+	public int getLabelFontSize()
+	{
+		return Math.round(12 * scale);
+	}
+
+	/**
+	 * Store the region of the scene visible in the viewport into the
+	 * context's view envelope.
+	 */
+	private Envelope getEnvelope(RenderContext context)
 	{
 		double x1 = ViewportUtil.getRealX(viewport, 0);
 		double y1 = ViewportUtil.getRealY(viewport, 0);
@@ -269,291 +580,923 @@ public class PlanRenderer implements ViewportListener
 		double y2 = ViewportUtil.getRealY(viewport,
 				viewport.getViewportHeight());
 
-		Envelope envelope = new Envelope(x1, x2, y1, y2);
+		Envelope envelope = context.viewEnvelope;
+		envelope.init(x1, x2, y1, y2);
+		return envelope;
+	}
 
-		TimeMeasuring tm = new TimeMeasuring(logger);
+	void queryVisible(RenderContext context, Envelope envelope)
+	{
+		Envelope queryEnvelope = context.queryEnvelope;
+		queryEnvelope.init(envelope);
+		queryEnvelope.expandBy(getOverDrawPixels() / viewport.getZoom());
 
-		final int nNodes = lineNetwork.nodes.size();
-		final int nEdges = lineNetwork.edges.size();
+		index.queryEdges(queryEnvelope, context.visibleEdges);
+		index.queryNodes(queryEnvelope, context.visibleNodes);
+		context.visibleEnvelope = queryEnvelope;
+	}
 
-		/*
-		 * Segments
-		 */
+	public void paint(Painter g)
+	{
+		paint(defaultContext, g);
+	}
 
-		Envelope edgeEnvelope = new Envelope();
+	/**
+	 * Paint the map using the specified context for temporary state. Threads
+	 * may paint concurrently as long as each of them uses its own context.
+	 */
+	public void paint(RenderContext context, Painter g)
+	{
+		paintNetwork(context, g);
+		paintLabels(context, g);
+		paintOverlay(context, g);
+	}
 
-		tm.start(LOG_SEGMENTS);
-		durationCurves = 0;
-		for (int i = 0; i < nEdges; i++) {
-			Edge edge = lineNetwork.edges.get(i);
-			Point locationA = edge.n1.location;
-			Point locationB = edge.n2.location;
+	/**
+	 * Paint the map, drawing only those segments and stations that may be
+	 * visible within the specified region of the scene. Labels are placed
+	 * for the whole viewport, so that the output within the region is the
+	 * same as with {@link #paint(Painter)}.
+	 */
+	public void paint(Painter g, Envelope region)
+	{
+		paint(defaultContext, g, region);
+	}
 
-			edgeEnvelope.expandToInclude(locationA.x, locationA.y);
-			edgeEnvelope.expandToInclude(locationB.x, locationB.y);
+	public void paint(RenderContext context, Painter g, Envelope region)
+	{
+		queryVisible(context, region);
+		drawNetwork(context, g);
+		paintLabels(context, g);
+		paintOverlay(context, g);
+	}
 
-			if (!envelope.intersects(edgeEnvelope)) {
-				continue;
-			}
+	/**
+	 * Paint segments and stations, i.e. everything except for labels and the
+	 * overlay. Neither depends on the selection or the hovered node.
+	 */
+	public void paintNetwork(Painter g)
+	{
+		paintNetwork(defaultContext, g);
+	}
+
+	/**
+	 * Paint segments and stations using the specified context. The display
+	 * list, if enabled, is shared and must not be used from multiple threads.
+	 */
+	public void paintNetwork(RenderContext context, Painter g)
+	{
+		if (useDisplayList) {
+			paintNetworkFromDisplayList(context, g, getEnvelope(context));
+			return;
+		}
 
-			double ax = ltp.getX(locationA.x);
-			double ay = ltp.getY(locationA.y);
-			double bx = ltp.getX(locationB.x);
-			double by = ltp.getY(locationB.y);
+		queryVisible(context, getEnvelope(context));
+		drawNetwork(context, g);
+	}
 
-			List<NetworkLine> lines = edge.lines;
+	/**
+	 * Paint those segments and stations that may be visible within the
+	 * specified region of the scene.
+	 */
+	public void paintNetwork(Painter g, Envelope region)
+	{
+		paintNetwork(defaultContext, g, region);
+	}
 
-			if (lines.size() == 1) {
-				NetworkLine line = lines.get(0);
-				drawSingleLineEdge(g, line, edge, ax, ay, bx, by);
-			} else {
-				drawMultiLineEdge(g, lines, edge, ax, ay, bx, by);
-			}
+	public void paintNetwork(RenderContext context, Painter g,
+			Envelope region)
+	{
+		if (useDisplayList) {
+			paintNetworkFromDisplayList(context, g, region);
+			return;
+		}
+
+		queryVisible(context, region);
+		drawNetwork(context, g);
+	}
+
+	/**
+	 * Replay those commands of the display list that may be visible within
+	 * the specified region of the scene. Radii change by the same factor as
+	 * the line widths, which follow the current zoom.
+	 */
+	private void paintNetworkFromDisplayList(RenderContext context,
+			Painter g, Envelope region)
+	{
+		double zoom = viewport.getZoom();
+		int bucket = ZoomBuckets.bucket(zoom);
+		if (displayList == null || bucket != displayListBucket) {
+			recordDisplayList(bucket);
 		}
-		tm.stop(LOG_SEGMENTS);
+
+		// the region in the coordinates of the recording, grown by the
+		// extent of strokes and symbols beyond the recorded geometry
+		double margin = getOverDrawPixels() / zoom;
+		Envelope clip = context.queryEnvelope;
+		clip.init(
+				(region.getMinX() - margin) * displayListZoom
+						+ displayListOriginX,
+				(region.getMaxX() + margin) * displayListZoom
+						+ displayListOriginX,
+				(region.getMinY() - margin) * displayListZoom
+						+ displayListOriginY,
+				(region.getMaxY() + margin) * displayListZoom
+						+ displayListOriginY);
+
+		double scale = zoom / displayListZoom;
+		double dx = ltp.getX(0) - displayListOriginX * scale;
+		double dy = ltp.getY(0) - displayListOriginY * scale;
+		double radiusScale = lineWidth / displayListLineWidth;
+		displayList.replay(g, scale, dx, dy, radiusScale, clip);
+	}
+
+	private void recordDisplayList(int bucket)
+	{
+		RenderContext context = defaultContext;
+
+		if (displayList == null) {
+			displayList = new DisplayList();
+		} else {
+			displayList.clear();
+		}
+		displayListBucket = bucket;
+		displayListZoom = viewport.getZoom();
+		displayListOriginX = ltp.getX(0);
+		displayListOriginY = ltp.getY(0);
+		displayListLineWidth = lineWidth;
+
+		IntArray visibleEdges = context.visibleEdges;
+		visibleEdges.clear();
+		for (int i = 0; i < lineNetwork.edges.size(); i++) {
+			visibleEdges.add(i);
+		}
+		IntArray visibleNodes = context.visibleNodes;
+		visibleNodes.clear();
+		for (int i = 0; i < lineNetwork.nodes.size(); i++) {
+			visibleNodes.add(i);
+		}
+		context.visibleEnvelope = null;
+
+		drawNetwork(context, displayList);
+	}
+
+	private void drawNetwork(RenderContext context, Painter g)
+	{
+		project(context);
+
+		IntArray visibleEdges = context.visibleEdges;
+		IntArray visibleNodes = context.visibleNodes;
+		final int nEdges = visibleEdges.size();
+
+		/*
+		 * Segments
+		 */
+
+		int lodLevel = getLodLevel();
+
+		long t0 = System.nanoTime();
+		context.durationCurves = 0;
+		drawSegments(context, g, visibleEdges, lodLevel, resetRuns(context));
+		long t1 = System.nanoTime();
 
 		/*
 		 * Stations
 		 */
 
-		tm.start(LOG_STATIONS);
-		logger.debug("*** Stations ***");
+		int nDrawn = drawStations(context, g, visibleNodes, lodLevel);
+		long t2 = System.nanoTime();
 
-		Path path = g.createPath();
-		for (int i = 0; i < nNodes; i++) {
-			Node node = lineNetwork.nodes.get(i);
-			Point location = node.location;
+		RenderMetrics metrics = this.metrics;
+		metrics.record(Phase.SEGMENTS, t1 - t0);
+		metrics.record(Phase.STATIONS, t2 - t1);
+		if (context.durationCurves > 0) {
+			metrics.record(Phase.CURVES, context.durationCurves);
+		}
+		metrics.count(Counter.EDGES_DRAWN, nEdges);
+		metrics.count(Counter.EDGES_CULLED, lineNetwork.edges.size() - nEdges);
+		metrics.count(Counter.NODES_DRAWN, nDrawn);
+		metrics.count(Counter.NODES_CULLED, lineNetwork.nodes.size() - nDrawn);
+	}
 
-			if (!envelope.contains(location.x, location.y)) {
-				continue;
-			}
+	/**
+	 * Paint station labels.
+	 */
+	public void paintLabels(Painter g)
+	{
+		paintLabels(defaultContext, g);
+	}
+
+	public void paintLabels(RenderContext context, Painter g)
+	{
+		Envelope envelope = getEnvelope(context);
+		queryVisible(context, envelope);
+
+		if (isRenderLabels && !draft) {
+			long start = System.nanoTime();
+			project(context);
+			renderLabels(context, g, context.visibleNodes, envelope);
+			metrics.record(Phase.LABELS, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Paint everything that depends on the state of the view rather than the
+	 * network: selected stations, the hovered station and, if enabled, the
+	 * debugging output for ranks, tangents and station centers. This is
+	 * cheap compared to the other layers so that it can be repainted on top
+	 * of a cached image of the network and labels.
+	 */
+	public void paintOverlay(Painter g)
+	{
+		paintOverlay(defaultContext, g);
+	}
+
+	public void paintOverlay(RenderContext context, Painter g)
+	{
+		queryVisible(context, getEnvelope(context));
+		project(context);
+		ProjectedNodes p = context.projected;
 
-			boolean selected = mapViewStatus.isNodeSelected(node);
+		IntArray visibleEdges = context.visibleEdges;
+		IntArray visibleNodes = context.visibleNodes;
+		final int nNodes = visibleNodes.size();
 
-			stationDrawer.drawStation(g, node, path, selected,
-					renderStationCenters);
+		int lodLevel = getLodLevel();
+		if (debugTangents && lodLevel < 0 && isCurved()) {
+			drawTangents(context, g, visibleEdges);
 		}
-		tm.stop(LOG_STATIONS);
 
-		/*
-		 * Labels
-		 */
+		IntArray selected = context.overlayNodes;
+		selected.clear();
+		// the ids of the index are the indices of the nodes, see Node.index
+		Envelope visible = context.visibleEnvelope;
+		double[] coords = index.getNodeCoords();
+		final int nIndexed = index.getNumNodes();
+		int next = mapViewStatus.nextSelectedIndex(0);
+		while (next >= 0 && next < nIndexed) {
+			double x = coords[next * 2];
+			double y = coords[next * 2 + 1];
+			if (index.getNode(next).index == next && visible.contains(x, y)) {
+				selected.add(next);
+			}
+			next = mapViewStatus.nextSelectedIndex(next + 1);
+		}
+		if (!selected.isEmpty()) {
+			StationDrawer drawer = getStationDrawer(lodLevel);
+			drawer.prepare(selected);
+			Path path = context.path(g);
+			for (int i = 0; i < selected.size(); i++) {
+				int id = selected.get(i);
+				drawer.drawStation(context, g, id, lineNetwork.nodes.get(id),
+						path, true, false);
+			}
+		}
 
-		int fontSize = Math.round(12 * scale);
+		Node hovered = mapViewStatus.getHoveredNode();
+		if (hovered != null) {
+			float radius = 8 * factor * scale;
+			g.setPaintInfo(paintHover);
+			g.drawCircle(p.getX(hovered.location.x),
+					p.getY(hovered.location.y), radius);
+		}
 
-		IPaintInfo piOutline = pf.create(Colors.WHITE, 2 * scale);
-		piOutline.setFontSize(fontSize);
-		IPaintInfo piText = pf.create(Colors.BLACK, 1 * scale);
-		piText.setFontSize(fontSize);
+		if (renderStationCenters) {
+			DoubleArray centers = context.overlayCoords;
+			centers.clear();
+			for (int i = 0; i < nNodes; i++) {
+				int id = visibleNodes.get(i);
+				centers.add(p.getNodeX(id), p.getNodeY(id));
+			}
+			g.setPaintInfo(paintStationCenters);
+			g.drawCircles(centers.getValues(), centers.size() / 2, 1);
+		}
 
 		if (debugRanks) {
 			for (int i = 0; i < nNodes; i++) {
-				Node node = lineNetwork.nodes.get(i);
-				Point p = ltp.getPoint(node.location);
-				float x = (float) p.x;
-				float y = (float) p.y + 5;
-				String text = "" + node.rank;
+				int id = visibleNodes.get(i);
+				float x = (float) p.getNodeX(id);
+				float y = (float) p.getNodeY(id) + 5;
+				String text = getRankText(lineNetwork.nodes.get(id).rank);
 
-				g.setPaintInfo(piOutline);
+				g.setPaintInfo(paintLabelOutline);
 				g.outlineString(text, x, y);
-				g.setPaintInfo(piText);
+				g.setPaintInfo(paintLabelText);
 				g.drawString(text, x, y);
 			}
 		}
+	}
 
-		tm.start(LOG_LABELS);
-		if (isRenderLabels) {
-			renderLabels(g, envelope, nNodes, fontSize, piOutline, piText);
+	private static String getRankText(int rank)
+	{
+		if (rank >= 0 && rank < RANK_TEXTS.length) {
+			return RANK_TEXTS[rank];
 		}
-		tm.stop(LOG_LABELS);
-
-		tm.log(LOG_SEGMENTS, "Time for segments: %d");
-		tm.log(LOG_STATIONS, "Time for stations: %d");
-		tm.log(LOG_LABELS, "Time for labels: %d");
-		logger.info(Formatting.format("Time for curve drawing: %d",
-				durationCurves));
+		return Integer.toString(rank);
 	}
 
-	private void renderLabels(Painter g, Envelope envelope, int nNodes,
-			int fontSize, IPaintInfo piOutline, IPaintInfo piText)
+	private void drawTangents(RenderContext context, Painter g,
+			IntArray edges)
 	{
-		RectangleIntersectionTester tester = new RTreeIntersectionTester();
-		for (int i = 0; i < nNodes; i++) {
-			Node node = lineNetwork.nodes.get(i);
-			Station station = node.station;
-			if (onlyImportant && node.rank < 2) {
-				continue;
+		curveCache.prepare(edges, ZoomBuckets.bucket(viewport.getZoom()));
+
+		final int nEdges = edges.size();
+		for (int i = 0; i < nEdges; i++) {
+			int id = edges.get(i);
+			double[] controls = curveCache.getControlPoints(id);
+			List<NetworkLine> lines = lineNetwork.edges.get(id).lines;
+			final int nLines = lines.size();
+			for (int k = 0; k < nLines; k++) {
+				NetworkLine line = lines.get(k);
+				g.setPaintInfo(lineToPaintForLines[line.line.getId()]);
+				int c = k * 8;
+				drawLine(context, g, controls, c, c + 2);
+				drawLine(context, g, controls, c + 4, c + 6);
 			}
+		}
+	}
 
-			Point location = node.location;
+	private void renderLabels(RenderContext context, Painter g,
+			IntArray visibleNodes, Envelope envelope)
+	{
+		double offset = getLabelOffset();
 
-			if (!envelope.contains(location.x, location.y)) {
-				continue;
-			}
+		IntArray labels = context.labels;
+		IntArray widths = context.labelWidths;
+		placeLabels(context, g, visibleNodes, envelope);
 
-			String name = station.getName();
-			Point p = ltp.getPoint(location);
-			p.y -= 6 * scale * factor;
+		final int nLabels = labels.size();
+		metrics.count(Counter.LABELS_DRAWN, nLabels);
+		for (int i = 0; i < nLabels; i++) {
+			drawLabel(context, g, labels.get(i), widths.get(i), offset);
+		}
+	}
 
-			g.setPaintInfo(piText);
-			int sw = g.getStringWidth(name);
+	private void drawLabel(RenderContext context, Painter g, int id,
+			int width, double offset)
+	{
+		ProjectedNodes p = context.projected;
+		String name = lineNetwork.nodes.get(id).station.getName();
 
-			Rectangle r = new Rectangle((float) (p.x - sw / 2),
-					(float) (p.y - fontSize / 2), (float) (p.x + sw / 2),
-					(float) (p.y + fontSize / 2));
-			if (tester.isFree(r)) {
-				float x = (float) (p.x - sw / 2);
-				float y = (float) p.y;
+		float x = (float) (p.getNodeX(id) - width / 2);
+		float y = (float) (p.getNodeY(id) - offset);
 
-				g.setPaintInfo(piOutline);
-				g.outlineString(name, x, y);
+		g.setPaintInfo(paintLabelOutline);
+		g.outlineString(name, x, y);
 
-				g.setPaintInfo(piText);
-				g.drawString(name, x, y);
+		g.setPaintInfo(paintLabelText);
+		g.drawString(name, x, y);
+	}
 
-				tester.add(r, false);
-			}
+	/**
+	 * The outline and descenders of labels extend beyond the font size and
+	 * string width by at most this many pixels.
+	 */
+	private double getLabelMargin()
+	{
+		return 2 * scale + getLabelFontSize() / 2.0;
+	}
+
+	/**
+	 * Get the maximum distance in pixels by which the labels placed into the
+	 * context with {@link #placeLabels(RenderContext, Painter)} extend from
+	 * their stations.
+	 */
+	public double getLabelReach(RenderContext placed)
+	{
+		IntArray widths = placed.labelWidths;
+		double margin = getLabelMargin();
+		double reach = getLabelOffset() + getLabelFontSize() + margin;
+		final int nLabels = widths.size();
+		for (int i = 0; i < nLabels; i++) {
+			reach = Math.max(reach, widths.get(i) / 2.0 + margin);
 		}
+		return reach;
 	}
 
-	private void drawSingleLineEdge(Painter g, NetworkLine line, Edge edge,
-			double ax, double ay, double bx, double by)
+	/**
+	 * Place the labels within the viewport without drawing them and keep the
+	 * result in the context, so that they can be drawn in parts with
+	 * {@link #paintPlacedLabels}.
+	 */
+	public void placeLabels(RenderContext context, Painter g)
 	{
-		if (segmentMode == SegmentMode.STRAIGHT) {
-			drawSingleLineEdgeStraight(g, line, edge, ax, ay, bx, by);
-		} else if (segmentMode == SegmentMode.CURVE) {
-			drawSingleLineEdgeCurved(g, line, edge, ax, ay, bx, by);
+		context.labels.clear();
+		context.labelWidths.clear();
+		if (!isRenderLabels || draft) {
+			return;
 		}
+
+		long start = System.nanoTime();
+		Envelope envelope = getEnvelope(context);
+		queryVisible(context, envelope);
+		placeLabels(context, g, context.visibleNodes, envelope);
+		metrics.record(Phase.LABELS, System.nanoTime() - start);
+		metrics.count(Counter.LABELS_DRAWN, context.labels.size());
 	}
 
-	private void drawMultiLineEdge(Painter g, List<NetworkLine> lines,
-			Edge edge, double ax, double ay, double bx, double by)
+	/**
+	 * Draw those of the labels placed into another context with
+	 * {@link #placeLabels(RenderContext, Painter)} that may be visible within
+	 * the specified region of the scene. The placement is only read, so that
+	 * threads can draw the labels of different regions concurrently, each
+	 * using its own context for drawing.
+	 */
+	public void paintPlacedLabels(RenderContext placed, RenderContext context,
+			Painter g, Envelope region)
 	{
-		if (segmentMode == SegmentMode.STRAIGHT) {
-			drawMultiLineEdgeStraight(g, lines, edge, ax, ay, bx, by);
-		} else if (segmentMode == SegmentMode.CURVE) {
-			drawMultiLineEdgeCurved(g, lines, edge, ax, ay, bx, by);
+		IntArray labels = placed.labels;
+		IntArray widths = placed.labelWidths;
+		final int nLabels = labels.size();
+		if (nLabels == 0) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		project(context);
+
+		double zoom = viewport.getZoom();
+		double offset = getLabelOffset();
+		int fontSize = getLabelFontSize();
+		double margin = getLabelMargin();
+		double above = (offset + fontSize + margin) / zoom;
+		double below = (margin - offset) / zoom;
+
+		for (int i = 0; i < nLabels; i++) {
+			int id = labels.get(i);
+			int width = widths.get(i);
+			Point location = lineNetwork.nodes.get(id).location;
+			double dx = (width / 2.0 + margin) / zoom;
+			if (location.x + dx < region.getMinX()
+					|| location.x - dx > region.getMaxX()
+					|| location.y + below < region.getMinY()
+					|| location.y - above > region.getMaxY()) {
+				continue;
+			}
+			drawLabel(context, g, id, width, offset);
 		}
+		metrics.record(Phase.LABELS, System.nanoTime() - start);
 	}
 
-	private void drawSingleLineEdgeStraight(Painter g, NetworkLine line,
-			Edge edge, double ax, double ay, double bx, double by)
+	/**
+	 * Update the projection used for the nodes in the context. Nodes are
+	 * projected on first access afterwards.
+	 */
+	void project(RenderContext context)
 	{
-		IPaintInfo paint = lineToPaintForLines[line.line.getId()];
+		context.projected.update(index, ltp);
+	}
 
-		g.setPaintInfo(paint);
+	int getLodLevel()
+	{
+		return useLod ? lod.getLevel(viewport.getZoom()) : -1;
+	}
 
-		g.drawLine(ax, ay, bx, by);
+	/**
+	 * Draw the segments of the specified edges, or the simplified chains
+	 * within the context's visible envelope if a level of detail is used.
+	 * Runs that have already been drawn with the context since the call of
+	 * {@link #resetRuns(RenderContext)} are skipped, so that the edges can be
+	 * passed in several chunks.
+	 *
+	 * @param runs
+	 *            the runs returned by {@link #resetRuns(RenderContext)}.
+	 */
+	void drawSegments(RenderContext context, Painter g, IntArray edges,
+			int lodLevel, LineRuns.Runs runs)
+	{
+		if (lodLevel >= 0) {
+			drawChains(context, g, context.visibleEnvelope, lodLevel);
+		} else {
+			drawEdges(context, g, edges, runs);
+		}
 	}
 
-	private void drawMultiLineEdgeStraight(Painter g,
-			Collection<NetworkLine> lines, Edge edge, double ax, double ay,
-			double bx, double by)
+	/**
+	 * Draw the stations of the specified nodes.
+	 *
+	 * @return the number of stations drawn.
+	 */
+	int drawStations(RenderContext context, Painter g, IntArray nodes,
+			int lodLevel)
 	{
-		SegmentPaintInfo spi = new SegmentPaintInfo(ax, ay, bx, by,
-				lineWidth * spreadFactor, lines.size());
+		StationDrawer drawer = getStationDrawer(lodLevel);
+		int minRank = 0;
+		if (lodLevel >= 0) {
+			minRank = lod.getMinRank(lodLevel);
+		}
 
-		Iterator<NetworkLine> iter = lines.iterator();
-		final int nLines = lines.size();
-		for (int i = 0; i < nLines; i++) {
-			double lax = ax + spi.sx + spi.ndy * i * spi.shift;
-			double lay = ay + spi.sy - spi.ndx * i * spi.shift;
-			double lbx = bx + spi.sx + spi.ndy * i * spi.shift;
-			double lby = by + spi.sy - spi.ndx * i * spi.shift;
+		drawer.prepare(nodes);
 
-			NetworkLine line = iter.next();
-			IPaintInfo paint = lineToPaintForLines[line.line.getId()];
-			g.setPaintInfo(paint);
+		int nDrawn = 0;
+		Path path = context.path(g);
+		final int nNodes = nodes.size();
+		for (int i = 0; i < nNodes; i++) {
+			int id = nodes.get(i);
+			Node node = lineNetwork.nodes.get(id);
+			if (node.rank < minRank) {
+				continue;
+			}
 
-			g.drawLine(lax, lay, lbx, lby);
+			// selection is drawn by paintOverlay()
+			drawer.drawStation(context, g, id, node, path, false, false);
+			nDrawn++;
 		}
+		return nDrawn;
 	}
 
-	private CubicSpline spline = new CubicSplineB(0, 0, 0, 0, 0, 0, 0, 0);
+	private StationDrawer getStationDrawer(int lodLevel)
+	{
+		return lodLevel >= 0 || draft ? lodStationDrawer : stationDrawer;
+	}
 
-	private Vector2 v1 = new Vector2(0, 0);
-	private Vector2 v2 = new Vector2(0, 0);
+	private double getLabelOffset()
+	{
+		return 6 * scale * factor;
+	}
 
-	private void drawSingleLineEdgeCurved(Painter g, NetworkLine line,
-			Edge edge, double ax, double ay, double bx, double by)
+	private void placeLabels(RenderContext context, Painter g,
+			IntArray nodes, Envelope envelope)
 	{
-		IPaintInfo paint = lineToPaintForLines[line.line.getId()];
-		g.setPaintInfo(paint);
+		int bucket = ZoomBuckets.bucket(viewport.getZoom());
+		labelCache.place(g, paintLabelText, nodes, envelope, bucket,
+				onlyImportant, getLabelFontSize(),
+				getLabelOffset() / viewport.getZoom(), context.labels,
+				context.labelWidths);
+	}
 
-		NeighborInfo neighbors = line.getNeighbors(edge);
+	/**
+	 * Place the labels of the specified nodes within the viewport without
+	 * drawing them, so that a subsequent call to {@link #paintLabels(Painter)}
+	 * only needs to place labels of nodes not passed here.
+	 */
+	void placeLabels(RenderContext context, Painter g, IntArray nodes)
+	{
+		if (!isRenderLabels || draft) {
+			return;
+		}
+		placeLabels(context, g, nodes, getEnvelope(context));
+	}
 
-		Node prev = neighbors.prev;
-		Node next = neighbors.next;
+	private void drawEdges(RenderContext context, Painter g, IntArray edges,
+			LineRuns.Runs runs)
+	{
+		IntArray order = drawOrder(context, edges, runs);
 
-		Vector2 d02 = null, d31 = null;
+		if (isCurved()) {
+			curveCache.prepare(context.drawnEdges,
+					ZoomBuckets.bucket(viewport.getZoom()));
+		}
+
+		if (groupByPaint) {
+			drawEdgesGrouped(context, g, order, runs);
+			return;
+		}
 
-		if (prev != null) {
-			double sp0x = ltp.getX(prev.location.x);
-			double sp0y = ltp.getY(prev.location.y);
-			d02 = v1;
-			d02.set(bx, by);
-			d02.sub(sp0x, sp0y);
-			d02.normalize();
+		Path path = context.path(g);
+		final int nEdges = order.size();
+		for (int i = 0; i < nEdges; i++) {
+			int id = order.get(i);
+			List<NetworkLine> lines = lineNetwork.edges.get(id).lines;
+			int run = runs.getRun(id);
+			if (run >= 0) {
+				g.setPaintInfo(lineToPaintForLines[lines.get(0).line.getId()]);
+				drawRun(context, g, path, runs, run);
+				continue;
+			}
+			final int nLines = lines.size();
+			for (int k = 0; k < nLines; k++) {
+				NetworkLine line = lines.get(k);
+				g.setPaintInfo(lineToPaintForLines[line.line.getId()]);
+				drawSegment(context, g, path, id, k);
+			}
 		}
-		if (next != null) {
-			double sp3x = ltp.getX(next.location.x);
-			double sp3y = ltp.getY(next.location.y);
-			d31 = v2;
-			d31.set(ax, ay);
-			d31.sub(sp3x, sp3y);
-			d31.normalize();
+	}
+
+	/**
+	 * @param edges
+	 *            the edges to draw, in the order returned by
+	 *            {@link #drawOrder}.
+	 */
+	private void drawEdgesGrouped(RenderContext context, Painter g,
+			IntArray edges, LineRuns.Runs runs)
+	{
+		// pairs of (edge, index of line within edge) for each line
+		IntArray[] groups = context.paintGroups(lineToPaintForLines.length);
+
+		final int nEdges = edges.size();
+		for (int i = 0; i < nEdges; i++) {
+			int id = edges.get(i);
+			List<NetworkLine> lines = lineNetwork.edges.get(id).lines;
+			final int nLines = lines.size();
+			for (int k = 0; k < nLines; k++) {
+				IntArray group = groups[lines.get(k).line.getId()];
+				group.add(id);
+				group.add(k);
+			}
 		}
 
-		SplineUtil.spline(spline, ax, ay, bx, by, d02, d31, f, true);
-		g.draw(spline);
+		Path path = context.path(g);
+		for (int l = 0; l < groups.length; l++) {
+			IntArray group = groups[l];
+			if (group.isEmpty()) {
+				continue;
+			}
+			g.setPaintInfo(lineToPaintForLines[l]);
+			for (int i = 0; i < group.size(); i += 2) {
+				int id = group.get(i);
+				int run = runs.getRun(id);
+				if (run >= 0) {
+					drawRun(context, g, path, runs, run);
+					continue;
+				}
+				drawSegment(context, g, path, id, group.get(i + 1));
+			}
+		}
 	}
 
-	private SegmentEndPointPaintInfo spiA = new SegmentEndPointPaintInfo();
-	private SegmentEndPointPaintInfo spiB = new SegmentEndPointPaintInfo();
+	/**
+	 * Reset the marks of runs of single line edges before drawing segments.
+	 *
+	 * @return the runs.
+	 */
+	LineRuns.Runs resetRuns(RenderContext context)
+	{
+		LineRuns.Runs runs = lineRuns.getRuns();
+		context.resetMarks(runs.getNumRuns());
+		return runs;
+	}
 
-	private void drawMultiLineEdgeCurved(Painter g, List<NetworkLine> lines,
-			Edge edge, double ax, double ay, double bx, double by)
+	/**
+	 * Get the order for drawing the specified edges. Edges that are part of a
+	 * run are replaced by the first edge of their run, once per run. Sorting
+	 * by edge id makes the stacking order of overlapping lines independent of
+	 * which edges are visible, so that rendering a region in parts gives the
+	 * same result as rendering it at once. Also collects all edges that will
+	 * be drawn, including the invisible edges of runs, in
+	 * {@link RenderContext#drawnEdges}.
+	 */
+	private IntArray drawOrder(RenderContext context, IntArray edges,
+			LineRuns.Runs runs)
 	{
-		Point lp = edge.prev;
-		Point ln = edge.next;
+		IntArray order = context.drawOrder;
+		IntArray drawn = context.drawnEdges;
+		order.clear();
+		drawn.clear();
+		final int nEdges = edges.size();
+		for (int i = 0; i < nEdges; i++) {
+			int id = edges.get(i);
+			int run = runs.getRun(id);
+			if (run < 0) {
+				order.add(id);
+				drawn.add(id);
+			} else if (context.markRun(run)) {
+				int start = runs.getStart(run);
+				int end = runs.getStart(run + 1);
+				order.add(runs.getEdge(start));
+				for (int p = start; p < end; p++) {
+					drawn.add(runs.getEdge(p));
+				}
+			}
+		}
+		order.sort();
+		return order;
+	}
 
-		EdgeUtil.segmentInfo(spiA, spiB, ax, ay, bx, by, lp, ln, ltp, lineWidth,
-				spreadFactor, lines.size());
+	/**
+	 * Draw all edges of a run with the current paint as a single primitive.
+	 * The run is drawn completely even if only some of its edges are visible,
+	 * so that its joins do not depend on the visible region.
+	 */
+	private void drawRun(RenderContext context, Painter g, Path path,
+			LineRuns.Runs runs, int run)
+	{
+		long ta = System.nanoTime();
+		int start = runs.getStart(run);
+		int end = runs.getStart(run + 1);
+		for (int p = start; p < end; p++) {
+			appendToRun(context, path, runs.getEdge(p), runs.isReversed(p),
+					p == start);
+		}
+		finishRun(context, g, path);
+		if (isCurved()) {
+			context.durationCurves += System.nanoTime() - ta;
+		}
+	}
 
-		for (int i = 0; i < lines.size(); i++) {
-			double lax = ax + spiA.sx + spiA.ndy * i * spiA.shift;
-			double lay = ay + spiA.sy - spiA.ndx * i * spiA.shift;
-			double lbx = bx + spiB.sx + spiB.ndy * i * spiB.shift;
-			double lby = by + spiB.sy - spiB.ndx * i * spiB.shift;
+	private boolean isCurved()
+	{
+		return segmentMode == SegmentMode.CURVE && !draft;
+	}
 
-			NetworkLine line = lines.get(i);
-			IPaintInfo paint = lineToPaintForLines[line.line.getId()];
-			g.setPaintInfo(paint);
+	private boolean isRunAsPath()
+	{
+		return isCurved() && !flattenCurves;
+	}
 
-			Vector2 d02 = null, d31 = null;
+	private void appendToRun(RenderContext context, Path path, int id,
+			boolean reversed, boolean first)
+	{
+		ProjectedNodes p = context.projected;
+		if (isRunAsPath()) {
+			double[] c = curveCache.getControlPoints(id);
+			if (first) {
+				path.reset();
+				int s = reversed ? 6 : 0;
+				path.moveTo(p.getX(c[s]), p.getY(c[s + 1]));
+			}
+			if (reversed) {
+				path.cubicTo(p.getX(c[4]), p.getY(c[5]), p.getX(c[2]),
+						p.getY(c[3]), p.getX(c[0]), p.getY(c[1]));
+			} else {
+				path.cubicTo(p.getX(c[2]), p.getY(c[3]), p.getX(c[4]),
+						p.getY(c[5]), p.getX(c[6]), p.getY(c[7]));
+			}
+			return;
+		}
 
-			if (lp != null) {
-				double sp0x = ltp.getX(lp.x);
-				double sp0y = ltp.getY(lp.y);
-				d02 = v1.set(bx, by).sub(sp0x, sp0y).normalize();
+		DoubleArray coords = context.runCoords;
+		if (first) {
+			coords.clear();
+		}
+		if (isCurved()) {
+			double[] polyline = curveCache.getPolylines(id);
+			int[] starts = curveCache.getPolylineStarts(id);
+			// skip the first point unless starting a new polyline, it equals
+			// the last point of the previous edge
+			if (reversed) {
+				int j = first ? starts[1] - 2 : starts[1] - 4;
+				for (; j >= starts[0]; j -= 2) {
+					coords.add(p.getX(polyline[j]), p.getY(polyline[j + 1]));
+				}
+			} else {
+				int j = first ? starts[0] : starts[0] + 2;
+				for (; j < starts[1]; j += 2) {
+					coords.add(p.getX(polyline[j]), p.getY(polyline[j + 1]));
+				}
 			}
-			if (ln != null) {
-				double sp3x = ltp.getX(ln.x);
-				double sp3y = ltp.getY(ln.y);
-				d31 = v2.set(ax, ay).sub(sp3x, sp3y).normalize();
+		} else {
+			int a = index.getEdgeNode(id, reversed ? 1 : 0);
+			int b = index.getEdgeNode(id, reversed ? 0 : 1);
+			if (first) {
+				coords.add(p.getNodeX(a), p.getNodeY(a));
 			}
+			coords.add(p.getNodeX(b), p.getNodeY(b));
+		}
+	}
+
+	private void finishRun(RenderContext context, Painter g, Path path)
+	{
+		if (isRunAsPath()) {
+			g.draw(path);
+		} else {
+			DoubleArray coords = context.runCoords;
+			g.drawPolyline(coords.getValues(), coords.size() / 2);
+		}
+	}
+
+	/**
+	 * Draw line k of the specified edge with the current paint.
+	 */
+	private void drawSegment(RenderContext context, Painter g, Path path,
+			int id, int k)
+	{
+		if (isCurved()) {
+			drawSegmentCurved(context, g, path, id, k);
+		} else {
+			drawSegmentStraight(context, g, id, k);
+		}
+	}
+
+	private void drawSegmentStraight(RenderContext context, Painter g,
+			int id, int k)
+	{
+		Edge edge = lineNetwork.edges.get(id);
+		ProjectedNodes p = context.projected;
+		int a = index.getEdgeNode(id, 0);
+		int b = index.getEdgeNode(id, 1);
+
+		double ax = p.getNodeX(a);
+		double ay = p.getNodeY(a);
+		double bx = p.getNodeX(b);
+		double by = p.getNodeY(b);
+
+		final int nLines = edge.lines.size();
+		if (nLines == 1) {
+			g.drawLine(ax, ay, bx, by);
+			return;
+		}
 
-			SplineUtil.spline(spline, lax, lay, lbx, lby, d02, d31, f, true);
-			long ta = System.currentTimeMillis();
-			g.draw(spline);
-			long tb = System.currentTimeMillis();
-			durationCurves += tb - ta;
+		SegmentPaintInfo spi = context.segment;
+		spi.set(ax, ay, bx, by, lineWidth * spreadFactor, nLines);
 
-			if (debugTangents) {
-				g.draw(new LineSegment(spline.getP1(), spline.getC1()));
-				g.draw(new LineSegment(spline.getC2(), spline.getP2()));
+		double lax = ax + spi.sx + spi.ndy * k * spi.shift;
+		double lay = ay + spi.sy - spi.ndx * k * spi.shift;
+		double lbx = bx + spi.sx + spi.ndy * k * spi.shift;
+		double lby = by + spi.sy - spi.ndx * k * spi.shift;
+
+		g.drawLine(lax, lay, lbx, lby);
+	}
+
+	private void drawSegmentCurved(RenderContext context, Painter g,
+			Path path, int id, int k)
+	{
+		ProjectedNodes p = context.projected;
+		double[] controls = curveCache.getControlPoints(id);
+		int c = k * 8;
+
+		long ta = System.nanoTime();
+		if (flattenCurves) {
+			double[] coords = curveCache.getPolylines(id);
+			int[] starts = curveCache.getPolylineStarts(id);
+
+			path.reset();
+			int start = starts[k];
+			path.moveTo(p.getX(coords[start]), p.getY(coords[start + 1]));
+			for (int j = start + 2; j < starts[k + 1]; j += 2) {
+				path.lineTo(p.getX(coords[j]), p.getY(coords[j + 1]));
 			}
+			g.draw(path);
+		} else {
+			path.reset();
+			path.moveTo(p.getX(controls[c]), p.getY(controls[c + 1]));
+			path.cubicTo(p.getX(controls[c + 2]), p.getY(controls[c + 3]),
+					p.getX(controls[c + 4]), p.getY(controls[c + 5]),
+					p.getX(controls[c + 6]), p.getY(controls[c + 7]));
+			g.draw(path);
 		}
+		long tb = System.nanoTime();
+		context.durationCurves += tb - ta;
+	}
+
+	private void drawChains(RenderContext context, Painter g,
+			Envelope envelope, int level)
+	{
+		ProjectedNodes p = context.projected;
+		float shift = lineWidth * spreadFactor;
+		/*
+		 * Once parallel lines are less than a pixel apart, they cannot be told
+		 * apart anymore. Bundles are then simplified by drawing only every
+		 * step-th line, spaced further apart so that the bundle keeps its
+		 * width.
+		 */
+		int step = shift >= 1 ? 1 : (int) Math.ceil(1 / shift);
+
+		Path path = context.path(g);
+		List<NetworkLod.Chain> chains = lod.getChains();
+		final int nChains = chains.size();
+		for (int i = 0; i < nChains; i++) {
+			NetworkLod.Chain chain = chains.get(i);
+			if (envelope != null && !envelope.intersects(chain.getEnvelope())) {
+				continue;
+			}
+			double[] coords = chain.getCoords(level);
+			double[] normals = chain.getNormals(level);
+
+			// parallel lines are offset along the averaged vertex normals
+			List<NetworkLine> lines = chain.getLines();
+			final int nDrawn = (lines.size() + step - 1) / step;
+			float nShift = (nDrawn - 1) / 2f;
+			for (int k = 0; k < nDrawn; k++) {
+				NetworkLine line = lines.get(k * step);
+				g.setPaintInfo(lineToPaintForLines[line.line.getId()]);
+
+				double d = (k - nShift) * shift * step;
+				path.reset();
+				path.moveTo(p.getX(coords[0]) + normals[0] * d,
+						p.getY(coords[1]) + normals[1] * d);
+				for (int j = 2; j < coords.length; j += 2) {
+					path.lineTo(p.getX(coords[j]) + normals[j] * d,
+							p.getY(coords[j + 1]) + normals[j + 1] * d);
+				}
+				g.draw(path);
+			}
+		}
+	}
+
+	private void drawLine(RenderContext context, Painter g, double[] coords,
+			int i, int j)
+	{
+		ProjectedNodes p = context.projected;
+		g.drawLine(p.getX(coords[i]), p.getY(coords[i + 1]),
+				p.getX(coords[j]), p.getY(coords[j + 1]));
+	}
+
+	private class DisplayListInvalidator implements LineNetworkListener
+	{
+
+		@Override
+		public void nodeChanged(Node node)
+		{
+			invalidateDisplayList();
+		}
+
+		@Override
+		public void networkChanged()
+		{
+			invalidateDisplayList();
+		}
+
 	}
 
 }
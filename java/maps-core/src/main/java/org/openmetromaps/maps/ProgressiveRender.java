@@ -0,0 +1,204 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.List;
+
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.painting.core.Painter;
+
+import de.topobyte.viewports.geometry.Envelope;
+
+/**
+ * Renders the map of a {@link PlanRenderer} in several passes that can be
+ * spread across multiple calls of {@link #run(Painter, long)}: segments first,
+ * then stations, then the placement of labels. Each call returns after its
+ * time budget has been used up, so that the caller can show the partial
+ * result and handle input in between. Labels are only placed, not drawn;
+ * they need to be painted with {@link PlanRenderer#paintLabels(Painter)} on
+ * top of the result once the render has finished.
+ *
+ * A render becomes cancelled as soon as the viewport or the rendering
+ * options of the renderer change, see {@link PlanRenderer#getGeneration()}.
+ */
+public class ProgressiveRender
+{
+
+	public static enum Pass {
+		SEGMENTS,
+		STATIONS,
+		LABELS,
+		DONE
+	}
+
+	// number of items drawn between checks of the time budget
+	private static final int CHUNK_SIZE = 256;
+
+	private PlanRenderer renderer;
+	private RenderContext context;
+	private int generation;
+	private int lodLevel;
+	// runs are drawn once per render, not once per chunk
+	private LineRuns.Runs runs;
+	private boolean cancelled = false;
+
+	private Pass pass = Pass.SEGMENTS;
+	private int position = 0;
+	private IntArray chunk = new IntArray(CHUNK_SIZE);
+	private IntArray labelOrder = null;
+
+	/**
+	 * @param context
+	 *            a context reserved for this render until it is finished.
+	 * @param region
+	 *            the region of the scene to render.
+	 */
+	public ProgressiveRender(PlanRenderer renderer, RenderContext context,
+			Envelope region)
+	{
+		this.renderer = renderer;
+		this.context = context;
+		generation = renderer.getGeneration();
+		lodLevel = renderer.getLodLevel();
+		renderer.queryVisible(context, region);
+		renderer.project(context);
+		runs = renderer.resetRuns(context);
+	}
+
+	public Pass getPass()
+	{
+		return pass;
+	}
+
+	public boolean isDone()
+	{
+		return pass == Pass.DONE;
+	}
+
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	public boolean isCancelled()
+	{
+		if (!cancelled && generation != renderer.getGeneration()) {
+			cancelled = true;
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Continue rendering until all passes are done or the time budget has been
+	 * used up. At least one chunk of work is done per call.
+	 *
+	 * @return true if all passes are done.
+	 */
+	public boolean run(Painter g, long budgetNanos)
+	{
+		long deadline = System.nanoTime() + budgetNanos;
+		while (pass != Pass.DONE) {
+			if (isCancelled()) {
+				return false;
+			}
+			step(g);
+			if (System.nanoTime() - deadline >= 0) {
+				break;
+			}
+		}
+		return pass == Pass.DONE;
+	}
+
+	private void step(Painter g)
+	{
+		switch (pass) {
+		default:
+		case DONE:
+			return;
+		case SEGMENTS:
+			if (lodLevel >= 0) {
+				// the simplified chains are cheap, draw them at once
+				renderer.drawSegments(context, g, context.visibleEdges,
+						lodLevel, runs);
+				next(Pass.STATIONS);
+			} else if (nextChunk(context.visibleEdges)) {
+				renderer.drawSegments(context, g, chunk, lodLevel, runs);
+			} else {
+				next(Pass.STATIONS);
+			}
+			return;
+		case STATIONS:
+			if (nextChunk(context.visibleNodes)) {
+				renderer.drawStations(context, g, chunk, lodLevel);
+			} else {
+				next(Pass.LABELS);
+			}
+			return;
+		case LABELS:
+			if (labelOrder == null) {
+				labelOrder = byRank(context.visibleNodes);
+			}
+			// chunks in order of rank keep the placement close to placing all
+			// labels at once
+			if (nextChunk(labelOrder)) {
+				renderer.placeLabels(context, g, chunk);
+			} else {
+				next(Pass.DONE);
+			}
+			return;
+		}
+	}
+
+	private void next(Pass pass)
+	{
+		this.pass = pass;
+		position = 0;
+	}
+
+	private boolean nextChunk(IntArray items)
+	{
+		int size = items.size();
+		if (position >= size) {
+			return false;
+		}
+		int end = Math.min(size, position + CHUNK_SIZE);
+		chunk.clear();
+		for (int i = position; i < end; i++) {
+			chunk.add(items.get(i));
+		}
+		position = end;
+		return true;
+	}
+
+	private IntArray byRank(IntArray nodes)
+	{
+		List<Node> networkNodes = renderer.getLineNetwork().nodes;
+		// negated, so that higher ranks come first
+		int[] ranks = new int[networkNodes.size()];
+		final int nNodes = nodes.size();
+		IntArray result = new IntArray(nNodes);
+		for (int i = 0; i < nNodes; i++) {
+			int id = nodes.get(i);
+			ranks[id] = -networkNodes.get(id).rank;
+			result.add(id);
+		}
+		result.sort(ranks);
+		return result;
+	}
+
+}
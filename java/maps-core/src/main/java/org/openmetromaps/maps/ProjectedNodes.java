@@ -0,0 +1,138 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import de.topobyte.lightgeom.lina.Point;
+
+/**
+ * The view coordinates of the nodes of a network, stored as (x, y) pairs in a
+ * flat array indexed by node id. A node is usually accessed several times
+ * while painting a frame: once for each incident edge, for its station symbol
+ * and for its label. Each node is projected from the scene coordinates kept by
+ * the {@link NetworkIndex} on its first access after the projection changed,
+ * which replaces the repeated calls through {@link LocationToPoint} with
+ * array reads. Nodes that are not painted are not projected at all, so
+ * panning does not cost time proportional to the size of the network.
+ *
+ * Arbitrary locations can be projected through this class as well, which only
+ * takes a multiplication and an addition per coordinate.
+ */
+public class ProjectedNodes implements LocationToPoint
+{
+
+	private double[] scene = new double[0];
+	private double[] coords = new double[0];
+	// the frame each node has last been projected in
+	private int[] frames = new int[0];
+	private int frame = 0;
+
+	private double scaleX = 1;
+	private double scaleY = 1;
+	private double dx = 0;
+	private double dy = 0;
+
+	// the index and its version the coordinates have been computed for
+	private NetworkIndex index = null;
+	private int version = -1;
+
+	/**
+	 * Use the specified projection for the nodes of the specified index. All
+	 * nodes projected so far are invalidated, unless neither the network nor
+	 * the projection changed since the last call.
+	 *
+	 * @param ltp
+	 *            the projection to use, which must consist of scaling and
+	 *            translation only.
+	 */
+	public void update(NetworkIndex index, LocationToPoint ltp)
+	{
+		double x0 = ltp.getX(0);
+		double y0 = ltp.getY(0);
+		double sx = ltp.getX(1) - x0;
+		double sy = ltp.getY(1) - y0;
+
+		if (index == this.index && index.getVersion() == version
+				&& sx == scaleX && sy == scaleY && x0 == dx && y0 == dy) {
+			return;
+		}
+
+		this.index = index;
+		version = index.getVersion();
+		scaleX = sx;
+		scaleY = sy;
+		dx = x0;
+		dy = y0;
+
+		scene = index.getNodeCoords();
+		final int n = scene.length;
+		if (coords.length < n) {
+			coords = new double[n];
+			frames = new int[n / 2];
+			frame = 0;
+		}
+		frame++;
+	}
+
+	private void project(int node)
+	{
+		if (frames[node] == frame) {
+			return;
+		}
+		frames[node] = frame;
+		int i = node * 2;
+		coords[i] = scene[i] * scaleX + dx;
+		coords[i + 1] = scene[i + 1] * scaleY + dy;
+	}
+
+	public double getNodeX(int node)
+	{
+		project(node);
+		return coords[node * 2];
+	}
+
+	public double getNodeY(int node)
+	{
+		project(node);
+		return coords[node * 2 + 1];
+	}
+
+	@Override
+	public Point getPoint(Point location)
+	{
+		return new Point(getX(location.x), getY(location.y));
+	}
+
+	@Override
+	public Point getPoint(Point location, Point point)
+	{
+		return point.set(getX(location.x), getY(location.y));
+	}
+
+	@Override
+	public double getX(double x)
+	{
+		return x * scaleX + dx;
+	}
+
+	@Override
+	public double getY(double y)
+	{
+		return y * scaleY + dy;
+	}
+
+}
@@ -0,0 +1,150 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+import de.topobyte.viewports.geometry.Envelope;
+
+/**
+ * Holds the mutable scratch state needed while painting with a
+ * {@link PlanRenderer} and its station drawers. A context must only be used by
+ * one thread at a time. Threads that each use their own context can paint
+ * with the same renderer concurrently, as long as the network and the
+ * renderer's settings are not modified meanwhile.
+ *
+ * Reusing a context across frames avoids allocations while painting once the
+ * arrays within have grown to the required size.
+ */
+public class RenderContext
+{
+
+	// the visible region and the region used for querying the index
+	final Envelope viewEnvelope = new Envelope();
+	final Envelope queryEnvelope = new Envelope();
+
+	// node coordinates in view space
+	final ProjectedNodes projected = new ProjectedNodes();
+
+	// results of index queries
+	final IntArray visibleEdges = new IntArray();
+	final IntArray visibleNodes = new IntArray();
+	// the envelope used for querying, null if everything is visible
+	Envelope visibleEnvelope = null;
+
+	// labels to display and their widths
+	final IntArray labels = new IntArray();
+	final IntArray labelWidths = new IntArray();
+
+	// segments
+	final SegmentPaintInfo segment = new SegmentPaintInfo();
+	final IntArray drawOrder = new IntArray();
+	final IntArray drawnEdges = new IntArray();
+	private IntArray[] paintGroups = new IntArray[0];
+	// marks for runs already drawn, valid for entries equal to the current
+	// mark
+	private int[] runMarks = new int[0];
+	private int mark = 0;
+	final DoubleArray runCoords = new DoubleArray(256);
+	final SegmentEndPointPaintInfo spiA = new SegmentEndPointPaintInfo();
+	final SegmentEndPointPaintInfo spiB = new SegmentEndPointPaintInfo();
+
+	// EdgeUtil
+	final Point lpp = new Point(0, 0);
+	final Point lnp = new Point(0, 0);
+	final Vector2 ev1 = new Vector2(0, 0);
+	final Vector2 ev2 = new Vector2(0, 0);
+
+	// stations
+	final SegmentEndPointPool spiPool = new SegmentEndPointPool();
+	final List<List<NetworkLine>> doneLines = new ArrayList<>();
+
+	// a path created by the painter last passed to path()
+	private Painter pathPainter = null;
+	private Path path = null;
+
+	// overlay
+	final IntArray overlayNodes = new IntArray();
+	final DoubleArray overlayCoords = new DoubleArray(256);
+
+	// statistics, in nanoseconds
+	long durationCurves = 0;
+
+	/**
+	 * Get a path for drawing with the specified painter. The path is shared
+	 * by all drawing operations that use this context.
+	 */
+	Path path(Painter g)
+	{
+		if (g != pathPainter) {
+			path = g.createPath();
+			pathPainter = g;
+		}
+		return path;
+	}
+
+	/**
+	 * Get n empty arrays for grouping draw calls by paint.
+	 */
+	IntArray[] paintGroups(int n)
+	{
+		if (paintGroups.length != n) {
+			paintGroups = new IntArray[n];
+			for (int i = 0; i < n; i++) {
+				paintGroups[i] = new IntArray();
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			paintGroups[i].clear();
+		}
+		return paintGroups;
+	}
+
+	/**
+	 * Invalidate all marks of runs.
+	 */
+	void resetMarks(int nRuns)
+	{
+		if (runMarks.length < nRuns) {
+			runMarks = new int[nRuns];
+		}
+		mark++;
+	}
+
+	/**
+	 * Mark the specified run.
+	 *
+	 * @return false if the run had already been marked.
+	 */
+	boolean markRun(int run)
+	{
+		if (runMarks[run] == mark) {
+			return false;
+		}
+		runMarks[run] = mark;
+		return true;
+	}
+
+}
@@ -29,8 +29,19 @@ public class SegmentPaintInfo
 	public double ex;
 	public double ey;
 
+	public SegmentPaintInfo()
+	{
+		// empty
+	}
+
 	public SegmentPaintInfo(double ax, double ay, double bx, double by,
 			double shift, int nLines)
+	{
+		set(ax, ay, bx, by, shift, nLines);
+	}
+
+	public void set(double ax, double ay, double bx, double by, double shift,
+			int nLines)
 	{
 		this.shift = shift;
 		double dx = (bx - ax);
@@ -39,7 +50,6 @@ public class SegmentPaintInfo
 		ndx = dx / d;
 		ndy = dy / d;
 		calc(nLines);
-
 	}
 
 	private void calc(int nLines)
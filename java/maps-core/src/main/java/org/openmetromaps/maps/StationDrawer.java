@@ -24,8 +24,15 @@ import org.openmetromaps.maps.painting.core.geom.Path;
 public interface StationDrawer
 {
 
-	public void drawStation(Painter g, Node node, Path path, boolean selected,
-			boolean renderCenter);
+	/**
+	 * Called with the ids of the nodes that are about to be drawn, before any
+	 * of them is passed to
+	 * {@link #drawStation(RenderContext, Painter, int, Node, Path, boolean, boolean)}.
+	 */
+	public void prepare(IntArray nodes);
+
+	public void drawStation(RenderContext context, Painter g, int id,
+			Node node, Path path, boolean selected, boolean renderCenter);
 
 	public void zoomChanged(float factor, float lineWidth);
 
@@ -17,13 +17,8 @@
 
 package org.openmetromaps.maps;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
-import org.openmetromaps.maps.graph.Edge;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.NetworkLine;
 import org.openmetromaps.maps.graph.Node;
@@ -35,37 +30,23 @@ import org.openmetromaps.maps.painting.core.Join;
 import org.openmetromaps.maps.painting.core.PaintFactory;
 import org.openmetromaps.maps.painting.core.PaintType;
 import org.openmetromaps.maps.painting.core.Painter;
-import org.openmetromaps.maps.painting.core.geom.LineSegment;
 import org.openmetromaps.maps.painting.core.geom.Path;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import de.topobyte.formatting.Formatting;
-import de.topobyte.lightgeom.convexhull.PointArray;
-import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.lightgeom.lina.Vector2;
 
 public class StationDrawerConvex extends AbstractStationDrawer
 {
 
-	static final Logger logger = LoggerFactory
-			.getLogger(StationDrawerConvex.class);
-
-	private final static boolean DEBUG = false;
-
-	private ColorCode debugBlack = new ColorCode(0xaa000000, true);
-	private ColorCode debugWhite = new ColorCode(0xaaffffff, true);
-	private ColorCode debugRed = new ColorCode(0xaaff0000, true);
 	private ColorCode debugBlue = new ColorCode(0xaa0000ff, true);
-	private ColorCode debugGreen = new ColorCode(0xaa00ff00, true);
 
 	protected IPaintInfo paintDebug;
 
+	private StationTopology topology;
+
 	public StationDrawerConvex(PaintFactory pf, LineNetwork data,
 			Map<NetworkLine, ColorCode> colors, float scale,
-			LocationToPoint ltp, float spreadFactor)
+			LocationToPoint ltp, float spreadFactor, StationTopology topology)
 	{
 		super(pf, data, colors, scale, ltp, spreadFactor);
+		this.topology = topology;
 
 		paintDebug = pf.create(Colors.WHITE);
 		paintDebug.setCap(Cap.ROUND);
@@ -73,183 +54,50 @@ public class StationDrawerConvex extends AbstractStationDrawer
 		paintDebug.setStyle(PaintType.STROKE);
 	}
 
-	private Vector2 da = new Vector2(0, 0);
-	private Vector2 db = new Vector2(0, 0);
-	private Vector2 m = new Vector2(0, 0);
-
-	private Vector2 wa = new Vector2(0, 0);
-	private Vector2 wb = new Vector2(0, 0);
-	private Vector2 sa1 = new Vector2(0, 0);
-	private Vector2 sa2 = new Vector2(0, 0);
-	private Vector2 sb1 = new Vector2(0, 0);
-	private Vector2 sb2 = new Vector2(0, 0);
-
-	private Point p1 = new Point(0, 0);
-	private Point p2 = new Point(0, 0);
-	private Point p3 = new Point(0, 0);
-	private Point p4 = new Point(0, 0);
-
-	private List<List<NetworkLine>> done = new ArrayList<>();
-	private PointArray coords = new PointArray();
-	private List<SegmentEndPointPaintInfo> spis = new ArrayList<>();
-	private List<Edge> skipped = new ArrayList<>();
+	@Override
+	public void prepare(IntArray nodes)
+	{
+		topology.prepare(nodes);
+	}
 
 	@Override
-	public void drawStation(Painter g, Node node, Path path, boolean selected,
-			boolean renderCenter)
+	public void drawStation(RenderContext context, Painter g, int id,
+			Node node, Path path, boolean selected, boolean renderCenter)
 	{
-		Point location = node.location;
-		List<Edge> nodeEdges = node.edges;
+		double px = context.projected.getNodeX(id);
+		double py = context.projected.getNodeY(id);
 
-		Set<NetworkLine> nodeLines = new HashSet<>();
-		for (Edge edge : nodeEdges) {
-			nodeLines.addAll(edge.lines);
-		}
+		// the topology's geometry is in units of the distance between lines
+		double s = lineWidth * spreadFactor;
 
-		if (nodeLines.isEmpty()) {
+		float[] geometry;
+		switch (topology.getKind(id)) {
+		default:
+		case NONE:
 			return;
-		}
-
-		if (nodeLines.size() == 1) {
-			NetworkLine line = nodeLines.iterator().next();
-			int lineId = line.line.getId();
-			IPaintInfo paint = lineToPaintForStations[lineId];
-			double px = ltp.getX(location.x);
-			double py = ltp.getY(location.y);
+		case PUNTAL:
+			IPaintInfo paint = lineToPaintForStations[topology.getLineId(id)];
 			drawSinglePuntal(g, px, py, paint, selected);
 			return;
-		}
-
-		List<Edge> edges = node.edges;
-
-		double px = ltp.getX(location.x);
-		double py = ltp.getY(location.y);
-
-		done.clear();
-		spis.clear();
-		skipped.clear();
-
-		final int nEdges = edges.size();
-		for (int i = 0; i < nEdges; i++) {
-			Edge edge = edges.get(i);
-			List<NetworkLine> lines = edge.lines;
-
-			if (lines.size() == 1) {
-				continue;
-			}
-
-			if (done.contains(lines)) {
-				skipped.add(edge);
-				continue;
-			}
-			done.add(lines);
-
-			SegmentEndPointPaintInfo spi = endpointInfo(edge, node, ltp,
-					lineWidth, spreadFactor, lines.size());
-			spis.add(spi);
-		}
-
-		// Simple stations with only one line
-		if (spis.size() == 0) {
+		case MULTI_PUNTAL:
 			drawMultiPuntal(g, px, py, selected);
 			return;
-		}
-
-		// Stations with multiple lines but all on the the same one or two edges
-		if (spis.size() == 1) {
-			SegmentEndPointPaintInfo spi = spis.get(0);
-			drawLineal(g, path, px, py, spi, selected, renderCenter);
-			spiPool.give(spi);
+		case LINEAL:
+			geometry = topology.getGeometry(id);
+			drawLineal(g, path, px, py, s * geometry[0], s * geometry[1],
+					s * geometry[2], s * geometry[3], selected, renderCenter);
 			return;
+		case CONVEX:
+			geometry = topology.getGeometry(id);
+			break;
 		}
 
-		// Stations with different lines on two edges, but quasi co-linear
-		if (spis.size() == 2) {
-			SegmentEndPointPaintInfo spi1 = spis.get(0);
-			SegmentEndPointPaintInfo spi2 = spis.get(1);
-			da.set(spi1.ndx, spi1.ndy);
-			db.set(spi2.ndx, spi2.ndy);
-
-			double angle = Math.abs(da.dotProduct(db));
-			if (angle > 0.99) {
-				// > ~172 degrees
-				SegmentEndPointPaintInfo spi = spi1.nShift > spi2.nShift ? spi1
-						: spi2;
-				drawLineal(g, path, px, py, spi, selected, renderCenter);
-				spiPool.give(spi1);
-				spiPool.give(spi2);
-				return;
-			}
-		}
-
-		// Stations with multiple lines on edges with different configurations
-
-		// First compute the endpoint info for all previously skipped edges
-		final int nSkipped = skipped.size();
-		for (int k = 0; k < nSkipped; k++) {
-			Edge edge = skipped.get(k);
-			List<NetworkLine> lines = edge.lines;
-
-			if (lines.size() == 1) {
-				continue;
-			}
-
-			SegmentEndPointPaintInfo spi = endpointInfo(edge, node, ltp,
-					lineWidth, spreadFactor, lines.size());
-			spis.add(spi);
-		}
-
-		m.set(px, py);
-
-		// Add corners of the edge to the convex hull
-		coords.clear();
-
-		final int nSpis = spis.size();
-		for (int i = 0; i < nSpis; i++) {
-			SegmentEndPointPaintInfo spi = spis.get(i);
-
-			coords.add((float) (px + spi.sx), (float) (py + spi.sy));
-			coords.add((float) (px + spi.ex), (float) (py + spi.ey));
-		}
-
-		// Add intersections of rays
-		for (int i = 0; i < nSpis - 1; i++) {
-			for (int j = i + 1; j < nSpis; j++) {
-				SegmentEndPointPaintInfo spi1 = spis.get(i);
-				SegmentEndPointPaintInfo spi2 = spis.get(j);
-
-				da.set(spi1.ndx, spi1.ndy);
-				db.set(spi2.ndx, spi2.ndy);
-
-				double angle = da.dotProduct(db);
-				if (angle > 0.7071) {
-					// less than ~90 degrees
-					continue;
-				}
-
-				wa.set(spi1.sx, spi1.sy);
-				wb.set(spi2.sx, spi2.sy);
-				sa1.set(m).add(wa);
-				sa2.set(m).sub(wa);
-				sb1.set(m).add(wb);
-				sb2.set(m).sub(wb);
-				Point po1 = rayIntersection(p1, sa1, da, sb1, db);
-				Point po2 = rayIntersection(p2, sa1, da, sb2, db);
-				Point po3 = rayIntersection(p3, sa2, da, sb1, db);
-				Point po4 = rayIntersection(p4, sa2, da, sb2, db);
-				addIfNonNull(coords, po1);
-				addIfNonNull(coords, po2);
-				addIfNonNull(coords, po3);
-				addIfNonNull(coords, po4);
-			}
+		path.reset();
+		path.moveTo(px + s * geometry[0], py + s * geometry[1]);
+		for (int i = 2; i < geometry.length; i += 2) {
+			path.lineTo(px + s * geometry[i], py + s * geometry[i + 1]);
 		}
 
-		logger.info(Formatting.format("Station (%d edges): %s", spis.size(),
-				node.station.getName()));
-
-		logger.info("number of points: " + coords.numPoints());
-		hull(path, coords);
-
 		if (selected) {
 			g.setPaintInfo(paintSelectedStationsStrokeOutline);
 		} else {
@@ -267,29 +115,12 @@ public class StationDrawerConvex extends AbstractStationDrawer
 
 		if (DEBUG) {
 			paintDebug.setWidth(2);
-
 			paintDebug.setColor(debugBlue);
 			g.setPaintInfo(paintDebug);
-			final int nPoints = coords.numPoints();
-			for (int i = 0; i < nPoints; i++) {
-				g.draw(new LineSegment(m.x, m.y, coords.getX(i),
-						coords.getY(i)));
+			for (int i = 0; i < geometry.length; i += 2) {
+				g.drawLine(px, py, px + s * geometry[i],
+						py + s * geometry[i + 1]);
 			}
-
-			paintDebug.setColor(debugBlack);
-			g.setPaintInfo(paintDebug);
-			for (int i = 0; i < nSpis; i++) {
-				SegmentEndPointPaintInfo spi = spis.get(i);
-
-				Point p1 = new Point(px + spi.sx, py + spi.sy);
-				Point p2 = new Point(px + spi.ex, py + spi.ey);
-
-				g.draw(new LineSegment(p1, p2));
-			}
-		}
-
-		for (int i = 0; i < nSpis; i++) {
-			spiPool.give(spis.get(i));
 		}
 	}
 
@@ -32,7 +32,6 @@ import org.openmetromaps.maps.painting.core.geom.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.topobyte.lightgeom.lina.Point;
 
 public class StationDrawerDot extends AbstractStationDrawer
 {
@@ -48,14 +47,13 @@ public class StationDrawerDot extends AbstractStationDrawer
 	}
 
 	@Override
-	public void drawStation(Painter g, Node node, Path path, boolean selected,
-			boolean renderCenter)
+	public void drawStation(RenderContext context, Painter g, int id,
+			Node node, Path path, boolean selected, boolean renderCenter)
 	{
 		List<Stop> stops = node.station.getStops();
-		Point location = node.location;
 
-		double px = ltp.getX(location.x);
-		double py = ltp.getY(location.y);
+		double px = context.projected.getNodeX(id);
+		double py = context.projected.getNodeY(id);
 
 		if (stops.size() == 1) {
 			Stop stop = stops.get(0);
@@ -17,7 +17,6 @@
 
 package org.openmetromaps.maps;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -34,7 +33,6 @@ import org.openmetromaps.maps.painting.core.geom.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.topobyte.lightgeom.lina.Point;
 
 public class StationDrawerSimple extends AbstractStationDrawer
 {
@@ -50,17 +48,16 @@ public class StationDrawerSimple extends AbstractStationDrawer
 	}
 
 	@Override
-	public void drawStation(Painter g, Node node, Path path, boolean selected,
-			boolean renderCenter)
+	public void drawStation(RenderContext context, Painter g, int id,
+			Node node, Path path, boolean selected, boolean renderCenter)
 	{
 		List<Stop> stops = node.station.getStops();
-		Point location = node.location;
 
 		if (stops.size() == 1) {
 			Stop stop = stops.get(0);
 			IPaintInfo paint = lineToPaintForStations[stop.getLine().getId()];
-			double px = ltp.getX(location.x);
-			double py = ltp.getY(location.y);
+			double px = context.projected.getNodeX(id);
+			double py = context.projected.getNodeY(id);
 			drawSinglePuntal(g, px, py, paint, selected);
 			return;
 		}
@@ -69,13 +66,16 @@ public class StationDrawerSimple extends AbstractStationDrawer
 
 		boolean moreThanDot = false;
 
-		List<List<NetworkLine>> done = new ArrayList<>();
+		List<List<NetworkLine>> done = context.doneLines;
+		done.clear();
 
-		double px = ltp.getX(location.x);
-		double py = ltp.getY(location.y);
+		double px = context.projected.getNodeX(id);
+		double py = context.projected.getNodeY(id);
 
 		path.reset();
-		for (Edge edge : edges) {
+		final int nEdges = edges.size();
+		for (int i = 0; i < nEdges; i++) {
+			Edge edge = edges.get(i);
 			List<NetworkLine> lines = edge.lines;
 			moreThanDot |= lines.size() > 1;
 
@@ -83,18 +83,18 @@ public class StationDrawerSimple extends AbstractStationDrawer
 				continue;
 			}
 
-			if (done.contains(lines)) {
+			if (contains(done, lines)) {
 				continue;
 			}
 			done.add(lines);
 
-			SegmentEndPointPaintInfo spi = endpointInfo(edge, node, ltp,
-					lineWidth, spreadFactor, lines.size());
+			SegmentEndPointPaintInfo spi = endpointInfo(context, edge, node,
+					context.projected, lineWidth, spreadFactor, lines.size());
 
 			path.moveTo(px + spi.sx, py + spi.sy);
 			path.lineTo(px + spi.ex, py + spi.ey);
 
-			spiPool.give(spi);
+			context.spiPool.give(spi);
 		}
 
 		if (moreThanDot) {
@@ -114,4 +114,33 @@ public class StationDrawerSimple extends AbstractStationDrawer
 		}
 	}
 
+	/**
+	 * Check whether the list contains a list of lines equal to the specified
+	 * one, without the iterators that {@link List#contains(Object)} uses.
+	 */
+	private static boolean contains(List<List<NetworkLine>> lists,
+			List<NetworkLine> lines)
+	{
+		for (int i = 0; i < lists.size(); i++) {
+			if (equal(lists.get(i), lines)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean equal(List<NetworkLine> a, List<NetworkLine> b)
+	{
+		final int n = a.size();
+		if (b.size() != n) {
+			return false;
+		}
+		for (int k = 0; k < n; k++) {
+			if (!a.get(k).equals(b.get(k))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
@@ -0,0 +1,384 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkListener;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.convexhull.ConvexHull;
+import de.topobyte.lightgeom.convexhull.PointArray;
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+
+/**
+ * Caches the shape of each station as drawn by {@link StationDrawerConvex}.
+ *
+ * The shape of a station only depends on the lines of its edges and on the
+ * directions towards its neighbors. All offsets are multiples of the distance
+ * between parallel lines, so the geometry is stored in units of that distance
+ * relative to the station's location and only needs to be scaled and
+ * translated when drawing. Entries are computed lazily and invalidated for
+ * the stations around a changed node.
+ */
+public class StationTopology implements LineNetworkListener
+{
+
+	public static enum Kind {
+		// no lines at all
+		NONE,
+		// a single line
+		PUNTAL,
+		// multiple lines, but no edge with more than one line
+		MULTI_PUNTAL,
+		// a line segment perpendicular to the lines
+		LINEAL,
+		// a convex polygon
+		CONVEX
+	}
+
+	private LineNetwork lineNetwork;
+
+	private Map<Node, Integer> nodeIds = new HashMap<>();
+	private Kind[] kinds;
+	private int[] lineIds;
+	// (sx, sy, ex, ey) for lineal stations, the hull's vertices for convex
+	private float[][] geometry;
+
+	private RenderContext context = new RenderContext();
+	private ConvexHull convexHull = new ConvexHull();
+	private Set<NetworkLine> nodeLines = new HashSet<>();
+	private List<List<NetworkLine>> done = new ArrayList<>();
+	private List<SegmentEndPointPaintInfo> spis = new ArrayList<>();
+	private List<Edge> skipped = new ArrayList<>();
+	private PointArray coords = new PointArray();
+
+	private Vector2 da = new Vector2(0, 0);
+	private Vector2 db = new Vector2(0, 0);
+	private Vector2 wa = new Vector2(0, 0);
+	private Vector2 wb = new Vector2(0, 0);
+	private Vector2 sa1 = new Vector2(0, 0);
+	private Vector2 sa2 = new Vector2(0, 0);
+	private Vector2 sb1 = new Vector2(0, 0);
+	private Vector2 sb2 = new Vector2(0, 0);
+	private Point p = new Point(0, 0);
+
+	public StationTopology(LineNetwork lineNetwork)
+	{
+		this.lineNetwork = lineNetwork;
+		build();
+	}
+
+	private void build()
+	{
+		List<Node> nodes = lineNetwork.nodes;
+		final int nNodes = nodes.size();
+
+		nodeIds.clear();
+		for (int i = 0; i < nNodes; i++) {
+			nodeIds.put(nodes.get(i), i);
+		}
+
+		kinds = new Kind[nNodes];
+		lineIds = new int[nNodes];
+		geometry = new float[nNodes][];
+	}
+
+	/**
+	 * Make sure that the shapes of the specified nodes are available. After
+	 * this method returned, the getters may be used for these nodes from the
+	 * calling thread until the network changes.
+	 */
+	public synchronized void prepare(IntArray nodes)
+	{
+		final int n = nodes.size();
+		for (int i = 0; i < n; i++) {
+			int id = nodes.get(i);
+			if (kinds[id] == null) {
+				compute(id);
+			}
+		}
+	}
+
+	public Kind getKind(int node)
+	{
+		return kinds[node];
+	}
+
+	/**
+	 * Get the id of the line of a {@link Kind#PUNTAL} station.
+	 */
+	public int getLineId(int node)
+	{
+		return lineIds[node];
+	}
+
+	/**
+	 * Get the geometry of a {@link Kind#LINEAL} or {@link Kind#CONVEX}
+	 * station, as a sequence of (x, y) offsets from the station's location in
+	 * units of the distance between parallel lines.
+	 */
+	public float[] getGeometry(int node)
+	{
+		return geometry[node];
+	}
+
+	private void compute(int id)
+	{
+		Node node = lineNetwork.nodes.get(id);
+		geometry[id] = null;
+
+		nodeLines.clear();
+		for (Edge edge : node.edges) {
+			nodeLines.addAll(edge.lines);
+		}
+
+		if (nodeLines.isEmpty()) {
+			kinds[id] = Kind.NONE;
+			return;
+		}
+
+		if (nodeLines.size() == 1) {
+			kinds[id] = Kind.PUNTAL;
+			lineIds[id] = nodeLines.iterator().next().line.getId();
+			return;
+		}
+
+		done.clear();
+		spis.clear();
+		skipped.clear();
+
+		List<Edge> edges = node.edges;
+		final int nEdges = edges.size();
+		for (int i = 0; i < nEdges; i++) {
+			Edge edge = edges.get(i);
+			List<NetworkLine> lines = edge.lines;
+
+			if (lines.size() == 1) {
+				continue;
+			}
+
+			if (done.contains(lines)) {
+				skipped.add(edge);
+				continue;
+			}
+			done.add(lines);
+
+			spis.add(endpointInfo(edge, node));
+		}
+
+		if (spis.size() == 0) {
+			kinds[id] = Kind.MULTI_PUNTAL;
+			return;
+		}
+
+		if (spis.size() == 1) {
+			lineal(id, spis.get(0));
+			release();
+			return;
+		}
+
+		// Different lines on two edges, but quasi co-linear
+		if (spis.size() == 2) {
+			SegmentEndPointPaintInfo spi1 = spis.get(0);
+			SegmentEndPointPaintInfo spi2 = spis.get(1);
+			da.set(spi1.ndx, spi1.ndy);
+			db.set(spi2.ndx, spi2.ndy);
+
+			double angle = Math.abs(da.dotProduct(db));
+			if (angle > 0.99) {
+				// > ~172 degrees
+				lineal(id, spi1.nShift > spi2.nShift ? spi1 : spi2);
+				release();
+				return;
+			}
+		}
+
+		// Compute the endpoint info for all previously skipped edges
+		final int nSkipped = skipped.size();
+		for (int k = 0; k < nSkipped; k++) {
+			spis.add(endpointInfo(skipped.get(k), node));
+		}
+
+		convex(id);
+		release();
+	}
+
+	private SegmentEndPointPaintInfo endpointInfo(Edge edge, Node node)
+	{
+		// compute with a distance of 1 between lines, relative to the node
+		Point locationA = edge.n1.location;
+		Point locationB = edge.n2.location;
+		Point origin = node.location;
+
+		double ax = locationA.x - origin.x;
+		double ay = locationA.y - origin.y;
+		double bx = locationB.x - origin.x;
+		double by = locationB.y - origin.y;
+
+		int nLines = edge.lines.size();
+		SegmentEndPointPaintInfo spi = context.spiPool.get();
+		if (edge.n2 != node) {
+			Point lp = relative(edge.prev, origin);
+			EdgeUtil.endpointInfo(context, spi, ax, ay, bx, by, lp, IDENTITY,
+					1, 1, nLines);
+		} else {
+			Point ln = relative(edge.next, origin);
+			EdgeUtil.endpointInfo(context, spi, bx, by, ax, ay, ln, IDENTITY,
+					1, 1, nLines);
+		}
+		return spi;
+	}
+
+	private Point relative(Point location, Point origin)
+	{
+		if (location == null) {
+			return null;
+		}
+		p.setX(location.x - origin.x);
+		p.setY(location.y - origin.y);
+		return p;
+	}
+
+	private void release()
+	{
+		for (SegmentEndPointPaintInfo spi : spis) {
+			context.spiPool.give(spi);
+		}
+		spis.clear();
+	}
+
+	private void lineal(int id, SegmentEndPointPaintInfo spi)
+	{
+		kinds[id] = Kind.LINEAL;
+		geometry[id] = new float[] { (float) spi.sx, (float) spi.sy,
+				(float) spi.ex, (float) spi.ey };
+	}
+
+	private void convex(int id)
+	{
+		coords.clear();
+
+		// Add corners of the edges to the convex hull
+		final int nSpis = spis.size();
+		for (int i = 0; i < nSpis; i++) {
+			SegmentEndPointPaintInfo spi = spis.get(i);
+			coords.add((float) spi.sx, (float) spi.sy);
+			coords.add((float) spi.ex, (float) spi.ey);
+		}
+
+		// Add intersections of rays
+		for (int i = 0; i < nSpis - 1; i++) {
+			for (int j = i + 1; j < nSpis; j++) {
+				SegmentEndPointPaintInfo spi1 = spis.get(i);
+				SegmentEndPointPaintInfo spi2 = spis.get(j);
+
+				da.set(spi1.ndx, spi1.ndy);
+				db.set(spi2.ndx, spi2.ndy);
+
+				double angle = da.dotProduct(db);
+				if (angle > 0.7071) {
+					// less than ~90 degrees
+					continue;
+				}
+
+				wa.set(spi1.sx, spi1.sy);
+				wb.set(spi2.sx, spi2.sy);
+				sa1.set(wa);
+				sa2.set(0, 0).sub(wa);
+				sb1.set(wb);
+				sb2.set(0, 0).sub(wb);
+				addRayIntersection(sa1, da, sb1, db);
+				addRayIntersection(sa1, da, sb2, db);
+				addRayIntersection(sa2, da, sb1, db);
+				addRayIntersection(sa2, da, sb2, db);
+			}
+		}
+
+		PointArray hull = convexHull.computePolygon(coords, false);
+		int nPoints = hull.size / 2;
+		float[] polygon = new float[nPoints * 2];
+		for (int i = 0; i < nPoints; i++) {
+			polygon[i * 2] = hull.getX(i);
+			polygon[i * 2 + 1] = hull.getY(i);
+		}
+
+		kinds[id] = Kind.CONVEX;
+		geometry[id] = polygon;
+	}
+
+	private void addRayIntersection(Vector2 as, Vector2 ad, Vector2 bs,
+			Vector2 bd)
+	{
+		double u = (as.y * bd.x + bd.y * bs.x - bs.y * bd.x - bd.y * as.x)
+				/ (ad.x * bd.y - ad.y * bd.x);
+		double v = (as.x + ad.x * u - bs.x) / bd.x;
+		if (u > 0 && v > 0) {
+			coords.add((float) (as.x + ad.x * u), (float) (as.y + ad.y * u));
+		}
+	}
+
+	private void invalidate(Node node)
+	{
+		Integer id = nodeIds.get(node);
+		if (id != null) {
+			kinds[id] = null;
+		}
+	}
+
+	@Override
+	public synchronized void nodeChanged(Node node)
+	{
+		if (!nodeIds.containsKey(node)) {
+			build();
+			return;
+		}
+		/*
+		 * The neighbor locations of all edges connected to the node's
+		 * neighbors may have changed, which affects the shapes at both ends
+		 * of these edges.
+		 */
+		invalidate(node);
+		for (Edge edge : node.edges) {
+			Node neighbor = edge.n1 != node ? edge.n1 : edge.n2;
+			invalidate(neighbor);
+			for (Edge other : neighbor.edges) {
+				invalidate(other.n1);
+				invalidate(other.n2);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void networkChanged()
+	{
+		build();
+	}
+
+	private static final LocationToPoint IDENTITY = new IdentityLocationToPoint();
+
+}
@@ -0,0 +1,49 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+/**
+ * Maps continuous zoom values to a discrete set of levels, spaced evenly on a
+ * logarithmic scale. Cached rendering results can be reused for all zoom
+ * values that fall into the same bucket.
+ */
+public class ZoomBuckets
+{
+
+	public static final int BUCKETS_PER_OCTAVE = 16;
+
+	public static int bucket(double zoom)
+	{
+		return (int) Math
+				.round(Math.log(zoom) / Math.log(2) * BUCKETS_PER_OCTAVE);
+	}
+
+	public static double zoom(int bucket)
+	{
+		return Math.pow(2, bucket / (double) BUCKETS_PER_OCTAVE);
+	}
+
+	/**
+	 * The smallest zoom value that falls into the specified bucket.
+	 */
+	public static double lowerBound(int bucket)
+	{
+		return Math.pow(2, (bucket - 0.5) / BUCKETS_PER_OCTAVE);
+	}
+
+}
@@ -0,0 +1,133 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+/**
+ * A histogram with buckets on a logarithmic scale, bucket i holds values from
+ * 2^(i-1) to 2^i - 1. Recording a value is constant time and does not
+ * allocate.
+ */
+public class Histogram
+{
+
+	private static final int NUM_BUCKETS = 64;
+
+	private long[] buckets = new long[NUM_BUCKETS];
+	private long count = 0;
+	private long sum = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	public Histogram()
+	{
+		// empty
+	}
+
+	public Histogram(Histogram other)
+	{
+		System.arraycopy(other.buckets, 0, buckets, 0, NUM_BUCKETS);
+		count = other.count;
+		sum = other.sum;
+		min = other.min;
+		max = other.max;
+	}
+
+	public void record(long value)
+	{
+		if (value < 0) {
+			value = 0;
+		}
+		int bucket = Math.min(NUM_BUCKETS - 1,
+				64 - Long.numberOfLeadingZeros(value));
+		buckets[bucket]++;
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			buckets[i] = 0;
+		}
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	public long getCount()
+	{
+		return count;
+	}
+
+	public long getSum()
+	{
+		return sum;
+	}
+
+	public long getMin()
+	{
+		return count == 0 ? 0 : min;
+	}
+
+	public long getMax()
+	{
+		return max;
+	}
+
+	public double getMean()
+	{
+		return count == 0 ? 0 : sum / (double) count;
+	}
+
+	/**
+	 * Get an estimate of the specified percentile (between 0 and 1), i.e. the
+	 * upper bound of the bucket that contains it.
+	 */
+	public long getPercentile(double p)
+	{
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(p * count);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += buckets[i];
+			if (seen >= rank && buckets[i] > 0) {
+				long upper = i == 0 ? 0 : (1L << i) - 1;
+				return Math.min(max, upper);
+			}
+		}
+		return max;
+	}
+
+	void toJson(StringBuilder buffer)
+	{
+		buffer.append("{\"count\": ").append(count);
+		buffer.append(", \"min\": ").append(getMin());
+		buffer.append(", \"mean\": ").append(Math.round(getMean()));
+		buffer.append(", \"p50\": ").append(getPercentile(0.5));
+		buffer.append(", \"p95\": ").append(getPercentile(0.95));
+		buffer.append(", \"p99\": ").append(getPercentile(0.99));
+		buffer.append(", \"max\": ").append(max);
+		buffer.append("}");
+	}
+
+}
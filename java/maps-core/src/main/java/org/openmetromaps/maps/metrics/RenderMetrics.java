@@ -0,0 +1,159 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+/**
+ * Collects timings and counts of the render phases of a map. Durations are
+ * recorded in nanoseconds. All methods are synchronized, so that renderers
+ * on different threads can report to the same instance.
+ */
+public class RenderMetrics
+{
+
+	public static enum Phase {
+		FRAME,
+		SEGMENTS,
+		STATIONS,
+		LABELS,
+		CURVES
+	}
+
+	public static enum Counter {
+		EDGES_DRAWN,
+		EDGES_CULLED,
+		NODES_DRAWN,
+		NODES_CULLED,
+		LABELS_DRAWN,
+		BYTES_ALLOCATED
+	}
+
+	private static final int FRAME_HISTORY = 32;
+
+	private Histogram[] phases = new Histogram[Phase.values().length];
+	private long[] counters = new long[Counter.values().length];
+
+	// end times of the most recent frames, used as a ring buffer
+	private long[] frameEnds = new long[FRAME_HISTORY];
+	private long numFrames = 0;
+	private long lastFrameNanos = 0;
+
+	public RenderMetrics()
+	{
+		for (int i = 0; i < phases.length; i++) {
+			phases[i] = new Histogram();
+		}
+	}
+
+	public synchronized void record(Phase phase, long nanos)
+	{
+		phases[phase.ordinal()].record(nanos);
+	}
+
+	public synchronized void count(Counter counter, long value)
+	{
+		counters[counter.ordinal()] += value;
+	}
+
+	/**
+	 * Record a complete frame that started and ended at the specified
+	 * {@link System#nanoTime()} values.
+	 */
+	public synchronized void frame(long start, long end)
+	{
+		lastFrameNanos = end - start;
+		phases[Phase.FRAME.ordinal()].record(lastFrameNanos);
+		frameEnds[(int) (numFrames % FRAME_HISTORY)] = end;
+		numFrames++;
+	}
+
+	public synchronized long getLastFrameNanos()
+	{
+		return lastFrameNanos;
+	}
+
+	/**
+	 * Get the number of frames per second, averaged over the most recent
+	 * frames.
+	 */
+	public synchronized double getFps()
+	{
+		int n = (int) Math.min(numFrames, FRAME_HISTORY);
+		if (n < 2) {
+			return 0;
+		}
+		long last = frameEnds[(int) ((numFrames - 1) % FRAME_HISTORY)];
+		long first = frameEnds[(int) ((numFrames - n) % FRAME_HISTORY)];
+		if (last == first) {
+			return 0;
+		}
+		return (n - 1) * 1e9 / (last - first);
+	}
+
+	/**
+	 * Get a copy of the histogram of the specified phase.
+	 */
+	public synchronized Histogram getHistogram(Phase phase)
+	{
+		return new Histogram(phases[phase.ordinal()]);
+	}
+
+	public synchronized long getCounter(Counter counter)
+	{
+		return counters[counter.ordinal()];
+	}
+
+	public synchronized void reset()
+	{
+		for (Histogram histogram : phases) {
+			histogram.reset();
+		}
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = 0;
+		}
+		numFrames = 0;
+		lastFrameNanos = 0;
+	}
+
+	public synchronized String toJson()
+	{
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("{\n  \"phases\": {");
+		Phase[] phaseValues = Phase.values();
+		for (int i = 0; i < phaseValues.length; i++) {
+			buffer.append(i == 0 ? "\n" : ",\n");
+			buffer.append("    \"").append(key(phaseValues[i])).append("\": ");
+			phases[i].toJson(buffer);
+		}
+		buffer.append("\n  },\n  \"counters\": {");
+		Counter[] counterValues = Counter.values();
+		for (int i = 0; i < counterValues.length; i++) {
+			buffer.append(i == 0 ? "\n" : ",\n");
+			buffer.append("    \"").append(key(counterValues[i]))
+					.append("\": ").append(counters[i]);
+		}
+		buffer.append("\n  },\n  \"fps\": ").append(getFps());
+		buffer.append("\n}\n");
+		return buffer.toString();
+	}
+
+	private static String key(Enum<?> value)
+	{
+		return value.name().toLowerCase();
+	}
+
+}
@@ -27,6 +27,8 @@ public class GenericPaintInfo implements IPaintInfo
 	private int fontSize;
 	private PaintType type;
 
+	private volatile Object backendObject = null;
+
 	public GenericPaintInfo()
 	{
 		// empty
@@ -71,6 +73,7 @@ public class GenericPaintInfo implements IPaintInfo
 	public void setWidth(float width)
 	{
 		this.width = width;
+		backendObject = null;
 	}
 
 	public ColorCode getColor()
@@ -82,6 +85,7 @@ public class GenericPaintInfo implements IPaintInfo
 	public void setColor(ColorCode color)
 	{
 		this.color = color;
+		backendObject = null;
 	}
 
 	public Cap getCap()
@@ -93,6 +97,7 @@ public class GenericPaintInfo implements IPaintInfo
 	public void setCap(Cap cap)
 	{
 		this.cap = cap;
+		backendObject = null;
 	}
 
 	public Join getJoin()
@@ -104,6 +109,7 @@ public class GenericPaintInfo implements IPaintInfo
 	public void setJoin(Join join)
 	{
 		this.join = join;
+		backendObject = null;
 	}
 
 	public int getFontSize()
@@ -115,6 +121,21 @@ public class GenericPaintInfo implements IPaintInfo
 	public void setFontSize(int fontSize)
 	{
 		this.fontSize = fontSize;
+		backendObject = null;
+	}
+
+	/**
+	 * Get the object that a painter derived from this paint info, if any. It
+	 * is discarded whenever one of the properties is changed.
+	 */
+	public Object getBackendObject()
+	{
+		return backendObject;
+	}
+
+	public void setBackendObject(Object backendObject)
+	{
+		this.backendObject = backendObject;
 	}
 
 	@Override
@@ -132,6 +153,7 @@ public class GenericPaintInfo implements IPaintInfo
 	public void setStyle(PaintType type)
 	{
 		this.type = type;
+		backendObject = null;
 	}
 
 }
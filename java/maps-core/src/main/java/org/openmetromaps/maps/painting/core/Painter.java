@@ -43,6 +43,18 @@ public interface Painter
 
 	public void drawLine(double x1, double y1, double x2, double y2);
 
+	/**
+	 * Draw a polyline through the first n points of the specified (x, y)
+	 * pairs.
+	 */
+	public void drawPolyline(double[] coords, int n);
+
+	/**
+	 * Draw n circles with the same radius around the first n points of the
+	 * specified (x, y) pairs.
+	 */
+	public void drawCircles(double[] centers, int n, double radius);
+
 	public void drawString(String string, float x, float y);
 
 	public void outlineString(String string, float x, float y);
@@ -0,0 +1,509 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.displaylist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.DoubleArray;
+import org.openmetromaps.maps.IntArray;
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Circle;
+import org.openmetromaps.maps.painting.core.geom.LineSegment;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.lightgeom.curves.spline.CubicSpline;
+import de.topobyte.lightgeom.curves.spline.QuadraticSpline;
+import de.topobyte.viewports.geometry.Envelope;
+
+/**
+ * A {@link Painter} that records all drawing commands so that they can be
+ * replayed to another painter later on, optionally scaled and translated.
+ *
+ * Commands are stored as a stream of opcodes, with their coordinates in a
+ * separate array of doubles. Paint objects are stored in a table and are
+ * referenced by index; they are not copied, so modifications of a paint after
+ * recording become visible on replay. Quadratic curves are stored as
+ * equivalent cubic curves.
+ *
+ * The bounding box of each drawing command is stored as well, so that a
+ * replay can skip commands outside of a clip region. Boxes cover the recorded
+ * coordinates and radii, not the width of strokes. Strings are never skipped.
+ */
+public class DisplayList implements Painter
+{
+
+	private static final int OP_PAINT = 0;
+	private static final int OP_LINE = 1;
+	private static final int OP_CIRCLE = 2;
+	private static final int OP_CUBIC = 3;
+	private static final int OP_PATH = 4;
+	private static final int OP_STRING = 5;
+	private static final int OP_OUTLINE_STRING = 6;
+	private static final int OP_POLYLINE = 7;
+	private static final int OP_CIRCLES = 8;
+
+	private Painter metrics;
+
+	private IntArray ops = new IntArray(256);
+	private DoubleArray coords = new DoubleArray(1024);
+
+	private List<IPaintInfo> paints = new ArrayList<>();
+	private Map<IPaintInfo, Integer> paintIndices = new HashMap<>();
+	private List<String> strings = new ArrayList<>();
+	// min x, min y, max x, max y for each command other than paint changes
+	private DoubleArray bounds = new DoubleArray(1024);
+
+	private int numCommands = 0;
+
+	// transformed coordinates of batched primitives during replay
+	private double[] replayCoords = new double[64];
+
+	public DisplayList()
+	{
+		this(null);
+	}
+
+	/**
+	 * @param metrics
+	 *            a painter used to answer {@link #getStringWidth(String)}
+	 *            during recording, may be null if no text is recorded.
+	 */
+	public DisplayList(Painter metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	public void clear()
+	{
+		ops.clear();
+		coords.clear();
+		paints.clear();
+		paintIndices.clear();
+		strings.clear();
+		bounds.clear();
+		numCommands = 0;
+	}
+
+	public int getNumCommands()
+	{
+		return numCommands;
+	}
+
+	public boolean isEmpty()
+	{
+		return numCommands == 0;
+	}
+
+	/*
+	 * Recording
+	 */
+
+	@Override
+	public void setPaintInfo(IPaintInfo paint)
+	{
+		Integer index = paintIndices.get(paint);
+		if (index == null) {
+			index = paints.size();
+			paints.add(paint);
+			paintIndices.put(paint, index);
+		}
+		ops.add(OP_PAINT);
+		ops.add(index);
+		numCommands++;
+
+		if (metrics != null) {
+			metrics.setPaintInfo(paint);
+		}
+	}
+
+	@Override
+	public Path createPath()
+	{
+		return new DisplayListPath();
+	}
+
+	@Override
+	public void draw(Path path)
+	{
+		DisplayListPath p = (DisplayListPath) path;
+		final int n = p.types.size();
+		final int nCoords = p.coords.size();
+		ops.add(OP_PATH);
+		ops.add(n);
+		ops.add(nCoords);
+		for (int i = 0; i < n; i++) {
+			ops.add(p.types.get(i));
+		}
+		int c = coords.size();
+		for (int i = 0; i < nCoords; i++) {
+			coords.add(p.coords.get(i));
+		}
+		addBounds(c, nCoords / 2, 0);
+		numCommands++;
+	}
+
+	@Override
+	public void draw(Circle circle)
+	{
+		drawCircle(circle.getX(), circle.getY(), circle.getRadius());
+	}
+
+	@Override
+	public void drawCircle(double x, double y, double radius)
+	{
+		ops.add(OP_CIRCLE);
+		coords.add(x, y);
+		coords.add(radius);
+		bounds.add(x - radius, y - radius);
+		bounds.add(x + radius, y + radius);
+		numCommands++;
+	}
+
+	@Override
+	public void draw(QuadraticSpline spline)
+	{
+		double p1x = spline.getP1X();
+		double p1y = spline.getP1Y();
+		double p2x = spline.getP2X();
+		double p2y = spline.getP2Y();
+		double cx = spline.getCX();
+		double cy = spline.getCY();
+		ops.add(OP_CUBIC);
+		int c = coords.size();
+		coords.add(p1x, p1y);
+		coords.add(p1x + 2 / 3.0 * (cx - p1x), p1y + 2 / 3.0 * (cy - p1y));
+		coords.add(p2x + 2 / 3.0 * (cx - p2x), p2y + 2 / 3.0 * (cy - p2y));
+		coords.add(p2x, p2y);
+		addBounds(c, 4, 0);
+		numCommands++;
+	}
+
+	@Override
+	public void draw(CubicSpline spline)
+	{
+		ops.add(OP_CUBIC);
+		int c = coords.size();
+		coords.add(spline.getP1X(), spline.getP1Y());
+		coords.add(spline.getC1X(), spline.getC1Y());
+		coords.add(spline.getC2X(), spline.getC2Y());
+		coords.add(spline.getP2X(), spline.getP2Y());
+		addBounds(c, 4, 0);
+		numCommands++;
+	}
+
+	@Override
+	public void draw(LineSegment l)
+	{
+		drawLine(l.getX1(), l.getY1(), l.getX2(), l.getY2());
+	}
+
+	@Override
+	public void drawLine(double x1, double y1, double x2, double y2)
+	{
+		ops.add(OP_LINE);
+		int c = coords.size();
+		coords.add(x1, y1);
+		coords.add(x2, y2);
+		addBounds(c, 2, 0);
+		numCommands++;
+	}
+
+	@Override
+	public void drawPolyline(double[] coords, int n)
+	{
+		ops.add(OP_POLYLINE);
+		ops.add(n);
+		int c = this.coords.size();
+		for (int i = 0; i < n * 2; i++) {
+			this.coords.add(coords[i]);
+		}
+		addBounds(c, n, 0);
+		numCommands++;
+	}
+
+	@Override
+	public void drawCircles(double[] centers, int n, double radius)
+	{
+		ops.add(OP_CIRCLES);
+		ops.add(n);
+		coords.add(radius);
+		int c = coords.size();
+		for (int i = 0; i < n * 2; i++) {
+			coords.add(centers[i]);
+		}
+		addBounds(c, n, radius);
+		numCommands++;
+	}
+
+	@Override
+	public void drawString(String string, float x, float y)
+	{
+		string(OP_STRING, string, x, y);
+	}
+
+	@Override
+	public void outlineString(String string, float x, float y)
+	{
+		string(OP_OUTLINE_STRING, string, x, y);
+	}
+
+	private void string(int op, String string, float x, float y)
+	{
+		ops.add(op);
+		ops.add(strings.size());
+		strings.add(string);
+		coords.add(x, y);
+		bounds.add(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+		bounds.add(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+		numCommands++;
+	}
+
+	/**
+	 * Add the bounding box of n points stored in the coordinate array starting
+	 * at index c, grown by the specified radius.
+	 */
+	private void addBounds(int c, int n, double radius)
+	{
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			double x = coords.get(c + i * 2);
+			double y = coords.get(c + i * 2 + 1);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		bounds.add(minX - radius, minY - radius);
+		bounds.add(maxX + radius, maxY + radius);
+	}
+
+	@Override
+	public int getStringWidth(String string)
+	{
+		if (metrics == null) {
+			return 0;
+		}
+		return metrics.getStringWidth(string);
+	}
+
+	/*
+	 * Replay
+	 */
+
+	public void replay(Painter painter)
+	{
+		replay(painter, 1, 0, 0);
+	}
+
+	/**
+	 * Replay all recorded commands, mapping each coordinate x to
+	 * {@code x * scale + dx} and y to {@code y * scale + dy}. Radii of circles
+	 * are scaled as well while stroke widths and font sizes are not.
+	 */
+	public void replay(Painter painter, double scale, double dx, double dy)
+	{
+		replay(painter, scale, dx, dy, scale, null);
+	}
+
+	/**
+	 * Replay recorded commands, mapping each coordinate x to
+	 * {@code x * scale + dx} and y to {@code y * scale + dy}. Stroke widths
+	 * and font sizes are taken from the paints as they are during the replay,
+	 * radii of circles are multiplied by radiusScale. A caller whose paints
+	 * follow the zoom should pass the factor its stroke widths changed by
+	 * since recording, so that both sizes change the same way.
+	 *
+	 * @param clip
+	 *            a region in recorded coordinates, commands whose bounding
+	 *            box does not intersect it are skipped. The region must be
+	 *            large enough to account for the width of strokes. May be null
+	 *            to replay all commands.
+	 */
+	public void replay(Painter painter, double scale, double dx, double dy,
+			double radiusScale, Envelope clip)
+	{
+		Path path = null;
+
+		// paint changes are applied lazily, before the next command drawn
+		int paint = -1;
+		int applied = -1;
+
+		int o = 0;
+		int c = 0;
+		int b = 0;
+		final int nOps = ops.size();
+		while (o < nOps) {
+			int op = ops.get(o++);
+			if (op == OP_PAINT) {
+				paint = ops.get(o++);
+				continue;
+			}
+
+			if (clip != null && !intersects(b, clip)) {
+				b += 4;
+				// skip over the command's operands
+				switch (op) {
+				case OP_LINE:
+					c += 4;
+					break;
+				case OP_CIRCLE:
+					c += 3;
+					break;
+				case OP_CUBIC:
+					c += 8;
+					break;
+				case OP_PATH:
+					c += ops.get(o + 1);
+					o += 2 + ops.get(o);
+					break;
+				case OP_POLYLINE:
+					c += ops.get(o++) * 2;
+					break;
+				case OP_CIRCLES:
+					c += 1 + ops.get(o++) * 2;
+					break;
+				case OP_STRING:
+				case OP_OUTLINE_STRING:
+					o++;
+					c += 2;
+					break;
+				}
+				continue;
+			}
+			b += 4;
+
+			if (paint != applied) {
+				painter.setPaintInfo(paints.get(paint));
+				applied = paint;
+			}
+
+			switch (op) {
+			case OP_LINE:
+				painter.drawLine(coords.get(c) * scale + dx,
+						coords.get(c + 1) * scale + dy,
+						coords.get(c + 2) * scale + dx,
+						coords.get(c + 3) * scale + dy);
+				c += 4;
+				break;
+			case OP_CIRCLE:
+				painter.drawCircle(coords.get(c) * scale + dx,
+						coords.get(c + 1) * scale + dy,
+						coords.get(c + 2) * radiusScale);
+				c += 3;
+				break;
+			case OP_CUBIC:
+				// replay through the shared path to avoid creating a spline
+				if (path == null) {
+					path = painter.createPath();
+				}
+				path.reset();
+				path.moveTo(coords.get(c) * scale + dx,
+						coords.get(c + 1) * scale + dy);
+				path.cubicTo(coords.get(c + 2) * scale + dx,
+						coords.get(c + 3) * scale + dy,
+						coords.get(c + 4) * scale + dx,
+						coords.get(c + 5) * scale + dy,
+						coords.get(c + 6) * scale + dx,
+						coords.get(c + 7) * scale + dy);
+				painter.draw(path);
+				c += 8;
+				break;
+			case OP_PATH:
+				if (path == null) {
+					path = painter.createPath();
+				}
+				path.reset();
+				int n = ops.get(o);
+				o += 2;
+				for (int i = 0; i < n; i++) {
+					int type = ops.get(o++);
+					double x = coords.get(c) * scale + dx;
+					double y = coords.get(c + 1) * scale + dy;
+					c += 2;
+					if (type == DisplayListPath.MOVE) {
+						path.moveTo(x, y);
+					} else if (type == DisplayListPath.LINE) {
+						path.lineTo(x, y);
+					} else {
+						path.cubicTo(x, y, coords.get(c) * scale + dx,
+								coords.get(c + 1) * scale + dy,
+								coords.get(c + 2) * scale + dx,
+								coords.get(c + 3) * scale + dy);
+						c += 4;
+					}
+				}
+				painter.draw(path);
+				break;
+			case OP_POLYLINE:
+				int nPoints = ops.get(o++);
+				double[] points = replayCoords(c, nPoints, scale, dx, dy);
+				c += nPoints * 2;
+				painter.drawPolyline(points, nPoints);
+				break;
+			case OP_CIRCLES:
+				int nCircles = ops.get(o++);
+				double radius = coords.get(c++) * radiusScale;
+				double[] centers = replayCoords(c, nCircles, scale, dx, dy);
+				c += nCircles * 2;
+				painter.drawCircles(centers, nCircles, radius);
+				break;
+			case OP_STRING:
+			case OP_OUTLINE_STRING:
+				String string = strings.get(ops.get(o++));
+				float x = (float) (coords.get(c) * scale + dx);
+				float y = (float) (coords.get(c + 1) * scale + dy);
+				c += 2;
+				if (op == OP_STRING) {
+					painter.drawString(string, x, y);
+				} else {
+					painter.outlineString(string, x, y);
+				}
+				break;
+			}
+		}
+	}
+
+	private boolean intersects(int b, Envelope clip)
+	{
+		return bounds.get(b) <= clip.getMaxX()
+				&& bounds.get(b + 2) >= clip.getMinX()
+				&& bounds.get(b + 1) <= clip.getMaxY()
+				&& bounds.get(b + 3) >= clip.getMinY();
+	}
+
+	private double[] replayCoords(int c, int n, double scale, double dx,
+			double dy)
+	{
+		if (replayCoords.length < n * 2) {
+			replayCoords = new double[n * 2];
+		}
+		for (int i = 0; i < n; i++) {
+			replayCoords[i * 2] = coords.get(c + i * 2) * scale + dx;
+			replayCoords[i * 2 + 1] = coords.get(c + i * 2 + 1) * scale + dy;
+		}
+		return replayCoords;
+	}
+
+}
@@ -0,0 +1,98 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.displaylist;
+
+import org.openmetromaps.maps.DoubleArray;
+import org.openmetromaps.maps.IntArray;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+
+/**
+ * A path that only stores its vertices. The vertices are copied into the
+ * display list when the path is drawn, so that the same instance can be reset
+ * and reused afterwards.
+ */
+public class DisplayListPath implements Path
+{
+
+	static final int MOVE = 0;
+	static final int LINE = 1;
+	// followed by three points: two control points and the end point
+	static final int CUBIC = 2;
+
+	IntArray types = new IntArray();
+	DoubleArray coords = new DoubleArray();
+
+	@Override
+	public void reset()
+	{
+		types.clear();
+		coords.clear();
+	}
+
+	@Override
+	public void moveTo(double x, double y)
+	{
+		types.add(MOVE);
+		coords.add(x, y);
+	}
+
+	@Override
+	public void lineTo(double x, double y)
+	{
+		types.add(LINE);
+		coords.add(x, y);
+	}
+
+	@Override
+	public void cubicTo(double c1x, double c1y, double c2x, double c2y,
+			double x, double y)
+	{
+		types.add(CUBIC);
+		coords.add(c1x, c1y);
+		coords.add(c2x, c2y);
+		coords.add(x, y);
+	}
+
+	@Override
+	public void moveTo(Point p)
+	{
+		moveTo(p.x, p.y);
+	}
+
+	@Override
+	public void lineTo(Point p)
+	{
+		lineTo(p.x, p.y);
+	}
+
+	@Override
+	public void moveTo(Vector2 p)
+	{
+		moveTo(p.getX(), p.getY());
+	}
+
+	@Override
+	public void lineTo(Vector2 p)
+	{
+		lineTo(p.getX(), p.getY());
+	}
+
+}
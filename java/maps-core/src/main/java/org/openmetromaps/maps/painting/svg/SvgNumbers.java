@@ -0,0 +1,72 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.svg;
+
+/**
+ * Formatting of numbers with a fixed number of decimal places, without
+ * trailing zeros.
+ */
+class SvgNumbers
+{
+
+	private final int decimals;
+	private final long factor;
+
+	SvgNumbers(int decimals)
+	{
+		this.decimals = decimals;
+		long f = 1;
+		for (int i = 0; i < decimals; i++) {
+			f *= 10;
+		}
+		factor = f;
+	}
+
+	void append(StringBuilder buffer, double value)
+	{
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			buffer.append('0');
+			return;
+		}
+		long scaled = Math.round(value * factor);
+		if (scaled < 0) {
+			buffer.append('-');
+			scaled = -scaled;
+		}
+		buffer.append(scaled / factor);
+		long fraction = scaled % factor;
+		if (fraction == 0) {
+			return;
+		}
+		int digits = decimals;
+		while (fraction % 10 == 0) {
+			fraction /= 10;
+			digits--;
+		}
+		buffer.append('.');
+		int length = 1;
+		for (long f = fraction; f >= 10; f /= 10) {
+			length++;
+		}
+		for (int i = length; i < digits; i++) {
+			buffer.append('0');
+		}
+		buffer.append(fraction);
+	}
+
+}
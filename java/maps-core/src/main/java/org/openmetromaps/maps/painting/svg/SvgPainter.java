@@ -0,0 +1,501 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.svg;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openmetromaps.maps.painting.core.Cap;
+import org.openmetromaps.maps.painting.core.GenericPaintInfo;
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.Join;
+import org.openmetromaps.maps.painting.core.PaintType;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Circle;
+import org.openmetromaps.maps.painting.core.geom.LineSegment;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.lightgeom.curves.spline.CubicSpline;
+import de.topobyte.lightgeom.curves.spline.QuadraticSpline;
+
+/**
+ * A {@link Painter} that writes SVG elements to an {@link Appendable} while
+ * they are drawn, so that the memory needed does not depend on the size of
+ * the drawing.
+ *
+ * Paints are translated to CSS classes, one for each distinct combination of
+ * style properties. Consecutive elements with the same class are wrapped in a
+ * group that carries the class, elements are never reordered. The rules of
+ * new classes are collected and written as a single style element in front
+ * of the elements of each chunk passed to the output. Coordinates are
+ * written with a fixed number of decimal places.
+ *
+ * Errors of the underlying output are deferred and reported by
+ * {@link #finish()}.
+ */
+public class SvgPainter implements Painter
+{
+
+	private static final int FLUSH_SIZE = 1 << 16;
+
+	private Appendable output;
+	private Painter metrics;
+	private SvgNumbers numbers;
+
+	private StringBuilder buffer = new StringBuilder(FLUSH_SIZE + 1024);
+	private IOException error = null;
+
+	private Map<String, String> classes = new HashMap<>();
+	// rules not written yet and the position in the buffer to insert them at
+	private StringBuilder styles = new StringBuilder();
+	private int stylesPosition = 0;
+
+	private GenericPaintInfo paintInfo;
+	private String shapeClass;
+	private String textClass;
+	private String outlineClass;
+
+	// everything of the element being built after its tag name
+	private StringBuilder element = new StringBuilder();
+	private StringBuilder declarations = new StringBuilder();
+
+	// the class of the current run of elements. The first element of a run is
+	// held back until it is known whether the run needs a group.
+	private String runClass = null;
+	private boolean groupOpen = false;
+	private String pendingTag = null;
+	private StringBuilder pendingElement = new StringBuilder();
+
+	/**
+	 * Create a painter that writes coordinates with two decimal places.
+	 *
+	 * @param metrics
+	 *            a painter used to answer {@link #getStringWidth(String)},
+	 *            may be null to use an estimate based on the font size.
+	 */
+	public SvgPainter(Appendable output, Painter metrics)
+	{
+		this(output, metrics, 2);
+	}
+
+	public SvgPainter(Appendable output, Painter metrics, int decimals)
+	{
+		this.output = output;
+		this.metrics = metrics;
+		numbers = new SvgNumbers(decimals);
+	}
+
+	/**
+	 * Write the start of the document. Must be called before drawing.
+	 */
+	public void start(int width, int height)
+	{
+		buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		buffer.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+		buffer.append(width).append("\" height=\"").append(height);
+		buffer.append("\" viewBox=\"0 0 ").append(width).append(' ')
+				.append(height).append("\">\n");
+		stylesPosition = buffer.length();
+		styles.append("text{font-family:sans-serif;font-weight:bold}\n");
+	}
+
+	/**
+	 * Write the end of the document and pass everything still buffered to the
+	 * output.
+	 *
+	 * @throws IOException
+	 *             if writing to the output failed at any point.
+	 */
+	public void finish() throws IOException
+	{
+		endRun();
+		buffer.append("</svg>\n");
+		flush();
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private void flush()
+	{
+		if (styles.length() > 0) {
+			styles.insert(0, "<style>\n").append("</style>\n");
+			buffer.insert(stylesPosition, styles);
+			styles.setLength(0);
+		}
+		stylesPosition = 0;
+		if (error == null) {
+			try {
+				output.append(buffer);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		buffer.setLength(0);
+	}
+
+	/*
+	 * Elements and grouping
+	 */
+
+	private void emit(String cls, String tag)
+	{
+		if (cls.equals(runClass)) {
+			if (!groupOpen) {
+				buffer.append("<g class=\"").append(cls).append("\">\n");
+				appendElement(null, pendingTag, pendingElement);
+				groupOpen = true;
+			}
+			appendElement(null, tag, element);
+		} else {
+			endRun();
+			runClass = cls;
+			pendingTag = tag;
+			pendingElement.setLength(0);
+			pendingElement.append(element);
+		}
+		if (buffer.length() >= FLUSH_SIZE) {
+			flush();
+		}
+	}
+
+	private void endRun()
+	{
+		if (groupOpen) {
+			buffer.append("</g>\n");
+		} else if (runClass != null) {
+			appendElement(runClass, pendingTag, pendingElement);
+		}
+		runClass = null;
+		groupOpen = false;
+	}
+
+	private void appendElement(String cls, String tag, CharSequence rest)
+	{
+		buffer.append('<').append(tag);
+		if (cls != null) {
+			buffer.append(" class=\"").append(cls).append('"');
+		}
+		buffer.append(rest).append('\n');
+	}
+
+	private void attribute(String name, double value)
+	{
+		element.append(' ').append(name).append("=\"");
+		numbers.append(element, value);
+		element.append('"');
+	}
+
+	private void point(char command, double x, double y)
+	{
+		element.append(command);
+		numbers.append(element, x);
+		element.append(' ');
+		numbers.append(element, y);
+	}
+
+	/*
+	 * Styles
+	 */
+
+	private String getClass(StringBuilder declarations)
+	{
+		String key = declarations.toString();
+		String cls = classes.get(key);
+		if (cls == null) {
+			cls = "s" + classes.size();
+			classes.put(key, cls);
+			styles.append('.').append(cls).append('{').append(key)
+					.append("}\n");
+		}
+		return cls;
+	}
+
+	private void color(String property, int argb)
+	{
+		declarations.append(property).append(":#");
+		String hex = Integer.toHexString(0x1000000 | (argb & 0xFFFFFF));
+		declarations.append(hex, 1, 7);
+		int alpha = argb >>> 24;
+		if (alpha != 0xFF) {
+			declarations.append(';').append(property).append("-opacity:");
+			numbers.append(declarations, alpha / 255.0);
+		}
+		declarations.append(';');
+	}
+
+	private void stroke(int argb, boolean withCap)
+	{
+		color("stroke", argb);
+		declarations.append("stroke-width:");
+		numbers.append(declarations, paintInfo.getWidth());
+		if (withCap) {
+			declarations.append(";stroke-linecap:")
+					.append(cap(paintInfo.getCap()));
+		}
+		declarations.append(";stroke-linejoin:")
+				.append(join(paintInfo.getJoin()));
+	}
+
+	private static String cap(Cap cap)
+	{
+		if (cap == Cap.BUTT) {
+			return "butt";
+		} else if (cap == Cap.SQUARE) {
+			return "square";
+		}
+		return "round";
+	}
+
+	private static String join(Join join)
+	{
+		if (join == Join.BEVEL) {
+			return "bevel";
+		} else if (join == Join.MITER) {
+			return "miter";
+		}
+		return "round";
+	}
+
+	private String getShapeClass()
+	{
+		if (shapeClass == null) {
+			int argb = paintInfo.getColor().getValue();
+			declarations.setLength(0);
+			if (paintInfo.getStyle() == PaintType.FILL) {
+				color("fill", argb);
+				declarations.append("stroke:none");
+			} else {
+				declarations.append("fill:none;");
+				stroke(argb, true);
+			}
+			shapeClass = getClass(declarations);
+		}
+		return shapeClass;
+	}
+
+	private String getTextClass()
+	{
+		if (textClass == null) {
+			declarations.setLength(0);
+			color("fill", paintInfo.getColor().getValue());
+			declarations.append("stroke:none;font-size:")
+					.append(paintInfo.getFontSize()).append("px");
+			textClass = getClass(declarations);
+		}
+		return textClass;
+	}
+
+	private String getOutlineClass()
+	{
+		if (outlineClass == null) {
+			declarations.setLength(0);
+			declarations.append("fill:none;");
+			stroke(paintInfo.getColor().getValue(), false);
+			declarations.append(";font-size:")
+					.append(paintInfo.getFontSize()).append("px");
+			outlineClass = getClass(declarations);
+		}
+		return outlineClass;
+	}
+
+	/*
+	 * Painter
+	 */
+
+	@Override
+	public void setPaintInfo(IPaintInfo paint)
+	{
+		paintInfo = (GenericPaintInfo) paint;
+		shapeClass = null;
+		textClass = null;
+		outlineClass = null;
+		if (metrics != null) {
+			metrics.setPaintInfo(paint);
+		}
+	}
+
+	@Override
+	public Path createPath()
+	{
+		return new SvgPath(numbers);
+	}
+
+	@Override
+	public void draw(Path path)
+	{
+		StringBuilder data = ((SvgPath) path).data;
+		if (data.length() == 0) {
+			return;
+		}
+		element.setLength(0);
+		element.append(" d=\"").append(data).append("\"/>");
+		emit(getShapeClass(), "path");
+	}
+
+	@Override
+	public void draw(Circle circle)
+	{
+		drawCircle(circle.getX(), circle.getY(), circle.getRadius());
+	}
+
+	@Override
+	public void drawCircle(double x, double y, double radius)
+	{
+		element.setLength(0);
+		attribute("cx", x);
+		attribute("cy", y);
+		attribute("r", radius);
+		element.append("/>");
+		emit(getShapeClass(), "circle");
+	}
+
+	@Override
+	public void draw(QuadraticSpline spline)
+	{
+		element.setLength(0);
+		element.append(" d=\"");
+		point('M', spline.getP1X(), spline.getP1Y());
+		point('Q', spline.getCX(), spline.getCY());
+		point(' ', spline.getP2X(), spline.getP2Y());
+		element.append("\"/>");
+		emit(getShapeClass(), "path");
+	}
+
+	@Override
+	public void draw(CubicSpline spline)
+	{
+		element.setLength(0);
+		element.append(" d=\"");
+		point('M', spline.getP1X(), spline.getP1Y());
+		point('C', spline.getC1X(), spline.getC1Y());
+		point(' ', spline.getC2X(), spline.getC2Y());
+		point(' ', spline.getP2X(), spline.getP2Y());
+		element.append("\"/>");
+		emit(getShapeClass(), "path");
+	}
+
+	@Override
+	public void draw(LineSegment l)
+	{
+		drawLine(l.getX1(), l.getY1(), l.getX2(), l.getY2());
+	}
+
+	@Override
+	public void drawLine(double x1, double y1, double x2, double y2)
+	{
+		element.setLength(0);
+		element.append(" d=\"");
+		point('M', x1, y1);
+		point('L', x2, y2);
+		element.append("\"/>");
+		emit(getShapeClass(), "path");
+	}
+
+	@Override
+	public void drawPolyline(double[] coords, int n)
+	{
+		if (n < 2) {
+			return;
+		}
+		element.setLength(0);
+		element.append(" d=\"");
+		point('M', coords[0], coords[1]);
+		for (int i = 1; i < n; i++) {
+			point('L', coords[i * 2], coords[i * 2 + 1]);
+		}
+		element.append("\"/>");
+		emit(getShapeClass(), "path");
+	}
+
+	@Override
+	public void drawCircles(double[] centers, int n, double radius)
+	{
+		if (n == 0) {
+			return;
+		}
+		// one path with two arcs per circle
+		element.setLength(0);
+		element.append(" d=\"");
+		for (int i = 0; i < n; i++) {
+			point('M', centers[i * 2] - radius, centers[i * 2 + 1]);
+			arc(radius, 2 * radius);
+			arc(radius, -2 * radius);
+		}
+		element.append("\"/>");
+		emit(getShapeClass(), "path");
+	}
+
+	private void arc(double radius, double dx)
+	{
+		element.append('a');
+		numbers.append(element, radius);
+		element.append(' ');
+		numbers.append(element, radius);
+		element.append(" 0 1 0 ");
+		numbers.append(element, dx);
+		element.append(" 0");
+	}
+
+	@Override
+	public void drawString(String string, float x, float y)
+	{
+		text(string, x, y);
+		emit(getTextClass(), "text");
+	}
+
+	@Override
+	public void outlineString(String string, float x, float y)
+	{
+		text(string, x, y);
+		emit(getOutlineClass(), "text");
+	}
+
+	private void text(String string, float x, float y)
+	{
+		element.setLength(0);
+		attribute("x", x);
+		attribute("y", y);
+		element.append('>');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c == '<') {
+				element.append("&lt;");
+			} else if (c == '>') {
+				element.append("&gt;");
+			} else if (c == '&') {
+				element.append("&amp;");
+			} else {
+				element.append(c);
+			}
+		}
+		element.append("</text>");
+	}
+
+	@Override
+	public int getStringWidth(String string)
+	{
+		if (metrics != null) {
+			return metrics.getStringWidth(string);
+		}
+		// roughly the average advance of a bold sans-serif font
+		return (int) Math.ceil(string.length() * paintInfo.getFontSize() * 0.6);
+	}
+
+}
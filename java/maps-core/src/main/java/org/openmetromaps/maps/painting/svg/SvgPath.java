@@ -0,0 +1,104 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.svg;
+
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+
+/**
+ * A path that directly builds the value of the 'd' attribute of an SVG path
+ * element.
+ */
+public class SvgPath implements Path
+{
+
+	private final SvgNumbers numbers;
+
+	final StringBuilder data = new StringBuilder();
+
+	SvgPath(SvgNumbers numbers)
+	{
+		this.numbers = numbers;
+	}
+
+	@Override
+	public void reset()
+	{
+		data.setLength(0);
+	}
+
+	@Override
+	public void moveTo(double x, double y)
+	{
+		data.append('M');
+		append(x, y);
+	}
+
+	@Override
+	public void lineTo(double x, double y)
+	{
+		data.append('L');
+		append(x, y);
+	}
+
+	@Override
+	public void cubicTo(double c1x, double c1y, double c2x, double c2y,
+			double x, double y)
+	{
+		data.append('C');
+		append(c1x, c1y);
+		data.append(' ');
+		append(c2x, c2y);
+		data.append(' ');
+		append(x, y);
+	}
+
+	private void append(double x, double y)
+	{
+		numbers.append(data, x);
+		data.append(' ');
+		numbers.append(data, y);
+	}
+
+	@Override
+	public void moveTo(Point p)
+	{
+		moveTo(p.x, p.y);
+	}
+
+	@Override
+	public void lineTo(Point p)
+	{
+		lineTo(p.x, p.y);
+	}
+
+	@Override
+	public void moveTo(Vector2 p)
+	{
+		moveTo(p.getX(), p.getY());
+	}
+
+	@Override
+	public void lineTo(Vector2 p)
+	{
+		lineTo(p.getX(), p.getY());
+	}
+
+}
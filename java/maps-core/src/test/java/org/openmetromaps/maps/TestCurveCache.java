@@ -0,0 +1,179 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkUtil;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+
+public class TestCurveCache
+{
+
+	// the maximum deviation of flattened curves in pixels, see CurveCache
+	private static final double FLATNESS = 0.2;
+
+	private LineNetwork lineNetwork;
+	private CurveCache cache;
+	private IntArray edges = new IntArray();
+
+	@Before
+	public void setup()
+	{
+		lineNetwork = TestNetworks.grid(8, 6, 10);
+		// displace the stations so that the segments become curved
+		Random random = new Random(1);
+		for (Node node : lineNetwork.nodes) {
+			node.location = new Point(node.location.x + random.nextDouble() * 4,
+					node.location.y + random.nextDouble() * 4);
+		}
+		LineNetworkUtil.calculateAllNeighborLocations(lineNetwork);
+
+		cache = new CurveCache(lineNetwork, 0.3, 1);
+		for (int i = 0; i < lineNetwork.edges.size(); i++) {
+			edges.add(i);
+		}
+	}
+
+	@Test
+	public void testFlattening()
+	{
+		double[] zooms = { 0.25, 1, 4, 16 };
+		for (double zoom : zooms) {
+			int bucket = ZoomBuckets.bucket(zoom);
+			cache.prepare(edges, bucket);
+			double tolerance = FLATNESS / ZoomBuckets.zoom(bucket);
+			for (int i = 0; i < edges.size(); i++) {
+				testFlattening(i, tolerance);
+			}
+		}
+	}
+
+	@Test
+	public void testFinerAtHigherZoom()
+	{
+		cache.prepare(edges, ZoomBuckets.bucket(1));
+		int[] coarse = new int[edges.size()];
+		for (int i = 0; i < edges.size(); i++) {
+			coarse[i] = cache.getPolylines(i).length;
+		}
+
+		cache.prepare(edges, ZoomBuckets.bucket(16));
+		int finer = 0;
+		for (int i = 0; i < edges.size(); i++) {
+			int length = cache.getPolylines(i).length;
+			Assert.assertTrue(length >= coarse[i]);
+			if (length > coarse[i]) {
+				finer++;
+			}
+		}
+		Assert.assertTrue(finer > 0);
+	}
+
+	@Test
+	public void testNodeChanged()
+	{
+		int bucket = ZoomBuckets.bucket(1);
+		cache.prepare(edges, bucket);
+
+		Node node = lineNetwork.nodes.get(10);
+		node.location = new Point(node.location.x + 3, node.location.y - 2);
+		LineNetworkUtil.updateEdges(node);
+		cache.nodeChanged(node);
+		cache.prepare(edges, bucket);
+
+		CurveCache fresh = new CurveCache(lineNetwork, 0.3, 1);
+		fresh.prepare(edges, bucket);
+		for (int i = 0; i < edges.size(); i++) {
+			Assert.assertArrayEquals("edge " + i, fresh.getControlPoints(i),
+					cache.getControlPoints(i), 0);
+			Assert.assertArrayEquals("edge " + i, fresh.getPolylines(i),
+					cache.getPolylines(i), 0);
+		}
+	}
+
+	/**
+	 * Check that the polyline of each line of the edge starts and ends at the
+	 * end points of the spline and that the spline does not deviate from the
+	 * polyline by more than the tolerance.
+	 */
+	private void testFlattening(int id, double tolerance)
+	{
+		Edge edge = lineNetwork.edges.get(id);
+		double[] c = cache.getControlPoints(id);
+		double[] polyline = cache.getPolylines(id);
+		int[] starts = cache.getPolylineStarts(id);
+		Assert.assertEquals(edge.lines.size() + 1, starts.length);
+
+		for (int l = 0; l < edge.lines.size(); l++) {
+			int k = l * 8;
+			int first = starts[l];
+			int last = starts[l + 1] - 2;
+			Assert.assertEquals(c[k], polyline[first], 0);
+			Assert.assertEquals(c[k + 1], polyline[first + 1], 0);
+			Assert.assertEquals(c[k + 6], polyline[last], 0);
+			Assert.assertEquals(c[k + 7], polyline[last + 1], 0);
+
+			// the points of the polyline are evenly spaced in t
+			int n = (starts[l + 1] - starts[l]) / 2 - 1;
+			for (int j = 0; j < n; j++) {
+				int p = first + j * 2;
+				for (int s = 1; s < 4; s++) {
+					double t = (j + s / 4.0) / n;
+					double d = distance(c, k, t, polyline[p], polyline[p + 1],
+							polyline[p + 2], polyline[p + 3]);
+					Assert.assertTrue("edge " + id + ": " + d,
+							d <= tolerance * 1.0001);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Distance of the point of the spline at t from the line through (ax, ay)
+	 * and (bx, by).
+	 */
+	private double distance(double[] c, int k, double t, double ax, double ay,
+			double bx, double by)
+	{
+		double s = 1 - t;
+		double b0 = s * s * s;
+		double b1 = 3 * s * s * t;
+		double b2 = 3 * s * t * t;
+		double b3 = t * t * t;
+		double x = b0 * c[k] + b1 * c[k + 2] + b2 * c[k + 4] + b3 * c[k + 6];
+		double y = b0 * c[k + 1] + b1 * c[k + 3] + b2 * c[k + 5]
+				+ b3 * c[k + 7];
+
+		double dx = bx - ax;
+		double dy = by - ay;
+		double length = Math.sqrt(dx * dx + dy * dy);
+		if (length == 0) {
+			return Math.hypot(x - ax, y - ay);
+		}
+		return Math.abs(dy * (x - ax) - dx * (y - ay)) / length;
+	}
+
+}
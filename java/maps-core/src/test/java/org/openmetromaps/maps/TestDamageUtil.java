@@ -0,0 +1,115 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
+
+public class TestDamageUtil
+{
+
+	private static final double BULGE = 0.25;
+
+	private LineNetwork lineNetwork;
+	private Node node;
+
+	@Before
+	public void setup()
+	{
+		lineNetwork = TestNetworks.grid(10, 10, 10);
+		for (Node candidate : lineNetwork.nodes) {
+			if (candidate.location.x == 50 && candidate.location.y == 50) {
+				node = candidate;
+			}
+		}
+	}
+
+	@Test
+	public void testNodeMoved()
+	{
+		Point old = node.location;
+		Envelope before = new Envelope();
+		includeAffectedEdges(before);
+
+		node.location = new Point(57, 46);
+		Envelope after = new Envelope();
+		includeAffectedEdges(after);
+
+		Envelope damage = new Envelope();
+		DamageUtil.nodeMoved(damage, node, old, BULGE);
+
+		Assert.assertTrue(damage.contains(before));
+		Assert.assertTrue(damage.contains(after));
+
+		// nodes two edges away are not affected
+		Assert.assertFalse(damage.contains(20, 20));
+		Assert.assertFalse(damage.contains(80, 80));
+	}
+
+	@Test
+	public void testUnknownOldLocation()
+	{
+		node.location = new Point(57, 46);
+		Envelope after = new Envelope();
+		includeAffectedEdges(after);
+
+		Envelope damage = new Envelope();
+		DamageUtil.nodeMoved(damage, node, null, BULGE);
+
+		Assert.assertTrue(damage.contains(after));
+	}
+
+	@Test
+	public void testExpands()
+	{
+		Envelope damage = new Envelope(200, 210, 200, 210);
+		DamageUtil.nodeMoved(damage, node, node.location, BULGE);
+
+		Assert.assertTrue(damage.contains(200, 200));
+		Assert.assertTrue(damage.contains(210, 210));
+		Assert.assertTrue(damage.contains(50, 50));
+	}
+
+	/**
+	 * Include the boxes of all edges whose geometry depends on the location
+	 * of the node: the edges at the node and at its neighbors.
+	 */
+	private void includeAffectedEdges(Envelope envelope)
+	{
+		for (Edge edge : node.edges) {
+			Node neighbor = edge.n1 == node ? edge.n2 : edge.n1;
+			for (Edge other : neighbor.edges) {
+				Point a = other.n1.location;
+				Point b = other.n2.location;
+				double extra = BULGE * Math.hypot(b.x - a.x, b.y - a.y);
+				envelope.expandToInclude(Math.min(a.x, b.x) - extra,
+						Math.min(a.y, b.y) - extra);
+				envelope.expandToInclude(Math.max(a.x, b.x) + extra,
+						Math.max(a.y, b.y) + extra);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestIntArray
+{
+
+	@Test
+	public void testSort()
+	{
+		Random random = new Random(1);
+		int[] sizes = { 0, 1, 2, 16, 17, 100, 1000 };
+		for (int size : sizes) {
+			int[] values = new int[size];
+			for (int i = 0; i < size; i++) {
+				values[i] = random.nextInt(50);
+			}
+			testSort(values);
+		}
+	}
+
+	@Test
+	public void testSortRuns()
+	{
+		// a few sorted runs, like the results of grid queries
+		int[] values = new int[300];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (i % 100) * 3 + i / 100;
+		}
+		testSort(values);
+
+		int[] descending = new int[100];
+		for (int i = 0; i < descending.length; i++) {
+			descending[i] = descending.length - i;
+		}
+		testSort(descending);
+	}
+
+	@Test(timeout = 10000)
+	public void testSortDuplicates()
+	{
+		// mostly equal values, like edges found in several cells of a grid,
+		// must not make the sort quadratic
+		int[] values = new int[200000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i % 1000 == 0 ? i : 42;
+		}
+		testSort(values);
+	}
+
+	private void testSort(int[] values)
+	{
+		IntArray array = create(values);
+		array.sort();
+
+		int[] expected = values.clone();
+		Arrays.sort(expected);
+		Assert.assertArrayEquals(expected, toArray(array));
+	}
+
+	@Test
+	public void testSortByKey()
+	{
+		Random random = new Random(2);
+		int n = 500;
+		// few distinct keys, so that there are many ties
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextInt(5);
+		}
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = (i * 7) % n;
+		}
+
+		IntArray array = create(values);
+		array.sort(keys);
+
+		int[] sorted = toArray(array);
+		Assert.assertEquals(n, sorted.length);
+		for (int i = 1; i < n; i++) {
+			int a = sorted[i - 1];
+			int b = sorted[i];
+			Assert.assertTrue(keys[a] < keys[b] || keys[a] == keys[b] && a < b);
+		}
+	}
+
+	@Test
+	public void testUnique()
+	{
+		testUnique(new int[] {}, new int[] {});
+		testUnique(new int[] { 1 }, new int[] { 1 });
+		testUnique(new int[] { 1, 1, 1 }, new int[] { 1 });
+		testUnique(new int[] { 1, 2, 2, 3, 3, 3, 4 },
+				new int[] { 1, 2, 3, 4 });
+		// only consecutive duplicates are removed
+		testUnique(new int[] { 1, 2, 1, 1 }, new int[] { 1, 2, 1 });
+	}
+
+	private void testUnique(int[] values, int[] expected)
+	{
+		IntArray array = create(values);
+		array.unique();
+		Assert.assertArrayEquals(expected, toArray(array));
+	}
+
+	private IntArray create(int[] values)
+	{
+		IntArray array = new IntArray(1);
+		for (int value : values) {
+			array.add(value);
+		}
+		return array;
+	}
+
+	private int[] toArray(IntArray array)
+	{
+		int[] result = new int[array.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = array.get(i);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,219 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.painting.core.GenericPaintInfo;
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.displaylist.DisplayList;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
+
+public class TestLabelCache
+{
+
+	private static final int FONT_SIZE = 10;
+	private static final double OFFSET = 8;
+	private static final int BUCKET = ZoomBuckets.bucket(1);
+
+	private LineNetwork lineNetwork;
+	private LabelCache cache;
+
+	private Painter painter = new DisplayList() {
+
+		@Override
+		public int getStringWidth(String string)
+		{
+			return string.length() * 6;
+		}
+
+	};
+	private IPaintInfo paint = new GenericPaintInfo();
+
+	private IntArray all = new IntArray();
+	private Envelope bounds = new Envelope(-100, 400, -100, 400);
+
+	@Before
+	public void setup()
+	{
+		lineNetwork = TestNetworks.grid(12, 10, 25);
+		cache = new LabelCache(lineNetwork);
+		for (int i = 0; i < lineNetwork.nodes.size(); i++) {
+			all.add(i);
+		}
+	}
+
+	@Test
+	public void testFullPlacement()
+	{
+		Set<Integer> placed = place(bounds);
+		Assert.assertEquals(greedy(), placed);
+		assertValid(placed, all);
+	}
+
+	@Test
+	public void testPanning()
+	{
+		Set<Integer> left = place(new Envelope(-100, 150, -100, 400));
+		Set<Integer> placed = place(bounds);
+
+		// labels placed before stay where they are
+		Assert.assertTrue(placed.containsAll(left));
+		assertValid(placed, all);
+	}
+
+	@Test
+	public void testNodeChanged()
+	{
+		Set<Integer> before = place(bounds);
+		Envelope damage = new Envelope();
+		Assert.assertTrue(cache.takeDamage(damage));
+		Assert.assertTrue(damage.isNull());
+
+		int id = before.iterator().next();
+		Node node = lineNetwork.nodes.get(id);
+		Envelope oldBox = box(id);
+		node.location = new Point(node.location.x + 25, node.location.y + 3);
+		cache.nodeChanged(node);
+
+		Assert.assertTrue(cache.takeDamage(damage));
+		// the moved box is computed in single precision
+		Envelope tolerant = new Envelope(damage);
+		tolerant.expandBy(1e-3);
+		Assert.assertTrue(tolerant.contains(oldBox));
+		Assert.assertTrue(tolerant.contains(box(id)));
+
+		Set<Integer> after = place(bounds);
+		assertValid(after, all);
+
+		// labels outside of the damaged region keep their placement
+		for (int i = 0; i < all.size(); i++) {
+			if (i != id && !box(i).intersects(damage)) {
+				Assert.assertEquals("node " + i, before.contains(i),
+						after.contains(i));
+			}
+		}
+	}
+
+	private Set<Integer> place(Envelope envelope)
+	{
+		IntArray nodes = new IntArray();
+		IntArray widths = new IntArray();
+		cache.place(painter, paint, all, envelope, BUCKET, false, FONT_SIZE,
+				OFFSET, nodes, widths);
+
+		Set<Integer> placed = new HashSet<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			int id = nodes.get(i);
+			Assert.assertEquals(width(id), widths.get(i));
+			placed.add(id);
+		}
+		return placed;
+	}
+
+	/**
+	 * Place all labels greedily in the order of rank, most important first.
+	 */
+	private Set<Integer> greedy()
+	{
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i < lineNetwork.nodes.size(); i++) {
+			ids.add(i);
+		}
+		Collections.sort(ids, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2)
+			{
+				int r1 = lineNetwork.nodes.get(o1).rank;
+				int r2 = lineNetwork.nodes.get(o2).rank;
+				if (r1 != r2) {
+					return r2 > r1 ? 1 : -1;
+				}
+				return o1.compareTo(o2);
+			}
+
+		});
+
+		Set<Integer> placed = new HashSet<>();
+		for (int id : ids) {
+			if (isFree(id, placed)) {
+				placed.add(id);
+			}
+		}
+		return placed;
+	}
+
+	/**
+	 * Check that placed labels do not overlap and that each label that has
+	 * not been placed overlaps with a placed label.
+	 */
+	private void assertValid(Set<Integer> placed, IntArray candidates)
+	{
+		for (int i = 0; i < candidates.size(); i++) {
+			int id = candidates.get(i);
+			Set<Integer> others = new HashSet<>(placed);
+			others.remove(id);
+			Assert.assertEquals("node " + id, placed.contains(id),
+					isFree(id, others));
+		}
+	}
+
+	private boolean isFree(int id, Set<Integer> placed)
+	{
+		Envelope box = box(id);
+		for (int other : placed) {
+			if (box.intersects(box(other))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Envelope box(int id)
+	{
+		double zoom = ZoomBuckets.lowerBound(BUCKET);
+		double w = width(id) / zoom;
+		double h = FONT_SIZE / zoom;
+		Point location = lineNetwork.nodes.get(id).location;
+		double x = location.x;
+		double y = location.y - OFFSET;
+		return new Envelope((float) (x - w / 2), (float) (x + w / 2),
+				(float) (y - h / 2), (float) (y + h / 2));
+	}
+
+	private int width(int id)
+	{
+		return painter
+				.getStringWidth(lineNetwork.nodes.get(id).station.getName());
+	}
+
+}
@@ -0,0 +1,137 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
+
+public class TestNetworkIndex
+{
+
+	private static final double BULGE = 0.25;
+
+	private LineNetwork lineNetwork;
+	private NetworkIndex index;
+
+	@Before
+	public void setup()
+	{
+		lineNetwork = TestNetworks.grid(20, 15, 10);
+		index = new NetworkIndex(lineNetwork, BULGE);
+	}
+
+	@Test
+	public void testQueries()
+	{
+		testQueries(new Envelope(0, 190, 0, 140));
+		testQueries(new Envelope(-100, 300, -100, 300));
+		testQueries(new Envelope(12, 48, 33, 71));
+		testQueries(new Envelope(55, 55, 55, 55));
+		testQueries(new Envelope(500, 600, 500, 600));
+	}
+
+	@Test
+	public void testNodeChanged()
+	{
+		Node node = lineNetwork.nodes.get(7);
+		int version = index.getVersion();
+
+		// move the node far outside of the bounds of the grid
+		node.location = new Point(1000, -500);
+		index.nodeChanged(node);
+
+		Assert.assertNotEquals(version, index.getVersion());
+		int id = index.getNodeId(node);
+		Assert.assertEquals(1000, index.getNodeCoords()[id * 2], 0);
+		Assert.assertEquals(-500, index.getNodeCoords()[id * 2 + 1], 0);
+
+		testQueries(new Envelope(990, 1010, -510, -490));
+		testQueries(new Envelope(0, 190, 0, 140));
+		testQueries(new Envelope(0, 1000, -500, 140));
+	}
+
+	@Test
+	public void testNodeIds()
+	{
+		for (int i = 0; i < lineNetwork.nodes.size(); i++) {
+			Assert.assertEquals(i, index.getNodeId(lineNetwork.nodes.get(i)));
+		}
+		Assert.assertEquals(-1, index.getNodeId(new Node(null)));
+	}
+
+	private void testQueries(Envelope envelope)
+	{
+		IntArray result = new IntArray();
+
+		index.queryNodes(envelope, result);
+		Assert.assertEquals(expectedNodes(envelope), toList(result));
+
+		index.queryEdges(envelope, result);
+		Assert.assertEquals(expectedEdges(envelope), toList(result));
+	}
+
+	private List<Integer> expectedNodes(Envelope envelope)
+	{
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < lineNetwork.nodes.size(); i++) {
+			Point location = lineNetwork.nodes.get(i).location;
+			if (envelope.contains(location.x, location.y)) {
+				expected.add(i);
+			}
+		}
+		return expected;
+	}
+
+	private List<Integer> expectedEdges(Envelope envelope)
+	{
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < lineNetwork.edges.size(); i++) {
+			Edge edge = lineNetwork.edges.get(i);
+			Point a = edge.n1.location;
+			Point b = edge.n2.location;
+			double extra = BULGE * Math.hypot(b.x - a.x, b.y - a.y);
+			Envelope box = new Envelope(Math.min(a.x, b.x) - extra,
+					Math.max(a.x, b.x) + extra, Math.min(a.y, b.y) - extra,
+					Math.max(a.y, b.y) + extra);
+			if (box.intersects(envelope)) {
+				expected.add(i);
+			}
+		}
+		return expected;
+	}
+
+	private List<Integer> toList(IntArray array)
+	{
+		List<Integer> list = new ArrayList<>();
+		for (int i = 0; i < array.size(); i++) {
+			list.add(array.get(i));
+		}
+		return list;
+	}
+
+}
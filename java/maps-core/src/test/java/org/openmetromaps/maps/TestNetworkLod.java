@@ -0,0 +1,77 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+
+public class TestNetworkLod
+{
+
+	@Test
+	public void testNodeChanged()
+	{
+		LineNetwork lineNetwork = TestNetworks.grid(6, 4, 20);
+		NetworkLod lod = new NetworkLod(lineNetwork, 1.5);
+		List<NetworkLod.Chain> before = lod.getChains();
+
+		Node node = lineNetwork.nodes.get(9);
+		node.location = new Point(node.location.x + 7, node.location.y - 3);
+		lod.nodeChanged(node);
+		List<NetworkLod.Chain> after = lod.getChains();
+
+		// the previous list is left unchanged
+		Assert.assertNotSame(before, after);
+		Assert.assertEquals(before.size(), after.size());
+
+		List<NetworkLod.Chain> expected = new NetworkLod(lineNetwork, 1.5)
+				.getChains();
+		Assert.assertEquals(expected.size(), after.size());
+		int nUpdated = 0;
+		for (int i = 0; i < after.size(); i++) {
+			for (int level = 0; level < NetworkLod.NUM_LEVELS; level++) {
+				Assert.assertArrayEquals(expected.get(i).getCoords(level),
+						after.get(i).getCoords(level), 0);
+			}
+			if (after.get(i) != before.get(i)) {
+				nUpdated++;
+			}
+		}
+
+		// only the chains containing edges of the node are computed again
+		int nChains = 0;
+		for (NetworkLod.Chain chain : after) {
+			for (Edge edge : node.edges) {
+				if (chain.getEdges().contains(edge)) {
+					nChains++;
+					break;
+				}
+			}
+		}
+		Assert.assertTrue(nUpdated > 0);
+		Assert.assertEquals(nChains, nUpdated);
+	}
+
+}
@@ -0,0 +1,102 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkBuilder;
+import org.openmetromaps.maps.graph.LineNetworkUtil;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.model.Coordinate;
+import org.openmetromaps.maps.model.Line;
+import org.openmetromaps.maps.model.ModelData;
+import org.openmetromaps.maps.model.Station;
+import org.openmetromaps.maps.model.Stop;
+
+import de.topobyte.lightgeom.lina.Point;
+
+class TestNetworks
+{
+
+	/**
+	 * Create a network of nx * ny stations on a regular grid with the
+	 * specified spacing. Each row of stations is connected by a horizontal
+	 * line and each column by a vertical line.
+	 */
+	static LineNetwork grid(int nx, int ny, double spacing)
+	{
+		List<Station> stations = new ArrayList<>();
+		List<Line> lines = new ArrayList<>();
+
+		Station[][] grid = new Station[nx][ny];
+		for (int y = 0; y < ny; y++) {
+			for (int x = 0; x < nx; x++) {
+				int id = stations.size();
+				Station station = new Station(id, "Station " + (id + 1),
+						new Coordinate(x * spacing, y * spacing),
+						new ArrayList<Stop>());
+				stations.add(station);
+				grid[x][y] = station;
+			}
+		}
+
+		for (int y = 0; y < ny; y++) {
+			Line line = createLine(lines);
+			for (int x = 0; x < nx; x++) {
+				addStop(line, grid[x][y]);
+			}
+		}
+		for (int x = 0; x < nx; x++) {
+			Line line = createLine(lines);
+			for (int y = 0; y < ny; y++) {
+				addStop(line, grid[x][y]);
+			}
+		}
+
+		ModelData data = new ModelData(lines, stations);
+		LineNetworkBuilder builder = new LineNetworkBuilder(data,
+				MapModelUtil.allEdges(data));
+		LineNetwork lineNetwork = builder.getGraph();
+		for (Node node : lineNetwork.getNodes()) {
+			Coordinate coord = node.station.getLocation();
+			node.location = new Point(coord.getLongitude(),
+					coord.getLatitude());
+		}
+		LineNetworkUtil.calculateAllNeighborLocations(lineNetwork);
+		return lineNetwork;
+	}
+
+	private static Line createLine(List<Line> lines)
+	{
+		int id = lines.size();
+		Line line = new Line(id, "Line " + (id + 1), "#FF0000", false,
+				new ArrayList<Stop>());
+		lines.add(line);
+		return line;
+	}
+
+	private static void addStop(Line line, Station station)
+	{
+		Stop stop = new Stop(station, line);
+		line.getStops().add(stop);
+		station.getStops().add(stop);
+	}
+
+}
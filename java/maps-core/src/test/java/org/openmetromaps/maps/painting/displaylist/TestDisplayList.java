@@ -0,0 +1,162 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.displaylist;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.painting.core.GenericPaintInfo;
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.viewports.geometry.Envelope;
+
+public class TestDisplayList
+{
+
+	private GenericPaintInfo red = new GenericPaintInfo();
+	private GenericPaintInfo blue = new GenericPaintInfo();
+
+	/**
+	 * A painter that logs the commands it receives.
+	 */
+	private class LogPainter extends DisplayList
+	{
+
+		List<String> log = new ArrayList<>();
+
+		@Override
+		public void setPaintInfo(IPaintInfo paint)
+		{
+			log.add(paint == red ? "red" : "blue");
+		}
+
+		@Override
+		public void drawLine(double x1, double y1, double x2, double y2)
+		{
+			log.add("line " + x1 + " " + y1 + " " + x2 + " " + y2);
+		}
+
+		@Override
+		public void drawCircle(double x, double y, double radius)
+		{
+			log.add("circle " + x + " " + y + " " + radius);
+		}
+
+		@Override
+		public void draw(Path path)
+		{
+			log.add("path");
+		}
+
+		@Override
+		public void drawPolyline(double[] coords, int n)
+		{
+			log.add("polyline " + n);
+		}
+
+		@Override
+		public void drawCircles(double[] centers, int n, double radius)
+		{
+			log.add("circles " + n + " " + radius);
+		}
+
+		@Override
+		public void drawString(String string, float x, float y)
+		{
+			log.add("string " + string);
+		}
+
+	}
+
+	private DisplayList record()
+	{
+		DisplayList list = new DisplayList();
+		list.setPaintInfo(red);
+		list.drawLine(0, 0, 10, 10);
+		Path path = list.createPath();
+		path.moveTo(100, 100);
+		path.lineTo(110, 110);
+		path.cubicTo(120, 100, 130, 120, 140, 110);
+		list.draw(path);
+		list.setPaintInfo(blue);
+		list.drawCircle(200, 200, 5);
+		list.drawPolyline(new double[] { 300, 300, 310, 310 }, 2);
+		list.drawCircles(new double[] { 400, 400, 410, 410 }, 2, 3);
+		list.setPaintInfo(red);
+		list.drawString("label", 500, 500);
+		list.setPaintInfo(blue);
+		list.drawLine(5, 5, 6, 6);
+		return list;
+	}
+
+	@Test
+	public void testReplay()
+	{
+		LogPainter painter = new LogPainter();
+		record().replay(painter, 2, 1, 1, 3, null);
+
+		List<String> expected = new ArrayList<>();
+		expected.add("red");
+		expected.add("line 1.0 1.0 21.0 21.0");
+		expected.add("path");
+		expected.add("blue");
+		expected.add("circle 401.0 401.0 15.0");
+		expected.add("polyline 2");
+		expected.add("circles 2 9.0");
+		expected.add("red");
+		expected.add("string label");
+		expected.add("blue");
+		expected.add("line 11.0 11.0 13.0 13.0");
+		Assert.assertEquals(expected, painter.log);
+	}
+
+	@Test
+	public void testClip()
+	{
+		LogPainter painter = new LogPainter();
+		Envelope clip = new Envelope(0, 20, 0, 20);
+		record().replay(painter, 2, 1, 1, 2, clip);
+
+		// paints are only set for commands that are drawn, strings are never
+		// skipped
+		List<String> expected = new ArrayList<>();
+		expected.add("red");
+		expected.add("line 1.0 1.0 21.0 21.0");
+		expected.add("string label");
+		expected.add("blue");
+		expected.add("line 11.0 11.0 13.0 13.0");
+		Assert.assertEquals(expected, painter.log);
+
+		// a circle is visible if its radius reaches into the clip
+		painter.log.clear();
+		clip = new Envelope(204, 210, 200, 201);
+		record().replay(painter, 1, 0, 0, 1, clip);
+		Assert.assertTrue(painter.log.contains("circle 200.0 200.0 5.0"));
+		Assert.assertFalse(painter.log.contains("path"));
+
+		// the bounds of a path cover all of its points
+		painter.log.clear();
+		clip = new Envelope(135, 136, 119, 120);
+		record().replay(painter, 1, 0, 0, 1, clip);
+		Assert.assertTrue(painter.log.contains("path"));
+	}
+
+}
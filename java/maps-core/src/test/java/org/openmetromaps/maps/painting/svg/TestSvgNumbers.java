@@ -0,0 +1,77 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.svg;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSvgNumbers
+{
+
+	@Test
+	public void testIntegers()
+	{
+		test(2, 0, "0");
+		test(2, 3, "3");
+		test(2, -3, "-3");
+		test(2, 1.999, "2");
+		test(2, 1234567, "1234567");
+	}
+
+	@Test
+	public void testDecimals()
+	{
+		test(2, 1.5, "1.5");
+		test(2, 1.25, "1.25");
+		test(2, 1.256, "1.26");
+		test(2, 10.1, "10.1");
+		test(2, -10.1, "-10.1");
+		test(2, 0.05, "0.05");
+		test(2, -0.05, "-0.05");
+		test(3, 2.007, "2.007");
+		test(3, 2.07, "2.07");
+		test(3, 2.7, "2.7");
+	}
+
+	@Test
+	public void testRounding()
+	{
+		test(2, 0.006, "0.01");
+		test(2, -0.006, "-0.01");
+		// no negative zero
+		test(2, -0.004, "0");
+		test(0, 2.6, "3");
+		test(0, 2.4, "2");
+	}
+
+	@Test
+	public void testSpecialValues()
+	{
+		test(2, Double.NaN, "0");
+		test(2, Double.POSITIVE_INFINITY, "0");
+		test(2, Double.NEGATIVE_INFINITY, "0");
+	}
+
+	private void test(int decimals, double value, String expected)
+	{
+		StringBuilder buffer = new StringBuilder();
+		new SvgNumbers(decimals).append(buffer, value);
+		Assert.assertEquals(expected, buffer.toString());
+	}
+
+}
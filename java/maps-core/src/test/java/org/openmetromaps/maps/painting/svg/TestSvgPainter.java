@@ -0,0 +1,216 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.svg;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.painting.core.ColorCode;
+import org.openmetromaps.maps.painting.core.GenericPaintInfo;
+import org.openmetromaps.maps.painting.core.PaintType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+public class TestSvgPainter
+{
+
+	private GenericPaintInfo red = paint(0xFF0000, PaintType.STROKE);
+	private GenericPaintInfo blue = paint(0x0000FF, PaintType.STROKE);
+	private GenericPaintInfo text = paint(0x000000, PaintType.FILL);
+
+	@Test
+	public void testEscaping() throws Exception
+	{
+		StringBuilder output = new StringBuilder();
+		SvgPainter painter = start(output);
+		painter.setPaintInfo(text);
+		painter.drawString("A<B & C>D", 10, 20);
+		painter.finish();
+
+		Assert.assertTrue(output.toString()
+				.contains(">A&lt;B &amp; C&gt;D</text>"));
+
+		Document document = parse(output);
+		NodeList texts = document.getElementsByTagName("text");
+		Assert.assertEquals(1, texts.getLength());
+		Assert.assertEquals("A<B & C>D", texts.item(0).getTextContent());
+	}
+
+	@Test
+	public void testGrouping() throws Exception
+	{
+		StringBuilder output = new StringBuilder();
+		SvgPainter painter = start(output);
+		painter.setPaintInfo(red);
+		painter.drawLine(0, 0, 10, 10);
+		painter.drawLine(10, 10, 20, 0);
+		painter.drawLine(20, 0, 30, 10);
+		painter.setPaintInfo(blue);
+		painter.drawLine(0, 10, 10, 0);
+		painter.setPaintInfo(red);
+		painter.drawLine(0, 20, 10, 20);
+		painter.finish();
+
+		Document document = parse(output);
+		Element root = document.getDocumentElement();
+
+		// a run of elements with the same class is grouped
+		NodeList groups = root.getElementsByTagName("g");
+		Assert.assertEquals(1, groups.getLength());
+		Element group = (Element) groups.item(0);
+		Assert.assertEquals(3, group.getElementsByTagName("path").getLength());
+		String redClass = group.getAttribute("class");
+
+		// single elements carry their class directly
+		NodeList paths = root.getElementsByTagName("path");
+		Assert.assertEquals(5, paths.getLength());
+		Element blueLine = (Element) paths.item(3);
+		Element redLine = (Element) paths.item(4);
+		Assert.assertEquals(root, blueLine.getParentNode());
+		Assert.assertEquals(root, redLine.getParentNode());
+		Assert.assertNotEquals(redClass, blueLine.getAttribute("class"));
+		Assert.assertEquals(redClass, redLine.getAttribute("class"));
+		Assert.assertEquals("M0 20L10 20", redLine.getAttribute("d"));
+	}
+
+	@Test
+	public void testClasses() throws Exception
+	{
+		StringBuilder output = new StringBuilder();
+		SvgPainter painter = start(output);
+		painter.setPaintInfo(red);
+		painter.drawCircle(1, 2, 3);
+		// an equal paint maps to the same class
+		painter.setPaintInfo(paint(0xFF0000, PaintType.STROKE));
+		painter.drawCircle(4, 5, 6);
+		painter.setPaintInfo(blue);
+		painter.drawCircle(7, 8, 9);
+		painter.finish();
+
+		Document document = parse(output);
+		// a single style element for the text and all classes
+		NodeList styles = document.getElementsByTagName("style");
+		Assert.assertEquals(1, styles.getLength());
+		String rules = styles.item(0).getTextContent();
+		Assert.assertTrue(rules.contains("text{"));
+		Assert.assertTrue(rules.contains(".s0{"));
+		Assert.assertTrue(rules.contains(".s1{"));
+		Assert.assertFalse(rules.contains(".s2{"));
+		NodeList circles = document.getElementsByTagName("circle");
+		Assert.assertEquals(3, circles.getLength());
+		Element first = (Element) circles.item(0);
+		Element second = (Element) circles.item(1);
+		Assert.assertEquals(first.getAttribute("class"),
+				second.getAttribute("class"));
+		Assert.assertEquals("1", first.getAttribute("cx"));
+		Assert.assertEquals("6", second.getAttribute("r"));
+	}
+
+	@Test
+	public void testStylesPerFlush() throws Exception
+	{
+		StringBuilder output = new StringBuilder();
+		SvgPainter painter = start(output);
+		painter.setPaintInfo(red);
+		// enough elements to pass a chunk to the output
+		for (int i = 0; i < 5000; i++) {
+			painter.drawLine(i, 0, i, 100);
+		}
+		painter.setPaintInfo(blue);
+		painter.drawLine(0, 0, 100, 100);
+		painter.finish();
+
+		Document document = parse(output);
+		NodeList styles = document.getElementsByTagName("style");
+		Assert.assertEquals(2, styles.getLength());
+		Assert.assertTrue(styles.item(0).getTextContent().contains(".s0{"));
+		Assert.assertTrue(styles.item(1).getTextContent().contains(".s1{"));
+
+		// the rules of a class precede its first use
+		String svg = output.toString();
+		Assert.assertTrue(svg.indexOf(".s1{") < svg.indexOf("class=\"s1\""));
+	}
+
+	@Test
+	public void testDeferredError()
+	{
+		Appendable failing = new Appendable() {
+
+			@Override
+			public Appendable append(CharSequence csq) throws IOException
+			{
+				throw new IOException("disk full");
+			}
+
+			@Override
+			public Appendable append(CharSequence csq, int start, int end)
+					throws IOException
+			{
+				throw new IOException("disk full");
+			}
+
+			@Override
+			public Appendable append(char c) throws IOException
+			{
+				throw new IOException("disk full");
+			}
+
+		};
+
+		SvgPainter painter = start(failing);
+		painter.setPaintInfo(red);
+		painter.drawLine(0, 0, 10, 10);
+		try {
+			painter.finish();
+			Assert.fail("expected an exception");
+		} catch (IOException e) {
+			Assert.assertEquals("disk full", e.getMessage());
+		}
+	}
+
+	private SvgPainter start(Appendable output)
+	{
+		SvgPainter painter = new SvgPainter(output, null);
+		painter.start(100, 100);
+		return painter;
+	}
+
+	private static GenericPaintInfo paint(int rgb, PaintType type)
+	{
+		GenericPaintInfo paint = new GenericPaintInfo(new ColorCode(rgb), 2);
+		paint.setStyle(type);
+		paint.setFontSize(12);
+		return paint;
+	}
+
+	private static Document parse(StringBuilder output) throws Exception
+	{
+		DocumentBuilder builder = DocumentBuilderFactory.newInstance()
+				.newDocumentBuilder();
+		return builder
+				.parse(new InputSource(new StringReader(output.toString())));
+	}
+
+}
@@ -45,10 +45,12 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.openmetromaps.maps.Constants;
 import org.openmetromaps.maps.DataChangeListener;
 import org.openmetromaps.maps.InitialViewportSetupListener;
+import org.openmetromaps.maps.IntArray;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
 import org.openmetromaps.maps.MapViewStatus;
 import org.openmetromaps.maps.ModelUtil;
+import org.openmetromaps.maps.NetworkIndex;
 import org.openmetromaps.maps.PlanRenderer;
 import org.openmetromaps.maps.ScrollableAdvancedPanel;
 import org.openmetromaps.maps.ViewConfig;
@@ -73,7 +75,10 @@ import org.openmetromaps.maps.editor.actions.help.AboutAction;
 import org.openmetromaps.maps.editor.actions.help.LicenseAction;
 import org.openmetromaps.maps.editor.actions.view.DebugRanksAction;
 import org.openmetromaps.maps.editor.actions.view.DebugTangentsAction;
+import org.openmetromaps.maps.editor.actions.view.DraftWhileMovingAction;
+import org.openmetromaps.maps.editor.actions.view.DumpMetricsAction;
 import org.openmetromaps.maps.editor.actions.view.ShowLabelsAction;
+import org.openmetromaps.maps.editor.actions.view.ShowMetricsAction;
 import org.openmetromaps.maps.editor.actions.view.ShowStationCentersAction;
 import org.openmetromaps.maps.editor.config.ConfigurationHelper;
 import org.openmetromaps.maps.editor.config.PermanentConfigReader;
@@ -81,7 +86,6 @@ import org.openmetromaps.maps.editor.config.PermanentConfiguration;
 import org.openmetromaps.maps.editor.config.VolatileConfigReader;
 import org.openmetromaps.maps.editor.config.VolatileConfiguration;
 import org.openmetromaps.maps.editor.dockables.DockableHelper;
-import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -91,8 +95,6 @@ import bibliothek.gui.dock.common.CControl;
 import bibliothek.gui.dock.common.CGrid;
 import bibliothek.gui.dock.common.DefaultSingleCDockable;
 import de.topobyte.awt.util.GridBagConstraintsEditor;
-import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.lightgeom.lina.Vector2;
 import de.topobyte.melon.io.StreamUtil;
 import de.topobyte.swing.util.EmptyIcon;
 import de.topobyte.swing.util.JMenus;
@@ -100,6 +102,7 @@ import de.topobyte.swing.util.action.enums.BooleanValueHolder;
 import de.topobyte.swing.util.action.enums.DefaultAppearance;
 import de.topobyte.swing.util.action.enums.EnumActions;
 import de.topobyte.swing.util.action.enums.EnumValueHolder;
+import de.topobyte.viewports.geometry.Envelope;
 import de.topobyte.viewports.scrolling.PanMouseAdapter;
 import de.topobyte.viewports.scrolling.ScrollableView;
 import de.topobyte.viewports.scrolling.ViewportUtil;
@@ -109,6 +112,9 @@ public class MapEditor
 
 	final static Logger logger = LoggerFactory.getLogger(MapEditor.class);
 
+	// distance in pixels within which stations are found under the pointer
+	private static final double MOUSE_NODE_RADIUS = 8;
+
 	private PermanentConfiguration permanentConfig;
 	private VolatileConfiguration volatileConfig;
 
@@ -126,6 +132,10 @@ public class MapEditor
 	private CGrid grid;
 
 	private ScrollableAdvancedPanel map;
+
+	private Envelope mouseQuery = new Envelope();
+	private IntArray mouseNodes = new IntArray();
+
 	private StatusBar statusBar;
 
 	private StationPanel stationPanel;
@@ -153,6 +163,14 @@ public class MapEditor
 	private BooleanValueHolder debugRanks = new BooleanValueHolder(
 			changeSupport, "debug-ranks", x -> setDebugRanksInternal(), false);
 
+	private BooleanValueHolder draftWhileMoving = new BooleanValueHolder(
+			changeSupport, "draft-while-moving",
+			x -> setDraftWhileMovingInternal(), true);
+
+	private BooleanValueHolder showMetrics = new BooleanValueHolder(
+			changeSupport, "show-metrics", x -> setShowMetricsInternal(),
+			false);
+
 	private EnumValueHolder<StationMode> stationMode = new EnumValueHolder<>(
 			changeSupport, "station-mode", x -> setStationModeInternal(),
 			StationMode.CONVEX);
@@ -284,9 +302,45 @@ public class MapEditor
 	{
 		map.getPlanRenderer()
 				.setRenderStationCenters(showStationCenters.getValue());
+		map.repaintOverlay();
+	}
+
+	public boolean isDraftWhileMoving()
+	{
+		return draftWhileMoving.getValue();
+	}
+
+	public void setDraftWhileMoving(boolean draftWhileMoving)
+	{
+		this.draftWhileMoving.setValue(draftWhileMoving);
+	}
+
+	public void setDraftWhileMovingInternal()
+	{
+		map.setDraftWhileMoving(draftWhileMoving.getValue());
+	}
+
+	public boolean isShowMetrics()
+	{
+		return showMetrics.getValue();
+	}
+
+	public void setShowMetrics(boolean showMetrics)
+	{
+		this.showMetrics.setValue(showMetrics);
+	}
+
+	public void setShowMetricsInternal()
+	{
+		map.setShowMetricsOverlay(showMetrics.getValue());
 		map.repaint();
 	}
 
+	public void dumpMetrics()
+	{
+		logger.info("render metrics: " + map.getMetrics().toJson());
+	}
+
 	public boolean isDebugTangents()
 	{
 		return debugTangents.getValue();
@@ -300,7 +354,7 @@ public class MapEditor
 	public void setDebugTangentsInternal()
 	{
 		map.getPlanRenderer().setDebugTangents(debugTangents.getValue());
-		map.repaint();
+		map.repaintOverlay();
 	}
 
 	public boolean isDebugRanks()
@@ -316,7 +370,7 @@ public class MapEditor
 	public void setDebugRanksInternal()
 	{
 		map.getPlanRenderer().setDebugRanks(debugRanks.getValue());
-		map.repaint();
+		map.repaintOverlay();
 	}
 
 	public StationMode getStationMode()
@@ -333,6 +387,7 @@ public class MapEditor
 		planRenderer.setSegmentMode(segmentMode.getValue());
 		planRenderer.setDebugTangents(debugTangents.getValue());
 		planRenderer.setDebugRanks(debugRanks.getValue());
+		map.setDraftWhileMoving(draftWhileMoving.getValue());
 	}
 
 	private void init(MapModel model)
@@ -521,10 +576,15 @@ public class MapEditor
 		JMenu segmentMode = submenu("Segment mode");
 		menuView.add(stationMode);
 		menuView.add(segmentMode);
+		JMenus.addCheckbox(menuView, new DraftWhileMovingAction(this),
+				KeyEvent.VK_F7);
 		JMenus.addCheckbox(menuView, new DebugTangentsAction(this),
 				KeyEvent.VK_F4);
 		JMenus.addCheckbox(menuView, new DebugRanksAction(this),
 				KeyEvent.VK_F5);
+		JMenus.addCheckbox(menuView, new ShowMetricsAction(this),
+				KeyEvent.VK_F6);
+		JMenus.addItem(menuView, new DumpMetricsAction(this));
 
 		EnumActions.add(stationMode, StationMode.class, this.stationMode,
 				x -> setStationMode(x), new DefaultAppearance<>());
@@ -575,6 +635,7 @@ public class MapEditor
 		map = new ScrollableAdvancedPanel(model.getData(), view, mapViewStatus,
 				PlanRenderer.StationMode.CONVEX, PlanRenderer.SegmentMode.CURVE,
 				10, 15);
+		map.setRenderInBackground(true);
 
 		ScrollableView<ScrollableAdvancedPanel> scrollableView = new ScrollableView<>(
 				map);
@@ -611,57 +672,41 @@ public class MapEditor
 		control.getContentArea().deploy(grid);
 	}
 
-	protected void updateStatusBar(int x, int y)
+	protected void updateStatusBar(int x, int y, Node node)
 	{
-		Node node = mouseNode(x, y);
-
 		String stationName = node == null ? "none" : node.station.getName();
 
 		statusBar.setText(String.format("Location: %d,%d, Station: %s", x, y,
 				stationName));
 	}
 
+	/**
+	 * Find the station closest to the specified point of the view, if there
+	 * is one within a few pixels.
+	 *
+	 * @return the station or null if there is none.
+	 */
 	protected Node mouseNode(int x, int y)
 	{
-		Node best = closestNode(x, y);
-
-		if (best == null) {
-			return null;
-		}
-
-		double sx = ViewportUtil.getViewX(map, best.location.x);
-		double sy = ViewportUtil.getViewY(map, best.location.y);
-
-		double dx = Math.abs(sx - x);
-		double dy = Math.abs(sy - y);
-		double d = Math.sqrt(dx * dx + dy * dy);
-
-		if (d < 8) {
-			return best;
-		}
-
-		return null;
-	}
-
-	protected Node closestNode(int vx, int vy)
-	{
-		double x = ViewportUtil.getRealX(map, vx);
-		double y = ViewportUtil.getRealY(map, vy);
+		double rx = ViewportUtil.getRealX(map, x);
+		double ry = ViewportUtil.getRealY(map, y);
+		double radius = MOUSE_NODE_RADIUS / map.getZoom();
+		mouseQuery.init(rx - radius, rx + radius, ry - radius, ry + radius);
 
-		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
+		NetworkIndex index = map.getPlanRenderer().getIndex();
+		index.queryNodes(mouseQuery, mouseNodes);
+		double[] coords = index.getNodeCoords();
 
-		double bestDistance = Double.MAX_VALUE;
+		double bestDistance = radius * radius;
 		Node best = null;
-
-		// TODO: use an index to speed this up
-		for (Node node : lineNetwork.nodes) {
-			Point location = node.location;
-			Vector2 v1 = new Vector2(location);
-			Vector2 v2 = new Vector2(x, y);
-			double d = v2.sub(v1).length2();
+		for (int i = 0; i < mouseNodes.size(); i++) {
+			int id = mouseNodes.get(i);
+			double dx = coords[id * 2] - rx;
+			double dy = coords[id * 2 + 1] - ry;
+			double d = dx * dx + dy * dy;
 			if (d < bestDistance) {
 				bestDistance = d;
-				best = node;
+				best = index.getNode(id);
 			}
 		}
 
@@ -694,7 +739,7 @@ public class MapEditor
 	public void updateStationPanel()
 	{
 		if (mapViewStatus.getNumSelectedNodes() == 1) {
-			Node node = mapViewStatus.getSelectedNodes().iterator().next();
+			Node node = mapViewStatus.getSelectedNode(0);
 			stationPanel.setNode(node);
 		} else {
 			stationPanel.setNode(null);
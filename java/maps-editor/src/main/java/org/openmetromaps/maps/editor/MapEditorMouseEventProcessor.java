@@ -21,6 +21,10 @@ import java.awt.event.MouseEvent;
 
 import org.openmetromaps.maps.BaseMapWindowPanel;
 import org.openmetromaps.maps.BaseMouseEventProcessor;
+import org.openmetromaps.maps.DamageUtil;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.ScrollableAdvancedPanel;
+import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.LineNetworkUtil;
 import org.openmetromaps.maps.graph.Node;
 import org.openmetromaps.swing.Util;
@@ -28,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Envelope;
 import de.topobyte.viewports.scrolling.ViewportUtil;
 
 public class MapEditorMouseEventProcessor
@@ -77,7 +82,7 @@ public class MapEditorMouseEventProcessor
 			mapEditor.selectNone();
 		}
 
-		mapEditor.getMap().repaint();
+		mapEditor.getMap().repaintOverlay();
 	}
 
 	@Override
@@ -93,7 +98,16 @@ public class MapEditorMouseEventProcessor
 	public void mouseMoved(MouseEvent e)
 	{
 		super.mouseMoved(e);
-		mapEditor.updateStatusBar(e.getX(), e.getY());
+		Node node = mapEditor.mouseNode(e.getX(), e.getY());
+		mapEditor.updateStatusBar(e.getX(), e.getY(), node);
+		mapEditor.getMapViewStatus().setHoveredNode(node);
+	}
+
+	@Override
+	public void mouseExited(MouseEvent e)
+	{
+		super.mouseExited(e);
+		mapEditor.getMapViewStatus().setHoveredNode(null);
 	}
 
 	@Override
@@ -110,16 +124,28 @@ public class MapEditorMouseEventProcessor
 			int dy = currentPoint.y - lastPoint.y;
 			lastPoint = currentPoint;
 
-			for (Node node : mapEditor.getMapViewStatus().getSelectedNodes()) {
+			ScrollableAdvancedPanel map = mapEditor.getMap();
+			double bulge = map.getPlanRenderer().getIndex().getBulge();
+
+			MapViewStatus status = mapEditor.getMapViewStatus();
+			int numSelected = status.getNumSelectedNodes();
+
+			Envelope damage = new Envelope();
+			for (int i = 0; i < numSelected; i++) {
+				Node node = status.getSelectedNode(i);
+				Point old = node.location;
 				update(node, dx, dy);
+				DamageUtil.nodeMoved(damage, node, old, bulge);
 			}
 
-			for (Node node : mapEditor.getMapViewStatus().getSelectedNodes()) {
-				LineNetworkUtil.updateEdges(node);
+			LineNetwork lineNetwork = map.getLineNetwork();
+			for (int i = 0; i < numSelected; i++) {
+				LineNetworkUtil.updateEdges(lineNetwork,
+						status.getSelectedNode(i));
 			}
 
 			mapEditor.triggerDataChanged();
-			c.repaint();
+			map.repaintScene(damage);
 		}
 	}
 
@@ -163,7 +163,8 @@ public class StationPanel extends JPanel
 			double parsedX = Double.parseDouble(valX);
 			double parsedY = Double.parseDouble(valY);
 			node.location = new Point(parsedX, parsedY);
-			LineNetworkUtil.updateEdges(node);
+			LineNetworkUtil.updateEdges(mapEditor.getMap().getLineNetwork(),
+					node);
 			mapEditor.getMap().repaint();
 		} catch (NumberFormatException e) {
 			logger.warn("Error while parsing value. " + e.getMessage());
@@ -25,6 +25,7 @@ import java.util.Set;
 import org.openmetromaps.maps.Points;
 import org.openmetromaps.maps.editor.MapEditor;
 import org.openmetromaps.maps.editor.actions.MapEditorAction;
+import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.LineNetworkUtil;
 import org.openmetromaps.maps.graph.Node;
 import org.slf4j.Logger;
@@ -63,8 +64,9 @@ public class AlignHorizontallyAction extends MapEditorAction
 			node.location = new Point(mean.getX(), node.location.getY());
 		}
 
+		LineNetwork lineNetwork = mapEditor.getMap().getLineNetwork();
 		for (Node node : nodes) {
-			LineNetworkUtil.updateEdges(node);
+			LineNetworkUtil.updateEdges(lineNetwork, node);
 		}
 
 		mapEditor.getMap().repaint();
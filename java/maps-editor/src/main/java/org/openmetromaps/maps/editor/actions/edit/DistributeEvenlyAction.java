@@ -122,10 +122,10 @@ public class DistributeEvenlyAction extends MapEditorAction
 			node.location = new Point(x, y);
 		}
 
-		LineNetworkUtil.updateEdges(nodesBetween.getStart());
-		LineNetworkUtil.updateEdges(nodesBetween.getEnd());
+		LineNetworkUtil.updateEdges(lineNetwork, nodesBetween.getStart());
+		LineNetworkUtil.updateEdges(lineNetwork, nodesBetween.getEnd());
 		for (Node node : between) {
-			LineNetworkUtil.updateEdges(node);
+			LineNetworkUtil.updateEdges(lineNetwork, node);
 		}
 
 		mapEditor.getMap().repaint();
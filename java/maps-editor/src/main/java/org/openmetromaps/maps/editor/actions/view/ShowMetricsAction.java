@@ -0,0 +1,49 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.editor.actions.view;
+
+import org.openmetromaps.maps.editor.MapEditor;
+import org.openmetromaps.maps.editor.actions.MapEditorBooleanAction;
+
+import de.topobyte.swing.util.EmptyIcon;
+
+public class ShowMetricsAction extends MapEditorBooleanAction
+{
+
+	private static final long serialVersionUID = 1L;
+
+	public ShowMetricsAction(MapEditor mapEditor)
+	{
+		super(mapEditor, "Show Render Metrics",
+				"Toggle display of frame rate and frame times");
+		setIcon(new EmptyIcon(24));
+	}
+
+	@Override
+	public boolean getState()
+	{
+		return mapEditor.isShowMetrics();
+	}
+
+	@Override
+	public void toggleState()
+	{
+		mapEditor.setShowMetrics(!mapEditor.isShowMetrics());
+	}
+
+}
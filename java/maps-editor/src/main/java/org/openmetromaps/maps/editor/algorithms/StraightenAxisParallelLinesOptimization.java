@@ -72,7 +72,7 @@ public class StraightenAxisParallelLinesOptimization
 		}
 
 		for (Node node : network.nodes) {
-			LineNetworkUtil.updateEdges(node);
+			LineNetworkUtil.updateEdges(network, node);
 		}
 	}
 
@@ -88,6 +88,7 @@ public class ScrollableAdvancedPlanPanel extends BaseMapWindowPanel
 		float scale = (float) getDevicePixelRatio();
 		renderer = new PlanRenderer(lineNetwork, mapViewStatus, stationMode,
 				segmentMode, this, this, scale, new GenericPaintFactory());
+		renderer.setUseDisplayList(true);
 	}
 
 	@Override
@@ -143,6 +143,33 @@ public class GwtPainter implements Painter
 		return (int) metrics.getWidth();
 	}
 
+	@Override
+	public void drawPolyline(double[] coords, int n)
+	{
+		if (n < 2) {
+			return;
+		}
+		c.beginPath();
+		c.moveTo(coords[0], coords[1]);
+		for (int i = 1; i < n; i++) {
+			c.lineTo(coords[i * 2], coords[i * 2 + 1]);
+		}
+		fillOrStroke();
+	}
+
+	@Override
+	public void drawCircles(double[] centers, int n, double radius)
+	{
+		c.beginPath();
+		for (int i = 0; i < n; i++) {
+			double x = centers[i * 2];
+			double y = centers[i * 2 + 1];
+			c.moveTo(x + radius, y);
+			c.arc(x, y, radius, 0, 2 * Math.PI);
+		}
+		fillOrStroke();
+	}
+
 	private IntHexFormatter hex = new IntHexFormatter();
 	{
 		hex.setMinWidth(6);
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.openmetromaps.maps.painting.core.geom.Path;
+import org.openmetromaps.maps.painting.gwt.path.CubicTo;
 import org.openmetromaps.maps.painting.gwt.path.LineTo;
 import org.openmetromaps.maps.painting.gwt.path.MoveTo;
 import org.openmetromaps.maps.painting.gwt.path.PathOperation;
@@ -60,6 +61,13 @@ public class GwtPath implements Path
 		operations.add(new LineTo(x, y));
 	}
 
+	@Override
+	public void cubicTo(double c1x, double c1y, double c2x, double c2y,
+			double x, double y)
+	{
+		operations.add(new CubicTo(c1x, c1y, c2x, c2y, x, y));
+	}
+
 	@Override
 	public void moveTo(Point p)
 	{
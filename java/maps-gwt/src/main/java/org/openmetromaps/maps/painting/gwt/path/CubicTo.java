@@ -0,0 +1,49 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.gwt.path;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+
+public class CubicTo implements PathOperation
+{
+
+	private double c1x;
+	private double c1y;
+	private double c2x;
+	private double c2y;
+	private double x;
+	private double y;
+
+	public CubicTo(double c1x, double c1y, double c2x, double c2y, double x,
+			double y)
+	{
+		this.c1x = c1x;
+		this.c1y = c1y;
+		this.c2x = c2x;
+		this.c2y = c2y;
+		this.x = x;
+		this.y = y;
+	}
+
+	@Override
+	public void render(Context2d c)
+	{
+		c.bezierCurveTo(c1x, c1y, c2x, c2y, x, y);
+	}
+
+}
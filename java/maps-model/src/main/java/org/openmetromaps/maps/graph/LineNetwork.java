@@ -32,6 +32,8 @@ public class LineNetwork
 
 	private Map<Station, Node> stationToNode;
 
+	private List<LineNetworkListener> listeners = new ArrayList<>();
+
 	public List<Node> getNodes()
 	{
 		return nodes;
@@ -57,4 +59,28 @@ public class LineNetwork
 		this.stationToNode = stationToNode;
 	}
 
+	public void addListener(LineNetworkListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	public void removeListener(LineNetworkListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	public void fireNodeChanged(Node node)
+	{
+		for (LineNetworkListener listener : listeners) {
+			listener.nodeChanged(node);
+		}
+	}
+
+	public void fireNetworkChanged()
+	{
+		for (LineNetworkListener listener : listeners) {
+			listener.networkChanged();
+		}
+	}
+
 }
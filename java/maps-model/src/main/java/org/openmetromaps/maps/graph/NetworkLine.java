@@ -99,6 +99,20 @@ public class NetworkLine
 		}
 	}
 
+	/**
+	 * Set the neighbors of an edge directly, e.g. when copying a network.
+	 */
+	public void setNeighbors(Edge edge, Node prev, Node next)
+	{
+		if (prev != null) {
+			prevs.put(edge, prev);
+		}
+		if (next != null) {
+			nexts.put(edge, next);
+		}
+		neighbors.put(edge, new NeighborInfo(prev, next));
+	}
+
 	public NeighborInfo getNeighbors(Edge edge)
 	{
 		return neighbors.get(edge);
@@ -34,6 +34,13 @@ public class Node
 	public boolean isLastStopOfALine;
 	public int rank;
 
+	/**
+	 * A dense id assigned when building the network, which is the position of
+	 * the node in {@link LineNetwork#nodes}, or -1 if the node has been added
+	 * afterwards.
+	 */
+	public int index = -1;
+
 	public Node(Station station)
 	{
 		this.station = station;
@@ -58,6 +58,7 @@ import org.openmetromaps.maps.morpher.actions.file.Open1Action;
 import org.openmetromaps.maps.morpher.actions.file.Open2Action;
 import org.openmetromaps.maps.morpher.actions.help.AboutAction;
 import org.openmetromaps.maps.morpher.actions.help.LicenseAction;
+import org.openmetromaps.maps.morpher.actions.view.DraftWhileMovingAction;
 import org.openmetromaps.maps.morpher.actions.view.ShowLabelsAction;
 import org.openmetromaps.maps.morpher.actions.view.ShowStationCentersAction;
 import org.slf4j.Logger;
@@ -106,6 +107,10 @@ public class MapMorpher
 			changeSupport, "show-station-centers",
 			x -> setShowStationCentersInternal(), false);
 
+	private BooleanValueHolder draftWhileMoving = new BooleanValueHolder(
+			changeSupport, "draft-while-moving",
+			x -> setDraftWhileMovingInternal(), true);
+
 	private EnumValueHolder<StationMode> stationMode = new EnumValueHolder<>(
 			changeSupport, "station-mode", x -> setStationModeInternal(),
 			StationMode.CONVEX);
@@ -230,6 +235,21 @@ public class MapMorpher
 		map.repaint();
 	}
 
+	public boolean isDraftWhileMoving()
+	{
+		return draftWhileMoving.getValue();
+	}
+
+	public void setDraftWhileMoving(boolean draftWhileMoving)
+	{
+		this.draftWhileMoving.setValue(draftWhileMoving);
+	}
+
+	public void setDraftWhileMovingInternal()
+	{
+		map.setDraftWhileMoving(draftWhileMoving.getValue());
+	}
+
 	public StationMode getStationMode()
 	{
 		return stationMode.getValue();
@@ -242,6 +262,7 @@ public class MapMorpher
 		planRenderer.setRenderStationCenters(showStationCenters.getValue());
 		planRenderer.setStationMode(stationMode.getValue());
 		planRenderer.setSegmentMode(segmentMode.getValue());
+		map.setDraftWhileMoving(draftWhileMoving.getValue());
 	}
 
 	private void init(MapModel model1, MapModel model2)
@@ -387,6 +408,8 @@ public class MapMorpher
 		JMenu segmentMode = submenu("Segment mode");
 		menuView.add(stationMode);
 		menuView.add(segmentMode);
+		JMenus.addCheckbox(menuView, new DraftWhileMovingAction(this),
+				KeyEvent.VK_F4);
 
 		EnumActions.add(stationMode, StationMode.class, this.stationMode,
 				x -> setStationMode(x), new DefaultAppearance<>());
@@ -47,23 +47,26 @@ import javax.swing.WindowConstants;
 import org.openmetromaps.maps.Constants;
 import org.openmetromaps.maps.DataChangeListener;
 import org.openmetromaps.maps.InitialViewportSetupListener;
+import org.openmetromaps.maps.IntArray;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
 import org.openmetromaps.maps.MapViewStatus;
 import org.openmetromaps.maps.ModelUtil;
+import org.openmetromaps.maps.NetworkIndex;
 import org.openmetromaps.maps.PlanRenderer;
 import org.openmetromaps.maps.PlanRenderer.SegmentMode;
 import org.openmetromaps.maps.PlanRenderer.StationMode;
 import org.openmetromaps.maps.ScrollableAdvancedPanel;
 import org.openmetromaps.maps.ViewConfig;
-import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.Node;
 import org.openmetromaps.maps.viewer.actions.file.ExitAction;
 import org.openmetromaps.maps.viewer.actions.file.OpenAction;
 import org.openmetromaps.maps.viewer.actions.help.AboutAction;
 import org.openmetromaps.maps.viewer.actions.help.LicenseAction;
+import org.openmetromaps.maps.viewer.actions.view.DumpMetricsAction;
 import org.openmetromaps.maps.viewer.actions.view.ShowLabelsAction;
 import org.openmetromaps.maps.viewer.actions.view.ShowMapAction;
+import org.openmetromaps.maps.viewer.actions.view.ShowMetricsAction;
 import org.openmetromaps.maps.viewer.actions.view.ShowStationCentersAction;
 import org.openmetromaps.maps.viewer.jeography.JeographyZoomAction;
 import org.slf4j.Logger;
@@ -75,14 +78,13 @@ import bibliothek.gui.dock.common.DefaultSingleCDockable;
 import de.topobyte.awt.util.GridBagConstraintsEditor;
 import de.topobyte.jeography.viewer.config.TileConfigUrl;
 import de.topobyte.jeography.viewer.core.Viewer;
-import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.lightgeom.lina.Vector2;
 import de.topobyte.swing.util.EmptyIcon;
 import de.topobyte.swing.util.JMenus;
 import de.topobyte.swing.util.action.enums.BooleanValueHolder;
 import de.topobyte.swing.util.action.enums.DefaultAppearance;
 import de.topobyte.swing.util.action.enums.EnumActions;
 import de.topobyte.swing.util.action.enums.EnumValueHolder;
+import de.topobyte.viewports.geometry.Envelope;
 import de.topobyte.viewports.scrolling.PanMouseAdapter;
 import de.topobyte.viewports.scrolling.ScrollableView;
 import de.topobyte.viewports.scrolling.ViewportUtil;
@@ -93,6 +95,9 @@ public class MapViewer
 
 	final static Logger logger = LoggerFactory.getLogger(MapViewer.class);
 
+	// distance in pixels within which stations are found under the pointer
+	private static final double MOUSE_NODE_RADIUS = 8;
+
 	private MapModel model;
 	private MapView view;
 	private MapViewStatus mapViewStatus;
@@ -107,6 +112,10 @@ public class MapViewer
 	private CGrid grid;
 
 	private ScrollableAdvancedPanel map;
+
+	private Envelope mouseQuery = new Envelope();
+	private IntArray mouseNodes = new IntArray();
+
 	private StatusBar statusBar;
 
 	private JFrame frameMap = null;
@@ -127,6 +136,10 @@ public class MapViewer
 	private BooleanValueHolder showMap = new BooleanValueHolder(changeSupport,
 			"show-map", x -> setShowMapInternal(x), false);
 
+	private BooleanValueHolder showMetrics = new BooleanValueHolder(
+			changeSupport, "show-metrics", x -> setShowMetricsInternal(),
+			false);
+
 	private EnumValueHolder<StationMode> stationMode = new EnumValueHolder<>(
 			changeSupport, "station-mode", x -> setStationModeInternal(),
 			StationMode.CONVEX);
@@ -194,7 +207,7 @@ public class MapViewer
 	{
 		map.getPlanRenderer()
 				.setRenderStationCenters(showStationCenters.getValue());
-		map.repaint();
+		map.repaintOverlay();
 	}
 
 	public boolean isShowMap()
@@ -268,6 +281,27 @@ public class MapViewer
 		});
 	}
 
+	public boolean isShowMetrics()
+	{
+		return showMetrics.getValue();
+	}
+
+	public void setShowMetrics(boolean showMetrics)
+	{
+		this.showMetrics.setValue(showMetrics);
+	}
+
+	public void setShowMetricsInternal()
+	{
+		map.setShowMetricsOverlay(showMetrics.getValue());
+		map.repaint();
+	}
+
+	public void dumpMetrics()
+	{
+		logger.info("render metrics: " + map.getMetrics().toJson());
+	}
+
 	public StationMode getStationMode()
 	{
 		return stationMode.getValue();
@@ -431,6 +465,9 @@ public class MapViewer
 				KeyEvent.VK_F3);
 		showMapAction = new ShowMapAction(this);
 		JMenus.addCheckbox(menuView, showMapAction, KeyEvent.VK_F4);
+		JMenus.addCheckbox(menuView, new ShowMetricsAction(this),
+				KeyEvent.VK_F5);
+		JMenus.addItem(menuView, new DumpMetricsAction(this));
 		JMenu stationMode = submenu("Station mode");
 		JMenu segmentMode = submenu("Segment mode");
 		menuView.add(stationMode);
@@ -485,6 +522,7 @@ public class MapViewer
 		map = new ScrollableAdvancedPanel(model.getData(), view, mapViewStatus,
 				PlanRenderer.StationMode.CONVEX, PlanRenderer.SegmentMode.CURVE,
 				10, 15);
+		map.setRenderInBackground(true);
 
 		ScrollableView<ScrollableAdvancedPanel> scrollableView = new ScrollableView<>(
 				map);
@@ -517,57 +555,41 @@ public class MapViewer
 		control.getContentArea().deploy(grid);
 	}
 
-	protected void updateStatusBar(int x, int y)
+	protected void updateStatusBar(int x, int y, Node node)
 	{
-		Node node = mouseNode(x, y);
-
 		String stationName = node == null ? "none" : node.station.getName();
 
 		statusBar.setText(String.format("Location: %d,%d, Station: %s", x, y,
 				stationName));
 	}
 
+	/**
+	 * Find the station closest to the specified point of the view, if there
+	 * is one within a few pixels.
+	 *
+	 * @return the station or null if there is none.
+	 */
 	protected Node mouseNode(int x, int y)
 	{
-		Node best = closestNode(x, y);
+		double rx = ViewportUtil.getRealX(map, x);
+		double ry = ViewportUtil.getRealY(map, y);
+		double radius = MOUSE_NODE_RADIUS / map.getZoom();
+		mouseQuery.init(rx - radius, rx + radius, ry - radius, ry + radius);
 
-		if (best == null) {
-			return null;
-		}
-
-		double sx = ViewportUtil.getViewX(map, best.location.x);
-		double sy = ViewportUtil.getViewY(map, best.location.y);
+		NetworkIndex index = map.getPlanRenderer().getIndex();
+		index.queryNodes(mouseQuery, mouseNodes);
+		double[] coords = index.getNodeCoords();
 
-		double dx = Math.abs(sx - x);
-		double dy = Math.abs(sy - y);
-		double d = Math.sqrt(dx * dx + dy * dy);
-
-		if (d < 8) {
-			return best;
-		}
-
-		return null;
-	}
-
-	protected Node closestNode(int vx, int vy)
-	{
-		double x = ViewportUtil.getRealX(map, vx);
-		double y = ViewportUtil.getRealY(map, vy);
-
-		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
-
-		double bestDistance = Double.MAX_VALUE;
+		double bestDistance = radius * radius;
 		Node best = null;
-
-		// TODO: use an index to speed this up
-		for (Node node : lineNetwork.nodes) {
-			Point location = node.location;
-			Vector2 v1 = new Vector2(location);
-			Vector2 v2 = new Vector2(x, y);
-			double d = v2.sub(v1).length2();
+		for (int i = 0; i < mouseNodes.size(); i++) {
+			int id = mouseNodes.get(i);
+			double dx = coords[id * 2] - rx;
+			double dy = coords[id * 2 + 1] - ry;
+			double d = dx * dx + dy * dy;
 			if (d < bestDistance) {
 				bestDistance = d;
-				best = node;
+				best = index.getNode(id);
 			}
 		}
 
@@ -83,7 +83,8 @@ public class MapViewerMouseEventProcessor
 	public void mouseMoved(MouseEvent e)
 	{
 		super.mouseMoved(e);
-		mapViewer.updateStatusBar(e.getX(), e.getY());
+		Node node = mapViewer.mouseNode(e.getX(), e.getY());
+		mapViewer.updateStatusBar(e.getX(), e.getY(), node);
 	}
 
 }
@@ -0,0 +1,135 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.synthetic;
+
+/**
+ * Parameters for the {@link SyntheticNetworkGenerator}. Two generators with
+ * equal configurations produce identical networks.
+ */
+public class SyntheticNetworkConfig
+{
+
+	private long seed = 1;
+	private int numStations = 1000;
+	private int numLines = 10;
+	private int numCircularLines = 1;
+	private double interchangeDensity = 0.1;
+	private int numCorridors = 2;
+	private int linesPerCorridor = 3;
+	private int corridorLength = 8;
+	private int numViews = 1;
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+
+	public int getNumStations()
+	{
+		return numStations;
+	}
+
+	public void setNumStations(int numStations)
+	{
+		this.numStations = numStations;
+	}
+
+	public int getNumLines()
+	{
+		return numLines;
+	}
+
+	public void setNumLines(int numLines)
+	{
+		this.numLines = numLines;
+	}
+
+	public int getNumCircularLines()
+	{
+		return numCircularLines;
+	}
+
+	public void setNumCircularLines(int numCircularLines)
+	{
+		this.numCircularLines = numCircularLines;
+	}
+
+	/**
+	 * @return the probability for each new stop of a line to reuse a nearby
+	 *         station of another line instead of creating a new station.
+	 */
+	public double getInterchangeDensity()
+	{
+		return interchangeDensity;
+	}
+
+	public void setInterchangeDensity(double interchangeDensity)
+	{
+		this.interchangeDensity = interchangeDensity;
+	}
+
+	/**
+	 * @return the number of corridors, i.e. groups of lines that share a
+	 *         sequence of consecutive stations.
+	 */
+	public int getNumCorridors()
+	{
+		return numCorridors;
+	}
+
+	public void setNumCorridors(int numCorridors)
+	{
+		this.numCorridors = numCorridors;
+	}
+
+	public int getLinesPerCorridor()
+	{
+		return linesPerCorridor;
+	}
+
+	public void setLinesPerCorridor(int linesPerCorridor)
+	{
+		this.linesPerCorridor = linesPerCorridor;
+	}
+
+	public int getCorridorLength()
+	{
+		return corridorLength;
+	}
+
+	public void setCorridorLength(int corridorLength)
+	{
+		this.corridorLength = corridorLength;
+	}
+
+	public int getNumViews()
+	{
+		return numViews;
+	}
+
+	public void setNumViews(int numViews)
+	{
+		this.numViews = numViews;
+	}
+
+}
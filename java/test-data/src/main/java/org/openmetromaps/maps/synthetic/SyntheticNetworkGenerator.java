@@ -0,0 +1,376 @@
+// Copyright 2018 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.synthetic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.openmetromaps.maps.CoordinateConversion;
+import org.openmetromaps.maps.Edges;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapModelUtil;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.ModelUtil;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkBuilder;
+import org.openmetromaps.maps.graph.LineNetworkUtil;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.model.Coordinate;
+import org.openmetromaps.maps.model.Line;
+import org.openmetromaps.maps.model.ModelData;
+import org.openmetromaps.maps.model.Station;
+import org.openmetromaps.maps.model.Stop;
+
+import de.topobyte.lightgeom.lina.Point;
+
+/**
+ * Generates metro networks of arbitrary size for scale testing. Lines are
+ * random walks through a square area around Berlin, stations of different
+ * lines that are close to each other are merged into interchanges with a
+ * configurable probability. The output only depends on the configuration,
+ * including its seed.
+ */
+public class SyntheticNetworkGenerator
+{
+
+	// distance between consecutive stops in degrees of longitude
+	private static final double SPACING = 0.006;
+	// latitude degrees are longer than longitude degrees at this latitude
+	private static final double ASPECT = 0.6;
+	private static final double CENTER_LON = 13.4;
+	private static final double CENTER_LAT = 52.5;
+
+	private static final double MAX_INTERCHANGE_DENSITY = 0.9;
+
+	private SyntheticNetworkConfig config;
+
+	private Random random;
+	private double extent;
+	private double interchangeDensity;
+
+	private List<Station> stations;
+	private List<Line> lines;
+	private Map<Long, List<Station>> cells;
+
+	public SyntheticNetworkGenerator(SyntheticNetworkConfig config)
+	{
+		this.config = config;
+	}
+
+	/**
+	 * Generate the model data and the configured number of views. The first
+	 * view places stations at their geographic location, the others snap the
+	 * stations to increasingly coarse grids.
+	 */
+	public MapModel generate()
+	{
+		ModelData data = generateData();
+		MapModel model = new MapModel(data);
+
+		List<Edges> edges = MapModelUtil.allEdges(data);
+		for (int i = 0; i < config.getNumViews(); i++) {
+			model.getViews().add(createView(data, edges, i));
+		}
+		return model;
+	}
+
+	public ModelData generateData()
+	{
+		random = new Random(config.getSeed());
+		extent = SPACING * Math.sqrt(config.getNumStations()) * 0.75;
+		interchangeDensity = Math.max(0, Math.min(MAX_INTERCHANGE_DENSITY,
+				config.getInterchangeDensity()));
+
+		stations = new ArrayList<>();
+		lines = new ArrayList<>();
+		cells = new HashMap<>();
+
+		int numLines = Math.max(1, config.getNumLines());
+		int numCircular = Math.min(numLines, config.getNumCircularLines());
+		int perLine = Math.max(3, config.getNumStations() / numLines);
+		int baseLength = Math.max(2, perLine / 2);
+
+		List<LineBuilder> builders = new ArrayList<>();
+		for (int i = 0; i < numLines; i++) {
+			builders.add(new LineBuilder(createLine(i, i < numCircular)));
+		}
+
+		for (int i = 0; i < numCircular; i++) {
+			builders.get(i).ring(perLine);
+		}
+
+		int next = numCircular;
+		int corridorLength = Math.max(2, config.getCorridorLength());
+		for (int c = 0; c < config.getNumCorridors(); c++) {
+			if (next >= numLines) {
+				break;
+			}
+			LineBuilder leader = builders.get(next++);
+			leader.walk(Math.max(baseLength, corridorLength + 1));
+			for (int k = 1; k < config.getLinesPerCorridor(); k++) {
+				if (next >= numLines) {
+					break;
+				}
+				LineBuilder follower = builders.get(next++);
+				follower.follow(leader, corridorLength);
+				follower.walk(Math.max(1, baseLength - corridorLength));
+			}
+		}
+
+		for (int i = next; i < numLines; i++) {
+			builders.get(i).walk(baseLength);
+		}
+
+		// extend the open lines until we reach the number of stations
+		List<LineBuilder> open = builders.subList(numCircular, numLines);
+		for (int i = 0; !open.isEmpty()
+				&& stations.size() < config.getNumStations(); i++) {
+			open.get(i % open.size()).step();
+		}
+
+		return new ModelData(lines, stations);
+	}
+
+	private Line createLine(int index, boolean circular)
+	{
+		String color = "#" + Integer
+				.toHexString(0x1000000 | random.nextInt(0x1000000))
+				.substring(1).toUpperCase();
+		Line line = new Line(index, "Line " + (index + 1), color, circular,
+				new ArrayList<Stop>());
+		lines.add(line);
+		return line;
+	}
+
+	private class LineBuilder
+	{
+
+		private Line line;
+		private Set<Station> visited = new HashSet<>();
+		private double x;
+		private double y;
+		private double heading;
+
+		LineBuilder(Line line)
+		{
+			this.line = line;
+			x = CENTER_LON + (random.nextDouble() * 2 - 1) * extent;
+			y = CENTER_LAT + (random.nextDouble() * 2 - 1) * extent * ASPECT;
+			heading = random.nextDouble() * 2 * Math.PI;
+		}
+
+		void ring(int numStops)
+		{
+			double radius = numStops * SPACING / (2 * Math.PI);
+			double cx = x / 2 + CENTER_LON / 2;
+			double cy = y / 2 + CENTER_LAT / 2;
+			for (int i = 0; i < numStops; i++) {
+				double angle = 2 * Math.PI * i / numStops;
+				stop(cx + Math.cos(angle) * radius,
+						cy + Math.sin(angle) * radius * ASPECT);
+			}
+		}
+
+		void walk(int numStops)
+		{
+			if (line.getStops().isEmpty()) {
+				stop(x, y);
+				numStops--;
+			}
+			for (int i = 0; i < numStops; i++) {
+				step();
+			}
+		}
+
+		void step()
+		{
+			heading += random.nextGaussian() * 0.35;
+			double nx = x + Math.cos(heading) * SPACING;
+			double ny = y + Math.sin(heading) * SPACING * ASPECT;
+			if (Math.abs(nx - CENTER_LON) > extent
+					|| Math.abs(ny - CENTER_LAT) > extent * ASPECT) {
+				// turn back towards the center
+				heading = Math.atan2((CENTER_LAT - y) / ASPECT,
+						CENTER_LON - x);
+				nx = x + Math.cos(heading) * SPACING;
+				ny = y + Math.sin(heading) * SPACING * ASPECT;
+			}
+			stop(nx, ny);
+		}
+
+		/**
+		 * Share a sequence of consecutive stations with the specified line
+		 * and continue in a different direction afterwards.
+		 */
+		void follow(LineBuilder leader, int length)
+		{
+			List<Stop> stops = leader.line.getStops();
+			length = Math.min(length, stops.size());
+			int start = random.nextInt(stops.size() - length + 1);
+			for (int i = start; i < start + length; i++) {
+				add(stops.get(i).getStation());
+			}
+
+			Coordinate last = stops.get(start + length - 1).getStation()
+					.getLocation();
+			if (length > 1) {
+				Coordinate before = stops.get(start + length - 2).getStation()
+						.getLocation();
+				heading = Math.atan2(
+						(last.getLatitude() - before.getLatitude()) / ASPECT,
+						last.getLongitude() - before.getLongitude());
+			}
+			double turn = 0.6 + 0.6 * random.nextDouble();
+			heading += random.nextBoolean() ? turn : -turn;
+		}
+
+		private void stop(double sx, double sy)
+		{
+			Station station = null;
+			if (random.nextDouble() < interchangeDensity) {
+				station = findNearby(sx, sy, visited);
+			}
+			if (station == null) {
+				station = createStation(sx, sy);
+			}
+			add(station);
+		}
+
+		private void add(Station station)
+		{
+			if (!visited.add(station)) {
+				return;
+			}
+			Stop stop = new Stop(station, line);
+			line.getStops().add(stop);
+			station.getStops().add(stop);
+			x = station.getLocation().getLongitude();
+			y = station.getLocation().getLatitude();
+		}
+
+	}
+
+	private Station createStation(double lon, double lat)
+	{
+		int id = stations.size();
+		Station station = new Station(id, "Station " + (id + 1),
+				new Coordinate(lon, lat), new ArrayList<Stop>());
+		stations.add(station);
+
+		long key = cell(cellX(lon), cellY(lat));
+		List<Station> list = cells.get(key);
+		if (list == null) {
+			list = new ArrayList<>();
+			cells.put(key, list);
+		}
+		list.add(station);
+		return station;
+	}
+
+	private Station findNearby(double lon, double lat, Set<Station> exclude)
+	{
+		double maxDistance = SPACING * 0.75;
+		Station best = null;
+		double bestDistance = maxDistance * maxDistance;
+
+		int cx = cellX(lon);
+		int cy = cellY(lat);
+		for (int i = cx - 1; i <= cx + 1; i++) {
+			for (int j = cy - 1; j <= cy + 1; j++) {
+				List<Station> list = cells.get(cell(i, j));
+				if (list == null) {
+					continue;
+				}
+				for (Station station : list) {
+					if (exclude.contains(station)) {
+						continue;
+					}
+					Coordinate c = station.getLocation();
+					double dx = c.getLongitude() - lon;
+					double dy = (c.getLatitude() - lat) / ASPECT;
+					double d = dx * dx + dy * dy;
+					if (d < bestDistance) {
+						bestDistance = d;
+						best = station;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	private static int cellX(double lon)
+	{
+		return (int) Math.floor(lon / SPACING);
+	}
+
+	private static int cellY(double lat)
+	{
+		return (int) Math.floor(lat / (SPACING * ASPECT));
+	}
+
+	private static long cell(int x, int y)
+	{
+		return ((long) x << 32) ^ (y & 0xffffffffL);
+	}
+
+	private MapView createView(ModelData data, List<Edges> edges, int index)
+	{
+		LineNetworkBuilder builder = new LineNetworkBuilder(data, edges);
+		LineNetwork lineNetwork = builder.getGraph();
+		for (Node node : lineNetwork.getNodes()) {
+			Coordinate coord = node.station.getLocation();
+			node.location = new Point(coord.getLongitude(),
+					coord.getLatitude());
+		}
+		LineNetworkUtil.calculateAllNeighborLocations(lineNetwork);
+
+		String name = index == 0 ? "geographic" : "snapped-" + index;
+		MapView view = new MapView(name, edges, lineNetwork,
+				ModelUtil.viewConfig(lineNetwork));
+		CoordinateConversion.convertView(view);
+
+		if (index > 0) {
+			snap(lineNetwork, 5 * index);
+			LineNetworkUtil.calculateAllNeighborLocations(lineNetwork);
+		}
+		return view;
+	}
+
+	/**
+	 * Move nodes to the closest point of a grid with the specified cell size,
+	 * unless another node already occupies that point.
+	 */
+	private static void snap(LineNetwork lineNetwork, double size)
+	{
+		Set<Long> occupied = new HashSet<>();
+		for (Node node : lineNetwork.getNodes()) {
+			int gx = (int) Math.round(node.location.x / size);
+			int gy = (int) Math.round(node.location.y / size);
+			if (occupied.add(cell(gx, gy))) {
+				node.location = new Point(gx * size, gy * size);
+			}
+		}
+	}
+
+}